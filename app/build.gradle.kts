@@ -14,6 +14,19 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Capture raw API responses for offline replay: ./gradlew installDebug -PrecordFeed=true
+        buildConfigField("boolean", "RECORD_FEED", (project.findProperty("recordFeed") ?: "false").toString())
+
+        // Point the app at another server, e.g. a FeedServer on the host: -PapiBaseUrl=http://10.0.2.2:8080/
+        buildConfigField("String", "API_BASE_URL", "\"${project.findProperty("apiBaseUrl") ?: "https://api.um.warszawa.pl/"}\"")
+
+        // Serve a synthetic fleet of this many vehicles from an in-process server: -PsyntheticFleet=10000
+        buildConfigField("int", "SYNTHETIC_FLEET_SIZE", (project.findProperty("syntheticFleet") ?: "0").toString())
+
+        // Fade out vehicles whose last report is older than this, and hide them after the maximum age: -PreportFadeAge=90 -PreportMaxAge=300
+        buildConfigField("int", "REPORT_FADE_AGE_SECONDS", (project.findProperty("reportFadeAge") ?: "90").toString())
+        buildConfigField("int", "REPORT_MAX_AGE_SECONDS", (project.findProperty("reportMaxAge") ?: "300").toString())
     }
 
     buildTypes {
@@ -31,6 +44,7 @@ android {
     }
     buildFeatures {
         viewBinding = true
+        buildConfig = true
     }
 
     packaging {
@@ -65,8 +79,9 @@ dependencies {
     androidTestImplementation(libs.espresso.core)
     implementation("com.google.android.gms:play-services-maps:19.0.0")
     implementation ("com.google.android.gms:play-services-location:21.0.1")
-    implementation ("com.squareup.retrofit2:retrofit:2.9.0")
-    implementation ("com.squareup.retrofit2:converter-gson:2.9.0")
+    // Models, decoding, snapshots and indexes; brings Retrofit, Gson and OkHttp along
+    implementation(project(":core"))
+    implementation ("androidx.lifecycle:lifecycle-viewmodel:2.6.1")
     testImplementation("junit:junit:4.13.2")
     testImplementation("org.robolectric:robolectric:4.12.1")
     testImplementation("org.mockito:mockito-core:5.14.1")
@@ -1,20 +1,26 @@
 package pl.creativesstudio;
 
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.CheckedTextView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.List;
-
 /**
  * Adapter for displaying a list of bus lines in a RecyclerView.
  * Handles item clicks to trigger actions when a bus line is selected.
+ * Each row shows a check mark, so several pinned lines can be displayed at once,
+ * and the live number of vehicles of the line.
+ * Extends `ListAdapter`, so search results and updated counts are diffed on a background thread
+ * and only the rows that changed are rebound.
  */
-public class BusLinesAdapter extends RecyclerView.Adapter<BusLinesAdapter.ViewHolder> {
+public class BusLinesAdapter extends ListAdapter<BusLinesAdapter.Item, BusLinesAdapter.ViewHolder> {
 
     /**
      * Interface for handling click events on bus lines.
@@ -23,30 +29,113 @@ public class BusLinesAdapter extends RecyclerView.Adapter<BusLinesAdapter.ViewHo
         /**
          * Called when a bus line is clicked.
          *
-         * @param line The selected bus line.
+         * @param line The clicked bus line.
          */
         void onLineClick(String line);
     }
 
     /**
-     * List of bus lines to display.
+     * Interface for handling click events on vehicles found by their number.
      */
-    private final List<String> busLines;
+    public interface OnVehicleClickListener {
+        /**
+         * Called when a vehicle is clicked.
+         *
+         * @param vehicleNumber The vehicle number of the clicked vehicle.
+         */
+        void onVehicleClick(String vehicleNumber);
+    }
+
+    /**
+     * A row of the list: a line or a vehicle matched by its number.
+     */
+    public static final class Item {
+        /**
+         * The line name, or the vehicle number for vehicle rows.
+         */
+        final String key;
+
+        /**
+         * Secondary text, such as the number of vehicles of the line.
+         */
+        final String detail;
+
+        /**
+         * Whether the row is a vehicle rather than a line.
+         */
+        final boolean vehicle;
+
+        /**
+         * Whether the row is shown as checked.
+         */
+        final boolean checked;
+
+        private Item(String key, String detail, boolean vehicle, boolean checked) {
+            this.key = key;
+            this.detail = detail;
+            this.vehicle = vehicle;
+            this.checked = checked;
+        }
+
+        /**
+         * Creates a line row.
+         *
+         * @param line    The line name.
+         * @param detail  Secondary text, e.g. the vehicle count.
+         * @param checked Whether the line is pinned.
+         * @return The row.
+         */
+        public static Item line(String line, String detail, boolean checked) {
+            return new Item(line, detail, false, checked);
+        }
+
+        /**
+         * Creates a vehicle row.
+         *
+         * @param vehicleNumber The vehicle number.
+         * @param detail        Secondary text, e.g. the line of the vehicle.
+         * @return The row.
+         */
+        public static Item vehicle(String vehicleNumber, String detail) {
+            return new Item(vehicleNumber, detail, true, false);
+        }
+    }
+
+    /**
+     * Identifies rows by kind and key; a row changes when its count or check mark changes.
+     */
+    private static final DiffUtil.ItemCallback<Item> DIFF_CALLBACK = new DiffUtil.ItemCallback<Item>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+            return oldItem.vehicle == newItem.vehicle && oldItem.key.equals(newItem.key);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+            return oldItem.checked == newItem.checked && oldItem.detail.equals(newItem.detail);
+        }
+    };
 
     /**
      * Listener for handling click events on bus lines.
      */
     private final OnLineClickListener listener;
 
+    /**
+     * Listener for handling click events on vehicles.
+     */
+    private final OnVehicleClickListener vehicleListener;
+
     /**
      * Constructs a new `BusLinesAdapter`.
      *
-     * @param busLines A list of strings representing bus lines to display.
-     * @param listener An instance of `OnLineClickListener` to handle item clicks.
+     * @param listener        An instance of `OnLineClickListener` to handle clicks on lines.
+     * @param vehicleListener An instance of `OnVehicleClickListener` to handle clicks on vehicles.
      */
-    public BusLinesAdapter(List<String> busLines, OnLineClickListener listener) {
-        this.busLines = busLines;
+    public BusLinesAdapter(OnLineClickListener listener, OnVehicleClickListener vehicleListener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        this.vehicleListener = vehicleListener;
     }
 
     /**
@@ -59,7 +148,7 @@ public class BusLinesAdapter extends RecyclerView.Adapter<BusLinesAdapter.ViewHo
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext()).inflate(android.R.layout.simple_list_item_1, parent, false);
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_bus_line, parent, false);
         return new ViewHolder(view);
     }
 
@@ -71,19 +160,18 @@ public class BusLinesAdapter extends RecyclerView.Adapter<BusLinesAdapter.ViewHo
      */
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        String line = busLines.get(position);
-        holder.textView.setText(line);
-        holder.itemView.setOnClickListener(v -> listener.onLineClick(line));
-    }
-
-    /**
-     * Returns the total number of items in the data set.
-     *
-     * @return The number of items in the list.
-     */
-    @Override
-    public int getItemCount() {
-        return busLines.size();
+        Item item = getItem(position);
+        holder.textView.setText(item.vehicle ? "#" + item.key : item.key);
+        holder.textView.setChecked(item.checked);
+        holder.textView.setCheckMarkDrawable(item.vehicle ? null : holder.checkMark);
+        holder.detailView.setText(item.detail);
+        holder.itemView.setOnClickListener(v -> {
+            if (item.vehicle) {
+                vehicleListener.onVehicleClick(item.key);
+            } else {
+                listener.onLineClick(item.key);
+            }
+        });
     }
 
     /**
@@ -91,9 +179,19 @@ public class BusLinesAdapter extends RecyclerView.Adapter<BusLinesAdapter.ViewHo
      */
     static class ViewHolder extends RecyclerView.ViewHolder {
         /**
-         * TextView for displaying the bus line name.
+         * Checkable text view for displaying the bus line name.
+         */
+        CheckedTextView textView;
+
+        /**
+         * TextView for displaying the vehicle count or the line of a vehicle.
+         */
+        TextView detailView;
+
+        /**
+         * Check mark of line rows, hidden on vehicle rows.
          */
-        TextView textView;
+        Drawable checkMark;
 
         /**
          * Constructs a new ViewHolder.
@@ -103,6 +201,8 @@ public class BusLinesAdapter extends RecyclerView.Adapter<BusLinesAdapter.ViewHo
         ViewHolder(View itemView) {
             super(itemView);
             textView = itemView.findViewById(android.R.id.text1);
+            detailView = itemView.findViewById(android.R.id.text2);
+            checkMark = textView.getCheckMarkDrawable();
         }
     }
 }
@@ -0,0 +1,363 @@
+package pl.creativesstudio;
+
+import android.app.ActivityManager;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.OkHttpClient;
+import pl.creativesstudio.api.ApiClient;
+import pl.creativesstudio.api.WarsawApiService;
+import pl.creativesstudio.data.SnapshotStore;
+import pl.creativesstudio.memory.MemoryBudget;
+import pl.creativesstudio.metrics.StartupTimeline;
+import pl.creativesstudio.replay.FeedRecording;
+import pl.creativesstudio.replay.FeedServer;
+import pl.creativesstudio.replay.RecordingInterceptor;
+import pl.creativesstudio.replay.ReplayPacer;
+import pl.creativesstudio.replay.SyntheticFleet;
+import pl.creativesstudio.repository.BusRepository;
+import pl.creativesstudio.trace.AndroidTracer;
+import pl.creativesstudio.trace.TraceRecorder;
+import pl.creativesstudio.trace.Tracing;
+
+/**
+ * Retains the `BusRepository` and its HTTP client across configuration changes of `MainActivity`.
+ *
+ * ### Functionality:
+ * - Builds the OkHttp client and the API client once, including the optional feed recorder
+ *   (`-PrecordFeed=true`) and synthetic fleet server (`-PsyntheticFleet=<count>`), off the main thread
+ *   when the first poll runs.
+ * - Owns the `StartupTimeline` of the launch, measured from the start of the process on a cold start.
+ * - Keeps the latest snapshot, indexes and history alive while the activity is recreated,
+ *   so a rotated screen renders the cached data without a network round trip.
+ * - Restores the snapshot persisted by the previous launch, so a cold start renders it
+ *   while the first poll is still running.
+ * - Forwards trace sections to `android.os.Trace` and owns the in-process `TraceRecorder`,
+ *   whose captures are saved as Chrome traces on demand.
+ * - Owns the process-wide `MemoryBudget`, sized from the memory class of the device; the playback history
+ *   and the marker icons of the activity register with it, and it sheds them on `onTrimMemory` and `onLowMemory`.
+ *
+ * ### Lifecycle:
+ * - Cleared when the activity finishes for good; `onCleared` stops polling and releases all resources.
+ */
+public class BusViewModel extends AndroidViewModel {
+
+    /**
+     * API key for authenticating requests to the Warsaw public transport API.
+     */
+    private static final String API_KEY = "3fb6fadd-9c21-43fc-998b-c41cc14663ff";
+
+    /**
+     * Resource ID for the specific API endpoint used to fetch bus data.
+     */
+    private static final String RESOURCE_ID = "f2e5503e-927d-4ad3-9500-4ab9e55deb59";
+
+    /**
+     * Name of the file in the cache directory holding the last snapshot.
+     */
+    private static final String SNAPSHOT_FILE = "last_snapshot.bin";
+
+    /**
+     * Share of the `MemoryBudget` given to the playback history.
+     */
+    private static final double HISTORY_SHARE = 0.6;
+
+    /**
+     * Repository holding the live data.
+     */
+    private final BusRepository repository;
+
+    /**
+     * Recording receiving raw API responses when feed recording is enabled, `null` otherwise.
+     * Opened on the IO pool together with the API client.
+     */
+    private volatile FeedRecording.Writer feedRecording;
+
+    /**
+     * In-process server serving a synthetic fleet when enabled, `null` otherwise.
+     * Started on the IO pool together with the API client.
+     */
+    private volatile FeedServer syntheticFleetServer;
+
+    /**
+     * Whether no view model was created in this process yet, i.e. the next one belongs to a cold start.
+     */
+    private static final AtomicBoolean firstLaunch = new AtomicBoolean(true);
+
+    /**
+     * Milestones of the launch that created this view model.
+     */
+    private final StartupTimeline startupTimeline;
+
+    /**
+     * In-process trace capture, started and saved from the debug overlay of `MainActivity`.
+     */
+    private final TraceRecorder traceRecorder = new TraceRecorder(TraceRecorder.DEFAULT_CAPACITY);
+
+    /**
+     * Budget of the caches, shared by the repository and the activity.
+     */
+    private final MemoryBudget memoryBudget;
+
+    /**
+     * Sheds cached memory when the system runs low.
+     */
+    private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            double keepFraction = keepFractionOf(level);
+            if (keepFraction < 1) shedMemory(keepFraction);
+        }
+
+        @Override
+        public void onLowMemory() {
+            shedMemory(0);
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        }
+    };
+
+    /**
+     * Creates the view model and its repository.
+     *
+     * @param application The application, used for the recordings directory.
+     */
+    public BusViewModel(@NonNull Application application) {
+        super(application);
+
+        // Make trace sections visible to Systrace and Perfetto
+        Tracing.install(AndroidTracer.INSTANCE);
+
+        // Measure the first launch from the start of the process, later ones from now
+        long origin = System.nanoTime();
+        if (firstLaunch.compareAndSet(true, false)) {
+            origin -= (SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime()) * 1_000_000L;
+        }
+        startupTimeline = new StartupTimeline(origin);
+
+        // Persist the last snapshot of the real feed only, so synthetic vehicles never show up on a later launch
+        SnapshotStore store = BuildConfig.SYNTHETIC_FLEET_SIZE <= 0
+                ? new SnapshotStore(new File(application.getCacheDir(), SNAPSHOT_FILE))
+                : null;
+
+        // The repository downloads raw bodies and decodes them in its own pipeline stage;
+        // whole-city payloads are split across its compute pool, typical polls stay below the threshold and decode inline.
+        // The API client is built by the first poll on the IO pool, and the persisted snapshot is read on the
+        // fetch thread, both while the main thread inflates the map
+        repository = new BusRepository(this::createApi, RESOURCE_ID, API_KEY, store, null, null);
+        repository.restore();
+
+        // Size the caches for the heap of this device and shed them under memory pressure
+        ActivityManager activityManager = (ActivityManager) application.getSystemService(Context.ACTIVITY_SERVICE);
+        memoryBudget = MemoryBudget.forMemoryClass(activityManager.getMemoryClass());
+        memoryBudget.register("history", MemoryBudget.Priority.LOW, HISTORY_SHARE, repository.getHistory());
+        application.registerComponentCallbacks(memoryCallbacks);
+    }
+
+    /**
+     * Builds the API client, capturing raw responses when feed recording is enabled.
+     * Called by the first poll of the repository, on its IO pool.
+     *
+     * @return The API client.
+     */
+    private WarsawApiService createApi() {
+        OkHttpClient.Builder httpClient = new OkHttpClient.Builder();
+        if (BuildConfig.RECORD_FEED) {
+            feedRecording = openFeedRecording();
+            if (feedRecording != null) {
+                httpClient.addInterceptor(new RecordingInterceptor(feedRecording));
+            }
+        }
+        WarsawApiService api = ApiClient.create(resolveBaseUrl(), httpClient.build());
+        startupTimeline.mark(StartupTimeline.Milestone.API_CLIENT_READY);
+        return api;
+    }
+
+    /**
+     * Returns the milestones of the current launch.
+     *
+     * @return The timeline, complete once the first vehicle was drawn.
+     */
+    public StartupTimeline getStartupTimeline() {
+        return startupTimeline;
+    }
+
+    /**
+     * Returns the retained repository.
+     *
+     * @return The repository shared by all instances of the activity.
+     */
+    public BusRepository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Returns the budget of the caches.
+     *
+     * @return The budget shared by the repository and the activity.
+     */
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Maps an `onTrimMemory` level to the fraction of the cache budget to keep.
+     *
+     * ### Levels:
+     * - UI hidden, or moderate pressure while running: keep everything. Hiding the UI says nothing about
+     *   memory, and the playback history should survive a trip to the home screen.
+     * - Low pressure while running, or at the top of the background LRU list: keep half.
+     * - Critical pressure while running, or in the middle of the background LRU list: keep a quarter.
+     * - About to be killed: drop every cache.
+     *
+     * @param level The level passed to `onTrimMemory`.
+     * @return The fraction to keep, `0`-`1`.
+     */
+    static double keepFractionOf(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) return 0;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) return 0.25;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) return 0.5;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) return 1;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) return 0.25;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) return 0.5;
+        return 1;
+    }
+
+    /**
+     * Sheds the caches down to a fraction of the budget and logs the resulting footprint.
+     *
+     * @param keepFraction Fraction of the budget to keep.
+     */
+    private void shedMemory(double keepFraction) {
+        long freed = memoryBudget.shed(keepFraction);
+        Log.i("MemoryBudget", "Freed " + freed / 1024 + " KB, keeping " + keepFraction + " of the budget\n" + memoryBudget);
+    }
+
+    /**
+     * Determines the base URL of the API.
+     *
+     * ### Behavior:
+     * - Uses `BuildConfig.API_BASE_URL`, which defaults to the production API and can be overridden
+     *   with `-PapiBaseUrl=<url>`, e.g. to reach a `FeedServer` running on the development machine.
+     * - When `BuildConfig.SYNTHETIC_FLEET_SIZE` is positive, starts an in-process `FeedServer` serving
+     *   a `SyntheticFleet` of that size and returns its loopback URL instead.
+     *
+     * @return The base URL to create the API client with.
+     */
+    private String resolveBaseUrl() {
+        if (BuildConfig.SYNTHETIC_FLEET_SIZE > 0) {
+            try {
+                SyntheticFleet fleet = new SyntheticFleet(BuildConfig.SYNTHETIC_FLEET_SIZE,
+                        Math.max(1, BuildConfig.SYNTHETIC_FLEET_SIZE / 6), 42L);
+                syntheticFleetServer = FeedServer.start(fleet, ReplayPacer.AS_FAST_AS_POSSIBLE, 0);
+                Log.i("SyntheticFleet", "Serving " + fleet.getVehicleCount() + " vehicles at "
+                        + syntheticFleetServer.getBaseUrl());
+                return syntheticFleetServer.getBaseUrl();
+            } catch (IOException e) {
+                Log.w("SyntheticFleet", "Failed to start synthetic fleet server", e);
+            }
+        }
+        return BuildConfig.API_BASE_URL;
+    }
+
+    /**
+     * Creates a new feed recording in the app's external files directory.
+     * The file can be pulled with `adb pull /sdcard/Android/data/pl.creativesstudio/files/recordings/`
+     * and replayed on a JVM with `FeedRecording.read`.
+     *
+     * @return The opened recording, or `null` if the file cannot be created.
+     */
+    private FeedRecording.Writer openFeedRecording() {
+        File directory = getApplication().getExternalFilesDir("recordings");
+        if (directory == null) return null;
+
+        File file = new File(directory, "feed-" + System.currentTimeMillis() + ".rec.gz");
+        try {
+            Log.i("FeedRecorder", "Recording API responses to " + file);
+            return FeedRecording.create(file);
+        } catch (IOException e) {
+            Log.w("FeedRecorder", "Failed to create recording " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the in-process trace recorder.
+     *
+     * @return The recorder; not recording until started.
+     */
+    public TraceRecorder getTraceRecorder() {
+        return traceRecorder;
+    }
+
+    /**
+     * Stops the trace capture and writes it as a Chrome trace into the app's external `traces` directory,
+     * from where it can be pulled with `adb` and opened in `chrome://tracing` or Perfetto.
+     * Blocks while writing, so it should not be called on the main thread.
+     *
+     * @return The written file, or `null` if the capture could not be saved.
+     */
+    public File saveTrace() {
+        traceRecorder.stop();
+        File directory = getApplication().getExternalFilesDir("traces");
+        if (directory == null) return null;
+
+        File file = new File(directory, "trace-" + System.currentTimeMillis() + ".json");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            traceRecorder.writeChromeTrace(out);
+            Log.i("TraceRecorder", "Saved " + traceRecorder.getEventCount() + " trace events to " + file);
+            return file;
+        } catch (IOException e) {
+            Log.w("TraceRecorder", "Failed to save trace " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stops the repository and releases the synthetic fleet server, the feed recording and the memory callbacks.
+     */
+    @Override
+    protected void onCleared() {
+        getApplication().unregisterComponentCallbacks(memoryCallbacks);
+
+        // Stop polling and the fetch thread
+        repository.close();
+        traceRecorder.stop();
+
+        // Stop the synthetic fleet server
+        if (syntheticFleetServer != null) {
+            try {
+                syntheticFleetServer.close();
+            } catch (IOException e) {
+                Log.w("SyntheticFleet", "Failed to stop synthetic fleet server", e);
+            }
+        }
+
+        // Finish the feed recording so the file is complete
+        if (feedRecording != null) {
+            try {
+                feedRecording.close();
+            } catch (IOException e) {
+                Log.w("FeedRecorder", "Failed to close recording", e);
+            }
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package pl.creativesstudio;
 
 import android.Manifest;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.graphics.*;
 import android.location.Location;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.Choreographer;
 import android.view.View;
+import android.widget.EditText;
 import android.widget.ImageButton;
+import android.widget.SeekBar;
+import android.widget.TextView;
 import android.widget.Toast;
 import android.graphics.drawable.Drawable;
 import android.util.Log;
@@ -16,6 +24,7 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -25,21 +34,42 @@ import com.google.android.gms.maps.*;
 import com.google.android.gms.maps.model.*;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-
-import pl.creativesstudio.api.WarsawApiService;
-import pl.creativesstudio.models.ApiResponse;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import pl.creativesstudio.api.FeedTime;
+import pl.creativesstudio.data.FetchPlan;
+import pl.creativesstudio.data.ReportAgePolicy;
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.index.GeoBounds;
+import pl.creativesstudio.index.LineCatalog;
+import pl.creativesstudio.index.LineSelection;
+import pl.creativesstudio.index.LineSortKey;
+import pl.creativesstudio.index.NearbyVehicle;
+import pl.creativesstudio.index.SearchIndex;
+import pl.creativesstudio.index.ViewportIndex;
+import pl.creativesstudio.memory.BoundedCache;
+import pl.creativesstudio.memory.MemoryBudget;
+import pl.creativesstudio.metrics.Gauge;
+import pl.creativesstudio.metrics.LatencyHistogram;
+import pl.creativesstudio.metrics.MetricsRegistry;
+import pl.creativesstudio.metrics.StartupTimeline;
 import pl.creativesstudio.models.Bus;
-import retrofit2.Call;
-import retrofit2.Response;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
-
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import pl.creativesstudio.render.GoogleMapRenderer;
+import pl.creativesstudio.render.MapRenderer;
+import pl.creativesstudio.render.MarkerLayer;
+import pl.creativesstudio.render.ViewportPrefetcher;
+import pl.creativesstudio.repository.BusRepository;
+import pl.creativesstudio.time.Debouncer;
+import pl.creativesstudio.time.HandlerScheduler;
+import pl.creativesstudio.trace.TraceRecorder;
+import pl.creativesstudio.trace.Tracing;
 
 
 /**
@@ -54,6 +84,7 @@ import java.util.concurrent.Executors;
  *   - `GoogleMap.OnMyLocationButtonClickListener`: Responds to clicks on the "My Location" button.
  *   - `GoogleMap.OnMyLocationClickListener`: Handles clicks on the user's location dot on the map.
  *   - `GoogleMap.OnCameraIdleListener`: Responds to camera movement and idle states to update map data.
+ *   - `GoogleMap.OnCameraMoveListener`: Draws the markers ahead of a moving or flung camera.
  *   - `ActivityCompat.OnRequestPermissionsResultCallback`: Handles the results of runtime permission requests.
  *
  * ### Responsibilities:
@@ -62,6 +93,8 @@ import java.util.concurrent.Executors;
  * - Fetches and displays real-time bus data using the Warsaw API.
  * - Updates map data dynamically based on user interactions and zoom levels.
  * - Provides feedback and interaction capabilities via toast messages and custom markers.
+ * - Records the last hour of polls and replays them through the timeline scrubber.
+ * - Keeps a live list of the vehicles nearest to the user.
  *
  * ### Key Components:
  * - **Google Maps Integration**:
@@ -72,7 +105,8 @@ import java.util.concurrent.Executors;
  * - **Event Listeners**:
  *   - Handles user interactions with the map and updates visible data accordingly.
  * - **Background Operations**:
- *   - Uses an `ExecutorService` to fetch bus data from the API asynchronously.
+ *   - Uses a `BusRepository`, retained across configuration changes by `BusViewModel`, to fetch bus data
+ *     from the API asynchronously.
  *
  * ### Notes:
  * - This activity is the central point of interaction for the user.
@@ -83,6 +117,7 @@ public class MainActivity extends AppCompatActivity
         GoogleMap.OnMyLocationButtonClickListener,
         GoogleMap.OnMyLocationClickListener,
         GoogleMap.OnCameraIdleListener,
+        GoogleMap.OnCameraMoveListener,
         ActivityCompat.OnRequestPermissionsResultCallback {
 
 
@@ -99,9 +134,9 @@ public class MainActivity extends AppCompatActivity
 
     /**
      * Current center position of the map.
-     * Updated whenever the camera position changes.
+     * Updated whenever the camera position changes; read by `refreshNearbyList` on the fetch thread.
      */
-    public LatLng currentMapCenter;
+    public volatile LatLng currentMapCenter;
 
     /**
      * Visible bounds of the map.
@@ -110,76 +145,88 @@ public class MainActivity extends AppCompatActivity
     public LatLngBounds visibleBounds;
 
     /**
-     * Retrofit API service for interacting with Warsaw's public transport API.
-     * Used to fetch real-time bus data.
+     * Repository retained across configuration changes by `BusViewModel`.
+     * Owns the API client, the periodic fetch schedule and the latest snapshot with its indexes.
      */
-    private WarsawApiService apiService;
+    private BusRepository repository;
 
     /**
-     * Base URL for the Warsaw public transport API.
+     * View model retaining the repository and the trace recorder.
      */
-    private static final String BASE_URL = "https://api.um.warszawa.pl/";
+    private BusViewModel viewModel;
 
     /**
-     * API key for authenticating requests to the Warsaw public transport API.
+     * Handler for scheduling and managing periodic tasks.
      */
-    private static final String API_KEY = "3fb6fadd-9c21-43fc-998b-c41cc14663ff";
+    private Handler handler = new Handler();
 
     /**
-     * Resource ID for the specific API endpoint used to fetch bus data.
+     * Delay for map updates in milliseconds.
      */
-    private static final String RESOURCE_ID = "f2e5503e-927d-4ad3-9500-4ab9e55deb59";
+    private static final long MAP_UPDATE_DELAY = 1000;
 
     /**
-     * Handler for scheduling and managing periodic tasks.
+     * Chooses the padded region whose markers are drawn, and stages the predicted end of a fling.
+     * Updated at rest by `updateVisibleBounds` and while moving by `onCameraMove`.
      */
-    private Handler handler = new Handler();
+    private final ViewportPrefetcher viewportPrefetcher = new ViewportPrefetcher(ViewportPrefetcher.DEFAULT_PADDING);
 
     /**
-     * Runnable for periodic updates of bus data.
+     * Debouncer of map updates after camera movement.
      */
-    private Runnable runnable;
+    private final Debouncer mapUpdateDebouncer =
+            new Debouncer(new HandlerScheduler(handler), MAP_UPDATE_DELAY, this::updateMapWithCurrentData);
 
     /**
-     * Runnable for delayed map updates after camera movement.
+     * High zoom data refresh interval in milliseconds.
      */
-    private Runnable mapUpdateRunnable;
+    private static final long DATA_REFRESH_INTERVAL_HIGH_ZOOM = 5000;
 
     /**
-     * Delay for map updates in milliseconds.
+     * Default data refresh interval in milliseconds.
      */
-    private static final long MAP_UPDATE_DELAY = 1000;
+    private static final long DATA_REFRESH_INTERVAL_DEFAULT = 10000;
 
     /**
-     * High zoom data refresh interval in milliseconds.
+     * Minimum zoom level required to display buses on the map.
      */
-    private static final long DATA_REFRESH_INTERVAL_HIGH_ZOOM = 5000;
+    private static final float MIN_ZOOM_LEVEL = 14.0f;
 
     /**
-     * Low zoom data refresh interval in milliseconds.
+     * Opacity of markers showing stale data, e.g. the snapshot restored on a cold start.
      */
-    private static final long DATA_REFRESH_INTERVAL_LOW_ZOOM = 15000;
+    private static final float STALE_MARKER_ALPHA = 0.5f;
 
     /**
-     * Default data refresh interval in milliseconds.
+     * Fades out and hides vehicles that stopped reporting, configured with `-PreportFadeAge` and `-PreportMaxAge`.
      */
-    private static final long DATA_REFRESH_INTERVAL_DEFAULT = 10000;
+    private static final ReportAgePolicy REPORT_AGE_POLICY = new ReportAgePolicy(
+            BuildConfig.REPORT_FADE_AGE_SECONDS * 1000L, BuildConfig.REPORT_MAX_AGE_SECONDS * 1000L);
 
     /**
-     * Minimum interval between API calls in milliseconds.
+     * Renderer of the map, created with `mMap` in `onMapReady`; the display path draws through it only.
      */
-    private static final long MIN_API_CALL_INTERVAL = 5000;
+    private MapRenderer mapRenderer;
 
     /**
-     * Minimum zoom level required to display buses on the map.
+     * Vehicle markers displayed through `mapRenderer`, created with it.
      */
-    private static final float MIN_ZOOM_LEVEL = 14.0f;
+    private MarkerLayer markerLayer;
+
+    /**
+     * Share of the `MemoryBudget` given to the marker icons.
+     */
+    private static final double MARKER_ICON_SHARE = 0.2;
 
     /**
-     * Map of active markers for displayed buses.
-     * The key is the bus ID, and the value is the corresponding map marker.
+     * Marker icons by line, sized by the `MemoryBudget` of `viewModel` and shed under memory pressure.
      */
-    private Map<String, Marker> activeMarkers = new HashMap<>();
+    private final BoundedCache<String, BitmapDescriptor> markerIcons = new BoundedCache<>();
+
+    /**
+     * Account of `markerIcons` in the `MemoryBudget`, released in `onDestroy`.
+     */
+    private MemoryBudget.Account markerIconsAccount;
 
     /**
      * ID of the currently selected bus.
@@ -188,39 +235,235 @@ public class MainActivity extends AppCompatActivity
     private String selectedBusId = null;
 
     /**
-     * List of buses last loaded from the API.
-     * Represents the most recent dataset fetched from the API.
+     * Flag indicating whether the activity was recreated from saved state, e.g. after a rotation.
+     * The map then keeps its restored camera and renders the retained snapshot without waiting for a poll.
+     */
+    private boolean restoredState = false;
+
+    /**
+     * Flag indicating whether `onCreate` already requested the first poll of a cold start,
+     * so `onMapReady` does not request it again.
+     */
+    private boolean initialFetchRequested = false;
+
+    /**
+     * Lines pinned in the bottom sheet; empty when all lines are shown.
+     * Applied to the map, the fetch plan and the list of nearby vehicles, and persisted across restarts.
+     * Set in `onCreate` with the dictionary of the repository.
+     */
+    private volatile LineSelection lineSelection;
+
+    /**
+     * Name of the preferences file holding user settings.
+     */
+    private static final String PREFS_NAME = "track_my_bus";
+
+    /**
+     * Preference key of the pinned lines.
+     */
+    private static final String PREF_SELECTED_LINES = "selected_lines";
+
+    /**
+     * Label of the bottom sheet entry that clears the line selection.
+     */
+    private static final String SHOW_ALL_BUSES = "SHOW ALL BUSES";
+
+    /**
+     * Saved state key of the selected bus.
+     */
+    private static final String STATE_SELECTED_BUS = "selected_bus_id";
+
+    /**
+     * Saved state key of the pinned lines.
+     */
+    private static final String STATE_SELECTED_LINES = "selected_lines";
+
+    /**
+     * Last known location of the user, or `null` if it is not available yet.
+     */
+    private volatile LatLng userLocation = null;
+
+    /**
+     * Adapter of the lines sheet while it is open, `null` otherwise.
+     */
+    private volatile BusLinesAdapter linesAdapter = null;
+
+    /**
+     * Text typed in the search box of the lines sheet.
+     */
+    private volatile String lineQuery = "";
+
+    /**
+     * Maximum number of vehicles listed when a search matches vehicle numbers.
+     */
+    private static final int MAX_VEHICLE_RESULTS = 20;
+
+    /**
+     * Adapter of the "buses near me" sheet while it is open, `null` otherwise.
+     */
+    private volatile NearbyVehiclesAdapter nearbyAdapter = null;
+
+    /**
+     * Number of vehicles shown in the "buses near me" list.
+     */
+    private static final int NEARBY_VEHICLE_COUNT = 20;
+
+    /**
+     * Snapshot currently shown by the timeline scrubber.
+     * `null` while the map shows live data.
+     */
+    private Snapshot playbackSnapshot = null;
+
+    /**
+     * Line catalog of `playbackSnapshot`, used to apply the line selection to the replayed state.
+     * `null` while the map shows live data.
+     */
+    private LineCatalog playbackCatalog = null;
+
+    /**
+     * Time of the snapshot shown by the timeline scrubber, in milliseconds since the epoch.
+     */
+    private long playbackTime = 0;
+
+    /**
+     * Runnable advancing the timeline while playback is running.
+     */
+    private Runnable playbackRunnable;
+
+    /**
+     * Number of discrete positions on the timeline scrubber.
+     * The last position always represents live data.
+     */
+    private static final int TIMELINE_STEPS = 1000;
+
+    /**
+     * Delay between playback frames in milliseconds.
+     */
+    private static final long PLAYBACK_FRAME_DELAY = 500;
+
+    /**
+     * Playback speed as a multiple of real time.
+     */
+    private static final long PLAYBACK_SPEED = 20;
+
+    /**
+     * Timeline scrubber used to select a moment from the recorded history.
+     */
+    private SeekBar timelineSeekBar;
+
+    /**
+     * Label showing the time selected on the timeline, or "LIVE".
+     */
+    private TextView timelineLabel;
+
+    /**
+     * Button starting and pausing playback of the recorded history.
+     */
+    private ImageButton playbackButton;
+
+    /**
+     * Whether a marker update for a new snapshot is already posted to the main thread.
+     */
+    private final AtomicBoolean markerUpdatePending = new AtomicBoolean();
+
+    /**
+     * Interval between refreshes of the metrics overlay in milliseconds.
+     */
+    private static final long METRICS_OVERLAY_INTERVAL = 1000;
+
+    /**
+     * Histograms listed in the metrics overlay, in pipeline order.
      */
-    private List<Bus> lastLoadedBuses = new ArrayList<>();
+    private static final String[] OVERLAY_HISTOGRAMS = {
+            MetricsRegistry.HTTP_ROUND_TRIP, MetricsRegistry.DECODE, MetricsRegistry.INGEST, MetricsRegistry.INDEX,
+            MetricsRegistry.DIFF, MetricsRegistry.MARKER_APPLY, MetricsRegistry.CAMERA_TO_RENDER, MetricsRegistry.FRAME
+    };
 
     /**
-     * Timestamp of the last successful API call in milliseconds.
-     * Used to manage the interval between consecutive API requests.
+     * Debug overlay over the map listing latency percentiles, counts and the snapshot age.
      */
-    private long lastApiCallTime = 0;
+    private TextView metricsOverlay;
 
     /**
-     * Flag indicating whether this is the first data load for the map.
-     * Ensures that initial data loading is handled correctly.
+     * Metrics recorded by the screen into the registry of the repository, looked up once.
      */
-    private boolean isInitialLoad = true;
+    private LatencyHistogram markerApplyLatency;
+    private LatencyHistogram cameraToRenderLatency;
+    private LatencyHistogram frameLatency;
+    private Gauge markerCount;
 
     /**
-     * Executor service for managing background operations, such as API calls.
+     * Start of the camera-to-render measurement pending since the last `onCameraIdle`, `0` if none.
      */
-    private ExecutorService executorService;
+    private long cameraIdleStarted = 0;
 
     /**
-     * State indicating whether a specific bus line is selected.
-     * If `true`, only buses from the selected line are displayed on the map.
+     * Time of the previous frame in nanoseconds, `0` before the first frame seen by `frameCallback`.
      */
-    private boolean lineSelected = false;
+    private long lastFrameTime = 0;
 
     /**
-     * Complete list of all buses fetched from the API.
-     * Used to support filtering and redisplaying buses as needed.
+     * Records the time between frames while the metrics overlay is shown.
      */
-    private List<Bus> allBuses = new ArrayList<>();
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (lastFrameTime != 0) {
+                frameLatency.record(frameTimeNanos - lastFrameTime);
+            }
+            lastFrameTime = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+
+    /**
+     * Refreshes the metrics overlay every `METRICS_OVERLAY_INTERVAL` while it is shown.
+     */
+    private final Runnable metricsOverlayRunnable = new Runnable() {
+        @Override
+        public void run() {
+            updateMetricsOverlay();
+            handler.postDelayed(this, METRICS_OVERLAY_INTERVAL);
+        }
+    };
+
+    /**
+     * Receives poll outcomes from the repository on its fetch thread while the activity is alive.
+     *
+     * ### Behavior:
+     * - A new snapshot refreshes the open sheets and, unless the timeline is replaying history,
+     *   the markers of the pinned lines within the visible bounds.
+     * - At most one marker update waits on the main thread; it always draws the latest catalog, so
+     *   snapshots arriving faster than the map can draw them are skipped instead of queued.
+     * - A failed poll keeps the retained snapshot on the map and tells the user how old it is.
+     * - The snapshot restored from disk on a cold start arrives the same way and is rendered as stale.
+     */
+    private final BusRepository.Listener repositoryListener = new BusRepository.Listener() {
+        @Override
+        public void onSnapshot(LineCatalog catalog) {
+            // Describe the pipeline only in debug builds, as building the text costs every poll
+            if (BuildConfig.DEBUG) {
+                Log.d("BusRepository", "Processed " + catalog.getSnapshot().size() + " vehicles: "
+                        + repository.getTimings() + ", stages " + repository.getStageStats());
+            }
+            viewModel.getStartupTimeline().mark(StartupTimeline.Milestone.FIRST_SNAPSHOT);
+            refreshNearbyList();
+            refreshLineList();
+            if (!markerUpdatePending.compareAndSet(false, true)) return;
+            runOnUiThread(() -> {
+                markerUpdatePending.set(false);
+                // Keep the replayed state on the map during playback
+                if (playbackSnapshot != null) return;
+                List<Bus> visibleBuses = visibleSelectedBuses();
+                displayBusesOnMap(visibleBuses);
+            });
+        }
+
+        @Override
+        public void onFetchFailed(BusRepository.Failure failure) {
+            runOnUiThread(() -> showCachedData(failure));
+        }
+    };
 
 
     /**
@@ -231,8 +474,12 @@ public class MainActivity extends AppCompatActivity
      * - Sets up the main layout for the activity.
      * - Configures UI elements, such as menu and location buttons, with their respective listeners.
      * - Initializes the Google Map using `SupportMapFragment`.
-     * - Sets up Retrofit for API communication with Warsaw's public transport API.
-     * - Creates an `ExecutorService` for managing background tasks.
+     * - Attaches to the `BusRepository` retained by `BusViewModel`, which owns the Retrofit client
+     *   and the background fetch thread.
+     * - Restores the selected bus and the pinned lines from `savedInstanceState` after a recreation.
+     * - On a cold start, requests the first poll before inflating the layout; the API client is built by that
+     *   poll on the IO pool, and the persisted snapshot is read on the fetch thread.
+     * - Marks the milestones of the launch in the `StartupTimeline` of the view model.
      *
      * ### Parameters:
      * @param savedInstanceState A `Bundle` object containing the activity's previously saved state, if available.
@@ -267,13 +514,42 @@ public class MainActivity extends AppCompatActivity
      * ### Notes:
      * - The Google Map setup relies on `onMapReady` being triggered asynchronously after the map is initialized.
      * - Location permissions are checked and managed dynamically.
-     * - Ensure proper cleanup of the `ExecutorService` in `onDestroy` to prevent memory leaks.
+     * - The activity detaches from the repository in `onDestroy`; the repository outlives configuration changes.
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         // Call the parent implementation
         super.onCreate(savedInstanceState);
 
+        // Attach to the retained repository owning the API client and the latest snapshot
+        viewModel = new ViewModelProvider(this).get(BusViewModel.class);
+        repository = viewModel.getRepository();
+        repository.setListener(repositoryListener);
+        markerIconsAccount = viewModel.getMemoryBudget()
+                .register("marker.icons", MemoryBudget.Priority.NORMAL, MARKER_ICON_SHARE, markerIcons);
+        StartupTimeline timeline = viewModel.getStartupTimeline();
+        timeline.mark(StartupTimeline.Milestone.REPOSITORY_READY);
+
+        // Restore the selected bus and the pinned lines, from saved state after a recreation
+        // or from the previous session otherwise
+        if (savedInstanceState != null) {
+            restoredState = true;
+            selectedBusId = savedInstanceState.getString(STATE_SELECTED_BUS);
+            List<String> savedLines = savedInstanceState.getStringArrayList(STATE_SELECTED_LINES);
+            lineSelection = LineSelection.of(repository.getLineDictionary(),
+                    savedLines != null ? savedLines : Collections.<String>emptyList());
+        } else {
+            lineSelection = loadLineSelection();
+        }
+
+        // Start the first poll of a cold start now, so it overlaps inflating the layout and the map
+        // instead of waiting for the map and the location lookup
+        if (savedInstanceState == null && repository.getCatalog().getSnapshot().size() == 0) {
+            repository.refresh(FetchPlan.forLines(lineSelection.getLines()), true);
+            initialFetchRequested = true;
+            timeline.mark(StartupTimeline.Milestone.FIRST_FETCH_REQUESTED);
+        }
+
         // Set the main layout for the activity
         setContentView(R.layout.activity_main);
 
@@ -281,6 +557,10 @@ public class MainActivity extends AppCompatActivity
         ImageButton buttonMenu = findViewById(R.id.button_menu);
         buttonMenu.setOnClickListener(v -> showBottomSheetWithLines());
 
+        // Setup the button showing the vehicles nearest to the user
+        ImageButton buttonNearby = findViewById(R.id.button_nearby);
+        buttonNearby.setOnClickListener(v -> showNearbyVehicles());
+
         // Setup the current location button
         ImageButton buttonCurrentLocation = findViewById(R.id.button_current_location);
         buttonCurrentLocation.setOnClickListener(v -> {
@@ -291,9 +571,9 @@ public class MainActivity extends AppCompatActivity
                 FusedLocationProviderClient fusedLocationClient = LocationServices.getFusedLocationProviderClient(MainActivity.this);
                 fusedLocationClient.getLastLocation().addOnSuccessListener(MainActivity.this, location -> {
                     if (location != null) {
-                        LatLng userLocation = new LatLng(location.getLatitude(), location.getLongitude());
-                        if (mMap != null) {
-                            mMap.animateCamera(CameraUpdateFactory.newLatLngZoom(userLocation, 15));
+                        userLocation = new LatLng(location.getLatitude(), location.getLongitude());
+                        if (mapRenderer != null) {
+                            mapRenderer.moveCamera(userLocation.latitude, userLocation.longitude, 15, true);
                         }
                     } else {
                         Toast.makeText(MainActivity.this, "Nie udało się pobrać lokalizacji użytkownika", Toast.LENGTH_SHORT).show();
@@ -305,6 +585,12 @@ public class MainActivity extends AppCompatActivity
             }
         });
 
+        // Setup the timeline scrubber for replaying recorded history
+        setupTimeline();
+
+        // Setup the debug metrics overlay, shown again after a recreation if it was open
+        setupMetricsOverlay();
+
         // Initialize the map fragment and set up the map asynchronously
         SupportMapFragment mapFragment = (SupportMapFragment) getSupportFragmentManager()
                 .findFragmentById(R.id.id_map);
@@ -312,34 +598,42 @@ public class MainActivity extends AppCompatActivity
             mapFragment.getMapAsync(this);
         }
 
-        // Initialize Retrofit for API communication
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(BASE_URL)
-                .addConverterFactory(GsonConverterFactory.create())
-                .build();
-        apiService = retrofit.create(WarsawApiService.class);
+        timeline.mark(StartupTimeline.Milestone.ACTIVITY_CREATED);
+    }
 
-        // Create a single-threaded executor service for background tasks
-        executorService = Executors.newSingleThreadExecutor();
+    /**
+     * Saves the selected bus and the pinned lines, so a recreated activity shows the same state.
+     *
+     * @param outState The bundle to save the state into.
+     */
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_SELECTED_BUS, selectedBusId);
+        outState.putStringArrayList(STATE_SELECTED_LINES, new ArrayList<>(lineSelection.getLines()));
     }
 
 
     /**
      * Displays a bottom sheet dialog containing a list of bus lines for filtering.
-     * Allows the user to select a specific bus line or view all buses.
+     * Allows the user to pin any number of bus lines or view all buses.
      *
      * ### Functionality:
      * - Creates a bottom sheet dialog and inflates its layout.
-     * - Populates the dialog with a list of bus lines, including an option to show all buses.
-     * - Sorts the bus lines alphabetically for easier navigation.
-     * - Handles user selection to update the map based on the chosen bus line.
+     * - Populates the dialog with the lines of the current catalog of the `repository`, including an option to show all buses.
+     * - The catalog keeps the lines distinct and in natural order, so building the list costs O(lines).
+     * - Filters the list on every keystroke in the search box, by line name or vehicle number prefix, using the search index of the `repository`.
+     * - Handles user selection to update the map based on the pinned bus lines.
      *
      * ### Behavior:
      * - If the user selects "SHOW ALL BUSES":
-     *   - Clears the filter, displays all buses, and centers the map on the current location.
-     * - If the user selects a specific bus line:
-     *   - Filters the buses to display only those from the selected line.
-     *   - Adjusts the map view to focus on the buses from the selected line.
+     *   - Clears the selection, displays all buses, and centers the map on the current location.
+     * - If the user taps a specific bus line:
+     *   - Pins or unpins the line and keeps the sheet open, so several lines can be pinned.
+     *   - Filters the buses to display only those from the pinned lines.
+     *   - Adjusts the map view to focus on the buses from the pinned lines.
+     * - If the user taps a vehicle found by its number:
+     *   - Closes the sheet, selects the vehicle and moves the camera to it.
      *
      * ### Example:
      * ```java
@@ -352,72 +646,532 @@ public class MainActivity extends AppCompatActivity
      *
      * ### Preconditions:
      * - The layout file `bottom_sheet_lines` must exist and include a `RecyclerView` with the ID `recycler_view_lines`.
-     * - The list of all buses (`allBuses`) should be populated.
+     * - The `repository` should hold a loaded snapshot.
      *
      * ### Postconditions:
      * - Displays a bottom sheet dialog to the user.
-     * - Updates the map to reflect the selected bus line.
+     * - Updates the map to reflect the pinned bus lines.
      *
      * ### Notes:
-     * - The list of bus lines is dynamically generated from the `allBuses` list to ensure it reflects real-time data.
-     * - The `sortBusLines` method is used to alphabetize the bus lines for better usability.
+     * - The catalog is rebuilt after every poll, so the list reflects real-time data.
+     * - While the sheet is open, the list and its vehicle counts are refreshed after every poll;
+     *   `BusLinesAdapter` diffs consecutive lists off the main thread and rebinds only the rows that changed.
      */
     void showBottomSheetWithLines() {
-        // Create a new bottom sheet dialog
-        BottomSheetDialog bottomSheetDialog = new BottomSheetDialog(this);
-        View bottomSheetView = getLayoutInflater().inflate(R.layout.bottom_sheet_lines, null);
-        bottomSheetDialog.setContentView(bottomSheetView);
+        Tracing.beginSection("showBottomSheetWithLines");
+        try {
+            // Create a new bottom sheet dialog
+            BottomSheetDialog bottomSheetDialog = new BottomSheetDialog(this);
+            View bottomSheetView = getLayoutInflater().inflate(R.layout.bottom_sheet_lines, null);
+            bottomSheetDialog.setContentView(bottomSheetView);
+
+            // Set up the RecyclerView for displaying bus lines
+            RecyclerView recyclerView = bottomSheetView.findViewById(R.id.recycler_view_lines);
+            recyclerView.setLayoutManager(new LinearLayoutManager(this));
+
+            // Set up the RecyclerView adapter
+            BusLinesAdapter adapter = new BusLinesAdapter(line -> {
+                if (line.equals(SHOW_ALL_BUSES)) {
+                    // Handle the "SHOW ALL BUSES" option
+                    bottomSheetDialog.dismiss();
+                    selectLines(LineSelection.empty(repository.getLineDictionary()));
+                    Toast.makeText(MainActivity.this, "Selected: SHOW ALL BUSES", Toast.LENGTH_SHORT).show();
+                    if (currentMapCenter != null && mapRenderer != null) {
+                        mapRenderer.moveCamera(currentMapCenter.latitude, currentMapCenter.longitude, 15f, true);
+                    }
+                    updateMapWithCurrentData();
+                } else {
+                    // Pin or unpin the line, keeping the sheet open for further choices
+                    LineSelection selection = lineSelection.toggle(line);
+                    selectLines(selection);
+                    ((BusLinesAdapter) recyclerView.getAdapter()).submitList(buildLineItems(lineQuery));
+                    Toast.makeText(MainActivity.this, selection.isEmpty()
+                            ? "Selected: SHOW ALL BUSES"
+                            : "Selected lines: " + String.join(", ", selection.getLines()), Toast.LENGTH_SHORT).show();
+                    if (selection.isEmpty()) {
+                        updateMapWithCurrentData();
+                    } else {
+                        filterAndZoomToSelection();
+                    }
+                }
+            }, vehicleNumber -> {
+                // Handle a vehicle found by its number
+                bottomSheetDialog.dismiss();
+                Snapshot snapshot = repository.getCatalog().getSnapshot();
+                int index = snapshot.indexOf(vehicleNumber);
+                if (index >= 0) {
+                    focusOnVehicle(snapshot.get(index));
+                }
+            });
+
+            // Attach the adapter to the RecyclerView, starting with all lines
+            recyclerView.setAdapter(adapter);
+            lineQuery = "";
+            adapter.submitList(buildLineItems(lineQuery));
+
+            // Filter the list on every keystroke
+            EditText searchBox = bottomSheetView.findViewById(R.id.search_lines);
+            searchBox.addTextChangedListener(new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence text, int start, int count, int after) {
+                }
 
-        // Set up the RecyclerView for displaying bus lines
-        RecyclerView recyclerView = bottomSheetView.findViewById(R.id.recycler_view_lines);
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+                @Override
+                public void onTextChanged(CharSequence text, int start, int before, int count) {
+                }
+
+                @Override
+                public void afterTextChanged(Editable text) {
+                    lineQuery = text.toString();
+                    adapter.submitList(buildLineItems(lineQuery));
+                }
+            });
+
+            // Keep the counts live while the sheet is open
+            linesAdapter = adapter;
+            bottomSheetDialog.setOnDismissListener(dialog -> {
+                if (linesAdapter == adapter) {
+                    linesAdapter = null;
+                }
+            });
+
+            // Show the bottom sheet dialog
+            bottomSheetDialog.show();
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    /**
+     * Builds the rows of the lines sheet for a search query.
+     *
+     * ### Behavior:
+     * - An empty query lists "SHOW ALL BUSES" followed by every line of the catalog in natural order.
+     * - Otherwise, lists the lines starting with the query, then up to `MAX_VEHICLE_RESULTS`
+     *   vehicles whose number starts with the query.
+     * - Every line row carries its current vehicle count and whether it is pinned.
+     *
+     * ### Notes:
+     * - Matching walks only the query prefix and the matches in the search index, so it stays well under
+     *   a millisecond per keystroke for the whole fleet.
+     *
+     * @param query The text typed in the search box.
+     * @return The rows to display.
+     */
+    private List<BusLinesAdapter.Item> buildLineItems(String query) {
+        LineCatalog catalog = repository.getCatalog();
+        SearchIndex searchIndex = repository.getSearchIndex();
+        LineSelection selection = lineSelection;
+        boolean searching = !query.trim().isEmpty();
+
+        List<BusLinesAdapter.Item> items = new ArrayList<>();
+        List<String> lines;
+        if (searching) {
+            lines = searchIndex.searchLines(query, Integer.MAX_VALUE);
+        } else {
+            // Add the default option to show all buses
+            items.add(BusLinesAdapter.Item.line(SHOW_ALL_BUSES,
+                    Integer.toString(catalog.getSnapshot().size()), selection.isEmpty()));
+            lines = catalog.getLines();
+        }
 
-        // Prepare the list of bus lines
-        List<String> busLines = new ArrayList<>();
-        busLines.add("SHOW ALL BUSES"); // Add the default option to show all buses
+        for (String line : lines) {
+            items.add(BusLinesAdapter.Item.line(line,
+                    Integer.toString(catalog.getVehicleCount(line)), selection.contains(line)));
+        }
 
-        // Add unique bus lines from the `allBuses` list
-        for (Bus bus : allBuses) {
-            if (!busLines.contains(bus.getLines())) {
-                busLines.add(bus.getLines());
+        if (searching) {
+            Snapshot snapshot = catalog.getSnapshot();
+            for (String vehicleNumber : searchIndex.searchVehicles(query, MAX_VEHICLE_RESULTS)) {
+                int index = snapshot.indexOf(vehicleNumber);
+                String line = index >= 0 ? snapshot.get(index).getLines() : null;
+                items.add(BusLinesAdapter.Item.vehicle(vehicleNumber, line != null ? "Line: " + line : ""));
             }
         }
+        return items;
+    }
+
+    /**
+     * Rebuilds the rows of the open lines sheet after a poll, keeping its search query.
+     * Does nothing when the sheet is closed. Must be called on the fetch thread of the `repository`.
+     */
+    private void refreshLineList() {
+        BusLinesAdapter adapter = linesAdapter;
+        if (adapter == null) return;
+
+        List<BusLinesAdapter.Item> items = buildLineItems(lineQuery);
+        runOnUiThread(() -> adapter.submitList(items));
+    }
 
-        // Sort the bus lines alphabetically (excluding the first entry)
-        List<String> linesToSort = busLines.subList(1, busLines.size());
-        linesToSort = sortBusLines(linesToSort);
-        for (int i = 1; i < busLines.size(); i++) {
-            busLines.set(i, linesToSort.get(i - 1));
+    /**
+     * Replaces the line selection and persists it, so the pinned lines survive a restart.
+     *
+     * @param selection The new selection; empty to show all lines.
+     */
+    private void selectLines(LineSelection selection) {
+        lineSelection = selection;
+        updatePolling();
+        Set<String> lines = new HashSet<>(selection.getLines());
+        getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit()
+                .putStringSet(PREF_SELECTED_LINES, lines)
+                .apply();
+    }
+
+    /**
+     * Reads the lines pinned in a previous session.
+     *
+     * @return The persisted selection, or an empty selection if none was saved.
+     */
+    private LineSelection loadLineSelection() {
+        SharedPreferences preferences = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        Set<String> lines = preferences.getStringSet(PREF_SELECTED_LINES, Collections.emptySet());
+        return LineSelection.of(repository.getLineDictionary(), lines);
+    }
+
+    /**
+     * Returns the vehicles of the displayed state that belong to the pinned lines.
+     * Uses the replayed state during playback and the latest poll otherwise.
+     *
+     * @return All vehicles when nothing is pinned, otherwise the vehicles of the pinned lines.
+     */
+    private List<Bus> selectedBuses() {
+        LineCatalog catalog = playbackCatalog != null ? playbackCatalog : repository.getCatalog();
+        LineSelection selection = lineSelection;
+        return selection.isEmpty() ? catalog.getSnapshot().getBuses() : selection.filter(catalog);
+    }
+
+    /**
+     * Returns the vehicles of `selectedBuses()` within the region prepared by `viewportPrefetcher`,
+     * the visible bounds of the map padded on every side.
+     * With live data and no pinned lines, the viewport index of the `repository` answers without scanning
+     * the whole fleet; otherwise the already narrowed list is filtered with `filterBusesWithinRenderRegion`.
+     *
+     * @return The vehicles to display.
+     */
+    private List<Bus> visibleSelectedBuses() {
+        GeoBounds region = renderRegion();
+        if (playbackCatalog == null && lineSelection.isEmpty() && region != null) {
+            return repository.getViewportIndex().within(region);
         }
+        return filterBusesWithinRenderRegion(selectedBuses());
+    }
+
+    /**
+     * Returns the region whose markers are drawn: the padded region of `viewportPrefetcher`,
+     * or the plain `visibleBounds` until the prefetcher has seen the camera.
+     *
+     * @return The region, or `null` if the visible bounds are not known yet.
+     */
+    private GeoBounds renderRegion() {
+        GeoBounds region = viewportPrefetcher.getRegion();
+        if (region != null) return region;
+        LatLngBounds bounds = visibleBounds;
+        return bounds != null ? toGeoBounds(bounds) : null;
+    }
+
+    /**
+     * Configures the timeline scrubber and the playback button.
+     *
+     * ### Behavior:
+     * - Dragging the scrubber pauses playback and shows the fleet as it was at the selected moment.
+     * - Moving the scrubber to its rightmost position returns to live data.
+     * - The playback button replays the history from the selected moment at `PLAYBACK_SPEED`.
+     *
+     * ### Notes:
+     * - Historical states are rendered through `displayBusesOnMap`, exactly like live data.
+     */
+    private void setupTimeline() {
+        timelineSeekBar = findViewById(R.id.seek_timeline);
+        timelineLabel = findViewById(R.id.text_timeline);
+        playbackButton = findViewById(R.id.button_playback);
+
+        timelineSeekBar.setMax(TIMELINE_STEPS);
+        timelineSeekBar.setProgress(TIMELINE_STEPS);
 
-        // Set up the RecyclerView adapter
-        BusLinesAdapter adapter = new BusLinesAdapter(busLines, line -> {
-            bottomSheetDialog.dismiss(); // Dismiss the bottom sheet dialog on selection
-
-            if (line.equals("SHOW ALL BUSES")) {
-                // Handle the "SHOW ALL BUSES" option
-                lineSelected = false;
-                lastLoadedBuses = new ArrayList<>(allBuses);
-                Toast.makeText(MainActivity.this, "Selected: SHOW ALL BUSES", Toast.LENGTH_SHORT).show();
-                if (currentMapCenter != null) {
-                    mMap.animateCamera(CameraUpdateFactory.newLatLngZoom(currentMapCenter, 15f));
+        timelineSeekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                if (!fromUser) return;
+                if (progress >= TIMELINE_STEPS) {
+                    stopPlayback();
+                    showLiveData();
+                } else {
+                    showHistoricalState(timelineTimeAt(progress));
                 }
-                displayBusesOnMap(lastLoadedBuses);
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {
+                stopPlayback();
+            }
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {
+            }
+        });
+
+        playbackButton.setOnClickListener(v -> {
+            if (playbackRunnable != null) {
+                stopPlayback();
             } else {
-                // Handle a specific bus line selection
-                Toast.makeText(MainActivity.this, "Selected line: " + line, Toast.LENGTH_SHORT).show();
-                lineSelected = true;
-                filterAndZoomToLine(line);
+                startPlayback();
             }
         });
+    }
+
+    /**
+     * Converts a scrubber position into a point in the recorded history.
+     *
+     * @param progress The scrubber position, between `0` and `TIMELINE_STEPS`.
+     * @return The corresponding time in milliseconds since the epoch.
+     */
+    private long timelineTimeAt(int progress) {
+        long start = repository.getHistory().getStartTime();
+        long end = repository.getHistory().getEndTime();
+        return start + (end - start) * progress / TIMELINE_STEPS;
+    }
+
+    /**
+     * Prepares the debug metrics overlay.
+     *
+     * ### Behavior:
+     * - In debug builds, a long press on the timeline label shows or hides the overlay,
+     *   and a tap on the overlay starts or saves an in-process trace capture.
+     * - Metrics are recorded only while the overlay is shown; the switch is the registry of the retained
+     *   repository, so the overlay survives a recreation.
+     */
+    private void setupMetricsOverlay() {
+        metricsOverlay = findViewById(R.id.text_metrics);
+        MetricsRegistry metrics = repository.getMetrics();
+        markerApplyLatency = metrics.histogram(MetricsRegistry.MARKER_APPLY);
+        cameraToRenderLatency = metrics.histogram(MetricsRegistry.CAMERA_TO_RENDER);
+        frameLatency = metrics.histogram(MetricsRegistry.FRAME);
+        markerCount = metrics.gauge(MetricsRegistry.MARKERS);
+
+        if (BuildConfig.DEBUG) {
+            timelineLabel.setOnLongClickListener(v -> {
+                setMetricsOverlayVisible(!metrics.isEnabled());
+                return true;
+            });
+            metricsOverlay.setOnClickListener(v -> toggleTraceCapture());
+        }
+        setMetricsOverlayVisible(metrics.isEnabled());
+    }
+
+    /**
+     * Shows or hides the metrics overlay and starts or stops recording metrics with it.
+     *
+     * @param visible `true` to show the overlay.
+     */
+    private void setMetricsOverlayVisible(boolean visible) {
+        repository.getMetrics().setEnabled(visible);
+        metricsOverlay.setVisibility(visible ? View.VISIBLE : View.GONE);
+
+        // Restart frame timing and refreshes, so a hidden overlay costs nothing
+        Choreographer choreographer = Choreographer.getInstance();
+        choreographer.removeFrameCallback(frameCallback);
+        handler.removeCallbacks(metricsOverlayRunnable);
+        lastFrameTime = 0;
+        if (visible) {
+            choreographer.postFrameCallback(frameCallback);
+            handler.post(metricsOverlayRunnable);
+        }
+    }
+
+    /**
+     * Starts an in-process trace capture, or stops the running one and saves it as a Chrome trace.
+     * The file is written on the fetch thread and its location shown in a toast.
+     */
+    private void toggleTraceCapture() {
+        TraceRecorder recorder = viewModel.getTraceRecorder();
+        if (!recorder.isRecording()) {
+            recorder.start();
+            Toast.makeText(this, "Rozpoczęto nagrywanie śladu", Toast.LENGTH_SHORT).show();
+            updateMetricsOverlay();
+            return;
+        }
+
+        // Stop at once, but write the capture off the main thread
+        recorder.stop();
+        BusViewModel model = viewModel;
+        repository.execute(() -> {
+            File file = model.saveTrace();
+            runOnUiThread(() -> Toast.makeText(this, file != null
+                    ? "Zapisano ślad: " + file.getAbsolutePath()
+                    : "Nie udało się zapisać śladu", Toast.LENGTH_LONG).show());
+        });
+        updateMetricsOverlay();
+    }
+
+    /**
+     * Writes the current metrics into the overlay: vehicle and marker counts, snapshot age,
+     * and p50/p95/p99 of every histogram in `OVERLAY_HISTOGRAMS`.
+     */
+    private void updateMetricsOverlay() {
+        MetricsRegistry metrics = repository.getMetrics();
+        StringBuilder text = new StringBuilder();
+        if (viewModel.getTraceRecorder().isRecording()) {
+            text.append("● REC trace, tap to save\n");
+        }
+        text.append(String.format(Locale.US, "vehicles %d  markers %d  age %s  failures %d",
+                metrics.gauge(MetricsRegistry.VEHICLES).get(), markerCount.get(),
+                formatAge(repository.getSnapshotAge(System.currentTimeMillis())),
+                metrics.counter(MetricsRegistry.FAILURES).get()));
+        for (String name : OVERLAY_HISTOGRAMS) {
+            text.append('\n').append(String.format(Locale.US, "%-13s %s", name, metrics.histogram(name)));
+        }
+        text.append('\n').append(viewModel.getMemoryBudget());
+        text.append('\n').append(viewModel.getStartupTimeline());
+        metricsOverlay.setText(text);
+    }
+
+    /**
+     * Shows the fleet as it was at the given time.
+     * The state is rebuilt from the history and passed through the same marker pipeline as live data.
+     *
+     * @param time The time to show, in milliseconds since the epoch.
+     */
+    private void showHistoricalState(long time) {
+        Snapshot state = repository.getHistory().stateAt(time);
+        if (state == null) {
+            // Nothing recorded yet
+            timelineSeekBar.setProgress(TIMELINE_STEPS);
+            return;
+        }
+
+        playbackTime = time;
+        if (state != playbackSnapshot) {
+            playbackCatalog = LineCatalog.build(state, repository.getLineDictionary());
+        }
+        playbackSnapshot = state;
+        timelineLabel.setText(formatTimestamp(state.getCapturedAt()).substring(11));
+        displayBusesOnMap(visibleSelectedBuses());
+    }
+
+    /**
+     * Leaves playback and shows the most recent data again.
+     */
+    private void showLiveData() {
+        playbackSnapshot = null;
+        playbackCatalog = null;
+        timelineSeekBar.setProgress(TIMELINE_STEPS);
+        timelineLabel.setText("LIVE");
+        displayBusesOnMap(visibleSelectedBuses());
+    }
+
+    /**
+     * Starts replaying the history from the selected moment, or from the oldest snapshot when showing live data.
+     */
+    private void startPlayback() {
+        if (repository.getHistory().isEmpty()) {
+            Toast.makeText(this, "No history recorded yet.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        if (playbackSnapshot == null) {
+            playbackTime = repository.getHistory().getStartTime();
+        }
+        playbackButton.setImageResource(android.R.drawable.ic_media_pause);
 
-        // Attach the adapter to the RecyclerView
+        playbackRunnable = new Runnable() {
+            @Override
+            public void run() {
+                long start = repository.getHistory().getStartTime();
+                long end = repository.getHistory().getEndTime();
+                playbackTime = Math.max(playbackTime, start) + PLAYBACK_FRAME_DELAY * PLAYBACK_SPEED;
+
+                if (playbackTime >= end) {
+                    // Caught up with the present
+                    stopPlayback();
+                    showLiveData();
+                    return;
+                }
+
+                timelineSeekBar.setProgress((int) ((playbackTime - start) * TIMELINE_STEPS / Math.max(1, end - start)));
+                showHistoricalState(playbackTime);
+                handler.postDelayed(this, PLAYBACK_FRAME_DELAY);
+            }
+        };
+        handler.post(playbackRunnable);
+    }
+
+    /**
+     * Pauses playback, keeping the current historical state on the map.
+     */
+    private void stopPlayback() {
+        if (playbackRunnable != null) {
+            handler.removeCallbacks(playbackRunnable);
+            playbackRunnable = null;
+        }
+        playbackButton.setImageResource(android.R.drawable.ic_media_play);
+    }
+
+    /**
+     * Displays a bottom sheet with a live list of the vehicles nearest to the user.
+     *
+     * ### Behavior:
+     * - Lists the `NEARBY_VEHICLE_COUNT` closest vehicles with their distance and direction,
+     *   restricted to the pinned lines if there are any.
+     * - Distances are measured from the user's last known location, or from the map center if it is unknown.
+     * - While the sheet is open, the list is refreshed after every poll; `NearbyVehiclesAdapter`
+     *   diffs consecutive lists off the main thread and rebinds only the rows that changed.
+     * - Tapping a vehicle closes the sheet, selects the vehicle and moves the camera to it.
+     */
+    private void showNearbyVehicles() {
+        BottomSheetDialog bottomSheetDialog = new BottomSheetDialog(this);
+        View bottomSheetView = getLayoutInflater().inflate(R.layout.bottom_sheet_nearby, null);
+        bottomSheetDialog.setContentView(bottomSheetView);
+
+        RecyclerView recyclerView = bottomSheetView.findViewById(R.id.recycler_view_nearby);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+
+        NearbyVehiclesAdapter adapter = new NearbyVehiclesAdapter(vehicle -> {
+            bottomSheetDialog.dismiss();
+            focusOnVehicle(vehicle.getBus());
+        });
         recyclerView.setAdapter(adapter);
 
-        // Show the bottom sheet dialog
+        // Keep the list live while the sheet is open
+        nearbyAdapter = adapter;
+        bottomSheetDialog.setOnDismissListener(dialog -> {
+            if (nearbyAdapter == adapter) {
+                nearbyAdapter = null;
+            }
+        });
+        repository.execute(this::refreshNearbyList);
+
         bottomSheetDialog.show();
     }
 
+    /**
+     * Selects a vehicle, moves the camera to it and shows its info window if its marker is displayed.
+     *
+     * @param bus The vehicle to focus on.
+     */
+    private void focusOnVehicle(Bus bus) {
+        selectedBusId = bus.getVehicleNumber();
+        if (mapRenderer != null) {
+            mapRenderer.moveCamera(bus.getLat(), bus.getLon(), 16f, true);
+            markerLayer.showInfoWindow(selectedBusId);
+        }
+    }
+
+    /**
+     * Queries the nearest vehicles and submits them to the open "buses near me" list.
+     * Does nothing when the sheet is closed. Must be called on the fetch thread of the `repository`.
+     */
+    private void refreshNearbyList() {
+        NearbyVehiclesAdapter adapter = nearbyAdapter;
+        if (adapter == null) return;
+
+        LatLng origin = userLocation != null ? userLocation : currentMapCenter;
+        if (origin == null) return;
+
+        List<NearbyVehicle> nearest = repository.nearest(origin.latitude, origin.longitude,
+                NEARBY_VEHICLE_COUNT, lineSelection);
+        runOnUiThread(() -> adapter.submitList(nearest));
+    }
+
     /**
      * Sorts a list of bus lines alphabetically and numerically.
      * The sorting order is as follows:
@@ -425,7 +1179,7 @@ public class MainActivity extends AppCompatActivity
      * - If the alphabetic parts are the same, lines are sorted numerically by their numeric part (e.g., "10", "15").
      *
      * ### Functionality:
-     * - Extracts the numeric and alphabetic parts of each line.
+     * - Extracts the numeric and alphabetic parts of each line once, into a `LineSortKey`.
      * - Compares lines based on their alphabetic and numeric components.
      * - If a line contains no numeric part, it is sorted alphabetically.
      *
@@ -455,99 +1209,69 @@ public class MainActivity extends AppCompatActivity
      * - The method modifies the input list directly and also returns it for convenience.
      */
     List<String> sortBusLines(List<String> lines) {
-        // Sort the lines using a custom comparator
-        lines.sort((line1, line2) -> {
-            // Extract numeric and alphabetic parts of each line
-            String numberPart1 = line1.replaceAll("[^0-9]", ""); // Numeric part of line1
-            String numberPart2 = line2.replaceAll("[^0-9]", ""); // Numeric part of line2
-            String letterPart1 = line1.replaceAll("[0-9]", "");  // Alphabetic part of line1
-            String letterPart2 = line2.replaceAll("[0-9]", "");  // Alphabetic part of line2
-
-            // Compare alphabetic parts first
-            int letterComparison = letterPart1.compareTo(letterPart2);
-            if (letterComparison != 0) {
-                return letterComparison; // Return result if alphabetic parts differ
-            }
-
-            // Compare numeric parts if both are non-empty
-            if (!numberPart1.isEmpty() && !numberPart2.isEmpty()) {
-                return Integer.compare(Integer.parseInt(numberPart1), Integer.parseInt(numberPart2));
-            }
-
-            // Fallback to lexicographical comparison if numeric parts are empty
-            return line1.compareTo(line2);
-        });
-
-        return lines; // Return the sorted list
+        // The natural order lives in the core module, next to the catalog that uses it
+        return LineSortKey.sort(lines);
     }
 
 
     /**
-     * Filters buses by the specified line and adjusts the map to focus on their locations.
-     * Displays only the buses matching the provided line on the map and zooms the camera to include all of them.
+     * Filters buses by the pinned lines and adjusts the map to focus on their locations.
+     * Displays only the buses of the pinned lines on the map and zooms the camera to include all of them.
      *
      * ### Functionality:
-     * - Filters the `allBuses` list to include only buses that belong to the specified line.
+     * - Filters the cataloged snapshot with `LineSelection.filter`, a single pass of bit tests over
+     *   the precomputed line ids of the vehicles.
      * - Displays the filtered buses on the map using `displayBusesOnMap`.
-     * - Adjusts the map's camera to focus on the geographical bounds of the filtered buses.
-     * - Notifies the user if no buses are available for the specified line.
-     *
-     * ### Parameters:
-     * @param line A `String` representing the bus line to filter (e.g., "105", "A1").
+     * - Adjusts the map's camera to the union of the bounds of the pinned lines, precomputed by the catalog.
+     * - Notifies the user if no buses are available for the pinned lines.
      *
      * ### Behavior:
-     * - If no buses match the specified line, a toast message is displayed, and the method exits.
+     * - If no buses match the pinned lines, the map is cleared, a toast message is displayed, and the method exits.
      * - If buses are found:
      *   - Only those buses are displayed on the map.
      *   - The map camera animates to include all the filtered buses within its bounds.
      *
      * ### Preconditions:
      * - The Google Map instance (`mMap`) must be initialized.
-     * - The `allBuses` list must not be empty.
+     * - The `repository` should hold a loaded snapshot.
      *
      * ### Postconditions:
-     * - The map displays only the buses matching the specified line.
+     * - The map displays only the buses of the pinned lines.
      * - The camera view adjusts to show all filtered buses.
      *
      * ### Example:
      * ```java
-     * // Focus on buses from line "105"
-     * filterAndZoomToLine("105");
+     * // Focus on buses from lines "105" and "180"
+     * selectLines(LineSelection.of(repository.getLineDictionary(), Arrays.asList("105", "180")));
+     * filterAndZoomToSelection();
      * ```
      *
      * ### Notes:
-     * - The method uses a `LatLngBounds.Builder` to calculate the bounds of the filtered buses.
+     * - No line names are compared while filtering.
      * - A padding of 100 pixels is applied when adjusting the camera view.
-     * - Assumes that buses in the `allBuses` list have valid latitude and longitude coordinates.
+     * - Assumes that cataloged buses have valid latitude and longitude coordinates.
      */
-    void filterAndZoomToLine(String line) {
-        // Exit if the map is not initialized or there are no buses available
-        if (mMap == null || allBuses.isEmpty()) return;
-
-        // Filter buses that match the specified line
-        List<Bus> filteredBuses = new ArrayList<>();
-        for (Bus bus : allBuses) {
-            if (bus.getLines().equals(line)) {
-                filteredBuses.add(bus);
-            }
-        }
+    void filterAndZoomToSelection() {
+        // Exit if the map is not initialized
+        if (mMap == null) return;
 
-        // Notify the user if no buses match the specified line
-        if (filteredBuses.isEmpty()) {
-            Toast.makeText(this, "No buses available for line: " + line, Toast.LENGTH_SHORT).show();
-            return;
-        }
+        // Filter the displayed state by the pinned lines
+        LineCatalog catalog = playbackCatalog != null ? playbackCatalog : repository.getCatalog();
+        LineSelection selection = lineSelection;
+        List<Bus> filteredBuses = selection.filter(catalog);
 
         // Display the filtered buses on the map
         displayBusesOnMap(filteredBuses);
 
-        // Calculate the bounds of the filtered buses and adjust the map's camera
-        LatLngBounds.Builder boundsBuilder = new LatLngBounds.Builder();
-        for (Bus bus : filteredBuses) {
-            boundsBuilder.include(new LatLng(bus.getLat(), bus.getLon()));
+        // Notify the user if no buses match the pinned lines
+        if (filteredBuses.isEmpty()) {
+            Toast.makeText(this, "No buses available for lines: "
+                    + String.join(", ", selection.getLines()), Toast.LENGTH_SHORT).show();
+            return;
         }
-        LatLngBounds bounds = boundsBuilder.build();
-        mMap.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, 100));
+
+        // Adjust the map's camera to the precomputed bounds of the pinned lines
+        mapRenderer.moveCamera(selection.bounds(catalog), 100);
     }
 
     /**
@@ -578,14 +1302,29 @@ public class MainActivity extends AppCompatActivity
      * - `OnMarkerClickListener`: Selects a bus based on marker clicks.
      *
      * ### Periodic Updates:
-     * - Data refresh intervals vary based on zoom level:
-     *   - High zoom level: 5 seconds.
-     *   - Low zoom level: 15 seconds.
+     * - Data refresh intervals vary based on zoom level, see `updatePolling`:
+     *   - High zoom level or pinned lines: 5 seconds.
+     *   - Low zoom level: paused.
+     *
+     * ### Recreation:
+     * - After a configuration change the camera restored by the map fragment is kept, and the snapshot
+     *   retained by the `repository` is rendered immediately instead of waiting for a new poll.
+     * - On a cold start the snapshot persisted by the previous launch is rendered as stale as soon as
+     *   it has been loaded, while the first poll runs.
+     * - The first poll of a cold start is requested by `onCreate`, so it is not requested again here.
      */
     @Override
     public void onMapReady(@NonNull GoogleMap googleMap) {
-        // Assign the map instance
+        // Assign the map instance and draw the markers through it
         mMap = googleMap;
+        viewModel.getStartupTimeline().mark(StartupTimeline.Milestone.MAP_READY);
+        mapRenderer = new GoogleMapRenderer(googleMap, this::createCustomMarker);
+        markerLayer = new MarkerLayer(mapRenderer, MarkerLayer.Strategy.DIFF, REPORT_AGE_POLICY);
+
+        // Keep the camera restored by the map fragment after a recreation
+        if (restoredState) {
+            currentMapCenter = mMap.getCameraPosition().target;
+        }
 
         // Check and request location permissions
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
@@ -600,13 +1339,15 @@ public class MainActivity extends AppCompatActivity
                         if (location != null) {
                             // Move the camera to the user's location
                             LatLng currentLocation = new LatLng(location.getLatitude(), location.getLongitude());
+                            userLocation = currentLocation;
+                            if (restoredState) return;
                             currentMapCenter = currentLocation;
-                            mMap.moveCamera(CameraUpdateFactory.newLatLngZoom(currentLocation, 15));
-                        } else {
+                            mapRenderer.moveCamera(currentLocation.latitude, currentLocation.longitude, 15, false);
+                        } else if (!restoredState) {
                             // Fallback to a default location
                             LatLng defaultLocation = new LatLng(52.2881717, 21.0061544);
                             currentMapCenter = defaultLocation;
-                            mMap.moveCamera(CameraUpdateFactory.newLatLngZoom(defaultLocation, 15));
+                            mapRenderer.moveCamera(defaultLocation.latitude, defaultLocation.longitude, 15, false);
                         }
                     });
         } else {
@@ -616,9 +1357,11 @@ public class MainActivity extends AppCompatActivity
                     LOCATION_PERMISSION_REQUEST_CODE);
 
             // Default location as fallback
-            LatLng defaultLocation = new LatLng(52.2881717, 21.0061544);
-            currentMapCenter = defaultLocation;
-            mMap.moveCamera(CameraUpdateFactory.newLatLngZoom(defaultLocation, 15));
+            if (!restoredState) {
+                LatLng defaultLocation = new LatLng(52.2881717, 21.0061544);
+                currentMapCenter = defaultLocation;
+                mapRenderer.moveCamera(defaultLocation.latitude, defaultLocation.longitude, 15, false);
+            }
         }
 
         // Configure map UI settings
@@ -629,6 +1372,7 @@ public class MainActivity extends AppCompatActivity
 
         // Set listeners for map interactions
         mMap.setOnCameraIdleListener(this);
+        mMap.setOnCameraMoveListener(this);
         mMap.setOnMyLocationButtonClickListener(this);
         mMap.setOnMyLocationClickListener(this);
 
@@ -640,26 +1384,39 @@ public class MainActivity extends AppCompatActivity
             return false; // Allow default behavior
         });
 
-        // Update visible bounds and load initial data
+        // Update visible bounds, then render the retained snapshot or load initial data,
+        // unless `onCreate` already requested it
         updateVisibleBounds();
-        loadBusData(true);
+        if (repository.getCatalog().getSnapshot().size() > 0) {
+            updateMapWithCurrentData();
+        } else if (!initialFetchRequested) {
+            loadBusData(true);
+        }
 
         // Setup periodic updates based on zoom level
-        runnable = new Runnable() {
-            @Override
-            public void run() {
-                float currentZoom = mMap.getCameraPosition().zoom;
-                if (currentZoom >= MIN_ZOOM_LEVEL) {
-                    // Refresh data more frequently at high zoom levels
-                    loadBusData(true);
-                    handler.postDelayed(this, DATA_REFRESH_INTERVAL_HIGH_ZOOM);
-                } else {
-                    // Less frequent refresh at low zoom levels
-                    handler.postDelayed(this, DATA_REFRESH_INTERVAL_LOW_ZOOM);
-                }
-            }
-        };
-        handler.postDelayed(runnable, DATA_REFRESH_INTERVAL_HIGH_ZOOM);
+        updatePolling();
+    }
+
+    /**
+     * Starts or pauses the periodic polls of the `repository` for the current zoom level and pinned lines.
+     *
+     * ### Behavior:
+     * - At high zoom levels, or while lines are pinned, polls every `DATA_REFRESH_INTERVAL_HIGH_ZOOM`
+     *   with the `FetchPlan` of the pinned lines.
+     * - At low zoom levels no markers are shown, so polling is paused.
+     *
+     * ### Usage:
+     * - Called when the map is ready, when the camera becomes idle and when the pinned lines change.
+     */
+    private void updatePolling() {
+        if (mMap == null) return;
+
+        float currentZoom = mMap.getCameraPosition().zoom;
+        if (currentZoom >= MIN_ZOOM_LEVEL || !lineSelection.isEmpty()) {
+            repository.startPolling(FetchPlan.forLines(lineSelection.getLines()), DATA_REFRESH_INTERVAL_HIGH_ZOOM);
+        } else {
+            repository.stopPolling();
+        }
     }
 
     /**
@@ -686,6 +1443,40 @@ public class MainActivity extends AppCompatActivity
         if (mMap != null) {
             // Retrieve the visible region and store its bounds
             visibleBounds = mMap.getProjection().getVisibleRegion().latLngBounds;
+
+            // Keep the padded region unless the camera left it
+            viewportPrefetcher.onCameraIdle(toGeoBounds(visibleBounds));
+        }
+    }
+
+    /**
+     * Callback triggered while the camera on the Google Map moves, on every frame of a pan, zoom or fling.
+     *
+     * ### Functionality:
+     * - Passes the visible region to `viewportPrefetcher`, which tracks the camera velocity and predicts
+     *   where a fling will come to rest.
+     * - Draws the markers of the new region as soon as the camera leaves the padded region, or the predicted end
+     *   of a fling lies outside it, so vehicles are on the map before the camera settles instead of
+     *   `MAP_UPDATE_DELAY` after `onCameraIdle`.
+     *
+     * ### Notes:
+     * - Pans within the padding draw nothing; the markers are already in place.
+     * - Nothing is drawn below `MIN_ZOOM_LEVEL` unless lines are pinned, as in `updateMapWithCurrentData`.
+     */
+    @Override
+    public void onCameraMove() {
+        if (mMap == null) return; // Exit if the map is not initialized
+
+        GeoBounds visible = toGeoBounds(mMap.getProjection().getVisibleRegion().latLngBounds);
+        if (!viewportPrefetcher.onCameraMove(visible, SystemClock.uptimeMillis())) return;
+
+        // Draw ahead of the camera, unless the zoom level hides the markers
+        if (mMap.getCameraPosition().zoom < MIN_ZOOM_LEVEL && lineSelection.isEmpty()) return;
+        Tracing.beginSection("prefetchMarkers");
+        try {
+            displayBusesOnMap(visibleSelectedBuses());
+        } finally {
+            Tracing.endSection();
         }
     }
 
@@ -696,13 +1487,15 @@ public class MainActivity extends AppCompatActivity
      *
      * ### Functionality:
      * - Updates the center position of the map (`currentMapCenter`).
-     * - Updates the visible bounds of the map by calling `updateVisibleBounds()`.
+     * - Updates the visible bounds of the map by calling `updateVisibleBounds()`; the padded region drawn
+     *   while the camera moved usually covers them already.
+     * - Adapts the periodic polls to the new zoom level by calling `updatePolling()`.
      * - Schedules a delayed task to refresh the map data using `updateMapWithCurrentData()`.
      *
      * ### Behavior:
      * - If the Google Map instance (`mMap`) is null, the method exits immediately.
      * - Cancels any previously scheduled updates to prevent redundant execution.
-     * - Schedules a new runnable with a delay defined by `MAP_UPDATE_DELAY` to allow smooth user interaction.
+     * - Restarts `mapUpdateDebouncer`, so the update runs `MAP_UPDATE_DELAY` after the last camera movement.
      *
      * ### Usage:
      * - This method is automatically triggered by the Google Maps API when the camera becomes stationary.
@@ -718,27 +1511,20 @@ public class MainActivity extends AppCompatActivity
     public void onCameraIdle() {
         if (mMap == null) return; // Exit if the map is not initialized
 
+        // Measure until the markers of the new viewport are rendered
+        cameraIdleStarted = cameraToRenderLatency.start();
+
         // Update the map's center position
         currentMapCenter = mMap.getCameraPosition().target;
 
         // Update the visible region bounds
         updateVisibleBounds();
 
-        // Cancel any pending updates to avoid duplication
-        if (mapUpdateRunnable != null) {
-            handler.removeCallbacks(mapUpdateRunnable);
-        }
+        // Start or pause periodic polls for the new zoom level
+        updatePolling();
 
-        // Schedule a new runnable to update the map data
-        mapUpdateRunnable = new Runnable() {
-            @Override
-            public void run() {
-                updateMapWithCurrentData(); // Refresh map data
-            }
-        };
-
-        // Schedule the runnable with a delay
-        handler.postDelayed(mapUpdateRunnable, MAP_UPDATE_DELAY);
+        // Refresh the map data once the camera has rested, replacing any pending update
+        mapUpdateDebouncer.trigger();
     }
 
     /**
@@ -748,10 +1534,9 @@ public class MainActivity extends AppCompatActivity
      *
      * ### Functionality:
      * - Checks if the map instance (`mMap`) is initialized.
-     * - Skips updates if a specific bus line is currently selected.
      * - Logs and evaluates the current zoom level:
-     *   - If the zoom level is below the defined threshold (`MIN_ZOOM_LEVEL`), all markers are cleared.
-     *   - Otherwise, filters and displays buses visible within the current map bounds.
+     *   - If the zoom level is below the defined threshold (`MIN_ZOOM_LEVEL`) and no line is pinned, all markers are cleared.
+     *   - Otherwise, filters and displays buses of the pinned lines visible within the current map bounds.
      * - Ensures data freshness by checking the time elapsed since the last API call.
      *   - Triggers a new API call if sufficient time has passed or if it's the initial load.
      *
@@ -777,78 +1562,83 @@ public class MainActivity extends AppCompatActivity
         // Exit if the map is not initialized
         if (mMap == null) return;
 
-        // Skip updates if a specific bus line is selected
-        if (lineSelected) return;
-
         // Retrieve the current zoom level and log it
         float currentZoom = mMap.getCameraPosition().zoom;
         Log.d("ZoomLevel", "Current zoom level: " + currentZoom);
 
-        // Clear markers if the zoom level is below the threshold
-        if (currentZoom < MIN_ZOOM_LEVEL) {
+        // Clear markers if the zoom level is below the threshold, unless lines are pinned
+        if (currentZoom < MIN_ZOOM_LEVEL && lineSelection.isEmpty()) {
             Log.d("ZoomLevel", "Zoom below threshold. Clearing markers.");
-            for (Marker marker : activeMarkers.values()) {
-                marker.remove();
-            }
-            activeMarkers.clear();
+            markerLayer.clear();
+            markersRendered();
             return;
         }
 
-        // Display buses visible within the current bounds
-        if (!lastLoadedBuses.isEmpty()) {
-            List<Bus> visibleBuses = filterBusesWithinBounds(lastLoadedBuses);
+        // Display buses of the pinned lines visible within the current bounds,
+        // from the replayed state during playback
+        List<Bus> currentBuses = selectedBuses();
+        if (!currentBuses.isEmpty() || !lineSelection.isEmpty()) {
+            List<Bus> visibleBuses = visibleSelectedBuses();
             displayBusesOnMap(visibleBuses);
         }
 
-        // Check if a new API call is needed based on elapsed time or initial load
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastApiCallTime >= MIN_API_CALL_INTERVAL || isInitialLoad) {
-            loadBusData(false);
-            isInitialLoad = false;
-        }
+        // Request a new poll unless the last one is recent enough
+        loadBusData(false);
     }
 
     /**
-     * Filters the list of buses to include only those within the current visible bounds of the map.
+     * Filters the list of buses to include only those within the region whose markers are drawn: the visible
+     * bounds of the map padded on every side by `viewportPrefetcher`, so small pans reveal markers that are
+     * already drawn.
      *
      * ### Functionality:
-     * - Checks if the visible bounds (`visibleBounds`) of the map are set.
-     * - Iterates through all buses and determines if each bus's location is within the bounds.
-     * - Returns a list of buses whose locations are inside the visible region of the map.
+     * - Takes the padded region of `viewportPrefetcher`, or the plain `visibleBounds` before the prefetcher
+     *   has seen the camera (see `renderRegion`).
+     * - Iterates through all buses and determines if each bus's location is within the region.
+     * - Returns a list of buses whose locations are inside the region.
      *
      * ### Parameters:
      * @param allBuses The list of all buses to be filtered. Each bus has latitude and longitude coordinates.
      *
      * ### Returns:
-     * @return A list of buses (`List<Bus>`) that are within the current visible bounds of the map.
-     *         Returns an empty list if the `visibleBounds` is not set or no buses are within the bounds.
+     * @return A list of buses (`List<Bus>`) that are within the region.
+     *         Returns an empty list if neither region is known yet or no buses are within it.
      *
      * ### Preconditions:
-     * - The `visibleBounds` field must be set before this method is called.
+     * - The `visibleBounds` field or the region of `viewportPrefetcher` must be set before this method is called.
      * - The `allBuses` list must not be null (though it can be empty).
      *
      * ### Postconditions:
-     * - The returned list contains only buses located within the map's visible region.
+     * - The returned list contains only buses located within the padded visible region of the map.
      *
      * ### Example:
      * If the map shows a specific area of the city, only buses in that area will be included in the result.
      */
-    List<Bus> filterBusesWithinBounds(List<Bus> allBuses) {
-        List<Bus> visibleBuses = new ArrayList<>();
-
-        // Check if the visible bounds of the map are set
-        if (visibleBounds != null) {
-            // Iterate through all buses and check if their location is within the bounds
-            for (Bus bus : allBuses) {
-                LatLng busLocation = new LatLng(bus.getLat(), bus.getLon());
-                if (visibleBounds.contains(busLocation)) {
-                    visibleBuses.add(bus); // Add the bus to the result list if it's within bounds
-                }
+    List<Bus> filterBusesWithinRenderRegion(List<Bus> allBuses) {
+        Tracing.beginSection("filterBusesWithinRenderRegion");
+        try {
+            // Check if the visible bounds of the map are set, padded by the prefetcher
+            GeoBounds region = renderRegion();
+            if (region == null) {
+                return new ArrayList<>();
             }
+
+            // Scan the buses in the core module, which has no dependency on Play Services
+            return ViewportIndex.filter(allBuses, region);
+        } finally {
+            Tracing.endSection();
         }
+    }
 
-        // Return the list of visible buses
-        return visibleBuses;
+    /**
+     * Converts map bounds to the plain-Java rectangle used by the core module.
+     *
+     * @param bounds The map bounds.
+     * @return The same rectangle as `GeoBounds`.
+     */
+    private static GeoBounds toGeoBounds(LatLngBounds bounds) {
+        return new GeoBounds(bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude);
     }
 
     /**
@@ -856,9 +1646,11 @@ public class MainActivity extends AppCompatActivity
      * Ensures efficient data loading by minimizing unnecessary API calls and handling errors gracefully.
      *
      * ### Functionality:
-     * - Prevents redundant API calls by enforcing a minimum interval (`MIN_API_CALL_INTERVAL`) between requests unless forced.
-     * - Retrieves visible map bounds and uses them to filter data if the API supports boundary-based queries.
-     * - Fetches bus data asynchronously using `executorService` and updates the UI on the main thread.
+     * - Prevents redundant API calls by enforcing a minimum interval (`BusRepository.MIN_FETCH_INTERVAL`) between requests unless forced.
+     * - Plans the request with `FetchPlan`: when exactly one line is pinned, only that line is requested
+     *   and merged into the previous snapshot.
+     * - Fetches bus data asynchronously on the fetch thread of the `repository`; the outcome is delivered
+     *   to `repositoryListener`, which updates the UI on the main thread.
      * - Handles API errors, network issues, and empty results by showing appropriate messages and fallback data.
      *
      * ### Parameters:
@@ -868,137 +1660,78 @@ public class MainActivity extends AppCompatActivity
      *
      * ### Preconditions:
      * - The `visibleBounds` must be set; otherwise, no data is loaded.
-     * - The API client (`apiService`) must be initialized.
+     * - The `repository` must be attached.
      *
      * ### Postconditions:
-     * - Updates the `allBuses` and `lastLoadedBuses` lists with the retrieved data.
-     * - Updates the `lastApiCallTime` with the timestamp of the successful API call.
+     * - The `repository` records the poll, updates its catalog and indexes, and notifies the listener.
      * - Displays markers on the map for the visible buses.
      * - If an error occurs, displays appropriate messages and retains the last loaded data if available.
      *
      * ### API Behavior:
-     * - If boundary-based queries are supported by the API, only data within the current map bounds is fetched.
-     * - Otherwise, all data is fetched, and filtering is done locally.
-     *
-     * ### Error Handling:
-     * - Handles API response errors by showing a toast and retaining the last successfully loaded data.
-     * - Handles network errors by falling back to previously loaded data or displaying an error message if no data is available.
-     *
-     * ### Logging:
-     * - Logs errors and timestamps for debugging and monitoring.
+     * - The API does not support boundary-based queries, so all data of the planned lines is fetched
+     *   and filtering is done locally.
      */
     private void loadBusData(boolean forced) {
-        // Get the current time
-        long currentTime = System.currentTimeMillis();
+        Tracing.beginSection("loadBusData");
+        try {
+            // Skip if visible bounds are not set
+            if (visibleBounds == null) {
+                return;
+            }
 
-        // Skip the API call if not forced and the minimum interval has not elapsed
-        if (!forced && currentTime - lastApiCallTime < MIN_API_CALL_INTERVAL) {
-            return;
+            // Request only the pinned line when there is exactly one
+            repository.refresh(FetchPlan.forLines(lineSelection.getLines()), forced);
+        } finally {
+            Tracing.endSection();
         }
+    }
 
-        // Skip if visible bounds are not set
-        if (visibleBounds == null) {
-            return;
+    /**
+     * Keeps the retained snapshot on the map after a failed poll and tells the user how old it is.
+     * The toast is shown only once the snapshot is at least `BusRepository.STALE_AFTER` old.
+     *
+     * @param failure The reason the poll produced no new data.
+     */
+    private void showCachedData(BusRepository.Failure failure) {
+        String reason;
+        switch (failure) {
+            case NO_DATA:
+                reason = "No new data";
+                break;
+            case API_ERROR:
+                reason = "API error";
+                break;
+            default:
+                reason = "Connection error";
+                break;
         }
 
-        // Extract the boundaries of the visible region
-        double minLat = visibleBounds.southwest.latitude;
-        double maxLat = visibleBounds.northeast.latitude;
-        double minLon = visibleBounds.southwest.longitude;
-        double maxLon = visibleBounds.northeast.longitude;
-
-        // Execute the API call asynchronously
-        executorService.execute(() -> {
-            try {
-                // If boundary-based queries are supported, use the commented-out code below:
-                // Call<ApiResponse> call = apiService.getBusesWithinBounds(
-                //         RESOURCE_ID,
-                //         API_KEY,
-                //         minLat,
-                //         maxLat,
-                //         minLon,
-                //         maxLon
-                // );
-
-                // Otherwise, fetch all data and filter locally
-                Call<ApiResponse> call = apiService.getBuses(
-                        RESOURCE_ID,
-                        API_KEY,
-                        1,
-                        null,
-                        null
-                );
-
-                // Execute the API call
-                Response<ApiResponse> response = call.execute();
-
-                if (response.isSuccessful() && response.body() != null) {
-                    List<Bus> result = response.body().getResult();
-
-                    // Update the bus lists
-                    allBuses = result;
-                    lastLoadedBuses = new ArrayList<>(result);
-
-                    if (result == null || result.isEmpty()) {
-                        // No new data: show previously loaded data
-                        runOnUiThread(() -> {
-                            if (!lastLoadedBuses.isEmpty()) {
-                                Toast.makeText(MainActivity.this,
-                                        "No new data. Showing last loaded data from: "
-                                                + formatTimestamp(lastApiCallTime),
-                                        Toast.LENGTH_LONG).show();
-                                displayBusesOnMap(lastLoadedBuses);
-                            } else {
-                                Toast.makeText(MainActivity.this, "No data to display.", Toast.LENGTH_LONG).show();
-                            }
-                        });
-                    } else {
-                        // Successfully retrieved new data
-                        lastLoadedBuses = result;
-                        lastApiCallTime = currentTime;
-
-                        runOnUiThread(() -> {
-                            List<Bus> visibleBuses = filterBusesWithinBounds(lastLoadedBuses);
-                            displayBusesOnMap(visibleBuses);
-                        });
-                    }
-                } else {
-                    // API response error: fallback to previously loaded data
-                    runOnUiThread(() -> {
-                        if (!lastLoadedBuses.isEmpty()) {
-                            Toast.makeText(MainActivity.this,
-                                    "API error. Showing last loaded data from: "
-                                            + formatTimestamp(lastApiCallTime),
-                                    Toast.LENGTH_LONG).show();
-                            displayBusesOnMap(lastLoadedBuses);
-                        } else {
-                            Toast.makeText(MainActivity.this, "API error and no data to display.", Toast.LENGTH_LONG).show();
-                        }
-                    });
-                }
-            } catch (Exception e) {
-                // Network error: fallback to previously loaded data
-                runOnUiThread(() -> {
-                    if (!lastLoadedBuses.isEmpty()) {
-                        Toast.makeText(MainActivity.this,
-                                "Connection error. Showing last loaded data from: "
-                                        + formatTimestamp(lastApiCallTime),
-                                Toast.LENGTH_LONG).show();
-                        displayBusesOnMap(lastLoadedBuses);
-                    } else {
-                        Toast.makeText(MainActivity.this, "Connection error and no data to display.", Toast.LENGTH_LONG).show();
-                    }
-                });
+        Snapshot snapshot = repository.getCatalog().getSnapshot();
+        if (snapshot.size() > 0) {
+            // A single failed poll between fresh ones is not worth a toast
+            long age = repository.getSnapshotAge(System.currentTimeMillis());
+            if (age >= BusRepository.STALE_AFTER) {
+                Toast.makeText(MainActivity.this,
+                        reason + ". Showing data from " + formatAge(age) + " ago ("
+                                + formatTimestamp(snapshot.getCapturedAt()) + ")",
+                        Toast.LENGTH_LONG).show();
             }
-        });
+            if (playbackSnapshot == null) {
+                displayBusesOnMap(visibleSelectedBuses());
+            }
+        } else {
+            Toast.makeText(MainActivity.this,
+                    failure == BusRepository.Failure.NO_DATA ? "No data to display." : reason + " and no data to display.",
+                    Toast.LENGTH_LONG).show();
+        }
     }
 
     /**
      * Formats a given timestamp into a human-readable date and time string.
      *
      * ### Functionality:
-     * - Converts a timestamp (in milliseconds since the epoch) into a `java.util.Date` object.
-     * - Formats the date object into a string with the pattern `yyyy-MM-dd HH:mm:ss`.
+     * - Converts a timestamp (in milliseconds since the epoch) into Warsaw local time, the time zone of the feed.
+     * - Formats it with the pattern `yyyy-MM-dd HH:mm:ss`, the same as the `Time` field of the API.
      * - Returns the formatted date-time string.
      *
      * ### Parameters:
@@ -1012,24 +1745,27 @@ public class MainActivity extends AppCompatActivity
      *
      * ### Example:
      * ```java
-     * long exampleTimestamp = 1672531199000L; // Equivalent to 2023-12-31 23:59:59
+     * long exampleTimestamp = 1704063599000L; // Equivalent to 2023-12-31 23:59:59 in Warsaw
      * String formattedDate = formatTimestamp(exampleTimestamp);
      * // formattedDate: "2023-12-31 23:59:59"
      * ```
      *
      * ### Notes:
-     * - The method uses the `java.text.SimpleDateFormat` class for formatting, which is not thread-safe.
-     * - Ensure thread-safety if using this method in a multi-threaded context by synchronizing access or using `java.time` classes instead.
+     * - Delegates to `FeedTime.format`, which writes the digits directly; no `SimpleDateFormat` is created per call
+     *   and the method is thread-safe.
      */
     private String formatTimestamp(long timestamp) {
-        // Create a SimpleDateFormat instance with the desired pattern
-        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-
-        // Convert the timestamp into a Date object
-        java.util.Date date = new java.util.Date(timestamp);
+        return FeedTime.format(timestamp);
+    }
 
-        // Format the Date object into a human-readable string
-        return sdf.format(date);
+    /**
+     * Formats the age of displayed data in the largest fitting unit, e.g. "45 s", "12 min" or "3 h".
+     *
+     * @param millis The age in milliseconds.
+     * @return The formatted age.
+     */
+    static String formatAge(long millis) {
+        return FeedTime.formatAge(millis);
     }
 
 
@@ -1037,8 +1773,7 @@ public class MainActivity extends AppCompatActivity
      * Displays a list of buses as markers on the Google Map.
      *
      * ### Functionality:
-     * - Clears all existing markers from the map and the `activeMarkers` collection.
-     * - Iterates through the list of buses and adds a marker for each bus with valid coordinates.
+     * - Replaces the markers of `markerLayer` with one marker per bus, drawn through `mapRenderer`.
      * - Each marker is customized with the bus's line number and vehicle ID.
      * - If a specific bus is selected (`selectedBusId`), its marker's info window is displayed automatically.
      *
@@ -1051,13 +1786,16 @@ public class MainActivity extends AppCompatActivity
      * - The `buses` list must not be null (though it can be empty, which results in clearing the map).
      *
      * ### Postconditions:
-     * - All existing markers are removed from the map.
-     * - New markers for the provided buses are added to the map and stored in `activeMarkers`.
+     * - The map shows exactly the markers of the provided buses, tracked by `markerLayer`.
      * - If `selectedBusId` matches a bus in the list, its marker's info window is displayed.
      *
      * ### Behavior:
-     * - Ignores buses with invalid coordinates (`lat = 0` or `lon = 0`).
+     * - Expects vehicles cleaned by `SnapshotIngest`: valid coordinates inside Warsaw, one entry per vehicle.
      * - Markers are anchored at the bottom center for proper alignment on the map.
+     * - Outside playback, stale live data (see `BusRepository.isStale`) is drawn with faded markers
+     *   and the timeline label shows its age instead of "LIVE".
+     * - Vehicles whose last report lags the newest one of the snapshot fade out, and are not drawn at all
+     *   beyond the maximum age (see `ReportAgePolicy`).
      *
      * ### Example:
      * ```java
@@ -1069,57 +1807,52 @@ public class MainActivity extends AppCompatActivity
      * ```
      *
      * ### Notes:
-     * - The map is cleared before adding new markers to avoid overlapping or stale data.
-     * - Uses a helper method `createCustomMarker()` to generate custom icons for the markers.
+     * - The layer uses the `DIFF` strategy, touching only markers that changed, so redrawing the padded region
+     *   while the camera moves neither flickers nor rebuilds markers already on the map.
+     * - `GoogleMapRenderer` uses the helper method `createCustomMarker()` to generate custom icons for the markers.
      */
     private void displayBusesOnMap(List<Bus> buses) {
-        // Exit if the map instance is not initialized
-        if (mMap == null) return;
-
-        // Clear existing markers from the map
-        mMap.clear();
-
-        // Clear the active markers collection
-        activeMarkers.clear();
-
-        // Iterate through the list of buses and add markers for each valid bus
-        for (Bus bus : buses) {
-            double lat = bus.getLat();
-            double lon = bus.getLon();
-            String line = bus.getLines();
-            String busId = bus.getVehicleNumber();
-
-            // Skip buses with invalid coordinates
-            if (lat != 0 && lon != 0) {
-                LatLng position = new LatLng(lat, lon);
-
-                // Create a custom marker icon for the bus line
-                BitmapDescriptor icon = createCustomMarker(line);
-
-                // Configure the marker options
-                MarkerOptions markerOptions = new MarkerOptions()
-                        .position(position)
-                        .title("Line: " + line + " | Vehicle ID: " + busId)
-                        .snippet(busId)
-                        .icon(icon)
-                        .anchor(0.5f, 1f); // Anchor at the bottom center for proper alignment
-
-                // Add the marker to the map
-                Marker marker = mMap.addMarker(markerOptions);
+        Tracing.beginSection("displayBusesOnMap");
+        try {
+            // Exit if the map instance is not initialized
+            if (mMap == null) return;
+            long started = markerApplyLatency.start();
+
+            // Flag live data that is too old, e.g. the snapshot restored on a cold start
+            float alpha = 1f;
+            Snapshot displayed = playbackSnapshot != null ? playbackSnapshot : repository.getCatalog().getSnapshot();
+            long latestReport = displayed.getLatestReportTime();
+            if (playbackSnapshot == null) {
+                long age = repository.getSnapshotAge(System.currentTimeMillis());
+                boolean stale = age >= BusRepository.STALE_AFTER;
+                timelineLabel.setText(stale ? formatAge(age) + " ago" : "LIVE");
+                alpha = stale ? STALE_MARKER_ALPHA : 1f;
+            }
 
-                // Add the marker to the active markers collection
-                if (marker != null) {
-                    activeMarkers.put(busId, marker);
+            // Update the markers; the layer shows the selected vehicle's info window again
+            markerLayer.show(buses, latestReport, alpha, selectedBusId);
+            markerApplyLatency.recordSince(started);
+            markersRendered();
 
-                    // Show the info window for the selected bus
-                    if (busId.equals(selectedBusId)) {
-                        marker.showInfoWindow();
-                    }
-                }
+            // Report the launch once the first vehicle is on the map
+            StartupTimeline timeline = viewModel.getStartupTimeline();
+            if (markerLayer.size() > 0 && timeline.mark(StartupTimeline.Milestone.FIRST_VEHICLE)) {
+                Log.i("Startup", timeline.toString());
             }
+        } finally {
+            Tracing.endSection();
         }
     }
 
+    /**
+     * Records the marker count and completes a pending camera-to-render measurement after the markers changed.
+     */
+    private void markersRendered() {
+        markerCount.set(markerLayer.size());
+        cameraToRenderLatency.recordSince(cameraIdleStarted);
+        cameraIdleStarted = 0;
+    }
+
     /**
      * Creates a custom marker icon for a bus line to be displayed on the Google Map.
      *
@@ -1155,6 +1888,7 @@ public class MainActivity extends AppCompatActivity
      * ### Notes:
      * - The text is drawn with anti-aliasing to ensure smooth rendering.
      * - The pin icon is anchored at the bottom-center of the marker for proper alignment.
+     * - Icons are cached per line in `markerIcons`, so only the first marker of a line draws its bitmap.
      * - This method uses `ContextCompat.getDrawable()` to retrieve the drawable resource, ensuring compatibility with various Android versions.
      *
      * ### Potential Improvements:
@@ -1162,50 +1896,61 @@ public class MainActivity extends AppCompatActivity
      * - Allow customization of colors or fonts through additional parameters.
      */
     private BitmapDescriptor createCustomMarker(String line) {
-        // Paint for drawing the text with anti-aliasing
-        Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        textPaint.setTextSize(50); // Text size
-        textPaint.setColor(Color.BLACK); // Text color
-        textPaint.setTextAlign(Paint.Align.CENTER); // Center align text
-
-        // Paint for drawing the background rectangle
-        Paint backgroundPaint = new Paint();
-        backgroundPaint.setColor(Color.WHITE); // Background color
-
-        // Measure the dimensions of the text
-        Rect textBounds = new Rect();
-        textPaint.getTextBounds(line, 0, line.length(), textBounds);
-
-        int textWidth = textBounds.width() + 20; // Add padding to the width
-        int textHeight = textBounds.height() + 20; // Add padding to the height
-
-        // Pin dimensions
-        int pinWidth = 124;
-        int pinHeight = 212;
-
-        // Calculate the final bitmap dimensions
-        int width = Math.max(textWidth, pinWidth); // Ensure the width fits the text or pin
-        int height = textHeight + pinHeight; // Combine the text and pin heights
-
-        // Create a bitmap to draw the marker
-        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(bitmap);
-
-        // Draw the background rectangle for the text
-        canvas.drawRect(0, 0, width, textHeight, backgroundPaint);
-
-        // Draw the line number text at the center
-        canvas.drawText(line, width / 2, textHeight - 10, textPaint);
-
-        // Draw the pin icon below the text
-        Drawable drawable = ContextCompat.getDrawable(this, R.drawable.ic_marker_icon);
-        if (drawable != null) {
-            drawable.setBounds((width - pinWidth) / 2, textHeight, (width + pinWidth) / 2, height);
-            drawable.draw(canvas);
-        }
+        // Reuse the icon drawn for an earlier marker of the line
+        BitmapDescriptor cached = markerIcons.get(line);
+        if (cached != null) return cached;
+
+        Tracing.beginSection("createCustomMarker");
+        try {
+            // Paint for drawing the text with anti-aliasing
+            Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            textPaint.setTextSize(50); // Text size
+            textPaint.setColor(Color.BLACK); // Text color
+            textPaint.setTextAlign(Paint.Align.CENTER); // Center align text
+
+            // Paint for drawing the background rectangle
+            Paint backgroundPaint = new Paint();
+            backgroundPaint.setColor(Color.WHITE); // Background color
+
+            // Measure the dimensions of the text
+            Rect textBounds = new Rect();
+            textPaint.getTextBounds(line, 0, line.length(), textBounds);
+
+            int textWidth = textBounds.width() + 20; // Add padding to the width
+            int textHeight = textBounds.height() + 20; // Add padding to the height
+
+            // Pin dimensions
+            int pinWidth = 124;
+            int pinHeight = 212;
+
+            // Calculate the final bitmap dimensions
+            int width = Math.max(textWidth, pinWidth); // Ensure the width fits the text or pin
+            int height = textHeight + pinHeight; // Combine the text and pin heights
+
+            // Create a bitmap to draw the marker
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+
+            // Draw the background rectangle for the text
+            canvas.drawRect(0, 0, width, textHeight, backgroundPaint);
+
+            // Draw the line number text at the center
+            canvas.drawText(line, width / 2, textHeight - 10, textPaint);
+
+            // Draw the pin icon below the text
+            Drawable drawable = ContextCompat.getDrawable(this, R.drawable.ic_marker_icon);
+            if (drawable != null) {
+                drawable.setBounds((width - pinWidth) / 2, textHeight, (width + pinWidth) / 2, height);
+                drawable.draw(canvas);
+            }
 
-        // Convert the bitmap into a BitmapDescriptor for use with Google Maps
-        return BitmapDescriptorFactory.fromBitmap(bitmap);
+            // Convert the bitmap into a BitmapDescriptor for use with Google Maps, and keep it for the line
+            BitmapDescriptor icon = BitmapDescriptorFactory.fromBitmap(bitmap);
+            markerIcons.put(line, icon, bitmap.getAllocationByteCount());
+            return icon;
+        } finally {
+            Tracing.endSection();
+        }
     }
 
     /**
@@ -1360,7 +2105,8 @@ public class MainActivity extends AppCompatActivity
      *
      * ### Functionality:
      * - Removes all pending callbacks from the `handler` to stop scheduled tasks.
-     * - Cancels and shuts down the `executorService` if it is active, ensuring no background threads remain running.
+     * - Detaches from the `repository` and pauses its polls; the repository itself lives on in `BusViewModel`
+     *   and is only shut down once the activity finishes for good.
      * - Calls the parent implementation to handle additional cleanup.
      *
      * ### Behavior:
@@ -1372,7 +2118,7 @@ public class MainActivity extends AppCompatActivity
      * - Common use cases include closing resources, stopping threads, or canceling tasks.
      *
      * ### Preconditions:
-     * - The activity should have initialized the `handler` and `executorService` for background operations.
+     * - The activity should have initialized the `handler` and attached to the `repository`.
      *
      * ### Postconditions:
      * - All scheduled tasks and background threads are stopped and cleaned up.
@@ -1397,15 +2143,24 @@ public class MainActivity extends AppCompatActivity
 
         // Remove all pending callbacks from the handler
         if (handler != null) {
-            handler.removeCallbacks(runnable); // Remove periodic map updates
-            if (mapUpdateRunnable != null) {
-                handler.removeCallbacks(mapUpdateRunnable); // Remove delayed map updates
+            mapUpdateDebouncer.cancel(); // Remove delayed map updates
+            if (playbackRunnable != null) {
+                handler.removeCallbacks(playbackRunnable); // Remove playback frames
             }
+            handler.removeCallbacks(metricsOverlayRunnable); // Remove overlay refreshes
+        }
+        Choreographer.getInstance().removeFrameCallback(frameCallback);
+
+        // Detach from the retained repository; a recreated activity attaches again
+        if (repository != null) {
+            repository.setListener(null);
+            repository.stopPolling();
         }
 
-        // Shutdown the executor service to stop background threads
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdown();
+        // Release the marker icons of this activity
+        if (markerIconsAccount != null) {
+            viewModel.getMemoryBudget().unregister(markerIconsAccount);
+            markerIcons.trimToSize(0);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package pl.creativesstudio;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Locale;
+
+import pl.creativesstudio.index.NearbyVehicle;
+
+/**
+ * Adapter for the live list of vehicles closest to the user.
+ * Extends `ListAdapter`, so each new result list is diffed against the previous one on a background thread
+ * and only the rows that changed are rebound.
+ */
+public class NearbyVehiclesAdapter extends ListAdapter<NearbyVehicle, NearbyVehiclesAdapter.ViewHolder> {
+
+    /**
+     * Interface for handling click events on vehicles.
+     */
+    public interface OnVehicleClickListener {
+        /**
+         * Called when a vehicle is clicked.
+         *
+         * @param vehicle The selected vehicle.
+         */
+        void onVehicleClick(NearbyVehicle vehicle);
+    }
+
+    /**
+     * Identifies rows by vehicle number and treats distances within 10 m as unchanged,
+     * so GPS noise does not rebind every row on each poll.
+     */
+    private static final DiffUtil.ItemCallback<NearbyVehicle> DIFF_CALLBACK = new DiffUtil.ItemCallback<NearbyVehicle>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull NearbyVehicle oldItem, @NonNull NearbyVehicle newItem) {
+            return oldItem.getBus().getVehicleNumber().equals(newItem.getBus().getVehicleNumber());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull NearbyVehicle oldItem, @NonNull NearbyVehicle newItem) {
+            return Math.round(oldItem.getDistanceMeters() / 10) == Math.round(newItem.getDistanceMeters() / 10)
+                    && oldItem.getCompassDirection().equals(newItem.getCompassDirection())
+                    && String.valueOf(oldItem.getBus().getLines()).equals(String.valueOf(newItem.getBus().getLines()));
+        }
+    };
+
+    /**
+     * Listener for handling click events on vehicles.
+     */
+    private final OnVehicleClickListener listener;
+
+    /**
+     * Constructs a new `NearbyVehiclesAdapter`.
+     *
+     * @param listener An instance of `OnVehicleClickListener` to handle item clicks.
+     */
+    public NearbyVehiclesAdapter(OnVehicleClickListener listener) {
+        super(DIFF_CALLBACK);
+        this.listener = listener;
+    }
+
+    /**
+     * Creates a new ViewHolder for the RecyclerView.
+     *
+     * @param parent   The parent ViewGroup.
+     * @param viewType The view type of the new view (unused in this implementation).
+     * @return A new ViewHolder instance.
+     */
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(android.R.layout.simple_list_item_2, parent, false);
+        return new ViewHolder(view);
+    }
+
+    /**
+     * Binds a vehicle to the ViewHolder: line and vehicle number on the first row, distance and direction on the second.
+     *
+     * @param holder   The ViewHolder to bind data to.
+     * @param position The position of the item in the data set.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        NearbyVehicle vehicle = getItem(position);
+        holder.title.setText("Line " + vehicle.getBus().getLines() + " | Vehicle ID: " + vehicle.getBus().getVehicleNumber());
+        holder.subtitle.setText(String.format(Locale.US, "%.0f m %s", vehicle.getDistanceMeters(), vehicle.getCompassDirection()));
+        holder.itemView.setOnClickListener(v -> listener.onVehicleClick(vehicle));
+    }
+
+    /**
+     * ViewHolder class for holding views in the RecyclerView.
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        /**
+         * TextView for the line and vehicle number.
+         */
+        TextView title;
+
+        /**
+         * TextView for the distance and direction.
+         */
+        TextView subtitle;
+
+        /**
+         * Constructs a new ViewHolder.
+         *
+         * @param itemView The view for a single RecyclerView item.
+         */
+        ViewHolder(View itemView) {
+            super(itemView);
+            title = itemView.findViewById(android.R.id.text1);
+            subtitle = itemView.findViewById(android.R.id.text2);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package pl.creativesstudio.render;
+
+import com.google.android.gms.maps.CameraUpdate;
+import com.google.android.gms.maps.CameraUpdateFactory;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import pl.creativesstudio.index.GeoBounds;
+
+/**
+ * `MapRenderer` drawing on a `GoogleMap`.
+ *
+ * ### Markers:
+ * - Titled "Line: X | Vehicle ID: Y", with the vehicle number as snippet so marker clicks can select the vehicle.
+ * - Anchored at the bottom centre, with the icon of their line from the icon factory.
+ */
+public final class GoogleMapRenderer implements MapRenderer {
+
+    /**
+     * The map drawn on.
+     */
+    private final GoogleMap map;
+
+    /**
+     * Creates the marker icon of a line.
+     */
+    private final Function<String, BitmapDescriptor> icons;
+
+    /**
+     * Displayed markers by vehicle number.
+     */
+    private final Map<String, Marker> markers = new HashMap<>();
+
+    /**
+     * Creates a renderer.
+     *
+     * @param map   The map to draw on.
+     * @param icons Factory of the marker icon of a line.
+     */
+    public GoogleMapRenderer(GoogleMap map, Function<String, BitmapDescriptor> icons) {
+        this.map = map;
+        this.icons = icons;
+    }
+
+    @Override
+    public void addMarker(String vehicleId, String line, double lat, double lon, float alpha) {
+        Marker marker = map.addMarker(new MarkerOptions()
+                .position(new LatLng(lat, lon))
+                .title("Line: " + line + " | Vehicle ID: " + vehicleId)
+                .snippet(vehicleId)
+                .icon(icons.apply(line))
+                .alpha(alpha)
+                .anchor(0.5f, 1f));
+        if (marker != null) {
+            markers.put(vehicleId, marker);
+        }
+    }
+
+    @Override
+    public void updateMarker(String vehicleId, double lat, double lon, float alpha) {
+        Marker marker = markers.get(vehicleId);
+        if (marker == null) return;
+        marker.setPosition(new LatLng(lat, lon));
+        marker.setAlpha(alpha);
+    }
+
+    @Override
+    public void removeMarker(String vehicleId) {
+        Marker marker = markers.remove(vehicleId);
+        if (marker != null) {
+            marker.remove();
+        }
+    }
+
+    @Override
+    public void clear() {
+        // Removes the markers only; the location layer and the camera stay
+        map.clear();
+        markers.clear();
+    }
+
+    @Override
+    public void showInfoWindow(String vehicleId) {
+        Marker marker = markers.get(vehicleId);
+        if (marker != null) {
+            marker.showInfoWindow();
+        }
+    }
+
+    @Override
+    public void moveCamera(double lat, double lon, float zoom, boolean animate) {
+        CameraUpdate update = CameraUpdateFactory.newLatLngZoom(new LatLng(lat, lon), zoom);
+        if (animate) {
+            map.animateCamera(update);
+        } else {
+            map.moveCamera(update);
+        }
+    }
+
+    @Override
+    public void moveCamera(GeoBounds bounds, int paddingPixels) {
+        LatLngBounds area = new LatLngBounds(
+                new LatLng(bounds.getSouth(), bounds.getWest()),
+                new LatLng(bounds.getNorth(), bounds.getEast()));
+        map.animateCamera(CameraUpdateFactory.newLatLngBounds(area, paddingPixels));
+    }
+}
@@ -0,0 +1,65 @@
+package pl.creativesstudio.replay;
+
+import android.util.Log;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * OkHttp interceptor capturing the raw bodies of successful `busestrams_get` responses into a recording.
+ *
+ * ### Behavior:
+ * - The body is peeked, not consumed, so the raw body still reaches `BusRepository`, which decodes it with `FeedDecoder`.
+ * - Failed responses and other endpoints are not recorded.
+ * - Write errors are logged and never fail the request.
+ */
+public class RecordingInterceptor implements Interceptor {
+
+    /**
+     * Path segment identifying the vehicle positions endpoint.
+     */
+    private static final String ENDPOINT = "busestrams_get";
+
+    /**
+     * Largest body that will be recorded, in bytes.
+     */
+    private static final long MAX_BODY_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Destination of the captured frames.
+     */
+    private final FeedRecording.Writer writer;
+
+    /**
+     * Creates an interceptor appending to the given recording.
+     *
+     * @param writer The recording to append to. Closing it is the caller's responsibility.
+     */
+    public RecordingInterceptor(FeedRecording.Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Proceeds with the request and records the response body.
+     *
+     * @param chain The interceptor chain.
+     * @return The unmodified response.
+     * @throws IOException If the request itself fails.
+     */
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+
+        if (response.isSuccessful() && chain.request().url().encodedPath().contains(ENDPOINT)) {
+            try {
+                byte[] body = response.peekBody(MAX_BODY_BYTES).bytes();
+                writer.append(System.currentTimeMillis(), body);
+            } catch (IOException e) {
+                Log.w("FeedRecorder", "Failed to record response", e);
+            }
+        }
+        return response;
+    }
+}
@@ -0,0 +1,40 @@
+package pl.creativesstudio.time;
+
+import android.os.Handler;
+
+/**
+ * `Scheduler` running tasks on the thread of a `Handler`, on the system clock.
+ *
+ * ### Usage:
+ * - Drives the `Debouncer` of the map updates in `MainActivity` on the main thread; tests of the same logic
+ *   use `VirtualScheduler` instead.
+ */
+public final class HandlerScheduler implements Scheduler {
+
+    /**
+     * Handler running the tasks.
+     */
+    private final Handler handler;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param handler Handler running the tasks.
+     */
+    public HandlerScheduler(Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return Clock.SYSTEM.currentTimeMillis();
+    }
+
+    @Override
+    public Task schedule(Runnable task, long delayMillis) {
+        // Wrap the task, so cancelling removes only this posting of it
+        Runnable posted = task::run;
+        handler.postDelayed(posted, Math.max(0, delayMillis));
+        return () -> handler.removeCallbacks(posted);
+    }
+}
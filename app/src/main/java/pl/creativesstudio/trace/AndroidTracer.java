@@ -0,0 +1,59 @@
+package pl.creativesstudio.trace;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Forwards trace events to `android.os.Trace`, so sections show up in Systrace and Perfetto captures.
+ *
+ * ### Behavior:
+ * - Sections cost next to nothing while no system trace is being captured.
+ * - Async sections need API 29; on older devices only the per-thread sections are emitted.
+ * - Section names are cut to the 127 characters accepted by the platform.
+ */
+public final class AndroidTracer implements Tracer {
+
+    /**
+     * The single instance, installed once per process by `BusViewModel`.
+     */
+    public static final AndroidTracer INSTANCE = new AndroidTracer();
+
+    /**
+     * Longest section name accepted by `android.os.Trace`.
+     */
+    private static final int MAX_NAME_LENGTH = 127;
+
+    private AndroidTracer() {
+    }
+
+    @Override
+    public void beginSection(String name) {
+        Trace.beginSection(truncate(name));
+    }
+
+    @Override
+    public void endSection() {
+        Trace.endSection();
+    }
+
+    @Override
+    public void beginAsyncSection(String name, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(truncate(name), cookie);
+        }
+    }
+
+    @Override
+    public void endAsyncSection(String name, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(truncate(name), cookie);
+        }
+    }
+
+    /**
+     * Cuts a name to the length accepted by the platform.
+     */
+    private static String truncate(String name) {
+        return name.length() <= MAX_NAME_LENGTH ? name : name.substring(0, MAX_NAME_LENGTH);
+    }
+}
@@ -114,11 +114,12 @@ public class MainActivityTest {
     }
 
     /**
-     * Tests the `filterBusesWithinBounds` method.
-     * Verifies that only buses within the specified geographical bounds are returned.
+     * Tests the `filterBusesWithinRenderRegion` method.
+     * Verifies that only buses within the specified geographical bounds are returned
+     * while the camera has not moved yet.
      */
     @Test
-    public void testFilterBusesWithinBounds() {
+    public void testFilterBusesWithinRenderRegion() {
         LatLngBounds mockBounds = LatLngBounds.builder()
                 .include(new LatLng(52.2297, 21.0122))  // Coordinates of bus1 and bus2
                 .include(new LatLng(52.2397, 21.0222))  // Coordinates of bus3
@@ -126,7 +127,7 @@ public class MainActivityTest {
 
         mainActivity.visibleBounds = mockBounds;
 
-        List<Bus> filteredBuses = mainActivity.filterBusesWithinBounds(testBuses);
+        List<Bus> filteredBuses = mainActivity.filterBusesWithinRenderRegion(testBuses);
 
         // Verify that filtering works
         assertNotNull(filteredBuses);
@@ -0,0 +1,24 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+// JMH benchmarks of the data pipeline in :core, run on a plain JVM:
+// ./gradlew :benchmarks:jmh                       (all benchmarks, results in build/results/jmh/results.json)
+// ./gradlew :benchmarks:jmh -Pjmh.includes=Decode (benchmarks whose name matches the pattern)
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    jmhImplementation(project(":core"))
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    (findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+}
@@ -0,0 +1,89 @@
+package pl.creativesstudio.benchmark;
+
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import pl.creativesstudio.api.ApiClient;
+import pl.creativesstudio.api.FeedDecoder;
+import pl.creativesstudio.models.ApiResponse;
+
+/**
+ * Decoding of a `busestrams_get` payload into an `ApiResponse`.
+ *
+ * ### Variants:
+ * - `reflective`: plain `Gson` binding fields by reflection, as the app did originally.
+ * - `streaming`: the `Gson` of `ApiClient` with its streaming type adapters.
+ * - `decoderSequential`: `FeedDecoder` with parallel decoding disabled.
+ * - `decoderParallel`: `FeedDecoder` with its default threshold, splitting large payloads into chunks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+    @Param({"1500", "10000", "50000"})
+    public int fleetSize;
+
+    private byte[] body;
+    private Gson reflective;
+    private Gson streaming;
+    private FeedDecoder sequential;
+    private FeedDecoder parallel;
+
+    @Setup
+    public void setUp() {
+        body = Fleets.bodies(fleetSize, 1)[0];
+        reflective = new Gson();
+        streaming = ApiClient.gson();
+        sequential = new FeedDecoder(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+        parallel = new FeedDecoder();
+    }
+
+    @Benchmark
+    public ApiResponse reflective() {
+        return reflective.fromJson(reader(), ApiResponse.class);
+    }
+
+    @Benchmark
+    public ApiResponse streaming() {
+        return streaming.fromJson(reader(), ApiResponse.class);
+    }
+
+    @Benchmark
+    public ApiResponse decoderSequential() throws IOException {
+        return sequential.decode(body);
+    }
+
+    @Benchmark
+    public ApiResponse decoderParallel() throws IOException {
+        return parallel.decode(body);
+    }
+
+    /**
+     * Opens the payload the way a response body is read.
+     */
+    private InputStreamReader reader() {
+        return new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,64 @@
+package pl.creativesstudio.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import pl.creativesstudio.api.FeedDecoder;
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.replay.FeedFrame;
+import pl.creativesstudio.replay.SyntheticFleet;
+
+/**
+ * Shared fixtures of the benchmarks: recorded-like `busestrams_get` payloads of a given fleet size.
+ *
+ * ### Model:
+ * - Payloads come from a seeded `SyntheticFleet`, so every run and every commit benchmarks the same data.
+ * - Warsaw runs roughly one line per five vehicles, so the line count scales with the fleet.
+ */
+final class Fleets {
+
+    /**
+     * Seed of every generated fleet.
+     */
+    private static final long SEED = 42L;
+
+    /**
+     * Number of vehicles per line.
+     */
+    private static final int VEHICLES_PER_LINE = 5;
+
+    private Fleets() {
+    }
+
+    /**
+     * Generates consecutive polls of a fleet.
+     *
+     * @param fleetSize Number of vehicles.
+     * @param polls     Number of polls.
+     * @return The JSON bodies of the polls, in order.
+     */
+    static byte[][] bodies(int fleetSize, int polls) {
+        SyntheticFleet fleet = new SyntheticFleet(fleetSize, Math.max(1, fleetSize / VEHICLES_PER_LINE), SEED);
+        byte[][] bodies = new byte[polls][];
+        for (int i = 0; i < polls; i++) {
+            FeedFrame frame = fleet.next();
+            bodies[i] = frame.getBody();
+        }
+        return bodies;
+    }
+
+    /**
+     * Decodes a payload into a snapshot, as the repository does.
+     *
+     * @param body       The JSON body.
+     * @param capturedAt Capture time of the snapshot.
+     * @return The snapshot of the payload.
+     */
+    static Snapshot snapshot(byte[] body, long capturedAt) {
+        try {
+            return new Snapshot(new FeedDecoder().decode(body).getResult(), capturedAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
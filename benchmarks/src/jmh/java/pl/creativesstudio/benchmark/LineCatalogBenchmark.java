@@ -0,0 +1,58 @@
+package pl.creativesstudio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.index.LineCatalog;
+import pl.creativesstudio.index.LineDictionary;
+
+/**
+ * Building the line catalog of a snapshot.
+ *
+ * ### Variants:
+ * - `fresh`: with a new dictionary, as on the first poll.
+ * - `warmDictionary`: with a dictionary that already knows every line, as on every later poll.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineCatalogBenchmark {
+
+    @Param({"1500", "10000", "50000"})
+    public int fleetSize;
+
+    private Snapshot snapshot;
+    private LineDictionary dictionary;
+
+    @Setup
+    public void setUp() {
+        snapshot = Fleets.snapshot(Fleets.bodies(fleetSize, 1)[0], 0L);
+        dictionary = new LineDictionary();
+        LineCatalog.build(snapshot, dictionary);
+    }
+
+    @Benchmark
+    public LineCatalog fresh() {
+        return LineCatalog.build(snapshot);
+    }
+
+    @Benchmark
+    public LineCatalog warmDictionary() {
+        return LineCatalog.build(snapshot, dictionary);
+    }
+}
@@ -0,0 +1,83 @@
+package pl.creativesstudio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.index.LineSortKey;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Ordering of the distinct line names of a snapshot.
+ *
+ * ### Variants:
+ * - `regexComparator`: the comparator `MainActivity.sortBusLines` used originally, running four regexes per comparison.
+ * - `precomputedKeys`: `LineSortKey.sort`, parsing every name once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineSortBenchmark {
+
+    @Param({"1500", "10000", "50000"})
+    public int fleetSize;
+
+    private List<String> lines;
+
+    @Setup
+    public void setUp() {
+        Snapshot snapshot = Fleets.snapshot(Fleets.bodies(fleetSize, 1)[0], 0L);
+        Set<String> distinct = new LinkedHashSet<>();
+        for (Bus bus : snapshot.getBuses()) {
+            distinct.add(bus.getLines());
+        }
+        lines = new ArrayList<>(distinct);
+        Collections.shuffle(lines, new Random(7));
+    }
+
+    @Benchmark
+    public List<String> regexComparator() {
+        List<String> sorted = new ArrayList<>(lines);
+        Collections.sort(sorted, LineSortBenchmark::regexCompare);
+        return sorted;
+    }
+
+    @Benchmark
+    public List<String> precomputedKeys() {
+        return LineSortKey.sort(new ArrayList<>(lines));
+    }
+
+    /**
+     * The comparator previously used by `MainActivity.sortBusLines`.
+     */
+    private static int regexCompare(String line1, String line2) {
+        String numberPart1 = line1.replaceAll("[^0-9]", "");
+        String numberPart2 = line2.replaceAll("[^0-9]", "");
+        int letterComparison = line1.replaceAll("[0-9]", "").compareTo(line2.replaceAll("[0-9]", ""));
+        if (letterComparison != 0) return letterComparison;
+        if (!numberPart1.isEmpty() && !numberPart2.isEmpty()) {
+            return Integer.compare(Integer.parseInt(numberPart1), Integer.parseInt(numberPart2));
+        }
+        return line1.compareTo(line2);
+    }
+}
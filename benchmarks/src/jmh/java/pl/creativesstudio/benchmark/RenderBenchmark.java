@@ -0,0 +1,95 @@
+package pl.creativesstudio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import pl.creativesstudio.data.ReportAgePolicy;
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.index.GeoBounds;
+import pl.creativesstudio.index.ViewportIndex;
+import pl.creativesstudio.models.Bus;
+import pl.creativesstudio.render.MarkerLayer;
+import pl.creativesstudio.render.RecordingMapRenderer;
+
+/**
+ * Marker updates of consecutive polls, drawn on the headless `RecordingMapRenderer`.
+ *
+ * ### Variants:
+ * - `markers`: updating the markers of a city-centre viewport to the next poll.
+ * - `pipeline`: the whole path of a poll from the response body to the map: decode, snapshot,
+ *   viewport index, viewport query and marker update.
+ * - Both run with the `REBUILD` strategy of the app and the `DIFF` strategy; the renderer only
+ *   counts operations, so the layer's own work is measured, not the cost of Google Maps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    /**
+     * Viewport at the zoom level from which the app shows markers, around central Warsaw.
+     */
+    private static final GeoBounds VIEWPORT = new GeoBounds(52.1897, 20.9522, 52.2697, 21.0722);
+
+    /**
+     * Number of consecutive polls cycled through.
+     */
+    private static final int POLLS = 8;
+
+    @Param({"1500", "10000", "50000"})
+    public int fleetSize;
+
+    @Param({"REBUILD", "DIFF"})
+    public MarkerLayer.Strategy strategy;
+
+    private byte[][] bodies;
+    private Snapshot[] snapshots;
+    private List<List<Bus>> visible;
+    private MarkerLayer layer;
+    private int poll;
+
+    @Setup
+    public void setUp() {
+        bodies = Fleets.bodies(fleetSize, POLLS);
+        snapshots = new Snapshot[POLLS];
+        visible = new ArrayList<>(POLLS);
+        for (int i = 0; i < POLLS; i++) {
+            snapshots[i] = Fleets.snapshot(bodies[i], i * 10_000L);
+            visible.add(ViewportIndex.build(snapshots[i]).within(VIEWPORT));
+        }
+        layer = new MarkerLayer(new RecordingMapRenderer(false), strategy, new ReportAgePolicy(60_000, 300_000));
+        poll = 0;
+    }
+
+    @Benchmark
+    public int markers() {
+        int i = poll++ % POLLS;
+        layer.show(visible.get(i), snapshots[i].getLatestReportTime(), 1f, null);
+        return layer.size();
+    }
+
+    @Benchmark
+    public int pipeline() {
+        int i = poll++ % POLLS;
+        Snapshot snapshot = Fleets.snapshot(bodies[i], i * 10_000L);
+        List<Bus> buses = ViewportIndex.build(snapshot).within(VIEWPORT);
+        layer.show(buses, snapshot.getLatestReportTime(), 1f, null);
+        return layer.size();
+    }
+}
@@ -0,0 +1,59 @@
+package pl.creativesstudio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.data.SnapshotDelta;
+
+/**
+ * Diffing of two consecutive polls, where almost every vehicle has moved.
+ *
+ * ### Variants:
+ * - `between`: computing the delta of the newer snapshot against the older one.
+ * - `applyTo`: rebuilding the newer snapshot from the older one and a precomputed delta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotDiffBenchmark {
+
+    @Param({"1500", "10000", "50000"})
+    public int fleetSize;
+
+    private Snapshot previous;
+    private Snapshot current;
+    private SnapshotDelta delta;
+
+    @Setup
+    public void setUp() {
+        byte[][] bodies = Fleets.bodies(fleetSize, 2);
+        previous = Fleets.snapshot(bodies[0], 0L);
+        current = Fleets.snapshot(bodies[1], 10_000L);
+        delta = SnapshotDelta.between(previous, current);
+    }
+
+    @Benchmark
+    public SnapshotDelta between() {
+        return SnapshotDelta.between(previous, current);
+    }
+
+    @Benchmark
+    public Snapshot applyTo() {
+        return delta.applyTo(previous);
+    }
+}
@@ -0,0 +1,72 @@
+package pl.creativesstudio.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.index.GeoBounds;
+import pl.creativesstudio.index.ViewportIndex;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Selection of the vehicles inside a phone-sized viewport over the city centre.
+ *
+ * ### Variants:
+ * - `linearScan`: `ViewportIndex.filter`, the linear scan behind `MainActivity.filterBusesWithinBounds`.
+ * - `indexed`: `ViewportIndex.within` on a prebuilt index.
+ * - `buildIndex`: building the index, paid once per snapshot on the fetch thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewportBenchmark {
+
+    /**
+     * Viewport at street-level zoom around central Warsaw.
+     */
+    private static final GeoBounds VIEWPORT = new GeoBounds(52.2197, 20.9972, 52.2397, 21.0272);
+
+    @Param({"1500", "10000", "50000"})
+    public int fleetSize;
+
+    private Snapshot snapshot;
+    private List<Bus> buses;
+    private ViewportIndex index;
+
+    @Setup
+    public void setUp() {
+        snapshot = Fleets.snapshot(Fleets.bodies(fleetSize, 1)[0], 0L);
+        buses = snapshot.getBuses();
+        index = ViewportIndex.build(snapshot);
+    }
+
+    @Benchmark
+    public List<Bus> linearScan() {
+        return ViewportIndex.filter(buses, VIEWPORT);
+    }
+
+    @Benchmark
+    public List<Bus> indexed() {
+        return index.within(VIEWPORT);
+    }
+
+    @Benchmark
+    public ViewportIndex buildIndex() {
+        return ViewportIndex.build(snapshot);
+    }
+}
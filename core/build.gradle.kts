@@ -0,0 +1,23 @@
+plugins {
+    `java-library`
+}
+
+// Models, decoding, snapshots, indexes and the repository, free of Android dependencies,
+// so they can be tested and benchmarked on a plain JVM: ./gradlew :core:test
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    api("com.squareup.retrofit2:retrofit:2.9.0")
+    api("com.squareup.retrofit2:converter-gson:2.9.0")
+    api("com.squareup.okhttp3:okhttp:3.14.9")
+
+    testImplementation(libs.junit.jupiter)
+    testImplementation("org.mockito:mockito-core:5.14.1")
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
@@ -0,0 +1,68 @@
+package pl.creativesstudio.api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import okhttp3.OkHttpClient;
+import pl.creativesstudio.models.ApiResponse;
+import pl.creativesstudio.models.Bus;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Factory for `WarsawApiService` instances.
+ * Keeps the Retrofit setup in one place so the app, tests and benchmarks talk to the API the same way,
+ * whether the HTTP client reaches the real server, a local stand-in or a replay interceptor.
+ */
+public final class ApiClient {
+
+    /**
+     * Base URL of the production Warsaw public transport API.
+     */
+    public static final String DEFAULT_BASE_URL = "https://api.um.warszawa.pl/";
+
+    /**
+     * Gson instance decoding the models with the streaming adapters instead of reflection.
+     */
+    private static final Gson GSON = createGson();
+
+    private ApiClient() {
+    }
+
+    /**
+     * Creates an API service.
+     *
+     * @param baseUrl The base URL of the API, ending with `/`.
+     * @param client  The HTTP client executing the calls.
+     * @return A new `WarsawApiService`.
+     */
+    public static WarsawApiService create(String baseUrl, OkHttpClient client) {
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create(GSON))
+                .build();
+        return retrofit.create(WarsawApiService.class);
+    }
+
+    /**
+     * Returns the Gson instance used for API responses, for decoding recorded or generated payloads
+     * exactly like the API client does.
+     *
+     * @return The shared, thread-safe Gson instance.
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+
+    /**
+     * Creates a Gson instance with `BusTypeAdapter` and `ApiResponseTypeAdapter` registered.
+     */
+    private static Gson createGson() {
+        BusTypeAdapter busAdapter = new BusTypeAdapter();
+        return new GsonBuilder()
+                .registerTypeAdapter(Bus.class, busAdapter)
+                .registerTypeAdapter(ApiResponse.class, new ApiResponseTypeAdapter(busAdapter))
+                .create();
+    }
+}
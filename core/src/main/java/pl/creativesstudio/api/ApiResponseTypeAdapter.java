@@ -0,0 +1,109 @@
+package pl.creativesstudio.api;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import pl.creativesstudio.models.ApiResponse;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Streaming JSON binding of `ApiResponse`, replacing Gson's reflective field binding.
+ *
+ * ### Decoding:
+ * - Vehicles of the `result` array are decoded one by one with a `BusTypeAdapter`; `null` entries are dropped.
+ * - On invalid calls the API sends an error message string as `result`. It is skipped and leaves
+ *   `getResult()` at `null`, so the caller sees a response without data instead of a parse failure.
+ */
+public final class ApiResponseTypeAdapter extends TypeAdapter<ApiResponse> {
+
+    /**
+     * Adapter for the elements of `result`.
+     */
+    private final BusTypeAdapter busAdapter;
+
+    /**
+     * Creates an adapter decoding vehicles with the given adapter.
+     *
+     * @param busAdapter The adapter for `Bus` objects.
+     */
+    public ApiResponseTypeAdapter(BusTypeAdapter busAdapter) {
+        this.busAdapter = busAdapter;
+    }
+
+    /**
+     * Reads one response object.
+     *
+     * @param in The reader, positioned at the object.
+     * @return The decoded response, or `null` for a JSON `null`.
+     * @throws IOException If the input is not valid JSON.
+     */
+    @Override
+    public ApiResponse read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        ApiResponse response = new ApiResponse();
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("result".equals(in.nextName()) && in.peek() == JsonToken.BEGIN_ARRAY) {
+                response.setResult(readResult(in));
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return response;
+    }
+
+    /**
+     * Writes one response object.
+     *
+     * @param out      The writer.
+     * @param response The response to write, may be `null`.
+     * @throws IOException If writing fails.
+     */
+    @Override
+    public void write(JsonWriter out, ApiResponse response) throws IOException {
+        if (response == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("result");
+        if (response.getResult() == null) {
+            out.nullValue();
+        } else {
+            out.beginArray();
+            for (Bus bus : response.getResult()) {
+                busAdapter.write(out, bus);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    /**
+     * Reads the `result` array.
+     */
+    private List<Bus> readResult(JsonReader in) throws IOException {
+        List<Bus> result = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() != JsonToken.BEGIN_OBJECT) {
+                in.skipValue();
+                continue;
+            }
+            result.add(busAdapter.read(in));
+        }
+        in.endArray();
+        return result;
+    }
+}
@@ -0,0 +1,142 @@
+package pl.creativesstudio.api;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Streaming JSON binding of `Bus`, replacing Gson's reflective field binding.
+ *
+ * ### Decoding:
+ * - Fields are matched by name in a single pass over the object; unknown fields are skipped.
+ * - `Time` is also parsed into epoch milliseconds (`Bus.getTimeMillis`) with `FeedTime`.
+ * - Tolerates the quirks of the feed: coordinates sent as strings, numbers sent for text fields,
+ *   and missing or `null` fields, which keep their defaults instead of failing the whole response.
+ *
+ * ### Thread Safety:
+ * - Stateless; one instance is shared by all decoders.
+ */
+public final class BusTypeAdapter extends TypeAdapter<Bus> {
+
+    /**
+     * Reads one `Bus` object.
+     *
+     * @param in The reader, positioned at the object.
+     * @return The decoded bus, or `null` for a JSON `null`.
+     * @throws IOException If the input is not valid JSON.
+     */
+    @Override
+    public Bus read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        Bus bus = new Bus();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "Lines":
+                    bus.setLines(readString(in));
+                    break;
+                case "Lon":
+                    bus.setLon(readDouble(in));
+                    break;
+                case "Lat":
+                    bus.setLat(readDouble(in));
+                    break;
+                case "Time":
+                    String time = readString(in);
+                    bus.setTime(time);
+                    bus.setTimeMillis(FeedTime.parse(time));
+                    break;
+                case "VehicleNumber":
+                    bus.setVehicleNumber(readString(in));
+                    break;
+                case "Brigade":
+                    bus.setBrigade(readString(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return bus;
+    }
+
+    /**
+     * Writes one `Bus` object with the field names of the API.
+     *
+     * @param out The writer.
+     * @param bus The bus to write, may be `null`.
+     * @throws IOException If writing fails.
+     */
+    @Override
+    public void write(JsonWriter out, Bus bus) throws IOException {
+        if (bus == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("Lines").value(bus.getLines());
+        out.name("Lon").value(bus.getLon());
+        out.name("Lat").value(bus.getLat());
+        out.name("Time").value(bus.getTime());
+        out.name("VehicleNumber").value(bus.getVehicleNumber());
+        out.name("Brigade").value(bus.getBrigade());
+        out.endObject();
+    }
+
+    /**
+     * Reads a text field, accepting numbers and booleans as text.
+     *
+     * @return The value, or `null` for `null` and for arrays or objects, which are skipped.
+     */
+    private static String readString(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case STRING:
+            case NUMBER:
+                return in.nextString();
+            case BOOLEAN:
+                return String.valueOf(in.nextBoolean());
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                in.skipValue();
+                return null;
+        }
+    }
+
+    /**
+     * Reads a coordinate, accepting numbers and numeric strings, also with a decimal comma.
+     *
+     * @return The value, or `0` if it is missing or not a number; `0` coordinates are treated as invalid downstream.
+     */
+    private static double readDouble(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case NUMBER:
+                return in.nextDouble();
+            case STRING:
+                String value = in.nextString().trim().replace(',', '.');
+                try {
+                    double parsed = Double.parseDouble(value);
+                    return Double.isNaN(parsed) || Double.isInfinite(parsed) ? 0 : parsed;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            case NULL:
+                in.nextNull();
+                return 0;
+            default:
+                in.skipValue();
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package pl.creativesstudio.api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import pl.creativesstudio.models.ApiResponse;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Decoder of raw `busestrams_get` payloads that splits large responses across a fork/join pool.
+ *
+ * ### Algorithm:
+ * - One pass over the raw bytes locates the top-level `result` array and the start and end offset of
+ *   every vehicle object in it, tracking only nesting depth and string literals.
+ * - Runs of consecutive vehicles are decoded in parallel with `BusTypeAdapter`, each chunk wrapped in
+ *   brackets so it reads as a small JSON array of its own.
+ * - Every chunk writes its vehicles to their own slots of one result array, so the merged list keeps
+ *   the order of the payload without copying partial lists.
+ *
+ * ### Fallback:
+ * - Payloads smaller than the size threshold, and payloads without a `result` array (such as the
+ *   error messages of the API), are decoded single-threaded with `ApiResponseTypeAdapter`.
+ */
+public final class FeedDecoder {
+
+    /**
+     * Default payload size in bytes from which decoding is split, roughly 3 000 vehicles.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 512 * 1024;
+
+    /**
+     * Minimum number of vehicles decoded by one task, so the split overhead stays small.
+     */
+    static final int MIN_CHUNK_RECORDS = 512;
+
+    /**
+     * Opening bracket prepended to every chunk.
+     */
+    private static final byte[] OPEN = {'['};
+
+    /**
+     * Closing bracket appended to every chunk.
+     */
+    private static final byte[] CLOSE = {']'};
+
+    /**
+     * Key of the vehicle array, as raw bytes.
+     */
+    private static final byte[] RESULT_KEY = "result".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Adapter decoding single vehicles.
+     */
+    private final BusTypeAdapter busAdapter = new BusTypeAdapter();
+
+    /**
+     * Adapter decoding whole responses on the single-threaded path.
+     */
+    private final ApiResponseTypeAdapter responseAdapter = new ApiResponseTypeAdapter(busAdapter);
+
+    /**
+     * Pool running the chunk tasks.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Payload size in bytes from which decoding is split.
+     */
+    private final int parallelThreshold;
+
+    /**
+     * Creates a decoder using the common fork/join pool and the default threshold.
+     */
+    public FeedDecoder() {
+        this(ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Creates a decoder.
+     *
+     * @param pool              The pool running the chunk tasks.
+     * @param parallelThreshold Payload size in bytes from which decoding is split.
+     */
+    public FeedDecoder(ForkJoinPool pool, int parallelThreshold) {
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Decodes a raw payload.
+     *
+     * @param body The UTF-8 encoded response body.
+     * @return The decoded response.
+     * @throws IOException If the payload is not valid JSON.
+     */
+    public ApiResponse decode(byte[] body) throws IOException {
+        if (body.length < parallelThreshold || pool.getParallelism() < 2) {
+            return decodeSequential(body);
+        }
+
+        int[] bounds = scanRecords(body);
+        if (bounds == null || bounds.length / 2 < 2 * MIN_CHUNK_RECORDS) {
+            return decodeSequential(body);
+        }
+
+        // Aim for a few chunks per worker so uneven chunks still balance
+        int records = bounds.length / 2;
+        int chunk = Math.max(MIN_CHUNK_RECORDS, records / (pool.getParallelism() * 4) + 1);
+        Bus[] result = new Bus[records];
+        try {
+            ChunkTask task = new ChunkTask(this, body, bounds, result, 0, records, chunk);
+            if (ForkJoinTask.getPool() == pool) {
+                // Already on a worker of the pool, e.g. the decode stage of `BusRepository`; fork from here
+                task.invoke();
+            } else {
+                pool.invoke(task);
+            }
+        } catch (RuntimeException e) {
+            // The pool may wrap the exception thrown by the worker again
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) throw (IOException) cause;
+            }
+            throw e;
+        }
+
+        ApiResponse response = new ApiResponse();
+        response.setResult(new ArrayList<>(Arrays.asList(result)));
+        return response;
+    }
+
+    /**
+     * Decodes a payload on the calling thread.
+     */
+    private ApiResponse decodeSequential(byte[] body) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+        return responseAdapter.read(reader);
+    }
+
+    /**
+     * Decodes the vehicles between two record indexes into the same slots of the result array.
+     */
+    private void decodeRange(byte[] body, int[] bounds, Bus[] result, int from, int to) throws IOException {
+        int start = bounds[2 * from];
+        int end = bounds[2 * (to - 1) + 1];
+        JsonReader reader = new JsonReader(new InputStreamReader(new SequenceInputStream(
+                new SequenceInputStream(new ByteArrayInputStream(OPEN), new ByteArrayInputStream(body, start, end - start)),
+                new ByteArrayInputStream(CLOSE)), StandardCharsets.UTF_8));
+
+        // Entries other than objects, such as `null`, have no slot and are skipped like in `ApiResponseTypeAdapter`
+        reader.beginArray();
+        int i = from;
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.BEGIN_OBJECT && i < to) {
+                result[i++] = busAdapter.read(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+        if (i != to) throw new IOException("Expected " + (to - from) + " vehicles in chunk, decoded " + (i - from));
+    }
+
+    /**
+     * Finds the vehicle objects of the top-level `result` array.
+     *
+     * @param body The raw payload.
+     * @return Start (inclusive) and end (exclusive) offsets of every object in the array, interleaved,
+     *         or `null` if the payload has no `result` array.
+     */
+    static int[] scanRecords(byte[] body) {
+        int[] bounds = new int[256];
+        int count = 0;
+        int depth = 0;
+        int arrayDepth = -1;
+        boolean afterResultKey = false;
+
+        for (int i = 0; i < body.length; i++) {
+            byte b = body[i];
+            if (b == '"') {
+                // Skip the string literal, remembering keys of the top-level object
+                int start = i + 1;
+                i++;
+                while (i < body.length && body[i] != '"') {
+                    if (body[i] == '\\') i++;
+                    i++;
+                }
+                afterResultKey = depth == 1 && arrayDepth < 0 && isResultKey(body, start, i);
+                continue;
+            }
+
+            switch (b) {
+                case '{':
+                case '[':
+                    depth++;
+                    if (b == '[' && afterResultKey && depth == 2) {
+                        arrayDepth = depth;
+                    } else if (b == '{' && arrayDepth > 0 && depth == arrayDepth + 1) {
+                        if (count + 2 > bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                        bounds[count] = i;
+                    }
+                    afterResultKey = false;
+                    break;
+                case '}':
+                case ']':
+                    if (b == '}' && arrayDepth > 0 && depth == arrayDepth + 1) {
+                        bounds[count + 1] = i + 1;
+                        count += 2;
+                    } else if (b == ']' && depth == arrayDepth) {
+                        return Arrays.copyOf(bounds, count);
+                    }
+                    depth--;
+                    break;
+                case ',':
+                    afterResultKey = false;
+                    break;
+                default:
+                    // A value other than an array follows the key, e.g. an error message
+                    if (afterResultKey && b != ':' && b > ' ') afterResultKey = false;
+                    break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tells whether the string literal between two offsets is exactly `result`.
+     */
+    private static boolean isResultKey(byte[] body, int start, int end) {
+        if (end - start != RESULT_KEY.length) return false;
+        for (int j = 0; j < RESULT_KEY.length; j++) {
+            if (body[start + j] != RESULT_KEY[j]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a range of records, splitting it in halves until it fits a chunk.
+     */
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FeedDecoder decoder;
+        private final byte[] body;
+        private final int[] bounds;
+        private final Bus[] result;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        ChunkTask(FeedDecoder decoder, byte[] body, int[] bounds, Bus[] result, int from, int to, int chunk) {
+            this.decoder = decoder;
+            this.body = body;
+            this.bounds = bounds;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                try {
+                    decoder.decodeRange(body, bounds, result, from, to);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkTask(decoder, body, bounds, result, from, mid, chunk),
+                    new ChunkTask(decoder, body, bounds, result, mid, to, chunk));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package pl.creativesstudio.api;
+
+import java.util.TimeZone;
+
+/**
+ * Parser and formatter for the `Time` field of the feed, `yyyy-MM-dd HH:mm:ss` in Warsaw local time.
+ *
+ * ### Performance:
+ * - Parsing reads the digits in place and converts the date arithmetically; it allocates nothing
+ *   except when a value falls into a different local hour than the previous one, which refreshes
+ *   the cached UTC offset.
+ * - Formatting writes the digits directly instead of going through `SimpleDateFormat`.
+ *
+ * ### Notes:
+ * - Daylight saving changes in Warsaw happen on full hours, so one UTC offset per local hour is exact.
+ *   A local time in the hour repeated when clocks go back resolves to its second, standard-time occurrence.
+ * - All methods are thread-safe.
+ */
+public final class FeedTime {
+
+    /**
+     * Length of a formatted value.
+     */
+    public static final int LENGTH = 19;
+
+    /**
+     * Time zone of the feed.
+     */
+    private static final TimeZone ZONE = TimeZone.getTimeZone("Europe/Warsaw");
+
+    private static final long MILLIS_PER_HOUR = 60 * 60 * 1000L;
+    private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+    /**
+     * UTC offset of the most recently parsed local hour.
+     */
+    private static volatile HourOffset lastOffset = new HourOffset(Long.MIN_VALUE, 0);
+
+    /**
+     * Immutable pair of a local hour and its UTC offset, replaced as a whole so readers never see a torn pair.
+     */
+    private static final class HourOffset {
+        final long localHour;
+        final int offset;
+
+        HourOffset(long localHour, int offset) {
+            this.localHour = localHour;
+            this.offset = offset;
+        }
+    }
+
+    private FeedTime() {
+    }
+
+    /**
+     * Parses a `Time` value.
+     *
+     * @param time The value, may be `null`.
+     * @return The time in milliseconds since the epoch, or `0` if the value is missing or malformed.
+     */
+    public static long parse(String time) {
+        if (time == null || time.length() != LENGTH
+                || time.charAt(4) != '-' || time.charAt(7) != '-' || time.charAt(10) != ' '
+                || time.charAt(13) != ':' || time.charAt(16) != ':') {
+            return 0;
+        }
+        int year = digits(time, 0, 4);
+        int month = digits(time, 5, 2);
+        int day = digits(time, 8, 2);
+        int hour = digits(time, 11, 2);
+        int minute = digits(time, 14, 2);
+        int second = digits(time, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return 0;
+        }
+
+        long localHour = daysFromCivil(year, month, day) * 24 + hour;
+        return localHour * MILLIS_PER_HOUR + minute * 60_000L + second * 1000L - offsetOfLocalHour(localHour);
+    }
+
+    /**
+     * Formats a time like the feed does.
+     *
+     * @param millis The time in milliseconds since the epoch.
+     * @return The formatted value, e.g. "2024-12-27 14:30:00".
+     */
+    public static String format(long millis) {
+        return append(new StringBuilder(LENGTH), millis).toString();
+    }
+
+    /**
+     * Appends a time formatted like the feed does, without intermediate objects.
+     *
+     * @param out    The builder to append to.
+     * @param millis The time in milliseconds since the epoch.
+     * @return The builder.
+     */
+    public static StringBuilder append(StringBuilder out, long millis) {
+        long local = millis + ZONE.getOffset(millis);
+        long days = Math.floorDiv(local, MILLIS_PER_DAY);
+        int millisOfDay = (int) (local - days * MILLIS_PER_DAY);
+
+        // Civil date from days since the epoch (proleptic Gregorian calendar)
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        int dayOfEra = (int) (z - era * 146_097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        int seconds = millisOfDay / 1000;
+        pad(out, year, 4).append('-');
+        pad(out, month, 2).append('-');
+        pad(out, day, 2).append(' ');
+        pad(out, seconds / 3600, 2).append(':');
+        pad(out, seconds / 60 % 60, 2).append(':');
+        return pad(out, seconds % 60, 2);
+    }
+
+    /**
+     * Formats a duration as a short age in its largest whole unit.
+     *
+     * @param millis The duration in milliseconds.
+     * @return The age, e.g. "45 s", "5 min", "3 h" or "2 d".
+     */
+    public static String formatAge(long millis) {
+        long seconds = millis / 1000;
+        if (seconds < 60) return seconds + " s";
+        if (seconds < 60 * 60) return seconds / 60 + " min";
+        if (seconds < 24 * 60 * 60) return seconds / (60 * 60) + " h";
+        return seconds / (24 * 60 * 60) + " d";
+    }
+
+    /**
+     * Returns the UTC offset in effect at the start of a local hour, refreshing the cache on a miss.
+     */
+    private static int offsetOfLocalHour(long localHour) {
+        HourOffset cached = lastOffset;
+        if (cached.localHour != localHour) {
+            long local = localHour * MILLIS_PER_HOUR;
+            int offset = ZONE.getOffset(local - ZONE.getRawOffset());
+            offset = ZONE.getOffset(local - offset);
+            cached = new HourOffset(localHour, offset);
+            lastOffset = cached;
+        }
+        return cached.offset;
+    }
+
+    /**
+     * Reads a fixed number of decimal digits.
+     *
+     * @return The value, or `-1` if a character is not a digit.
+     */
+    private static int digits(String s, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the number of days in a month of the Gregorian calendar.
+     */
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Returns the number of days between 1970-01-01 and a civil date.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        int yearOfEra = (int) (y - era * 400);
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    /**
+     * Appends a non-negative number padded with zeros to a fixed width.
+     */
+    private static StringBuilder pad(StringBuilder out, long value, int width) {
+        for (long limit = 10; width > 1; width--, limit *= 10) {
+            if (value < limit) out.append('0');
+        }
+        return out.append(value);
+    }
+}
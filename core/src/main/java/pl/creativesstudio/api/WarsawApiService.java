@@ -1,9 +1,11 @@
 package pl.creativesstudio.api;
 
+import okhttp3.ResponseBody;
 import pl.creativesstudio.models.ApiResponse;
 import retrofit2.Call;
 import retrofit2.http.GET;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 /**
  * Interface for interacting with Warsaw's public transport API.
@@ -73,4 +75,25 @@ public interface WarsawApiService {
             @Query("line") String line,      // Optional
             @Query("brigade") String brigade // Optional
     );
+
+    /**
+     * Fetches the same data as `getBuses` without decoding it, so downloading and decoding can run
+     * on different threads (see `BusRepository`) and the body can be decoded with a `FeedDecoder`.
+     *
+     * @param resourceId The unique resource identifier for the data endpoint.
+     * @param apiKey     The API key used to authenticate requests.
+     * @param type       `1` for buses, `2` for trams.
+     * @param line       (Optional) The specific line to filter results by.
+     * @param brigade    (Optional) The specific brigade to filter results by.
+     * @return A call whose body is the raw JSON response; the caller must close it.
+     */
+    @Streaming
+    @GET("api/action/busestrams_get/")
+    Call<ResponseBody> getBusesRaw(
+            @Query("resource_id") String resourceId,
+            @Query("apikey") String apiKey,
+            @Query("type") int type,
+            @Query("line") String line,      // Optional
+            @Query("brigade") String brigade // Optional
+    );
 }
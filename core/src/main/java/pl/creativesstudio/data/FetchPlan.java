@@ -0,0 +1,64 @@
+package pl.creativesstudio.data;
+
+import java.util.Collection;
+
+/**
+ * Decides what a poll requests from the API, based on the lines the user has pinned.
+ *
+ * ### Plans:
+ * - No line or several lines pinned: request the whole fleet.
+ * - Exactly one line pinned: request only that line with the API's `line` parameter,
+ *   which is a fraction of the full response.
+ *
+ * ### Merging:
+ * - A partial response only describes the requested line, so `SnapshotIngest` merges it into the
+ *   previous snapshot: vehicles of that line are replaced and all other vehicles keep their last known state.
+ *
+ * ### Notes:
+ * - The API accepts a single line per request; for several pinned lines one full request is cheaper
+ *   than one request per line.
+ */
+public final class FetchPlan {
+
+    /**
+     * Plan requesting the whole fleet.
+     */
+    public static final FetchPlan FULL = new FetchPlan(null);
+
+    /**
+     * Line requested from the API, or `null` for the whole fleet.
+     */
+    private final String line;
+
+    private FetchPlan(String line) {
+        this.line = line;
+    }
+
+    /**
+     * Plans the next poll for a set of pinned lines.
+     *
+     * @param selectedLines The pinned lines; empty when all lines are shown.
+     * @return The plan for the next poll.
+     */
+    public static FetchPlan forLines(Collection<String> selectedLines) {
+        return selectedLines.size() == 1 ? new FetchPlan(selectedLines.iterator().next()) : FULL;
+    }
+
+    /**
+     * Returns the value of the `line` query parameter.
+     *
+     * @return The requested line, or `null` for the whole fleet.
+     */
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * Returns whether the plan requests only part of the fleet.
+     *
+     * @return `true` if only one line is requested.
+     */
+    public boolean isPartial() {
+        return line != null;
+    }
+}
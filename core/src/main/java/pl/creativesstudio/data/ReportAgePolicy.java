@@ -0,0 +1,64 @@
+package pl.creativesstudio.data;
+
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Decides how vehicles that stopped reporting are rendered.
+ *
+ * ### Rules:
+ * - The age of a vehicle is measured against the newest report of its snapshot
+ *   (`Snapshot.getLatestReportTime`), so device clock skew and replayed feeds do not matter; that reference
+ *   is capped slightly past the capture time, so a vehicle reporting a time in the future cannot make
+ *   the others look outdated.
+ * - Vehicles up to `fadeAfter` old are drawn normally; older ones fade out linearly down to
+ *   `MIN_ALPHA`, and vehicles older than `dropAfter` are not drawn at all.
+ * - Vehicles without a parsable `Time` are always drawn normally.
+ */
+public final class ReportAgePolicy {
+
+    /**
+     * Opacity of a vehicle just before it is dropped.
+     */
+    public static final float MIN_ALPHA = 0.3f;
+
+    /**
+     * Age in milliseconds from which vehicles fade out.
+     */
+    private final long fadeAfter;
+
+    /**
+     * Age in milliseconds from which vehicles are dropped.
+     */
+    private final long dropAfter;
+
+    /**
+     * Creates a policy.
+     *
+     * @param fadeAfterMillis Age from which vehicles fade out.
+     * @param dropAfterMillis Age from which vehicles are dropped; must not be smaller than `fadeAfterMillis`.
+     */
+    public ReportAgePolicy(long fadeAfterMillis, long dropAfterMillis) {
+        if (fadeAfterMillis < 0 || dropAfterMillis < fadeAfterMillis) {
+            throw new IllegalArgumentException("Expected 0 <= fadeAfter <= dropAfter");
+        }
+        this.fadeAfter = fadeAfterMillis;
+        this.dropAfter = dropAfterMillis;
+    }
+
+    /**
+     * Returns the opacity of a vehicle.
+     *
+     * @param bus           The vehicle.
+     * @param referenceTime The newest report time of its snapshot.
+     * @return `1` for fresh vehicles, between `MIN_ALPHA` and `1` for fading ones, `0` for dropped ones.
+     */
+    public float alphaOf(Bus bus, long referenceTime) {
+        long reported = bus.getTimeMillis();
+        if (reported == 0) return 1f;
+
+        long age = referenceTime - reported;
+        if (age <= fadeAfter) return 1f;
+        if (age > dropAfter) return 0f;
+        return 1f - (1f - MIN_ALPHA) * (age - fadeAfter) / Math.max(1, dropAfter - fadeAfter);
+    }
+}
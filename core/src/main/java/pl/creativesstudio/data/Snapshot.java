@@ -0,0 +1,200 @@
+package pl.creativesstudio.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Immutable view of the vehicle positions reported by a single API poll.
+ *
+ * ### Layout:
+ * - Vehicles are stored in an array sorted by `VehicleNumber`, one entry per vehicle.
+ * - Sorting allows two snapshots to be compared with a single merge pass (see `SnapshotDelta`)
+ *   and a single vehicle to be found with a binary search.
+ *
+ * ### Notes:
+ * - Vehicles without a `VehicleNumber` cannot be tracked between polls and are skipped.
+ * - If a vehicle is reported more than once, the last occurrence wins.
+ * - The `Bus` instances are shared, not copied; they must not be modified after being added.
+ */
+public final class Snapshot {
+
+    /**
+     * Orders buses by their vehicle number.
+     */
+    static final Comparator<Bus> BY_VEHICLE = (a, b) -> a.getVehicleNumber().compareTo(b.getVehicleNumber());
+
+    /**
+     * Empty snapshot used before the first poll completes.
+     */
+    public static final Snapshot EMPTY = new Snapshot(new Bus[0], 0L);
+
+    /**
+     * How far in milliseconds a report may lie ahead of the capture time and still count as current,
+     * allowing for the clock of the device and of the feed to disagree a little.
+     */
+    public static final long MAX_CLOCK_SKEW = 2 * 60_000;
+
+    /**
+     * Buses sorted by vehicle number, without duplicates.
+     */
+    private final Bus[] buses;
+
+    /**
+     * Time at which the snapshot was captured, in milliseconds since the epoch.
+     */
+    private final long capturedAt;
+
+    /**
+     * Newest `Time` reported by any vehicle of the snapshot, at most `MAX_CLOCK_SKEW` past the capture time,
+     * `0` if none is known.
+     */
+    private final long latestReportTime;
+
+    /**
+     * Creates a snapshot from an unordered list of buses as returned by the API.
+     *
+     * @param buses      The buses reported by the API. May be `null`, which is treated as an empty list.
+     * @param capturedAt The capture time in milliseconds since the epoch.
+     */
+    public Snapshot(List<Bus> buses, long capturedAt) {
+        this(sortedUnique(buses), capturedAt);
+    }
+
+    /**
+     * Creates a snapshot from an array that is already sorted and free of duplicates.
+     *
+     * @param sortedBuses The sorted buses. Ownership of the array is transferred to the snapshot.
+     * @param capturedAt  The capture time in milliseconds since the epoch.
+     */
+    Snapshot(Bus[] sortedBuses, long capturedAt) {
+        this.buses = sortedBuses;
+        this.capturedAt = capturedAt;
+
+        long latest = 0;
+        for (Bus bus : sortedBuses) {
+            latest = Math.max(latest, bus.getTimeMillis());
+        }
+        // A single report dated in the future must not make every other vehicle look outdated
+        this.latestReportTime = Math.min(latest, capturedAt + MAX_CLOCK_SKEW);
+    }
+
+    /**
+     * Returns the number of vehicles in the snapshot.
+     *
+     * @return The vehicle count.
+     */
+    public int size() {
+        return buses.length;
+    }
+
+    /**
+     * Returns the bus at the given position in vehicle number order.
+     *
+     * @param index The position, between `0` and `size() - 1`.
+     * @return The bus at that position.
+     */
+    public Bus get(int index) {
+        return buses[index];
+    }
+
+    /**
+     * Finds the position of a vehicle in the snapshot.
+     *
+     * @param vehicleNumber The vehicle number to look up.
+     * @return The position of the vehicle, or a negative value if it is not present.
+     */
+    public int indexOf(String vehicleNumber) {
+        int low = 0;
+        int high = buses.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = buses[mid].getVehicleNumber().compareTo(vehicleNumber);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Returns the capture time of the snapshot.
+     *
+     * @return The capture time in milliseconds since the epoch.
+     */
+    public long getCapturedAt() {
+        return capturedAt;
+    }
+
+    /**
+     * Returns the newest report time of the snapshot, i.e. the feed's own notion of "now".
+     * Unlike the capture time it is unaffected by a device clock running ahead, and it also fits replayed feeds.
+     * It is capped at `MAX_CLOCK_SKEW` past the capture time, so a vehicle reporting a time in the future
+     * cannot age the rest of the fleet.
+     *
+     * @return The newest `Time` in milliseconds since the epoch, or `0` if no vehicle reported a parsable time.
+     */
+    public long getLatestReportTime() {
+        return latestReportTime;
+    }
+
+    /**
+     * Returns the buses of the snapshot as a read-only list in vehicle number order.
+     *
+     * @return An unmodifiable `List<Bus>` backed by the snapshot.
+     */
+    public List<Bus> getBuses() {
+        return Collections.unmodifiableList(Arrays.asList(buses));
+    }
+
+    /**
+     * Gives package-level code direct access to the sorted array, avoiding copies in merge passes.
+     *
+     * @return The backing array. Must not be modified.
+     */
+    Bus[] array() {
+        return buses;
+    }
+
+    /**
+     * Copies, sorts and de-duplicates the buses reported by the API.
+     *
+     * @param buses The unordered buses, may be `null`.
+     * @return A sorted array with one entry per vehicle number.
+     */
+    private static Bus[] sortedUnique(List<Bus> buses) {
+        if (buses == null || buses.isEmpty()) {
+            return new Bus[0];
+        }
+
+        // Keep only buses that can be identified
+        List<Bus> keyed = new ArrayList<>(buses.size());
+        for (Bus bus : buses) {
+            if (bus != null && bus.getVehicleNumber() != null) {
+                keyed.add(bus);
+            }
+        }
+
+        // The sort is stable, so the last report of a duplicated vehicle stays last in its run
+        Bus[] sorted = keyed.toArray(new Bus[0]);
+        Arrays.sort(sorted, BY_VEHICLE);
+
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i + 1 < sorted.length
+                    && sorted[i].getVehicleNumber().equals(sorted[i + 1].getVehicleNumber())) {
+                continue;
+            }
+            sorted[count++] = sorted[i];
+        }
+        return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+    }
+}
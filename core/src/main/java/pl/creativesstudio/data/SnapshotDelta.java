@@ -0,0 +1,200 @@
+package pl.creativesstudio.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Difference between two consecutive snapshots, keyed by `VehicleNumber`.
+ *
+ * ### Contents:
+ * - `upserts`: vehicles that appeared or whose reported state changed, sorted by vehicle number.
+ * - `removals`: vehicle numbers that disappeared, sorted.
+ *
+ * ### Usage:
+ * ```java
+ * SnapshotDelta delta = SnapshotDelta.between(previous, current);
+ * Snapshot rebuilt = delta.applyTo(previous); // same vehicles as `current`
+ * ```
+ *
+ * ### Notes:
+ * - Both operations are single merge passes over the sorted snapshots, linear in the number of vehicles.
+ */
+public final class SnapshotDelta {
+
+    /**
+     * Vehicles added or changed, sorted by vehicle number.
+     */
+    private final Bus[] upserts;
+
+    /**
+     * Vehicle numbers removed, sorted.
+     */
+    private final String[] removals;
+
+    /**
+     * Capture time of the snapshot this delta leads to.
+     */
+    private final long capturedAt;
+
+    private SnapshotDelta(Bus[] upserts, String[] removals, long capturedAt) {
+        this.upserts = upserts;
+        this.removals = removals;
+        this.capturedAt = capturedAt;
+    }
+
+    /**
+     * Computes the changes needed to turn one snapshot into another.
+     *
+     * @param from The earlier snapshot.
+     * @param to   The later snapshot.
+     * @return The delta from `from` to `to`.
+     */
+    public static SnapshotDelta between(Snapshot from, Snapshot to) {
+        Bus[] a = from.array();
+        Bus[] b = to.array();
+        List<Bus> upserts = new ArrayList<>();
+        List<String> removals = new ArrayList<>();
+
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            int cmp;
+            if (i == a.length) {
+                cmp = 1;
+            } else if (j == b.length) {
+                cmp = -1;
+            } else {
+                cmp = a[i].getVehicleNumber().compareTo(b[j].getVehicleNumber());
+            }
+
+            if (cmp < 0) {
+                // Vehicle only in the old snapshot
+                removals.add(a[i++].getVehicleNumber());
+            } else if (cmp > 0) {
+                // Vehicle only in the new snapshot
+                upserts.add(b[j++]);
+            } else {
+                // Vehicle in both: record it only if its state changed
+                if (!sameState(a[i], b[j])) {
+                    upserts.add(b[j]);
+                }
+                i++;
+                j++;
+            }
+        }
+
+        return new SnapshotDelta(upserts.toArray(new Bus[0]), removals.toArray(new String[0]), to.getCapturedAt());
+    }
+
+    /**
+     * Applies this delta to a snapshot.
+     *
+     * @param base The snapshot the delta was computed from, or one with the same vehicles.
+     * @return A new snapshot with the delta applied and the capture time of the delta.
+     */
+    public Snapshot applyTo(Snapshot base) {
+        Bus[] a = base.array();
+        Bus[] merged = new Bus[a.length + upserts.length];
+        int count = 0;
+
+        int i = 0;
+        int u = 0;
+        int r = 0;
+        while (i < a.length || u < upserts.length) {
+            int cmp;
+            if (i == a.length) {
+                cmp = 1;
+            } else if (u == upserts.length) {
+                cmp = -1;
+            } else {
+                cmp = a[i].getVehicleNumber().compareTo(upserts[u].getVehicleNumber());
+            }
+
+            if (cmp < 0) {
+                // Keep the existing vehicle unless it was removed
+                String id = a[i++].getVehicleNumber();
+                while (r < removals.length && removals[r].compareTo(id) < 0) {
+                    r++;
+                }
+                if (r < removals.length && removals[r].equals(id)) {
+                    continue;
+                }
+                merged[count++] = a[i - 1];
+            } else if (cmp > 0) {
+                merged[count++] = upserts[u++];
+            } else {
+                // Replaced vehicle
+                merged[count++] = upserts[u++];
+                i++;
+            }
+        }
+
+        Bus[] result = count == merged.length ? merged : Arrays.copyOf(merged, count);
+        return new Snapshot(result, capturedAt);
+    }
+
+    /**
+     * Returns the number of changed vehicles, added, modified or removed.
+     *
+     * @return The number of entries in the delta.
+     */
+    public int size() {
+        return upserts.length + removals.length;
+    }
+
+    /**
+     * Returns whether the delta contains no changes.
+     *
+     * @return `true` if no vehicle changed.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the vehicles added or changed, sorted by vehicle number.
+     *
+     * @return The upserted buses. Must not be modified.
+     */
+    public Bus[] getUpserts() {
+        return upserts;
+    }
+
+    /**
+     * Returns the vehicle numbers removed, sorted.
+     *
+     * @return The removed vehicle numbers. Must not be modified.
+     */
+    public String[] getRemovals() {
+        return removals;
+    }
+
+    /**
+     * Returns the capture time of the snapshot this delta leads to.
+     *
+     * @return The capture time in milliseconds since the epoch.
+     */
+    public long getCapturedAt() {
+        return capturedAt;
+    }
+
+    /**
+     * Checks whether two reports of the same vehicle carry the same state.
+     *
+     * @param a The earlier report.
+     * @param b The later report.
+     * @return `true` if the position, time, line and brigade are equal.
+     */
+    static boolean sameState(Bus a, Bus b) {
+        return a == b
+                || (Double.compare(a.getLat(), b.getLat()) == 0
+                && Double.compare(a.getLon(), b.getLon()) == 0
+                && Objects.equals(a.getTime(), b.getTime())
+                && Objects.equals(a.getLines(), b.getLines())
+                && Objects.equals(a.getBrigade(), b.getBrigade()));
+    }
+}
@@ -0,0 +1,288 @@
+package pl.creativesstudio.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pl.creativesstudio.memory.MemoryBudget;
+import pl.creativesstudio.memory.MemoryConsumer;
+
+/**
+ * Rolling history of snapshots used for time-travel playback.
+ *
+ * ### Storage:
+ * - Polls are grouped into segments. Each segment starts with a full keyframe snapshot,
+ *   followed by at most `keyframeInterval - 1` deltas, one per subsequent poll.
+ * - Only the vehicles that changed are stored for the polls in between keyframes.
+ *
+ * ### Seeking:
+ * - `stateAt` locates the segment covering the requested time with a binary search over
+ *   the keyframe times, then applies the deltas of that segment up to the requested poll.
+ * - Rebuilding any state therefore touches one keyframe and a bounded number of deltas,
+ *   regardless of how much history is retained.
+ *
+ * ### Retention:
+ * - Whole segments are evicted once the next segment already starts before the retention window,
+ *   so the history always covers at least `retentionMillis`.
+ * - Registered with a `MemoryBudget`, the history also stays within the limit of its account, evicting
+ *   the oldest segments first; the footprint is estimated from the vehicles stored by keyframes and deltas.
+ *
+ * ### Thread Safety:
+ * - All public methods are synchronized; snapshots are recorded on the fetch thread and read on the UI thread.
+ */
+public class SnapshotHistory implements MemoryConsumer {
+
+    /**
+     * Default retention window: one hour.
+     */
+    public static final long DEFAULT_RETENTION_MILLIS = 60 * 60 * 1000L;
+
+    /**
+     * Default number of polls per segment, including the keyframe.
+     */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 12;
+
+    /**
+     * Estimated bytes retained per stored vehicle: the `Bus`, its strings and its slot in the snapshot array.
+     * The sizes reported to the `MemoryBudget` are derived from it.
+     */
+    public static final long ESTIMATED_BYTES_PER_VEHICLE = 320;
+
+    /**
+     * A keyframe and the deltas recorded after it.
+     */
+    private static final class Segment {
+        final Snapshot keyframe;
+        final List<SnapshotDelta> deltas = new ArrayList<>();
+        long bytes;
+
+        Segment(Snapshot keyframe) {
+            this.keyframe = keyframe;
+            this.bytes = keyframe.size() * ESTIMATED_BYTES_PER_VEHICLE;
+        }
+
+        long startTime() {
+            return keyframe.getCapturedAt();
+        }
+
+        long endTime() {
+            return deltas.isEmpty() ? keyframe.getCapturedAt() : deltas.get(deltas.size() - 1).getCapturedAt();
+        }
+    }
+
+    /**
+     * How long recorded snapshots are kept, in milliseconds.
+     */
+    private final long retentionMillis;
+
+    /**
+     * Number of polls per segment, including the keyframe.
+     */
+    private final int keyframeInterval;
+
+    /**
+     * Segments ordered from oldest to newest.
+     */
+    private final List<Segment> segments = new ArrayList<>();
+
+    /**
+     * The most recently recorded snapshot, used to compute the next delta.
+     */
+    private Snapshot latest;
+
+    /**
+     * Estimated footprint of the segments in bytes.
+     */
+    private long sizeBytes;
+
+    /**
+     * Largest footprint in bytes, unbounded until attached to a `MemoryBudget`.
+     */
+    private long maxBytes = Long.MAX_VALUE;
+
+    /**
+     * Account receiving the footprint, `null` if not registered.
+     */
+    private MemoryBudget.Account account;
+
+    /**
+     * Creates a history with the default one-hour retention and keyframe interval.
+     */
+    public SnapshotHistory() {
+        this(DEFAULT_RETENTION_MILLIS, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Creates a history with a custom retention window and keyframe interval.
+     *
+     * @param retentionMillis  How long snapshots are kept, in milliseconds.
+     * @param keyframeInterval Number of polls per segment; must be at least `1`.
+     */
+    public SnapshotHistory(long retentionMillis, int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("keyframeInterval must be at least 1");
+        }
+        this.retentionMillis = retentionMillis;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Records a new snapshot.
+     * Snapshots older than the latest recorded one are ignored.
+     *
+     * @param snapshot The snapshot to record.
+     */
+    public synchronized void record(Snapshot snapshot) {
+        if (latest != null && snapshot.getCapturedAt() <= latest.getCapturedAt()) {
+            return;
+        }
+
+        Segment current = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (current == null || current.deltas.size() + 1 >= keyframeInterval) {
+            // Start a new segment with a full keyframe
+            current = new Segment(snapshot);
+            segments.add(current);
+            sizeBytes += current.bytes;
+        } else {
+            SnapshotDelta delta = SnapshotDelta.between(latest, snapshot);
+            current.deltas.add(delta);
+            long bytes = delta.size() * ESTIMATED_BYTES_PER_VEHICLE;
+            current.bytes += bytes;
+            sizeBytes += bytes;
+        }
+        latest = snapshot;
+
+        evictBefore(snapshot.getCapturedAt() - retentionMillis);
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * Rebuilds the state of the fleet at the given time.
+     *
+     * @param time The requested time in milliseconds since the epoch.
+     * @return The last snapshot captured at or before `time`; the oldest snapshot if `time`
+     *         precedes the history; or `null` if nothing has been recorded.
+     */
+    public synchronized Snapshot stateAt(long time) {
+        if (segments.isEmpty()) {
+            return null;
+        }
+
+        // Binary search for the last segment starting at or before the requested time
+        int low = 0;
+        int high = segments.size() - 1;
+        int found = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (segments.get(mid).startTime() <= time) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        // Replay the deltas of the segment up to the requested time
+        Segment segment = segments.get(found);
+        Snapshot state = segment.keyframe;
+        for (SnapshotDelta delta : segment.deltas) {
+            if (delta.getCapturedAt() > time) {
+                break;
+            }
+            state = delta.applyTo(state);
+        }
+        return state;
+    }
+
+    /**
+     * Returns the capture time of the oldest retained snapshot.
+     *
+     * @return The start of the history, or `0` if it is empty.
+     */
+    public synchronized long getStartTime() {
+        return segments.isEmpty() ? 0L : segments.get(0).startTime();
+    }
+
+    /**
+     * Returns the capture time of the newest retained snapshot.
+     *
+     * @return The end of the history, or `0` if it is empty.
+     */
+    public synchronized long getEndTime() {
+        return segments.isEmpty() ? 0L : segments.get(segments.size() - 1).endTime();
+    }
+
+    /**
+     * Returns whether any snapshot has been recorded.
+     *
+     * @return `true` if the history is empty.
+     */
+    public synchronized boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    /**
+     * Drops all recorded snapshots.
+     */
+    public synchronized void clear() {
+        segments.clear();
+        latest = null;
+        sizeBytes = 0;
+        reportSize();
+    }
+
+    @Override
+    public synchronized void attach(MemoryBudget.Account account) {
+        this.account = account;
+        maxBytes = account.getLimitBytes();
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * Evicts the oldest segments until the estimated footprint is at most the given size.
+     * If even the newest segment alone is larger, the whole history is dropped.
+     *
+     * @param maxBytes Largest footprint allowed afterwards, in bytes.
+     */
+    @Override
+    public synchronized void trimToSize(long maxBytes) {
+        while (sizeBytes > maxBytes && segments.size() > 1) {
+            sizeBytes -= segments.remove(0).bytes;
+        }
+        if (sizeBytes > maxBytes) {
+            clear();
+        } else {
+            reportSize();
+        }
+    }
+
+    /**
+     * Returns the estimated footprint of the history.
+     *
+     * @return The footprint in bytes.
+     */
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Removes segments that lie entirely before the cutoff.
+     * A segment is only removed when the following one already starts at or before the cutoff,
+     * so the cutoff itself always remains reachable.
+     *
+     * @param cutoff The oldest time that must stay reachable.
+     */
+    private void evictBefore(long cutoff) {
+        while (segments.size() > 1 && segments.get(1).startTime() <= cutoff) {
+            sizeBytes -= segments.remove(0).bytes;
+        }
+    }
+
+    /**
+     * Reports the footprint to the account, if registered.
+     */
+    private void reportSize() {
+        if (account != null) {
+            account.setSizeBytes(sizeBytes);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package pl.creativesstudio.data;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import pl.creativesstudio.index.GeoBounds;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Ingest stage between the decoded API response and the snapshot handed to indexing and rendering.
+ *
+ * ### Rules:
+ * - Vehicles without a `VehicleNumber` or `Lines`, with non-finite or `(0, 0)` coordinates, outside the
+ *   service area, or reporting a `Time` more than `Snapshot.MAX_CLOCK_SKEW` after the capture time are rejected.
+ * - A vehicle reported more than once keeps its newest `Time`; on a tie the last occurrence wins.
+ * - A full response replaces the previous snapshot.
+ * - A partial response is merged into the previous snapshot per vehicle: reported vehicles are replaced
+ *   unless their previous report is newer, vehicles of the requested line that were not reported are
+ *   removed, and all other vehicles keep their last known state.
+ *
+ * ### Counters:
+ * - Every rejected or discarded report is counted under a `Reject` reason, per call in the returned
+ *   `Result` and in running totals readable from any thread.
+ *
+ * ### Threading:
+ * - `ingest` is meant to be called from one thread at a time, the fetch thread of `BusRepository`.
+ */
+public final class SnapshotIngest {
+
+    /**
+     * Area served by ZTM Warsaw, with a margin for the suburban lines.
+     */
+    public static final GeoBounds SERVICE_AREA = new GeoBounds(51.9, 20.6, 52.6, 21.5);
+
+    /**
+     * Reasons for dropping a reported vehicle.
+     */
+    public enum Reject {
+        /**
+         * The report has no `VehicleNumber`, so it cannot be tracked between polls.
+         */
+        MISSING_VEHICLE_NUMBER,
+
+        /**
+         * The report has no `Lines`, so it cannot be labeled, filtered by line or merged into a partial response.
+         */
+        MISSING_LINE,
+
+        /**
+         * The coordinates are missing, `(0, 0)` or not finite.
+         */
+        INVALID_COORDINATES,
+
+        /**
+         * The coordinates are valid but outside the service area.
+         */
+        OUTSIDE_SERVICE_AREA,
+
+        /**
+         * The `Time` lies more than `Snapshot.MAX_CLOCK_SKEW` after the capture time.
+         */
+        FUTURE_TIME,
+
+        /**
+         * The vehicle was reported again in the same response with a newer `Time`.
+         */
+        DUPLICATE,
+
+        /**
+         * A partial response reported the vehicle with an older `Time` than the previous snapshot.
+         */
+        OUTDATED
+    }
+
+    /**
+     * Outcome of ingesting one response.
+     */
+    public static final class Result {
+        private final Snapshot snapshot;
+        private final int accepted;
+        private final int[] rejects;
+
+        Result(Snapshot snapshot, int accepted, int[] rejects) {
+            this.snapshot = snapshot;
+            this.accepted = accepted;
+            this.rejects = rejects;
+        }
+
+        /**
+         * Returns the clean snapshot.
+         *
+         * @return The snapshot to index and render.
+         */
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * Returns how many reports of the response made it into the snapshot.
+         *
+         * @return The number of accepted reports.
+         */
+        public int getAccepted() {
+            return accepted;
+        }
+
+        /**
+         * Returns how many reports of the response were dropped for a reason.
+         *
+         * @param reason The reason.
+         * @return The number of dropped reports.
+         */
+        public int getRejected(Reject reason) {
+            return rejects[reason.ordinal()];
+        }
+    }
+
+    /**
+     * Area outside which vehicles are rejected.
+     */
+    private final GeoBounds serviceArea;
+
+    /**
+     * Running totals of dropped reports, indexed by `Reject.ordinal()`.
+     */
+    private final AtomicLongArray totals = new AtomicLongArray(Reject.values().length);
+
+    /**
+     * Creates an ingest stage for the Warsaw service area.
+     */
+    public SnapshotIngest() {
+        this(SERVICE_AREA);
+    }
+
+    /**
+     * Creates an ingest stage.
+     *
+     * @param serviceArea Area outside which vehicles are rejected.
+     */
+    public SnapshotIngest(GeoBounds serviceArea) {
+        this.serviceArea = serviceArea;
+    }
+
+    /**
+     * Cleans a response and combines it with the previous snapshot.
+     *
+     * @param previous   The snapshot before the poll.
+     * @param plan       The plan the response answers.
+     * @param response   The vehicles returned by the API, may be `null`.
+     * @param capturedAt The time of the poll, in milliseconds since the epoch.
+     * @return The new snapshot and the per-reason counts of dropped reports.
+     */
+    public Result ingest(Snapshot previous, FetchPlan plan, List<Bus> response, long capturedAt) {
+        int[] rejects = new int[Reject.values().length];
+        Bus[] clean = clean(response, capturedAt, rejects);
+        int accepted = clean.length;
+
+        Bus[] merged;
+        if (plan.isPartial()) {
+            merged = mergePartial(previous.array(), clean, plan.getLine(), rejects);
+            accepted -= rejects[Reject.OUTDATED.ordinal()];
+        } else {
+            merged = clean;
+        }
+
+        for (int i = 0; i < rejects.length; i++) {
+            if (rejects[i] > 0) totals.addAndGet(i, rejects[i]);
+        }
+        return new Result(new Snapshot(merged, capturedAt), accepted, rejects);
+    }
+
+    /**
+     * Returns how many reports were dropped for a reason since the stage was created.
+     *
+     * @param reason The reason.
+     * @return The running total.
+     */
+    public long getRejectCount(Reject reason) {
+        return totals.get(reason.ordinal());
+    }
+
+    /**
+     * Validates, sorts and de-duplicates a response.
+     *
+     * @param response   The unordered vehicles, may be `null`.
+     * @param capturedAt The time of the poll, in milliseconds since the epoch.
+     * @param rejects    Counts of dropped reports, updated in place.
+     * @return A sorted array with one entry per vehicle number.
+     */
+    private Bus[] clean(List<Bus> response, long capturedAt, int[] rejects) {
+        if (response == null || response.isEmpty()) {
+            return new Bus[0];
+        }
+
+        Bus[] valid = new Bus[response.size()];
+        int count = 0;
+        for (Bus bus : response) {
+            if (bus == null) continue;
+            Reject reason = validate(bus, capturedAt);
+            if (reason != null) {
+                rejects[reason.ordinal()]++;
+            } else {
+                valid[count++] = bus;
+            }
+        }
+
+        // The sort is stable, so duplicates stay in response order within their run
+        Arrays.sort(valid, 0, count, Snapshot.BY_VEHICLE);
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            Bus bus = valid[i];
+            if (unique > 0 && valid[unique - 1].getVehicleNumber().equals(bus.getVehicleNumber())) {
+                rejects[Reject.DUPLICATE.ordinal()]++;
+                if (bus.getTimeMillis() >= valid[unique - 1].getTimeMillis()) {
+                    valid[unique - 1] = bus;
+                }
+                continue;
+            }
+            valid[unique++] = bus;
+        }
+        return unique == valid.length ? valid : Arrays.copyOf(valid, unique);
+    }
+
+    /**
+     * Checks a single report.
+     *
+     * @param bus        The report.
+     * @param capturedAt The time of the poll, in milliseconds since the epoch.
+     * @return The reason to drop it, or `null` if it is valid.
+     */
+    private Reject validate(Bus bus, long capturedAt) {
+        if (bus.getVehicleNumber() == null || bus.getVehicleNumber().isEmpty()) {
+            return Reject.MISSING_VEHICLE_NUMBER;
+        }
+        if (bus.getLines() == null || bus.getLines().isEmpty()) {
+            return Reject.MISSING_LINE;
+        }
+        double lat = bus.getLat();
+        double lon = bus.getLon();
+        if (Double.isNaN(lat) || Double.isNaN(lon) || Double.isInfinite(lat) || Double.isInfinite(lon)
+                || (lat == 0 && lon == 0)) {
+            return Reject.INVALID_COORDINATES;
+        }
+        if (!serviceArea.contains(lat, lon)) {
+            return Reject.OUTSIDE_SERVICE_AREA;
+        }
+        if (bus.getTimeMillis() > capturedAt + Snapshot.MAX_CLOCK_SKEW) {
+            return Reject.FUTURE_TIME;
+        }
+        return null;
+    }
+
+    /**
+     * Merges a clean partial response into the previous snapshot with a single pass over both sorted arrays.
+     *
+     * @param previous The vehicles of the previous snapshot.
+     * @param fresh    The clean vehicles of the response.
+     * @param line     The requested line.
+     * @param rejects  Counts of dropped reports, updated in place.
+     * @return The merged, sorted vehicles.
+     */
+    private static Bus[] mergePartial(Bus[] previous, Bus[] fresh, String line, int[] rejects) {
+        Bus[] merged = new Bus[previous.length + fresh.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < previous.length || j < fresh.length) {
+            int cmp = i == previous.length ? 1
+                    : j == fresh.length ? -1
+                    : previous[i].getVehicleNumber().compareTo(fresh[j].getVehicleNumber());
+            if (cmp < 0) {
+                // Not reported; a vehicle of the requested line has left it
+                Bus old = previous[i++];
+                if (!line.equals(old.getLines())) {
+                    merged[count++] = old;
+                }
+            } else if (cmp > 0) {
+                merged[count++] = fresh[j++];
+            } else {
+                Bus old = previous[i++];
+                Bus bus = fresh[j++];
+                if (bus.getTimeMillis() != 0 && bus.getTimeMillis() < old.getTimeMillis()) {
+                    rejects[Reject.OUTDATED.ordinal()]++;
+                    merged[count++] = old;
+                } else {
+                    merged[count++] = bus;
+                }
+            }
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+}
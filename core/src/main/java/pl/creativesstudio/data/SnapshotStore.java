@@ -0,0 +1,229 @@
+package pl.creativesstudio.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Persists the last good snapshot in a compact binary file, so a cold start can render it before the first poll.
+ *
+ * ### Layout (little-endian):
+ * - Header: magic `TMBS`, format version, capture time, vehicle count, string count.
+ * - String table: every distinct line, brigade, time and vehicle number once, as a length-prefixed UTF-8 string.
+ * - Records: one fixed-size record of `RECORD_SIZE` bytes per vehicle, in vehicle number order:
+ *   latitude and longitude as doubles, the report time in epoch milliseconds, then the string table
+ *   indexes of the vehicle number, line, brigade and time (`-1` for missing values).
+ *
+ * ### Notes:
+ * - The file is memory-mapped for reading; each string is decoded once and shared by all vehicles using it.
+ * - Writes go to a temporary file that replaces the previous one, so a crash never leaves a torn snapshot behind.
+ */
+public final class SnapshotStore {
+
+    /**
+     * File signature, "TMBS".
+     */
+    private static final int MAGIC = 0x53424D54;
+
+    /**
+     * Version of the layout; files of other versions are rejected.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+
+    /**
+     * Size of one vehicle record in bytes.
+     */
+    static final int RECORD_SIZE = 8 + 8 + 8 + 4 * 4;
+
+    /**
+     * The snapshot file.
+     */
+    private final File file;
+
+    /**
+     * Creates a store backed by the given file. The file does not need to exist yet.
+     *
+     * @param file The snapshot file.
+     */
+    public SnapshotStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Writes a snapshot, replacing the stored one.
+     *
+     * @param snapshot The snapshot to store.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Snapshot snapshot) throws IOException {
+        Bus[] buses = snapshot.array();
+
+        // Build the string table
+        Map<String, Integer> indexes = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] refs = new int[buses.length * 4];
+        int stringBytes = 0;
+        for (int i = 0; i < buses.length; i++) {
+            Bus bus = buses[i];
+            String[] values = {bus.getVehicleNumber(), bus.getLines(), bus.getBrigade(), bus.getTime()};
+            for (int j = 0; j < values.length; j++) {
+                String value = values[j];
+                if (value == null) {
+                    refs[i * 4 + j] = -1;
+                    continue;
+                }
+                Integer index = indexes.get(value);
+                if (index == null) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    if (bytes.length > 0xFFFF) throw new IOException("String too long to store: " + value.length());
+                    index = strings.size();
+                    indexes.put(value, index);
+                    strings.add(bytes);
+                    stringBytes += 2 + bytes.length;
+                }
+                refs[i * 4 + j] = index;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + stringBytes + buses.length * RECORD_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(snapshot.getCapturedAt())
+                .putInt(buses.length).putInt(strings.size());
+        for (byte[] bytes : strings) {
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+        for (int i = 0; i < buses.length; i++) {
+            buffer.putDouble(buses[i].getLat()).putDouble(buses[i].getLon()).putLong(buses[i].getTimeMillis());
+            for (int j = 0; j < 4; j++) {
+                buffer.putInt(refs[i * 4 + j]);
+            }
+        }
+        buffer.flip();
+
+        // Write next to the target and swap it in
+        File temp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Failed to replace " + file);
+        }
+    }
+
+    /**
+     * Reads the stored snapshot.
+     *
+     * @return The stored snapshot, or `null` if nothing has been stored yet.
+     * @throws IOException If the file cannot be read or is not a valid snapshot file.
+     */
+    public Snapshot read() throws IOException {
+        if (!file.isFile()) return null;
+
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            MappedByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return decode(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated snapshot file " + file, e);
+        }
+    }
+
+    /**
+     * Deletes the stored snapshot, e.g. after it turned out to be unreadable.
+     */
+    public void clear() {
+        file.delete();
+    }
+
+    /**
+     * Decodes a snapshot from the file layout.
+     *
+     * @param buffer The file contents, positioned at the header.
+     * @return The decoded snapshot.
+     * @throws IOException If the header does not describe a snapshot of this version.
+     */
+    private static Snapshot decode(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a snapshot file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        long capturedAt = buffer.getLong();
+        int count = buffer.getInt();
+        int stringCount = buffer.getInt();
+        if (count < 0 || stringCount < 0 || stringCount > buffer.remaining() / 2) {
+            throw new IOException("Corrupt snapshot header");
+        }
+
+        String[] strings = new String[stringCount];
+        byte[] scratch = new byte[64];
+        for (int i = 0; i < stringCount; i++) {
+            int length = buffer.getShort() & 0xFFFF;
+            if (scratch.length < length) scratch = new byte[length];
+            buffer.get(scratch, 0, length);
+            strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        if (buffer.remaining() < (long) count * RECORD_SIZE) {
+            throw new IOException("Truncated snapshot records");
+        }
+        Bus[] buses = new Bus[count];
+        boolean sorted = true;
+        for (int i = 0; i < count; i++) {
+            Bus bus = new Bus();
+            bus.setLat(buffer.getDouble());
+            bus.setLon(buffer.getDouble());
+            bus.setTimeMillis(buffer.getLong());
+            bus.setVehicleNumber(string(strings, buffer.getInt()));
+            bus.setLines(string(strings, buffer.getInt()));
+            bus.setBrigade(string(strings, buffer.getInt()));
+            bus.setTime(string(strings, buffer.getInt()));
+            if (bus.getVehicleNumber() == null) {
+                throw new IOException("Snapshot record without vehicle number");
+            }
+            if (i > 0 && Snapshot.BY_VEHICLE.compare(buses[i - 1], bus) >= 0) {
+                sorted = false;
+            }
+            buses[i] = bus;
+        }
+
+        // Files written by this class are always sorted; anything else is re-sorted rather than trusted
+        return sorted ? new Snapshot(buses, capturedAt) : new Snapshot(Arrays.asList(buses), capturedAt);
+    }
+
+    /**
+     * Resolves a string table index.
+     */
+    private static String string(String[] strings, int index) throws IOException {
+        if (index == -1) return null;
+        if (index < 0 || index >= strings.length) {
+            throw new IOException("Invalid string index " + index);
+        }
+        return strings[index];
+    }
+}
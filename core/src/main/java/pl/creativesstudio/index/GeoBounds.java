@@ -0,0 +1,141 @@
+package pl.creativesstudio.index;
+
+import java.util.Locale;
+
+/**
+ * Axis-aligned latitude/longitude rectangle.
+ * A plain-Java counterpart of `LatLngBounds`, usable by indexes that must not depend on Play Services.
+ */
+public final class GeoBounds {
+
+    /**
+     * Southern edge (minimum latitude).
+     */
+    private final double south;
+
+    /**
+     * Western edge (minimum longitude).
+     */
+    private final double west;
+
+    /**
+     * Northern edge (maximum latitude).
+     */
+    private final double north;
+
+    /**
+     * Eastern edge (maximum longitude).
+     */
+    private final double east;
+
+    /**
+     * Creates a rectangle.
+     *
+     * @param south Minimum latitude.
+     * @param west  Minimum longitude.
+     * @param north Maximum latitude.
+     * @param east  Maximum longitude.
+     */
+    public GeoBounds(double south, double west, double north, double east) {
+        this.south = south;
+        this.west = west;
+        this.north = north;
+        this.east = east;
+    }
+
+    /**
+     * Returns the southern edge of the rectangle.
+     *
+     * @return The minimum latitude.
+     */
+    public double getSouth() {
+        return south;
+    }
+
+    /**
+     * Returns the western edge of the rectangle.
+     *
+     * @return The minimum longitude.
+     */
+    public double getWest() {
+        return west;
+    }
+
+    /**
+     * Returns the northern edge of the rectangle.
+     *
+     * @return The maximum latitude.
+     */
+    public double getNorth() {
+        return north;
+    }
+
+    /**
+     * Returns the eastern edge of the rectangle.
+     *
+     * @return The maximum longitude.
+     */
+    public double getEast() {
+        return east;
+    }
+
+    /**
+     * Checks whether a point lies inside the rectangle, edges included.
+     *
+     * @param lat Latitude of the point.
+     * @param lon Longitude of the point.
+     * @return `true` if the point is inside.
+     */
+    public boolean contains(double lat, double lon) {
+        return lat >= south && lat <= north && lon >= west && lon <= east;
+    }
+
+    /**
+     * Checks whether another rectangle lies inside this one, edges included.
+     *
+     * @param other The other rectangle.
+     * @return `true` if all of it is inside.
+     */
+    public boolean contains(GeoBounds other) {
+        return other.south >= south && other.north <= north && other.west >= west && other.east <= east;
+    }
+
+    /**
+     * Returns the rectangle grown on every side by a fraction of its own height and width.
+     *
+     * @param fraction Share of the height added above and below, and of the width added left and right.
+     * @return The grown rectangle.
+     */
+    public GeoBounds expand(double fraction) {
+        double lat = (north - south) * fraction;
+        double lon = (east - west) * fraction;
+        return new GeoBounds(south - lat, west - lon, north + lat, east + lon);
+    }
+
+    /**
+     * Returns the rectangle moved by an offset.
+     *
+     * @param lat Latitude offset in degrees.
+     * @param lon Longitude offset in degrees.
+     * @return The moved rectangle.
+     */
+    public GeoBounds offset(double lat, double lon) {
+        return new GeoBounds(south + lat, west + lon, north + lat, east + lon);
+    }
+
+    /**
+     * Returns the smallest rectangle containing both this one and another.
+     *
+     * @param other The other rectangle.
+     * @return The union of both rectangles.
+     */
+    public GeoBounds union(GeoBounds other) {
+        return new GeoBounds(Math.min(south, other.south), Math.min(west, other.west),
+                Math.max(north, other.north), Math.max(east, other.east));
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "[%.5f,%.5f .. %.5f,%.5f]", south, west, north, east);
+    }
+}
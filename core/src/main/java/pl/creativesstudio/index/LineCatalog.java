@@ -0,0 +1,244 @@
+package pl.creativesstudio.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Catalog of the lines present in a snapshot, built once per poll.
+ *
+ * ### Contents:
+ * - The distinct lines, already in natural order (see `LineSortKey`).
+ * - For every line, a posting list with the positions of its vehicles in the snapshot.
+ * - For every line, the bounding box of its vehicles.
+ * - For every vehicle, the `LineDictionary` id of its line, so selections can filter with bit tests.
+ *
+ * ### Complexity:
+ * - Building the catalog is a single pass over the snapshot plus sorting the distinct lines.
+ * - Listing the lines costs O(lines); looking up the vehicles or bounds of a line costs O(vehicles on the line).
+ *
+ * ### Usage:
+ * ```java
+ * LineCatalog catalog = LineCatalog.build(snapshot, dictionary);
+ * for (Bus bus : catalog.getVehicles("105")) { ... }
+ * GeoBounds bounds = catalog.getBounds("105");
+ * ```
+ */
+public final class LineCatalog {
+
+    /**
+     * Catalog of the empty snapshot.
+     */
+    public static final LineCatalog EMPTY = build(Snapshot.EMPTY);
+
+    /**
+     * The snapshot the catalog was built from.
+     */
+    private final Snapshot snapshot;
+
+    /**
+     * Distinct lines in natural order.
+     */
+    private final List<String> lines;
+
+    /**
+     * Position of each line in `lines`.
+     */
+    private final Map<String, Integer> lineIndex;
+
+    /**
+     * Snapshot positions of the vehicles of each line, indexed like `lines`.
+     */
+    private final int[][] postings;
+
+    /**
+     * Bounding box of the vehicles of each line, indexed like `lines`.
+     */
+    private final GeoBounds[] bounds;
+
+    /**
+     * Dictionary id of the line of each vehicle, indexed like the snapshot; `-1` for vehicles without a line.
+     */
+    private final int[] lineIds;
+
+    private LineCatalog(Snapshot snapshot, List<String> lines, Map<String, Integer> lineIndex,
+                        int[][] postings, GeoBounds[] bounds, int[] lineIds) {
+        this.snapshot = snapshot;
+        this.lines = lines;
+        this.lineIndex = lineIndex;
+        this.postings = postings;
+        this.bounds = bounds;
+        this.lineIds = lineIds;
+    }
+
+    /**
+     * Builds the catalog of a snapshot with a private line dictionary.
+     *
+     * @param snapshot The snapshot to catalog.
+     * @return The new catalog.
+     */
+    public static LineCatalog build(Snapshot snapshot) {
+        return build(snapshot, new LineDictionary());
+    }
+
+    /**
+     * Builds the catalog of a snapshot.
+     * Vehicles without a line are not cataloged.
+     *
+     * @param snapshot   The snapshot to catalog.
+     * @param dictionary The dictionary assigning line ids; new lines are added to it.
+     * @return The new catalog.
+     */
+    public static LineCatalog build(Snapshot snapshot, LineDictionary dictionary) {
+        // Group vehicle positions by line, in order of first appearance
+        Map<String, Integer> firstSeen = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        List<int[]> lists = new ArrayList<>();
+        List<int[]> sizes = new ArrayList<>();
+        List<double[]> boxes = new ArrayList<>();
+        List<Integer> dictionaryIds = new ArrayList<>();
+        int[] lineIds = new int[snapshot.size()];
+
+        for (int i = 0; i < snapshot.size(); i++) {
+            Bus bus = snapshot.get(i);
+            String line = bus.getLines();
+            if (line == null) {
+                lineIds[i] = -1;
+                continue;
+            }
+
+            Integer id = firstSeen.get(line);
+            if (id == null) {
+                id = names.size();
+                firstSeen.put(line, id);
+                names.add(line);
+                lists.add(new int[4]);
+                sizes.add(new int[1]);
+                boxes.add(new double[]{bus.getLat(), bus.getLon(), bus.getLat(), bus.getLon()});
+                dictionaryIds.add(dictionary.idOf(line));
+            }
+            lineIds[i] = dictionaryIds.get(id);
+
+            // Append to the posting list, growing it when full
+            int[] size = sizes.get(id);
+            int[] list = lists.get(id);
+            if (size[0] == list.length) {
+                list = Arrays.copyOf(list, list.length * 2);
+                lists.set(id, list);
+            }
+            list[size[0]++] = i;
+
+            double[] box = boxes.get(id);
+            box[0] = Math.min(box[0], bus.getLat());
+            box[1] = Math.min(box[1], bus.getLon());
+            box[2] = Math.max(box[2], bus.getLat());
+            box[3] = Math.max(box[3], bus.getLon());
+        }
+
+        // Sort the distinct lines once, with precomputed keys
+        LineSortKey[] keys = new LineSortKey[names.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new LineSortKey(names.get(i));
+        }
+        Arrays.sort(keys);
+
+        List<String> sorted = new ArrayList<>(keys.length);
+        Map<String, Integer> index = new HashMap<>(keys.length * 2);
+        int[][] postings = new int[keys.length][];
+        GeoBounds[] bounds = new GeoBounds[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            String line = keys[i].getLine();
+            int id = firstSeen.get(line);
+            double[] box = boxes.get(id);
+            sorted.add(line);
+            index.put(line, i);
+            postings[i] = Arrays.copyOf(lists.get(id), sizes.get(id)[0]);
+            bounds[i] = new GeoBounds(box[0], box[1], box[2], box[3]);
+        }
+
+        return new LineCatalog(snapshot, Collections.unmodifiableList(sorted), index, postings, bounds, lineIds);
+    }
+
+    /**
+     * Returns the snapshot the catalog was built from.
+     *
+     * @return The cataloged snapshot.
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the distinct lines in natural order.
+     *
+     * @return An unmodifiable list of line names.
+     */
+    public List<String> getLines() {
+        return lines;
+    }
+
+    /**
+     * Checks whether a line has vehicles in the snapshot.
+     *
+     * @param line The line name.
+     * @return `true` if the line is cataloged.
+     */
+    public boolean contains(String line) {
+        return lineIndex.containsKey(line);
+    }
+
+    /**
+     * Returns the number of vehicles of a line.
+     *
+     * @param line The line name.
+     * @return The vehicle count, `0` for unknown lines.
+     */
+    public int getVehicleCount(String line) {
+        Integer i = lineIndex.get(line);
+        return i == null ? 0 : postings[i].length;
+    }
+
+    /**
+     * Returns the vehicles of a line.
+     *
+     * @param line The line name.
+     * @return The vehicles in vehicle number order; empty for unknown lines.
+     */
+    public List<Bus> getVehicles(String line) {
+        Integer i = lineIndex.get(line);
+        if (i == null) return Collections.emptyList();
+
+        int[] positions = postings[i];
+        List<Bus> vehicles = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            vehicles.add(snapshot.get(position));
+        }
+        return vehicles;
+    }
+
+    /**
+     * Returns the bounding box of the vehicles of a line.
+     *
+     * @param line The line name.
+     * @return The bounds, or `null` for unknown lines.
+     */
+    public GeoBounds getBounds(String line) {
+        Integer i = lineIndex.get(line);
+        return i == null ? null : bounds[i];
+    }
+
+    /**
+     * Returns the dictionary line id of every vehicle in the snapshot.
+     *
+     * @return The line ids indexed like the snapshot, `-1` for vehicles without a line. Must not be modified.
+     */
+    public int[] getLineIds() {
+        return lineIds;
+    }
+}
@@ -0,0 +1,77 @@
+package pl.creativesstudio.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only dictionary assigning a small, stable integer id to every line name.
+ *
+ * ### Purpose:
+ * - Lets per-vehicle line data be stored as `int`s and line sets as bitsets,
+ *   so filtering by line needs no string comparisons.
+ * - Ids never change or get reused for the lifetime of the dictionary, so a selection
+ *   stays valid across snapshots even when a line temporarily has no vehicles.
+ *
+ * ### Thread Safety:
+ * - All methods are synchronized; ids are assigned on the fetch thread and read on the UI thread.
+ */
+public class LineDictionary {
+
+    /**
+     * Id of each known line.
+     */
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Line names indexed by id.
+     */
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Returns the id of a line, assigning a new one if the line is unknown.
+     *
+     * @param line The line name.
+     * @return The id of the line, starting from `0`.
+     */
+    public synchronized int idOf(String line) {
+        Integer id = ids.get(line);
+        if (id == null) {
+            id = names.size();
+            ids.put(line, id);
+            names.add(line);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of a line without assigning one.
+     *
+     * @param line The line name.
+     * @return The id of the line, or `-1` if it is unknown.
+     */
+    public synchronized int lookup(String line) {
+        Integer id = ids.get(line);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the name of a line.
+     *
+     * @param id The line id.
+     * @return The line name.
+     */
+    public synchronized String nameOf(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Returns the number of known lines; all ids are below this value.
+     *
+     * @return The dictionary size.
+     */
+    public synchronized int size() {
+        return names.size();
+    }
+}
@@ -0,0 +1,174 @@
+package pl.creativesstudio.index;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Immutable set of selected lines, stored as a bitset over `LineDictionary` ids.
+ *
+ * ### Semantics:
+ * - An empty selection means that no line is pinned and all vehicles are shown.
+ * - Modifying methods return a new selection, so a selection can be shared between threads freely.
+ *
+ * ### Filtering:
+ * - `filter` makes a single pass over the snapshot of a `LineCatalog`, testing the bit
+ *   of each vehicle's precomputed line id; no line names are compared.
+ */
+public final class LineSelection {
+
+    /**
+     * Dictionary the bit positions refer to.
+     */
+    private final LineDictionary dictionary;
+
+    /**
+     * Bit `i` is set when the line with id `i` is selected. Never modified after construction.
+     */
+    private final BitSet bits;
+
+    private LineSelection(LineDictionary dictionary, BitSet bits) {
+        this.dictionary = dictionary;
+        this.bits = bits;
+    }
+
+    /**
+     * Creates an empty selection.
+     *
+     * @param dictionary The dictionary encoding the lines.
+     * @return A selection with no lines.
+     */
+    public static LineSelection empty(LineDictionary dictionary) {
+        return new LineSelection(dictionary, new BitSet());
+    }
+
+    /**
+     * Creates a selection of the given lines.
+     *
+     * @param dictionary The dictionary encoding the lines.
+     * @param lines      The line names to select.
+     * @return The new selection.
+     */
+    public static LineSelection of(LineDictionary dictionary, Collection<String> lines) {
+        BitSet bits = new BitSet();
+        for (String line : lines) {
+            bits.set(dictionary.idOf(line));
+        }
+        return new LineSelection(dictionary, bits);
+    }
+
+    /**
+     * Returns a selection with the given line added if it was absent, or removed if it was present.
+     *
+     * @param line The line name.
+     * @return The new selection.
+     */
+    public LineSelection toggle(String line) {
+        BitSet copy = (BitSet) bits.clone();
+        copy.flip(dictionary.idOf(line));
+        return new LineSelection(dictionary, copy);
+    }
+
+    /**
+     * Returns whether no line is selected.
+     *
+     * @return `true` if the selection is empty.
+     */
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    /**
+     * Returns the number of selected lines.
+     *
+     * @return The selection size.
+     */
+    public int size() {
+        return bits.cardinality();
+    }
+
+    /**
+     * Checks whether a line is selected.
+     *
+     * @param line The line name.
+     * @return `true` if the line is selected.
+     */
+    public boolean contains(String line) {
+        int id = dictionary.lookup(line);
+        return id >= 0 && bits.get(id);
+    }
+
+    /**
+     * Checks whether a line id is selected.
+     *
+     * @param lineId The line id, or `-1` for vehicles without a line.
+     * @return `true` if the line is selected.
+     */
+    public boolean containsId(int lineId) {
+        return lineId >= 0 && bits.get(lineId);
+    }
+
+    /**
+     * Checks whether a vehicle belongs to a selected line.
+     * Used where no precomputed line id is at hand, such as nearest-vehicle queries.
+     *
+     * @param bus The vehicle.
+     * @return `true` if the vehicle's line is selected.
+     */
+    public boolean matches(Bus bus) {
+        return bus.getLines() != null && contains(bus.getLines());
+    }
+
+    /**
+     * Returns the names of the selected lines, in id order.
+     *
+     * @return A new list of line names.
+     */
+    public List<String> getLines() {
+        List<String> lines = new ArrayList<>(bits.cardinality());
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+            lines.add(dictionary.nameOf(id));
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the vehicles of the cataloged snapshot that belong to a selected line.
+     *
+     * @param catalog The catalog of the snapshot to filter; must use the same dictionary.
+     * @return The matching vehicles in vehicle number order.
+     */
+    public List<Bus> filter(LineCatalog catalog) {
+        Snapshot snapshot = catalog.getSnapshot();
+        int[] lineIds = catalog.getLineIds();
+        List<Bus> result = new ArrayList<>();
+        for (int i = 0; i < lineIds.length; i++) {
+            int id = lineIds[i];
+            if (id >= 0 && bits.get(id)) {
+                result.add(snapshot.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the bounding box of all vehicles of the selected lines.
+     *
+     * @param catalog The catalog providing the bounds of each line.
+     * @return The union of the bounds of the selected lines, or `null` if none of them has vehicles.
+     */
+    public GeoBounds bounds(LineCatalog catalog) {
+        GeoBounds union = null;
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+            GeoBounds lineBounds = catalog.getBounds(dictionary.nameOf(id));
+            if (lineBounds != null) {
+                union = union == null ? lineBounds : union.union(lineBounds);
+            }
+        }
+        return union;
+    }
+}
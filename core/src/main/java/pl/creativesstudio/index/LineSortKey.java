@@ -0,0 +1,99 @@
+package pl.creativesstudio.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Precomputed natural-sort key of a line name.
+ *
+ * ### Ordering:
+ * - Lines are ordered by their letters first (all non-digit characters, e.g. `"N"` for `"N61"`).
+ * - Lines with the same letters are ordered by the value of their digits (`"20"` before `"200"`).
+ * - If either line has no digits, the full names are compared lexicographically.
+ *
+ * ### Notes:
+ * - The letters and the numeric value are extracted once, when the key is created,
+ *   so sorting costs one string comparison and one integer comparison per step.
+ */
+public final class LineSortKey implements Comparable<LineSortKey> {
+
+    /**
+     * The line name.
+     */
+    private final String line;
+
+    /**
+     * All non-digit characters of the name, in order.
+     */
+    private final String letters;
+
+    /**
+     * Value of all digits of the name read as one number, or `-1` if it has no digits.
+     */
+    private final long number;
+
+    /**
+     * Sorts line names in place in natural order, extracting the key of every line once
+     * instead of on every comparison.
+     *
+     * @param lines The line names; reordered in place, so the list must be modifiable.
+     * @return The same list, sorted.
+     */
+    public static List<String> sort(List<String> lines) {
+        LineSortKey[] keys = new LineSortKey[lines.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new LineSortKey(lines.get(i));
+        }
+
+        // Sort the keys and write the lines back in order
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            lines.set(i, keys[i].getLine());
+        }
+        return lines;
+    }
+
+    /**
+     * Creates the sort key of a line name.
+     *
+     * @param line The line name, e.g. `"N61"`.
+     */
+    public LineSortKey(String line) {
+        this.line = line;
+
+        StringBuilder letterPart = null;
+        long value = -1;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+            } else {
+                if (letterPart == null) letterPart = new StringBuilder(line.length());
+                letterPart.append(c);
+            }
+        }
+        this.letters = letterPart == null ? "" : letterPart.toString();
+        this.number = value;
+    }
+
+    /**
+     * Returns the line name.
+     *
+     * @return The name the key was created from.
+     */
+    public String getLine() {
+        return line;
+    }
+
+    @Override
+    public int compareTo(LineSortKey other) {
+        int letterComparison = letters.compareTo(other.letters);
+        if (letterComparison != 0) {
+            return letterComparison;
+        }
+        if (number >= 0 && other.number >= 0) {
+            return Long.compare(number, other.number);
+        }
+        return line.compareTo(other.line);
+    }
+}
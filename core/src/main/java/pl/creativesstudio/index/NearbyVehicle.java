@@ -0,0 +1,78 @@
+package pl.creativesstudio.index;
+
+import pl.creativesstudio.models.Bus;
+
+/**
+ * A vehicle returned by a nearest-vehicles query, with its distance and direction from the query point.
+ */
+public final class NearbyVehicle {
+
+    /**
+     * Names of the eight compass directions, clockwise from north.
+     */
+    private static final String[] DIRECTIONS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
+
+    /**
+     * The vehicle found.
+     */
+    private final Bus bus;
+
+    /**
+     * Distance from the query point in metres.
+     */
+    private final double distanceMeters;
+
+    /**
+     * Initial bearing from the query point to the vehicle, in degrees clockwise from north (`0`-`360`).
+     */
+    private final double bearingDegrees;
+
+    /**
+     * Creates a new result.
+     *
+     * @param bus            The vehicle found.
+     * @param distanceMeters Distance from the query point in metres.
+     * @param bearingDegrees Bearing from the query point in degrees clockwise from north.
+     */
+    public NearbyVehicle(Bus bus, double distanceMeters, double bearingDegrees) {
+        this.bus = bus;
+        this.distanceMeters = distanceMeters;
+        this.bearingDegrees = bearingDegrees;
+    }
+
+    /**
+     * Returns the vehicle found.
+     *
+     * @return The bus.
+     */
+    public Bus getBus() {
+        return bus;
+    }
+
+    /**
+     * Returns the distance from the query point.
+     *
+     * @return The distance in metres.
+     */
+    public double getDistanceMeters() {
+        return distanceMeters;
+    }
+
+    /**
+     * Returns the bearing from the query point to the vehicle.
+     *
+     * @return The bearing in degrees clockwise from north, between `0` and `360`.
+     */
+    public double getBearingDegrees() {
+        return bearingDegrees;
+    }
+
+    /**
+     * Returns the bearing as one of the eight compass directions.
+     *
+     * @return A direction such as `"N"` or `"SW"`.
+     */
+    public String getCompassDirection() {
+        return DIRECTIONS[(int) Math.round(bearingDegrees / 45.0) % 8];
+    }
+}
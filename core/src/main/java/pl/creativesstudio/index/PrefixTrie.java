@@ -0,0 +1,205 @@
+package pl.creativesstudio.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Set of short string keys supporting prefix queries, with incremental insertion and removal.
+ *
+ * ### Layout:
+ * - One node per distinct prefix; children are kept in small arrays sorted by character.
+ * - Every node counts the keys below it, so removal prunes empty branches and queries skip nothing.
+ *
+ * ### Ordering:
+ * - Results are returned shortest first, and lexicographically among keys of equal length.
+ *   For numeric line names this is the natural order: "1", "10", "11", ..., "100".
+ *
+ * ### Complexity:
+ * - `add`, `remove` and `contains` cost O(key length); `search` costs O(prefix length + results).
+ *
+ * ### Thread Safety:
+ * - Not synchronized; see `SearchIndex`.
+ */
+public class PrefixTrie {
+
+    /**
+     * A node of the trie, representing one prefix.
+     */
+    private static final class Node {
+        char[] chars = new char[0];
+        Node[] children = new Node[0];
+        int childCount;
+
+        /**
+         * The key ending at this node, or `null` if no key ends here.
+         */
+        String key;
+
+        /**
+         * Number of keys in the subtree rooted at this node, including its own.
+         */
+        int size;
+
+        /**
+         * Returns the position of a child in `chars`, or `-(insertion point) - 1` if absent.
+         */
+        int find(char c) {
+            return Arrays.binarySearch(chars, 0, childCount, c);
+        }
+
+        Node child(char c) {
+            int i = find(c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node getOrAddChild(char c) {
+            int i = find(c);
+            if (i >= 0) return children[i];
+
+            // Insert the new child, keeping the arrays sorted
+            int at = -i - 1;
+            if (childCount == chars.length) {
+                int capacity = Math.max(2, childCount * 2);
+                chars = Arrays.copyOf(chars, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(chars, at, chars, at + 1, childCount - at);
+            System.arraycopy(children, at, children, at + 1, childCount - at);
+            Node node = new Node();
+            chars[at] = c;
+            children[at] = node;
+            childCount++;
+            return node;
+        }
+
+        void removeChild(char c) {
+            int i = find(c);
+            if (i < 0) return;
+            System.arraycopy(chars, i + 1, chars, i, childCount - i - 1);
+            System.arraycopy(children, i + 1, children, i, childCount - i - 1);
+            childCount--;
+            children[childCount] = null;
+        }
+    }
+
+    /**
+     * Node of the empty prefix.
+     */
+    private final Node root = new Node();
+
+    /**
+     * Adds a key.
+     *
+     * @param key The key to add.
+     * @return `true` if the key was not present.
+     */
+    public boolean add(String key) {
+        if (contains(key)) return false;
+
+        Node node = root;
+        node.size++;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.getOrAddChild(key.charAt(i));
+            node.size++;
+        }
+        node.key = key;
+        return true;
+    }
+
+    /**
+     * Removes a key, pruning the branches that become empty.
+     *
+     * @param key The key to remove.
+     * @return `true` if the key was present.
+     */
+    public boolean remove(String key) {
+        if (!contains(key)) return false;
+
+        Node node = root;
+        node.size--;
+        for (int i = 0; i < key.length(); i++) {
+            Node child = node.child(key.charAt(i));
+            if (--child.size == 0) {
+                // Nothing else below this point
+                node.removeChild(key.charAt(i));
+                return true;
+            }
+            node = child;
+        }
+        node.key = null;
+        return true;
+    }
+
+    /**
+     * Checks whether a key is present.
+     *
+     * @param key The key.
+     * @return `true` if the key was added and not removed since.
+     */
+    public boolean contains(String key) {
+        Node node = locate(key);
+        return node != null && node.key != null;
+    }
+
+    /**
+     * Returns the number of keys.
+     *
+     * @return The trie size.
+     */
+    public int size() {
+        return root.size;
+    }
+
+    /**
+     * Counts the keys starting with a prefix.
+     *
+     * @param prefix The prefix.
+     * @return The number of matching keys.
+     */
+    public int count(String prefix) {
+        Node node = locate(prefix);
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Returns the keys starting with a prefix, shortest first.
+     *
+     * @param prefix The prefix; the empty string matches every key.
+     * @param limit  Maximum number of keys to return.
+     * @return Up to `limit` matching keys.
+     */
+    public List<String> search(String prefix, int limit) {
+        Node start = locate(prefix);
+        if (start == null || limit <= 0) {
+            return new ArrayList<>(0);
+        }
+
+        // Breadth-first walk: one level per key length, children in character order
+        List<String> result = new ArrayList<>(Math.min(limit, start.size));
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        queue.add(start);
+        while (!queue.isEmpty() && result.size() < limit) {
+            Node node = queue.poll();
+            if (node.key != null) {
+                result.add(node.key);
+            }
+            for (int i = 0; i < node.childCount; i++) {
+                queue.add(node.children[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the node of a prefix, or `null` if no key starts with it.
+     */
+    private Node locate(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        return node == null || node.size == 0 ? null : node;
+    }
+}
@@ -0,0 +1,97 @@
+package pl.creativesstudio.index;
+
+import java.util.List;
+import java.util.Locale;
+
+import pl.creativesstudio.data.SnapshotDelta;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Search-as-you-type index over the line names and vehicle numbers of the latest snapshot.
+ *
+ * ### Maintenance:
+ * - `update` applies only what changed between two consecutive catalogs: lines that appeared or
+ *   disappeared, and vehicles added or removed according to the snapshot delta.
+ *   Nothing is rebuilt from scratch after the first poll.
+ *
+ * ### Queries:
+ * - Queries are case-insensitive prefix matches; each one walks the prefix and then only the matches.
+ *
+ * ### Thread Safety:
+ * - All methods are synchronized; the index is updated on the fetch thread and queried on every keystroke.
+ */
+public class SearchIndex {
+
+    /**
+     * Line names of the indexed catalog.
+     */
+    private final PrefixTrie lines = new PrefixTrie();
+
+    /**
+     * Vehicle numbers of the indexed snapshot.
+     */
+    private final PrefixTrie vehicles = new PrefixTrie();
+
+    /**
+     * Moves the index from one catalog to the next.
+     *
+     * @param previous The catalog currently indexed; `LineCatalog.EMPTY` on the first update.
+     * @param next     The new catalog.
+     * @param delta    The delta between the snapshots of `previous` and `next`.
+     */
+    public synchronized void update(LineCatalog previous, LineCatalog next, SnapshotDelta delta) {
+        for (String line : previous.getLines()) {
+            if (!next.contains(line)) {
+                lines.remove(line);
+            }
+        }
+        for (String line : next.getLines()) {
+            lines.add(line);
+        }
+
+        for (String vehicleNumber : delta.getRemovals()) {
+            vehicles.remove(vehicleNumber);
+        }
+        for (Bus bus : delta.getUpserts()) {
+            vehicles.add(bus.getVehicleNumber());
+        }
+    }
+
+    /**
+     * Returns the lines starting with a query, shortest first.
+     *
+     * @param query The text typed by the user.
+     * @param limit Maximum number of lines to return.
+     * @return The matching line names.
+     */
+    public synchronized List<String> searchLines(String query, int limit) {
+        return lines.search(normalize(query), limit);
+    }
+
+    /**
+     * Returns the vehicle numbers starting with a query, shortest first.
+     *
+     * @param query The text typed by the user.
+     * @param limit Maximum number of vehicle numbers to return.
+     * @return The matching vehicle numbers.
+     */
+    public synchronized List<String> searchVehicles(String query, int limit) {
+        return vehicles.search(normalize(query), limit);
+    }
+
+    /**
+     * Returns the number of indexed vehicles.
+     *
+     * @return The vehicle count.
+     */
+    public synchronized int getVehicleCount() {
+        return vehicles.size();
+    }
+
+    /**
+     * Trims the query and converts it to the upper case used by line names, e.g. "n6" matches "N61".
+     */
+    private static String normalize(String query) {
+        return query.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,303 @@
+package pl.creativesstudio.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import pl.creativesstudio.data.SnapshotDelta;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Uniform grid over latitude and longitude indexing the current position of every vehicle.
+ *
+ * ### Updates:
+ * - The grid is maintained incrementally from `SnapshotDelta`s: only vehicles that moved, appeared
+ *   or disappeared are touched, so keeping the index current costs time proportional to the changes.
+ *
+ * ### Queries:
+ * - `nearest` searches rings of cells around the query point, moving outwards only until no
+ *   unvisited cell can contain a closer vehicle than the k-th one found so far.
+ *
+ * ### Thread Safety:
+ * - Not thread-safe. Updates and queries must be confined to a single thread.
+ */
+public class SpatialGrid {
+
+    /**
+     * Default cell height in degrees of latitude, about 550 m.
+     */
+    public static final double DEFAULT_CELL_LAT = 0.005;
+
+    /**
+     * Default cell width in degrees of longitude, about 550 m in Warsaw.
+     */
+    public static final double DEFAULT_CELL_LON = 0.008;
+
+    /**
+     * Number of metres per degree of latitude.
+     */
+    private static final double METERS_PER_DEG_LAT = 111_320.0;
+
+    /**
+     * A vehicle stored in the grid and its location in the cell lists.
+     */
+    private static final class Entry {
+        Bus bus;
+        long cell;
+        int slot;
+    }
+
+    /**
+     * Cell height in degrees of latitude.
+     */
+    private final double cellLat;
+
+    /**
+     * Cell width in degrees of longitude.
+     */
+    private final double cellLon;
+
+    /**
+     * Entries per occupied cell, keyed by packed row and column.
+     */
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+
+    /**
+     * Entries keyed by vehicle number.
+     */
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Range of rows and columns that have ever been occupied; bounds the ring search.
+     */
+    private int minRow = Integer.MAX_VALUE;
+    private int maxRow = Integer.MIN_VALUE;
+    private int minCol = Integer.MAX_VALUE;
+    private int maxCol = Integer.MIN_VALUE;
+
+    /**
+     * Creates a grid with the default cell size.
+     */
+    public SpatialGrid() {
+        this(DEFAULT_CELL_LAT, DEFAULT_CELL_LON);
+    }
+
+    /**
+     * Creates a grid with a custom cell size.
+     *
+     * @param cellLat Cell height in degrees of latitude.
+     * @param cellLon Cell width in degrees of longitude.
+     */
+    public SpatialGrid(double cellLat, double cellLon) {
+        this.cellLat = cellLat;
+        this.cellLon = cellLon;
+    }
+
+    /**
+     * Applies the changes between two snapshots.
+     *
+     * @param delta The changes to apply.
+     */
+    public void apply(SnapshotDelta delta) {
+        for (String vehicleNumber : delta.getRemovals()) {
+            remove(vehicleNumber);
+        }
+        for (Bus bus : delta.getUpserts()) {
+            put(bus);
+        }
+    }
+
+    /**
+     * Adds a vehicle or moves it to its new position.
+     *
+     * @param bus The vehicle; must have a vehicle number.
+     */
+    public void put(Bus bus) {
+        int row = row(bus.getLat());
+        int col = col(bus.getLon());
+        long cell = key(row, col);
+
+        Entry entry = entries.get(bus.getVehicleNumber());
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(bus.getVehicleNumber(), entry);
+        } else if (entry.cell != cell) {
+            detach(entry);
+        } else {
+            // Same cell: only the reported state changes
+            entry.bus = bus;
+            return;
+        }
+
+        entry.bus = bus;
+        entry.cell = cell;
+        List<Entry> list = cells.get(cell);
+        if (list == null) {
+            list = new ArrayList<>();
+            cells.put(cell, list);
+        }
+        entry.slot = list.size();
+        list.add(entry);
+
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+        minCol = Math.min(minCol, col);
+        maxCol = Math.max(maxCol, col);
+    }
+
+    /**
+     * Removes a vehicle from the grid.
+     *
+     * @param vehicleNumber The vehicle number; unknown vehicles are ignored.
+     */
+    public void remove(String vehicleNumber) {
+        Entry entry = entries.remove(vehicleNumber);
+        if (entry != null) {
+            detach(entry);
+        }
+    }
+
+    /**
+     * Returns the number of indexed vehicles.
+     *
+     * @return The vehicle count.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds the vehicles closest to a point.
+     *
+     * @param lat  Latitude of the query point.
+     * @param lon  Longitude of the query point.
+     * @param k    Maximum number of vehicles to return.
+     * @param line Only return vehicles of this line, or `null` for all lines.
+     * @return Up to `k` vehicles ordered from nearest to farthest.
+     */
+    public List<NearbyVehicle> nearest(double lat, double lon, int k, String line) {
+        return nearest(lat, lon, k, line, null);
+    }
+
+    /**
+     * Finds the vehicles closest to a point among the lines of a selection.
+     *
+     * @param lat       Latitude of the query point.
+     * @param lon       Longitude of the query point.
+     * @param k         Maximum number of vehicles to return.
+     * @param selection Only return vehicles of the selected lines; an empty selection matches all lines.
+     * @return Up to `k` vehicles ordered from nearest to farthest.
+     */
+    public List<NearbyVehicle> nearestInSelection(double lat, double lon, int k, LineSelection selection) {
+        return nearest(lat, lon, k, null, selection.isEmpty() ? null : selection);
+    }
+
+    /**
+     * Ring search shared by the public queries; `line` and `selection` are optional filters.
+     */
+    private List<NearbyVehicle> nearest(double lat, double lon, int k, String line, LineSelection selection) {
+        if (k <= 0 || entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        double metersPerDegLon = METERS_PER_DEG_LAT * Math.cos(Math.toRadians(lat));
+        double minCellMeters = Math.min(cellLat * METERS_PER_DEG_LAT, cellLon * metersPerDegLon);
+
+        // Max-heap on distance holding the best k candidates
+        PriorityQueue<NearbyVehicle> best = new PriorityQueue<>(k,
+                (a, b) -> Double.compare(b.getDistanceMeters(), a.getDistanceMeters()));
+
+        int row0 = row(lat);
+        int col0 = col(lon);
+        int lastRing = Math.max(Math.max(Math.abs(row0 - minRow), Math.abs(row0 - maxRow)),
+                Math.max(Math.abs(col0 - minCol), Math.abs(col0 - maxCol)));
+
+        for (int ring = 0; ring <= lastRing; ring++) {
+            // Cells in this ring are separated from the query cell by at least `ring - 1` whole cells
+            if (best.size() == k && (ring - 1) * minCellMeters > best.peek().getDistanceMeters()) {
+                break;
+            }
+
+            for (int row = row0 - ring; row <= row0 + ring; row++) {
+                boolean edgeRow = row == row0 - ring || row == row0 + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int col = col0 - ring; col <= col0 + ring; col += Math.max(1, step)) {
+                    List<Entry> list = cells.get(key(row, col));
+                    if (list == null) continue;
+                    for (Entry entry : list) {
+                        Bus bus = entry.bus;
+                        if (line != null && !line.equals(bus.getLines())) continue;
+                        if (selection != null && !selection.matches(bus)) continue;
+                        double distance = distanceMeters(lat, lon, bus.getLat(), bus.getLon(), metersPerDegLon);
+                        if (best.size() < k) {
+                            best.add(new NearbyVehicle(bus, distance, bearing(lat, lon, bus.getLat(), bus.getLon())));
+                        } else if (distance < best.peek().getDistanceMeters()) {
+                            best.poll();
+                            best.add(new NearbyVehicle(bus, distance, bearing(lat, lon, bus.getLat(), bus.getLon())));
+                        }
+                    }
+                }
+            }
+        }
+
+        List<NearbyVehicle> result = new ArrayList<>(best);
+        Collections.sort(result, (a, b) -> Double.compare(a.getDistanceMeters(), b.getDistanceMeters()));
+        return result;
+    }
+
+    /**
+     * Removes an entry from its cell list in constant time by swapping in the last entry.
+     *
+     * @param entry The entry to detach.
+     */
+    private void detach(Entry entry) {
+        List<Entry> list = cells.get(entry.cell);
+        Entry last = list.remove(list.size() - 1);
+        if (last != entry) {
+            list.set(entry.slot, last);
+            last.slot = entry.slot;
+        }
+        if (list.isEmpty()) {
+            cells.remove(entry.cell);
+        }
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor(lat / cellLat);
+    }
+
+    private int col(double lon) {
+        return (int) Math.floor(lon / cellLon);
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Computes the distance between two nearby points with an equirectangular projection,
+     * accurate to well under a percent at city scale.
+     */
+    private static double distanceMeters(double lat1, double lon1, double lat2, double lon2, double metersPerDegLon) {
+        double dy = (lat2 - lat1) * METERS_PER_DEG_LAT;
+        double dx = (lon2 - lon1) * metersPerDegLon;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Computes the initial great-circle bearing from one point to another.
+     *
+     * @return The bearing in degrees clockwise from north, between `0` and `360`.
+     */
+    static double bearing(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double deltaLambda = Math.toRadians(lon2 - lon1);
+        double y = Math.sin(deltaLambda) * Math.cos(phi2);
+        double x = Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * Math.cos(phi2) * Math.cos(deltaLambda);
+        return (Math.toDegrees(Math.atan2(y, x)) + 360.0) % 360.0;
+    }
+}
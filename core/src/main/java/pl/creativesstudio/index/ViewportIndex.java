@@ -0,0 +1,134 @@
+package pl.creativesstudio.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Immutable index answering "which vehicles are inside the visible map area" without scanning the whole fleet.
+ *
+ * ### Layout:
+ * - Vehicles sorted by latitude, with their latitudes and longitudes copied into primitive arrays.
+ * - A query binary-searches the latitude band of the viewport and tests only the longitudes inside it.
+ *
+ * ### Notes:
+ * - Built off the main thread once per poll and never modified, so it can be read from any thread.
+ */
+public final class ViewportIndex {
+
+    /**
+     * Index of the empty snapshot.
+     */
+    public static final ViewportIndex EMPTY = build(Snapshot.EMPTY);
+
+    /**
+     * Vehicles in ascending latitude order.
+     */
+    private final Bus[] buses;
+
+    /**
+     * Latitude of each vehicle, indexed like `buses`.
+     */
+    private final double[] lats;
+
+    /**
+     * Longitude of each vehicle, indexed like `buses`.
+     */
+    private final double[] lons;
+
+    private ViewportIndex(Bus[] buses, double[] lats, double[] lons) {
+        this.buses = buses;
+        this.lats = lats;
+        this.lons = lons;
+    }
+
+    /**
+     * Builds the index of a snapshot.
+     *
+     * @param snapshot The snapshot to index.
+     * @return The new index.
+     */
+    public static ViewportIndex build(Snapshot snapshot) {
+        int size = snapshot.size();
+        Bus[] buses = new Bus[size];
+        for (int i = 0; i < size; i++) {
+            buses[i] = snapshot.get(i);
+        }
+        Arrays.sort(buses, (a, b) -> Double.compare(a.getLat(), b.getLat()));
+
+        double[] lats = new double[size];
+        double[] lons = new double[size];
+        for (int i = 0; i < size; i++) {
+            lats[i] = buses[i].getLat();
+            lons[i] = buses[i].getLon();
+        }
+        return new ViewportIndex(buses, lats, lons);
+    }
+
+    /**
+     * Returns the vehicles of an unindexed list inside a rectangle, edges included, with a linear scan.
+     * Meant for lists already narrowed down, e.g. to the pinned lines or a replayed state.
+     *
+     * @param buses  The vehicles to filter.
+     * @param bounds The visible area.
+     * @return The vehicles inside, in list order.
+     */
+    public static List<Bus> filter(List<Bus> buses, GeoBounds bounds) {
+        List<Bus> result = new ArrayList<>();
+        for (Bus bus : buses) {
+            if (bounds.contains(bus.getLat(), bus.getLon())) {
+                result.add(bus);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of indexed vehicles.
+     *
+     * @return The vehicle count.
+     */
+    public int size() {
+        return buses.length;
+    }
+
+    /**
+     * Returns the vehicles inside a rectangle, edges included.
+     *
+     * @param bounds The visible area.
+     * @return The vehicles inside, in ascending latitude order.
+     */
+    public List<Bus> within(GeoBounds bounds) {
+        int from = lowerBound(bounds.getSouth());
+        if (from == buses.length) return Collections.emptyList();
+
+        List<Bus> result = new ArrayList<>();
+        for (int i = from; i < buses.length && lats[i] <= bounds.getNorth(); i++) {
+            if (lons[i] >= bounds.getWest() && lons[i] <= bounds.getEast()) {
+                result.add(buses[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first position whose latitude is at least the given value.
+     */
+    private int lowerBound(double lat) {
+        int low = 0;
+        int high = lats.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lats[mid] < lat) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,143 @@
+package pl.creativesstudio.memory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Least-recently-used cache bounded by the bytes of its values, sized and trimmed by a `MemoryBudget`.
+ *
+ * ### Behavior:
+ * - Every value is stored with its size in bytes, e.g. the allocation size of a bitmap.
+ * - Adding a value beyond the limit evicts the least recently used values first.
+ * - Until attached to a budget the cache holds nothing, so an unregistered cache never leaks memory.
+ *
+ * ### Thread Safety:
+ * - All methods are synchronized.
+ *
+ * @param <K> Type of the keys.
+ * @param <V> Type of the values.
+ */
+public final class BoundedCache<K, V> implements MemoryConsumer {
+
+    /**
+     * A cached value and its size.
+     */
+    private static final class Entry<V> {
+        final V value;
+        final long bytes;
+
+        Entry(V value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Entries from least to most recently used.
+     */
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Account receiving the footprint, `null` until attached.
+     */
+    private MemoryBudget.Account account;
+
+    /**
+     * Largest footprint in bytes.
+     */
+    private long maxBytes;
+
+    /**
+     * Current footprint in bytes.
+     */
+    private long sizeBytes;
+
+    /**
+     * Number of lookups that found / did not find a value.
+     */
+    private int hits;
+    private int misses;
+
+    @Override
+    public synchronized void attach(MemoryBudget.Account account) {
+        this.account = account;
+        maxBytes = account.getLimitBytes();
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * Returns a cached value and marks it as recently used.
+     *
+     * @param key The key.
+     * @return The value, or `null` if it is not cached.
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Caches a value, replacing a previous value of the key and evicting others if the cache is full.
+     * Values larger than the whole cache are not stored.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @param bytes Size of the value in bytes.
+     */
+    public synchronized void put(K key, V value, long bytes) {
+        Entry<V> previous = entries.remove(key);
+        if (previous != null) {
+            sizeBytes -= previous.bytes;
+        }
+        if (bytes <= maxBytes) {
+            entries.put(key, new Entry<>(value, bytes));
+            sizeBytes += bytes;
+        }
+        trimToSize(maxBytes);
+    }
+
+    @Override
+    public synchronized void trimToSize(long maxBytes) {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (sizeBytes > maxBytes && iterator.hasNext()) {
+            sizeBytes -= iterator.next().bytes;
+            iterator.remove();
+        }
+        if (account != null) {
+            account.setSizeBytes(sizeBytes);
+        }
+    }
+
+    /**
+     * Returns the number of cached values.
+     *
+     * @return The entry count.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the footprint of the cached values.
+     *
+     * @return The sum of their sizes in bytes.
+     */
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Returns the share of lookups that found a value.
+     *
+     * @return The hit rate, `0` before the first lookup.
+     */
+    public synchronized double getHitRate() {
+        int lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
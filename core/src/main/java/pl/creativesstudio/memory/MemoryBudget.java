@@ -0,0 +1,265 @@
+package pl.creativesstudio.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Central memory budget of the app's caches: sizes them, tracks their footprint and sheds memory under pressure.
+ *
+ * ### Sizing:
+ * - The budget is a fraction of the heap available to the app (`forMemoryClass` with the value of
+ *   `ActivityManager.getMemoryClass`), so low-RAM phones get smaller caches instead of `OutOfMemoryError`s.
+ * - Every cache registers with a share of the budget, which becomes its limit.
+ *
+ * ### Shedding:
+ * - `shed` brings the caches together down to a fraction of the budget, emptying caches of lower `Priority`
+ *   before touching higher ones; `BusViewModel` calls it from `onTrimMemory` and `onLowMemory`.
+ *
+ * ### Reporting:
+ * - Every account tracks the current and peak footprint reported by its cache; `toString` lists them.
+ *
+ * ### Thread Safety:
+ * - Registration and shedding are synchronized; accounts may be updated from any thread.
+ */
+public final class MemoryBudget {
+
+    /**
+     * Fraction of the app's heap given to the caches.
+     */
+    public static final double DEFAULT_HEAP_FRACTION = 0.25;
+
+    /**
+     * Eviction priority of a cache; `LOW` caches are shed first.
+     */
+    public enum Priority {
+        /**
+         * Nice to have, e.g. playback history: dropping it only shortens what can be replayed.
+         */
+        LOW,
+        /**
+         * Cheap to rebuild when needed, e.g. marker icons.
+         */
+        NORMAL,
+        /**
+         * Needed to draw the current screen; shed last.
+         */
+        HIGH
+    }
+
+    /**
+     * The footprint and limit of one registered cache.
+     */
+    public static final class Account {
+        private final String name;
+        private final Priority priority;
+        private final double share;
+        private final long limitBytes;
+        private final MemoryConsumer consumer;
+        private long sizeBytes;
+        private long peakBytes;
+
+        Account(String name, Priority priority, double share, long limitBytes, MemoryConsumer consumer) {
+            this.name = name;
+            this.priority = priority;
+            this.share = share;
+            this.limitBytes = limitBytes;
+            this.consumer = consumer;
+        }
+
+        /**
+         * @return Name of the cache.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Eviction priority of the cache.
+         */
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /**
+         * @return Largest footprint the cache may grow to, in bytes.
+         */
+        public long getLimitBytes() {
+            return limitBytes;
+        }
+
+        /**
+         * Reports the current footprint of the cache.
+         *
+         * @param bytes The footprint in bytes.
+         */
+        public synchronized void setSizeBytes(long bytes) {
+            sizeBytes = bytes;
+            peakBytes = Math.max(peakBytes, bytes);
+        }
+
+        /**
+         * @return Footprint last reported by the cache, in bytes.
+         */
+        public synchronized long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        /**
+         * @return Largest footprint reported since registration, in bytes.
+         */
+        public synchronized long getPeakBytes() {
+            return peakBytes;
+        }
+
+        /**
+         * Formats the account, e.g. "history LOW 3.2 / 12.0 MB (peak 5.1 MB)".
+         */
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s %s %.1f / %.1f MB (peak %.1f MB)",
+                    name, priority, megabytes(getSizeBytes()), megabytes(limitBytes), megabytes(getPeakBytes()));
+        }
+    }
+
+    /**
+     * Bytes shared by all caches.
+     */
+    private final long totalBytes;
+
+    /**
+     * Registered accounts, in registration order.
+     */
+    private final List<Account> accounts = new ArrayList<>();
+
+    /**
+     * Sum of the shares of the registered caches.
+     */
+    private double sharesUsed;
+
+    /**
+     * Creates a budget.
+     *
+     * @param totalBytes Bytes shared by all caches.
+     */
+    public MemoryBudget(long totalBytes) {
+        if (totalBytes < 0) throw new IllegalArgumentException("totalBytes must be >= 0");
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Creates a budget of `DEFAULT_HEAP_FRACTION` of the app's heap.
+     *
+     * @param memoryClassMegabytes Heap available to the app, from `ActivityManager.getMemoryClass`.
+     * @return The budget.
+     */
+    public static MemoryBudget forMemoryClass(int memoryClassMegabytes) {
+        return new MemoryBudget((long) (memoryClassMegabytes * 1024L * 1024L * DEFAULT_HEAP_FRACTION));
+    }
+
+    /**
+     * Registers a cache and attaches its account.
+     *
+     * @param name     Name of the cache in reports.
+     * @param priority Eviction priority of the cache.
+     * @param share    Fraction of the budget the cache may use; the shares of all caches add up to at most `1`.
+     * @param consumer The cache.
+     * @return The account of the cache.
+     */
+    public synchronized Account register(String name, Priority priority, double share, MemoryConsumer consumer) {
+        if (share <= 0 || sharesUsed + share > 1 + 1e-9) {
+            throw new IllegalArgumentException("Share of " + name + " exceeds the remaining budget: " + share);
+        }
+        Account account = new Account(name, priority, share, (long) (totalBytes * share), consumer);
+        sharesUsed += share;
+        accounts.add(account);
+        consumer.attach(account);
+        return account;
+    }
+
+    /**
+     * Removes a cache, e.g. when its screen is destroyed, and returns its share to the budget.
+     *
+     * @param account The account returned by `register`.
+     */
+    public synchronized void unregister(Account account) {
+        if (accounts.remove(account)) {
+            sharesUsed -= account.share;
+        }
+    }
+
+    /**
+     * Sheds memory until the caches together use at most a fraction of the budget.
+     * Caches are trimmed in order of priority, lowest first, and within a priority in registration order;
+     * a cache is only trimmed once every cache of lower priority is empty.
+     *
+     * @param keepFraction Fraction of the budget to keep, `0` to empty every cache.
+     * @return Bytes freed.
+     */
+    public synchronized long shed(double keepFraction) {
+        long target = (long) (totalBytes * Math.max(0, keepFraction));
+        long before = getUsedBytes();
+        long used = before;
+        for (Priority priority : Priority.values()) {
+            for (Account account : accounts) {
+                if (used <= target) return before - used;
+                if (account.priority != priority) continue;
+
+                long size = account.getSizeBytes();
+                account.consumer.trimToSize(Math.max(0, size - (used - target)));
+                used -= size - account.getSizeBytes();
+            }
+        }
+        return before - used;
+    }
+
+    /**
+     * Returns the bytes shared by all caches.
+     *
+     * @return The budget in bytes.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the current footprint of all caches.
+     *
+     * @return The sum of the reported footprints in bytes.
+     */
+    public synchronized long getUsedBytes() {
+        long used = 0;
+        for (Account account : accounts) {
+            used += account.getSizeBytes();
+        }
+        return used;
+    }
+
+    /**
+     * Returns the registered accounts.
+     *
+     * @return The accounts in registration order.
+     */
+    public synchronized List<Account> getAccounts() {
+        return Collections.unmodifiableList(new ArrayList<>(accounts));
+    }
+
+    /**
+     * Formats the budget with one line per cache, e.g.
+     * "memory 8.3 / 32.0 MB\nhistory LOW 6.1 / 24.0 MB (peak 9.0 MB)\nmarker.icons NORMAL ...".
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder text = new StringBuilder(String.format(Locale.US, "memory %.1f / %.1f MB",
+                megabytes(getUsedBytes()), megabytes(totalBytes)));
+        for (Account account : accounts) {
+            text.append('\n').append(account);
+        }
+        return text.toString();
+    }
+
+    private static double megabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+}
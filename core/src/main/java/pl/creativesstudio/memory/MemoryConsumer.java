@@ -0,0 +1,26 @@
+package pl.creativesstudio.memory;
+
+/**
+ * A cache whose memory is governed by a `MemoryBudget`.
+ *
+ * ### Contract:
+ * - On registration the budget passes the consumer its `MemoryBudget.Account`; from then on the consumer
+ *   stays within the account's limit and reports every change of its footprint with `setSizeBytes`.
+ * - `trimToSize` may be called from any thread, so consumers touched from several threads synchronize it.
+ */
+public interface MemoryConsumer {
+
+    /**
+     * Attaches the account of the consumer, called once by `MemoryBudget.register`.
+     *
+     * @param account The account holding the consumer's limit and receiving its footprint.
+     */
+    void attach(MemoryBudget.Account account);
+
+    /**
+     * Evicts entries until the footprint is at most the given size, reporting the new footprint.
+     *
+     * @param maxBytes Largest footprint allowed afterwards, in bytes; `0` empties the consumer.
+     */
+    void trimToSize(long maxBytes);
+}
@@ -0,0 +1,63 @@
+package pl.creativesstudio.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic event counter of a `MetricsRegistry`.
+ *
+ * ### Thread Safety:
+ * - Lock-free; increments from many threads contend on separate cells of a `LongAdder`.
+ * - Increments are dropped while the registry is disabled.
+ */
+public final class Counter {
+
+    /**
+     * The registry whose switch gates this counter.
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * Number of events counted.
+     */
+    private final LongAdder count = new LongAdder();
+
+    Counter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Counts one event.
+     */
+    public void increment() {
+        if (registry.isEnabled()) {
+            count.increment();
+        }
+    }
+
+    /**
+     * Counts several events.
+     *
+     * @param events The number of events.
+     */
+    public void add(long events) {
+        if (registry.isEnabled()) {
+            count.add(events);
+        }
+    }
+
+    /**
+     * Returns the number of events counted.
+     *
+     * @return The count.
+     */
+    public long get() {
+        return count.sum();
+    }
+
+    /**
+     * Forgets all counted events.
+     */
+    public void reset() {
+        count.reset();
+    }
+}
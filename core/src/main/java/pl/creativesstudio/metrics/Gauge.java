@@ -0,0 +1,45 @@
+package pl.creativesstudio.metrics;
+
+/**
+ * Last observed value of a quantity of a `MetricsRegistry`, e.g. the number of vehicles.
+ *
+ * ### Thread Safety:
+ * - Lock-free; the value is a volatile `long`, the last writer wins.
+ * - Updates are dropped while the registry is disabled.
+ */
+public final class Gauge {
+
+    /**
+     * The registry whose switch gates this gauge.
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * The last observed value.
+     */
+    private volatile long value;
+
+    Gauge(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Records the current value.
+     *
+     * @param value The value.
+     */
+    public void set(long value) {
+        if (registry.isEnabled()) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Returns the last observed value.
+     *
+     * @return The value, or `0` if none was recorded.
+     */
+    public long get() {
+        return value;
+    }
+}
@@ -0,0 +1,194 @@
+package pl.creativesstudio.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory histogram of durations of a `MetricsRegistry`.
+ *
+ * ### Layout:
+ * - Durations are bucketed log-linearly: every power of two between 1 µs and about 68 s is split into
+ *   `SUB_BUCKETS` equal buckets, so a percentile is off by at most 12.5%.
+ * - Shorter durations fall into the first bucket and longer ones into the last; the maximum is kept exactly.
+ * - The 216 buckets take under 2 KB, however many durations are recorded.
+ *
+ * ### Thread Safety:
+ * - Lock-free; recording is one atomic increment plus a rarely contended maximum update.
+ * - Percentiles read while durations are recorded may mix counts of a few concurrent recordings.
+ *
+ * ### Usage:
+ * ```java
+ * long started = histogram.start();
+ * doWork();
+ * histogram.recordSince(started);
+ * ```
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Exponent of the shortest bucketed duration, 2^10 ns ≈ 1 µs.
+     */
+    private static final int MIN_EXPONENT = 10;
+
+    /**
+     * Exponent of the longest bucketed duration, 2^36 ns ≈ 68 s.
+     */
+    private static final int MAX_EXPONENT = 36;
+
+    /**
+     * Buckets per power of two, as a power of two itself.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Total number of buckets.
+     */
+    static final int BUCKETS = (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+
+    /**
+     * The registry whose switch gates this histogram.
+     */
+    private final MetricsRegistry registry;
+
+    /**
+     * Number of durations per bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Number of recorded durations.
+     */
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * Longest recorded duration in nanoseconds.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Starts timing a duration.
+     *
+     * @return `System.nanoTime()`, or `0` while the registry is disabled, so disabled timing costs no clock read.
+     */
+    public long start() {
+        return registry.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the duration elapsed since `start`.
+     *
+     * @param started The value returned by `start`; `0` is ignored.
+     */
+    public void recordSince(long started) {
+        if (started != 0) {
+            record(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds; negative values are ignored.
+     */
+    public void record(long nanos) {
+        if (nanos < 0 || !registry.isEnabled()) return;
+        counts.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the longest recorded duration.
+     *
+     * @return The duration in nanoseconds, or `0` if none was recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns a percentile of the recorded durations.
+     *
+     * @param percentile The percentile, from `0` to `100`.
+     * @return The upper edge of the bucket holding the percentile, capped at the maximum, in nanoseconds;
+     * `0` if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+
+        // Walk the buckets up to the rank of the percentile
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperEdge(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Forgets all recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Returns the bucket of a duration.
+     */
+    static int bucketOf(long nanos) {
+        if (nanos < 1L << MIN_EXPONENT) return 0;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - MIN_EXPONENT) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the first duration past a bucket.
+     */
+    static long upperEdge(int bucket) {
+        int exponent = bucket / SUB_BUCKETS + MIN_EXPONENT;
+        long sub = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Formats the median, tail percentiles and count, e.g. `p50 12.0 p95 31.5 p99 48.0 ms (n=120)`.
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "p50 %.1f p95 %.1f p99 %.1f ms (n=%d)",
+                getPercentile(50) / 1e6, getPercentile(95) / 1e6, getPercentile(99) / 1e6, getCount());
+    }
+}
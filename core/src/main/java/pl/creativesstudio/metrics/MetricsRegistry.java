@@ -0,0 +1,153 @@
+package pl.creativesstudio.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of named counters, gauges and latency histograms.
+ *
+ * ### Overhead:
+ * - The registry starts disabled. While disabled, every update is a single volatile read and histograms
+ *   skip reading the clock, so instrumentation can stay in hot paths.
+ * - Metrics are looked up once and kept in fields; lookups are not meant for hot paths.
+ *
+ * ### Thread Safety:
+ * - Lock-free; metrics may be created, updated and read from any thread.
+ *
+ * ### Usage:
+ * ```java
+ * LatencyHistogram decode = registry.histogram(MetricsRegistry.DECODE);
+ * long started = decode.start();
+ * decoder.decode(body);
+ * decode.recordSince(started);
+ * ```
+ */
+public final class MetricsRegistry {
+
+    /**
+     * Duration of an HTTP poll, from sending the request to reading the whole body.
+     */
+    public static final String HTTP_ROUND_TRIP = "http";
+
+    /**
+     * Duration of decoding a response.
+     */
+    public static final String DECODE = "decode";
+
+    /**
+     * Duration of validating, de-duplicating and merging a response.
+     */
+    public static final String INGEST = "ingest";
+
+    /**
+     * Duration of updating all derived structures of a snapshot, diff included.
+     */
+    public static final String INDEX = "index";
+
+    /**
+     * Duration of diffing a snapshot against the previous one.
+     */
+    public static final String DIFF = "diff";
+
+    /**
+     * Duration of applying a set of vehicles to the map markers.
+     */
+    public static final String MARKER_APPLY = "marker.apply";
+
+    /**
+     * Time from the camera settling to the markers of the new viewport being rendered.
+     */
+    public static final String CAMERA_TO_RENDER = "camera.render";
+
+    /**
+     * Time between consecutive frames.
+     */
+    public static final String FRAME = "frame";
+
+    /**
+     * Number of vehicles in the current snapshot.
+     */
+    public static final String VEHICLES = "vehicles";
+
+    /**
+     * Number of markers on the map.
+     */
+    public static final String MARKERS = "markers";
+
+    /**
+     * Number of failed polls.
+     */
+    public static final String FAILURES = "failures";
+
+    /**
+     * Whether updates are recorded.
+     */
+    private volatile boolean enabled;
+
+    /**
+     * Metrics by name, one map per kind.
+     */
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Tells whether updates are recorded.
+     *
+     * @return `true` if the registry is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops recording. Values recorded so far are kept.
+     *
+     * @param enabled `true` to record updates.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the counter of a name, creating it on first use.
+     *
+     * @param name The metric name.
+     * @return The counter.
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter(this));
+    }
+
+    /**
+     * Returns the gauge of a name, creating it on first use.
+     *
+     * @param name The metric name.
+     * @return The gauge.
+     */
+    public Gauge gauge(String name) {
+        return gauges.computeIfAbsent(name, key -> new Gauge(this));
+    }
+
+    /**
+     * Returns the latency histogram of a name, creating it on first use.
+     *
+     * @param name The metric name.
+     * @return The histogram.
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram(this));
+    }
+
+    /**
+     * Forgets all recorded values, e.g. to measure a single scenario.
+     */
+    public void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package pl.creativesstudio.metrics;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import pl.creativesstudio.trace.Tracing;
+
+/**
+ * Milestones of one launch of the app, measured from the start of the process or of the launch.
+ *
+ * ### Milestones:
+ * - Each milestone is recorded the first time it is reached; later marks are ignored, so code running again
+ *   after a configuration change does not move it.
+ * - `FIRST_VEHICLE`, the first marker on the map, completes the launch: its time is the time to first vehicle.
+ * - Every milestone is also emitted as a short trace section named `startup.<milestone>`, so it shows up
+ *   in system traces and `TraceRecorder` captures next to the work around it.
+ *
+ * ### Thread Safety:
+ * - Lock-free; milestones may be marked from any thread.
+ */
+public final class StartupTimeline {
+
+    /**
+     * Milestones of a launch, in their usual order.
+     */
+    public enum Milestone {
+        /**
+         * The repository was obtained, right at the start of `MainActivity.onCreate`.
+         */
+        REPOSITORY_READY,
+        /**
+         * The first poll was requested, before the layout and the map are inflated.
+         */
+        FIRST_FETCH_REQUESTED,
+        /**
+         * `MainActivity.onCreate` returned.
+         */
+        ACTIVITY_CREATED,
+        /**
+         * The HTTP client, Retrofit and its converters were built on the IO pool.
+         */
+        API_CLIENT_READY,
+        /**
+         * The first snapshot, restored from disk or polled, was published.
+         */
+        FIRST_SNAPSHOT,
+        /**
+         * The map is ready, `onMapReady` was called.
+         */
+        MAP_READY,
+        /**
+         * The first vehicle marker was drawn.
+         */
+        FIRST_VEHICLE
+    }
+
+    /**
+     * `System.nanoTime` at the start of the process or launch.
+     */
+    private final long originNanos;
+
+    /**
+     * Time of every milestone since the origin in nanoseconds, `-1` until reached.
+     */
+    private final AtomicLongArray reached = new AtomicLongArray(Milestone.values().length);
+
+    /**
+     * Creates a timeline.
+     *
+     * @param originNanos `System.nanoTime` at the start of the process or launch; may lie in the past.
+     */
+    public StartupTimeline(long originNanos) {
+        this.originNanos = originNanos;
+        for (int i = 0; i < reached.length(); i++) {
+            reached.set(i, -1);
+        }
+    }
+
+    /**
+     * Records a milestone, unless it was reached before.
+     *
+     * @param milestone The milestone.
+     * @return `true` if this call recorded it.
+     */
+    public boolean mark(Milestone milestone) {
+        if (reached.get(milestone.ordinal()) >= 0) return false;
+
+        long elapsed = Math.max(0, System.nanoTime() - originNanos);
+        if (!reached.compareAndSet(milestone.ordinal(), -1, elapsed)) return false;
+        Tracing.beginSection("startup." + milestone);
+        Tracing.endSection();
+        return true;
+    }
+
+    /**
+     * Returns the time of a milestone.
+     *
+     * @param milestone The milestone.
+     * @return Milliseconds from the origin, or `-1` if it was not reached yet.
+     */
+    public long getMillis(Milestone milestone) {
+        long nanos = reached.get(milestone.ordinal());
+        return nanos < 0 ? -1 : nanos / 1_000_000;
+    }
+
+    /**
+     * Tells whether the launch completed, i.e. the first vehicle was drawn.
+     *
+     * @return `true` once `FIRST_VEHICLE` was reached.
+     */
+    public boolean isComplete() {
+        return reached.get(Milestone.FIRST_VEHICLE.ordinal()) >= 0;
+    }
+
+    /**
+     * Formats the reached milestones in time order, e.g.
+     * "startup REPOSITORY_READY 180 ms, FIRST_FETCH_REQUESTED 185 ms, ..., FIRST_VEHICLE 910 ms".
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("startup");
+        Milestone[] milestones = Milestone.values().clone();
+        Arrays.sort(milestones, (a, b) -> Long.compare(
+                order(reached.get(a.ordinal())), order(reached.get(b.ordinal()))));
+        String separator = " ";
+        for (Milestone milestone : milestones) {
+            long millis = getMillis(milestone);
+            if (millis < 0) continue;
+            text.append(separator).append(String.format(Locale.US, "%s %d ms", milestone, millis));
+            separator = ", ";
+        }
+        return text.toString();
+    }
+
+    /**
+     * Sorts unreached milestones last.
+     */
+    private static long order(long nanos) {
+        return nanos < 0 ? Long.MAX_VALUE : nanos;
+    }
+}
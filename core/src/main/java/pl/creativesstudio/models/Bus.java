@@ -37,6 +37,12 @@ public class Bus {
     @SerializedName("Time")
     private String time;
 
+    /**
+     * The `time` of the last report in milliseconds since the epoch, or `0` if it is unknown.
+     * Filled in by `BusTypeAdapter` when the response is decoded; not part of the JSON.
+     */
+    private transient long timeMillis;
+
     /**
      * The unique identifier for the bus or tram.
      * Mapped from the JSON key `VehicleNumber`.
@@ -125,6 +131,24 @@ public class Bus {
         this.time = time;
     }
 
+    /**
+     * Retrieves the time of the last reported location.
+     *
+     * @return The time in milliseconds since the epoch, or `0` if it is unknown.
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Sets the time of the last reported location.
+     *
+     * @param timeMillis The time in milliseconds since the epoch, or `0` if it is unknown.
+     */
+    public void setTimeMillis(long timeMillis) {
+        this.timeMillis = timeMillis;
+    }
+
     /**
      * Retrieves the unique vehicle number of the bus or tram.
      *
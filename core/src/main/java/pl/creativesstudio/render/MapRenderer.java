@@ -0,0 +1,76 @@
+package pl.creativesstudio.render;
+
+import pl.creativesstudio.index.GeoBounds;
+
+/**
+ * The operations the display path performs on a map: vehicle markers keyed by vehicle number, and the camera.
+ *
+ * ### Implementations:
+ * - `GoogleMapRenderer` in the app draws on a `GoogleMap`, building the marker icons of the lines.
+ * - `RecordingMapRenderer` keeps the markers in memory and records every operation with its time,
+ *   so rendering can be tested, profiled and benchmarked on a plain JVM.
+ *
+ * ### Contract:
+ * - Calls come from one thread, the main thread in the app.
+ * - `MarkerLayer` adds a vehicle at most once and only updates or removes vehicles it added.
+ */
+public interface MapRenderer {
+
+    /**
+     * Adds the marker of a vehicle.
+     *
+     * @param vehicleId Vehicle number, unique on the map.
+     * @param line      Line of the vehicle, shown by its icon.
+     * @param lat       Latitude of the vehicle.
+     * @param lon       Longitude of the vehicle.
+     * @param alpha     Opacity of the marker, `0`-`1`.
+     */
+    void addMarker(String vehicleId, String line, double lat, double lon, float alpha);
+
+    /**
+     * Moves or fades the marker of a vehicle; its line is unchanged.
+     *
+     * @param vehicleId Vehicle number of a displayed marker.
+     * @param lat       New latitude.
+     * @param lon       New longitude.
+     * @param alpha     New opacity, `0`-`1`.
+     */
+    void updateMarker(String vehicleId, double lat, double lon, float alpha);
+
+    /**
+     * Removes the marker of a vehicle.
+     *
+     * @param vehicleId Vehicle number of a displayed marker.
+     */
+    void removeMarker(String vehicleId);
+
+    /**
+     * Removes every marker.
+     */
+    void clear();
+
+    /**
+     * Shows the info window of a vehicle's marker.
+     *
+     * @param vehicleId Vehicle number of a displayed marker.
+     */
+    void showInfoWindow(String vehicleId);
+
+    /**
+     * Moves the camera to a point, animated or at once.
+     *
+     * @param lat     Latitude of the new centre.
+     * @param lon     Longitude of the new centre.
+     * @param zoom    The new zoom level.
+     * @param animate `true` to animate the move.
+     */
+    void moveCamera(double lat, double lon, float zoom, boolean animate);
+
+    /**
+     * Animates the camera to show an area.
+     *
+     * @param bounds        The area to show.
+     * @param paddingPixels Free space around the area in pixels.
+     */
+    void moveCamera(GeoBounds bounds, int paddingPixels);
+}
@@ -0,0 +1,182 @@
+package pl.creativesstudio.render;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import pl.creativesstudio.data.ReportAgePolicy;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * The vehicle markers on the map: turns the list of vehicles to display into marker operations on a `MapRenderer`.
+ *
+ * ### Strategies:
+ * - `REBUILD`: clears the map and adds every marker again on every update, the app's original behavior.
+ * - `DIFF`: adds appearing vehicles, removes vanished ones and moves or fades the others only if they changed,
+ *   so an update costs in proportion to what changed.
+ *
+ * ### Behavior:
+ * - Vehicles that the `ReportAgePolicy` drops are not drawn; the others are drawn with the opacity of their age,
+ *   multiplied by a layer-wide opacity, e.g. for stale data.
+ * - The info window of the selected vehicle is shown again after every update that draws it.
+ *
+ * ### Thread Safety:
+ * - Not thread-safe; used on the thread of its renderer.
+ */
+public final class MarkerLayer {
+
+    /**
+     * How an update reaches the renderer.
+     */
+    public enum Strategy {
+        REBUILD,
+        DIFF
+    }
+
+    /**
+     * A displayed marker.
+     */
+    private static final class Shown {
+        final String line;
+        double lat;
+        double lon;
+        float alpha;
+
+        /**
+         * Number of the update that last drew the marker.
+         */
+        int generation;
+
+        Shown(String line, double lat, double lon, float alpha) {
+            this.line = line;
+            this.lat = lat;
+            this.lon = lon;
+            this.alpha = alpha;
+        }
+    }
+
+    /**
+     * Renderer drawing the markers.
+     */
+    private final MapRenderer renderer;
+
+    /**
+     * How updates reach the renderer.
+     */
+    private final Strategy strategy;
+
+    /**
+     * Policy fading and dropping vehicles that stopped reporting.
+     */
+    private final ReportAgePolicy agePolicy;
+
+    /**
+     * Displayed markers by vehicle number.
+     */
+    private final Map<String, Shown> shown = new HashMap<>();
+
+    /**
+     * Number of the current update.
+     */
+    private int generation;
+
+    /**
+     * Creates an empty layer.
+     *
+     * @param renderer  Renderer drawing the markers.
+     * @param strategy  How updates reach the renderer.
+     * @param agePolicy Policy fading and dropping vehicles that stopped reporting.
+     */
+    public MarkerLayer(MapRenderer renderer, Strategy strategy, ReportAgePolicy agePolicy) {
+        this.renderer = renderer;
+        this.strategy = strategy;
+        this.agePolicy = agePolicy;
+    }
+
+    /**
+     * Displays exactly the given vehicles.
+     *
+     * @param buses        The vehicles to display; vehicle numbers must be unique.
+     * @param latestReport Newest report time of the displayed snapshot, the reference of the report ages.
+     * @param alpha        Opacity applied to every marker, `0`-`1`.
+     * @param selectedId   Vehicle number whose info window is shown, or `null`.
+     */
+    public void show(List<Bus> buses, long latestReport, float alpha, String selectedId) {
+        generation++;
+        if (strategy == Strategy.REBUILD) {
+            clear();
+        }
+
+        for (Bus bus : buses) {
+            // Skip vehicles that stopped reporting long ago
+            float reportAlpha = agePolicy.alphaOf(bus, latestReport);
+            if (reportAlpha == 0f) continue;
+
+            String id = bus.getVehicleNumber();
+            String line = bus.getLines();
+            float markerAlpha = alpha * reportAlpha;
+            Shown marker = shown.get(id);
+            if (marker != null && !marker.line.equals(line)) {
+                // The icon shows the line, so a vehicle changing lines gets a new marker
+                renderer.removeMarker(id);
+                marker = null;
+            }
+
+            if (marker == null) {
+                marker = new Shown(line, bus.getLat(), bus.getLon(), markerAlpha);
+                shown.put(id, marker);
+                renderer.addMarker(id, line, bus.getLat(), bus.getLon(), markerAlpha);
+            } else if (marker.lat != bus.getLat() || marker.lon != bus.getLon() || marker.alpha != markerAlpha) {
+                marker.lat = bus.getLat();
+                marker.lon = bus.getLon();
+                marker.alpha = markerAlpha;
+                renderer.updateMarker(id, bus.getLat(), bus.getLon(), markerAlpha);
+            }
+            marker.generation = generation;
+        }
+
+        // Remove the markers of vehicles that are no longer displayed
+        Iterator<Map.Entry<String, Shown>> entries = shown.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Shown> entry = entries.next();
+            if (entry.getValue().generation != generation) {
+                renderer.removeMarker(entry.getKey());
+                entries.remove();
+            }
+        }
+
+        if (selectedId != null && shown.containsKey(selectedId)) {
+            renderer.showInfoWindow(selectedId);
+        }
+    }
+
+    /**
+     * Removes every marker.
+     */
+    public void clear() {
+        renderer.clear();
+        shown.clear();
+    }
+
+    /**
+     * Shows the info window of a vehicle if its marker is displayed.
+     *
+     * @param vehicleId The vehicle number.
+     * @return `true` if the marker is displayed.
+     */
+    public boolean showInfoWindow(String vehicleId) {
+        if (!shown.containsKey(vehicleId)) return false;
+        renderer.showInfoWindow(vehicleId);
+        return true;
+    }
+
+    /**
+     * Returns the number of displayed markers.
+     *
+     * @return The marker count.
+     */
+    public int size() {
+        return shown.size();
+    }
+}
@@ -0,0 +1,357 @@
+package pl.creativesstudio.render;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pl.creativesstudio.index.GeoBounds;
+
+/**
+ * Headless `MapRenderer`: keeps the markers in memory and records every operation with its time.
+ *
+ * ### Usage:
+ * - Tests check what the display path drew, without Play Services.
+ * - Marker churn is measured per update: call `reset` before an update, then read the counts.
+ * - Benchmarks run the whole pipeline up to the map on a plain JVM; with `recordOperations` off
+ *   only the counts are kept, so long runs do not grow the log.
+ *
+ * ### Contract Checks:
+ * - Adding a displayed vehicle, or updating, removing or selecting a missing one, throws `IllegalStateException`,
+ *   so tests catch display code that loses track of its markers.
+ *
+ * ### Example:
+ * ```java
+ * RecordingMapRenderer renderer = new RecordingMapRenderer(true);
+ * MarkerLayer layer = new MarkerLayer(renderer, MarkerLayer.Strategy.DIFF, policy);
+ * layer.show(first, firstLatest, 1f, null);
+ * renderer.reset();
+ * layer.show(second, secondLatest, 1f, null);
+ * int churn = renderer.getChurn(); // Markers added, moved or removed by the second update
+ * ```
+ */
+public final class RecordingMapRenderer implements MapRenderer {
+
+    /**
+     * Kind of a recorded operation.
+     */
+    public enum Type {
+        ADD,
+        UPDATE,
+        REMOVE,
+        CLEAR,
+        INFO_WINDOW,
+        CAMERA
+    }
+
+    /**
+     * A recorded operation.
+     */
+    public static final class Operation {
+        private final Type type;
+        private final String vehicleId;
+        private final long timeNanos;
+
+        Operation(Type type, String vehicleId, long timeNanos) {
+            this.type = type;
+            this.vehicleId = vehicleId;
+            this.timeNanos = timeNanos;
+        }
+
+        /**
+         * @return Kind of the operation.
+         */
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * @return Vehicle number of the marker, or `null` for map-wide operations.
+         */
+        public String getVehicleId() {
+            return vehicleId;
+        }
+
+        /**
+         * @return Time of the operation from `System.nanoTime`.
+         */
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        @Override
+        public String toString() {
+            return vehicleId != null ? type + " " + vehicleId : type.toString();
+        }
+    }
+
+    /**
+     * State of a displayed marker.
+     */
+    public static final class Marker {
+        private final String line;
+        private double lat;
+        private double lon;
+        private float alpha;
+
+        Marker(String line, double lat, double lon, float alpha) {
+            this.line = line;
+            this.lat = lat;
+            this.lon = lon;
+            this.alpha = alpha;
+        }
+
+        /**
+         * @return Line shown by the marker.
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * @return Latitude of the marker.
+         */
+        public double getLat() {
+            return lat;
+        }
+
+        /**
+         * @return Longitude of the marker.
+         */
+        public double getLon() {
+            return lon;
+        }
+
+        /**
+         * @return Opacity of the marker.
+         */
+        public float getAlpha() {
+            return alpha;
+        }
+    }
+
+    /**
+     * Whether operations are logged, not only counted.
+     */
+    private final boolean recordOperations;
+
+    /**
+     * Displayed markers by vehicle number.
+     */
+    private final Map<String, Marker> markers = new HashMap<>();
+
+    /**
+     * Operations since the last reset, if recorded.
+     */
+    private final List<Operation> operations = new ArrayList<>();
+
+    /**
+     * Number of operations of each kind since the last reset.
+     */
+    private final EnumMap<Type, Integer> counts = new EnumMap<>(Type.class);
+
+    /**
+     * Markers removed since the last reset, one by one or by clearing the map.
+     */
+    private int markersRemoved;
+
+    /**
+     * Vehicle number of the last info window shown, or `null`.
+     */
+    private String infoWindow;
+
+    /**
+     * Camera centre and zoom of the last point move; `NaN` before the first one.
+     */
+    private double cameraLat = Double.NaN;
+    private double cameraLon = Double.NaN;
+    private float cameraZoom = Float.NaN;
+
+    /**
+     * Creates an empty renderer.
+     *
+     * @param recordOperations `true` to log every operation, `false` to only count them.
+     */
+    public RecordingMapRenderer(boolean recordOperations) {
+        this.recordOperations = recordOperations;
+    }
+
+    @Override
+    public void addMarker(String vehicleId, String line, double lat, double lon, float alpha) {
+        if (markers.containsKey(vehicleId)) {
+            throw new IllegalStateException("Marker already displayed: " + vehicleId);
+        }
+        markers.put(vehicleId, new Marker(line, lat, lon, alpha));
+        record(Type.ADD, vehicleId);
+    }
+
+    @Override
+    public void updateMarker(String vehicleId, double lat, double lon, float alpha) {
+        Marker marker = displayed(vehicleId);
+        marker.lat = lat;
+        marker.lon = lon;
+        marker.alpha = alpha;
+        record(Type.UPDATE, vehicleId);
+    }
+
+    @Override
+    public void removeMarker(String vehicleId) {
+        displayed(vehicleId);
+        markers.remove(vehicleId);
+        if (vehicleId.equals(infoWindow)) {
+            infoWindow = null;
+        }
+        markersRemoved++;
+        record(Type.REMOVE, vehicleId);
+    }
+
+    @Override
+    public void clear() {
+        markersRemoved += markers.size();
+        markers.clear();
+        infoWindow = null;
+        record(Type.CLEAR, null);
+    }
+
+    @Override
+    public void showInfoWindow(String vehicleId) {
+        displayed(vehicleId);
+        infoWindow = vehicleId;
+        record(Type.INFO_WINDOW, vehicleId);
+    }
+
+    @Override
+    public void moveCamera(double lat, double lon, float zoom, boolean animate) {
+        cameraLat = lat;
+        cameraLon = lon;
+        cameraZoom = zoom;
+        record(Type.CAMERA, null);
+    }
+
+    @Override
+    public void moveCamera(GeoBounds bounds, int paddingPixels) {
+        cameraLat = (bounds.getSouth() + bounds.getNorth()) / 2;
+        cameraLon = (bounds.getWest() + bounds.getEast()) / 2;
+        cameraZoom = Float.NaN;
+        record(Type.CAMERA, null);
+    }
+
+    /**
+     * Forgets the recorded operations and counts, keeping the markers; starts the measurement of an update.
+     */
+    public void reset() {
+        operations.clear();
+        counts.clear();
+        markersRemoved = 0;
+    }
+
+    /**
+     * Returns the operations recorded since the last reset.
+     *
+     * @return The operations in call order; empty if operations are only counted.
+     */
+    public List<Operation> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * Returns the number of operations of a kind since the last reset.
+     *
+     * @param type The kind of operation.
+     * @return The count.
+     */
+    public int getCount(Type type) {
+        Integer count = counts.get(type);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Returns the number of markers removed since the last reset, including those removed by clearing the map.
+     *
+     * @return The count.
+     */
+    public int getMarkersRemoved() {
+        return markersRemoved;
+    }
+
+    /**
+     * Returns the marker churn since the last reset: markers added, updated or removed.
+     *
+     * @return The churn.
+     */
+    public int getChurn() {
+        return getCount(Type.ADD) + getCount(Type.UPDATE) + markersRemoved;
+    }
+
+    /**
+     * Returns the displayed marker of a vehicle.
+     *
+     * @param vehicleId The vehicle number.
+     * @return The marker, or `null` if the vehicle is not displayed.
+     */
+    public Marker getMarker(String vehicleId) {
+        return markers.get(vehicleId);
+    }
+
+    /**
+     * Returns the number of displayed markers.
+     *
+     * @return The marker count.
+     */
+    public int getMarkerCount() {
+        return markers.size();
+    }
+
+    /**
+     * Returns the vehicle whose info window was shown last, if its marker is still displayed.
+     *
+     * @return The vehicle number, or `null`.
+     */
+    public String getInfoWindow() {
+        return infoWindow;
+    }
+
+    /**
+     * @return Latitude of the last camera move, `NaN` before the first one.
+     */
+    public double getCameraLat() {
+        return cameraLat;
+    }
+
+    /**
+     * @return Longitude of the last camera move, `NaN` before the first one.
+     */
+    public double getCameraLon() {
+        return cameraLon;
+    }
+
+    /**
+     * @return Zoom of the last camera move to a point, `NaN` before the first one or after a move to bounds.
+     */
+    public float getCameraZoom() {
+        return cameraZoom;
+    }
+
+    /**
+     * Returns the marker of a displayed vehicle.
+     */
+    private Marker displayed(String vehicleId) {
+        Marker marker = markers.get(vehicleId);
+        if (marker == null) {
+            throw new IllegalStateException("Marker not displayed: " + vehicleId);
+        }
+        return marker;
+    }
+
+    /**
+     * Counts an operation and logs it if enabled.
+     */
+    private void record(Type type, String vehicleId) {
+        counts.merge(type, 1, Integer::sum);
+        if (recordOperations) {
+            operations.add(new Operation(type, vehicleId, System.nanoTime()));
+        }
+    }
+}
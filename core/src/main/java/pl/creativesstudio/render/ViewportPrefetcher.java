@@ -0,0 +1,221 @@
+package pl.creativesstudio.render;
+
+import pl.creativesstudio.index.GeoBounds;
+
+/**
+ * Chooses the region whose markers are drawn, so panning the map does not reveal an empty edge.
+ *
+ * ### Padded Region:
+ * - The region is the visible area grown by `padding` of its size on every side; markers are drawn for all of it.
+ * - It is kept while the visible area stays inside it, so pans smaller than the padding change nothing
+ *   on the map. Only leaving it, or zooming in far enough that most of it is off screen, re-centers it.
+ *
+ * ### Fling Prediction:
+ * - `onCameraMove` estimates the camera velocity from consecutive camera positions.
+ * - A fling decelerates roughly exponentially, so it travels about `velocity * FLING_TIME_CONSTANT` further;
+ *   above `MIN_FLING_SPEED` the visible area at that point is added to the region while the camera still moves,
+ *   and its markers are in place before the camera settles.
+ *
+ * ### Notes:
+ * - Works on plain `GeoBounds` and explicit times, so it runs on a plain JVM and in tests.
+ * - Not thread-safe; used on the main thread, which receives the camera callbacks.
+ */
+public final class ViewportPrefetcher {
+
+    /**
+     * Default share of the visible height and width added on every side of the region.
+     */
+    public static final double DEFAULT_PADDING = 0.5;
+
+    /**
+     * Zoom factor after which the region is re-centered, since most of its markers are off screen.
+     */
+    static final double MAX_ZOOM_IN = 2;
+
+    /**
+     * Time constant of the fling deceleration in milliseconds.
+     */
+    static final long FLING_TIME_CONSTANT = 300;
+
+    /**
+     * Speed, in visible heights or widths per second, above which a movement is predicted as a fling.
+     */
+    static final double MIN_FLING_SPEED = 1;
+
+    /**
+     * Largest predicted travel, in visible heights or widths, so a wrong estimate cannot draw half the city.
+     */
+    static final double MAX_FLING_DISTANCE = 3;
+
+    /**
+     * Gap between camera movements in milliseconds after which the velocity starts over, e.g. a new gesture.
+     */
+    static final long MAX_SAMPLE_GAP = 100;
+
+    /**
+     * Share of the visible height and width added on every side of the region.
+     */
+    private final double padding;
+
+    /**
+     * Region whose markers are drawn, `null` until the first camera position.
+     */
+    private GeoBounds region;
+
+    /**
+     * Visible area at the latest camera position, `null` until the first one.
+     */
+    private GeoBounds visible;
+
+    /**
+     * Time of the latest camera movement in milliseconds.
+     */
+    private long sampleTime;
+
+    /**
+     * Smoothed camera velocity in degrees of latitude and longitude per millisecond.
+     */
+    private double latVelocity, lonVelocity;
+
+    /**
+     * Visible area where the current fling is expected to end, `null` if the camera is not flung.
+     */
+    private GeoBounds predictedLanding;
+
+    /**
+     * Number of times the region changed, i.e. markers had to be drawn for a new region.
+     */
+    private int regionChanges;
+
+    /**
+     * Creates a prefetcher.
+     *
+     * @param padding Share of the visible height and width added on every side of the region, e.g. `DEFAULT_PADDING`.
+     */
+    public ViewportPrefetcher(double padding) {
+        this.padding = padding;
+    }
+
+    /**
+     * Updates the region for a camera at rest, e.g. after `onCameraIdle` or when the map is ready.
+     *
+     * @param visible The visible area.
+     * @return `true` if the region changed and markers should be drawn for it.
+     */
+    public boolean onCameraIdle(GeoBounds visible) {
+        this.visible = visible;
+        latVelocity = 0;
+        lonVelocity = 0;
+        predictedLanding = null;
+        return update(visible);
+    }
+
+    /**
+     * Updates the velocity, the predicted landing and the region for a moving camera.
+     *
+     * @param visible    The visible area.
+     * @param timeMillis Time of the movement in milliseconds.
+     * @return `true` if the region changed and markers should be drawn for it.
+     */
+    public boolean onCameraMove(GeoBounds visible, long timeMillis) {
+        GeoBounds previous = this.visible;
+        long elapsed = timeMillis - sampleTime;
+        this.visible = visible;
+        sampleTime = timeMillis;
+
+        if (previous == null || elapsed <= 0 || elapsed > MAX_SAMPLE_GAP) {
+            // First movement of a gesture; there is no velocity yet
+            latVelocity = 0;
+            lonVelocity = 0;
+        } else {
+            // Smooth the velocity, as camera callbacks arrive at uneven intervals
+            latVelocity = (latVelocity + (centerLat(visible) - centerLat(previous)) / elapsed) / 2;
+            lonVelocity = (lonVelocity + (centerLon(visible) - centerLon(previous)) / elapsed) / 2;
+        }
+        predictedLanding = predictLanding(visible);
+
+        return update(predictedLanding != null ? visible.union(predictedLanding) : visible);
+    }
+
+    /**
+     * Returns the region whose markers are drawn.
+     *
+     * @return The region, or `null` before the first camera position.
+     */
+    public GeoBounds getRegion() {
+        return region;
+    }
+
+    /**
+     * Returns where the current fling is expected to end.
+     *
+     * @return The visible area at the predicted end, or `null` if the camera is not flung.
+     */
+    public GeoBounds getPredictedLanding() {
+        return predictedLanding;
+    }
+
+    /**
+     * Returns how many times the region changed.
+     *
+     * @return The number of changes since the prefetcher was created.
+     */
+    public int getRegionChanges() {
+        return regionChanges;
+    }
+
+    /**
+     * Keeps the region if it still covers the needed area without being far too large, re-centers it otherwise.
+     *
+     * @param needed The area that must be drawn.
+     * @return `true` if the region changed.
+     */
+    private boolean update(GeoBounds needed) {
+        if (region != null && region.contains(needed) && !zoomedIn(needed)) return false;
+
+        region = needed.expand(padding);
+        regionChanges++;
+        return true;
+    }
+
+    /**
+     * Tells whether the region is much larger than a padded area would be.
+     */
+    private boolean zoomedIn(GeoBounds needed) {
+        double limit = (1 + 2 * padding) * MAX_ZOOM_IN;
+        return height(region) > height(needed) * limit || width(region) > width(needed) * limit;
+    }
+
+    /**
+     * Predicts the visible area at the end of a fling, or `null` if the camera moves too slowly.
+     */
+    private GeoBounds predictLanding(GeoBounds visible) {
+        double heights = Math.abs(latVelocity) * 1000 / height(visible);
+        double widths = Math.abs(lonVelocity) * 1000 / width(visible);
+        if (Math.max(heights, widths) < MIN_FLING_SPEED) return null;
+
+        double lat = clamp(latVelocity * FLING_TIME_CONSTANT, height(visible) * MAX_FLING_DISTANCE);
+        double lon = clamp(lonVelocity * FLING_TIME_CONSTANT, width(visible) * MAX_FLING_DISTANCE);
+        return visible.offset(lat, lon);
+    }
+
+    private static double clamp(double value, double limit) {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+
+    private static double height(GeoBounds bounds) {
+        return bounds.getNorth() - bounds.getSouth();
+    }
+
+    private static double width(GeoBounds bounds) {
+        return bounds.getEast() - bounds.getWest();
+    }
+
+    private static double centerLat(GeoBounds bounds) {
+        return (bounds.getSouth() + bounds.getNorth()) / 2;
+    }
+
+    private static double centerLon(GeoBounds bounds) {
+        return (bounds.getWest() + bounds.getEast()) / 2;
+    }
+}
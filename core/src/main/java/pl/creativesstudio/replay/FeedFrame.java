@@ -0,0 +1,46 @@
+package pl.creativesstudio.replay;
+
+/**
+ * A single raw `busestrams_get` response body together with the time it arrived.
+ */
+public final class FeedFrame {
+
+    /**
+     * Arrival time of the response in milliseconds since the epoch.
+     */
+    private final long arrivalTime;
+
+    /**
+     * Raw, undecoded response body.
+     */
+    private final byte[] body;
+
+    /**
+     * Creates a new frame.
+     *
+     * @param arrivalTime Arrival time of the response in milliseconds since the epoch.
+     * @param body        Raw response body. Ownership of the array is transferred to the frame.
+     */
+    public FeedFrame(long arrivalTime, byte[] body) {
+        this.arrivalTime = arrivalTime;
+        this.body = body;
+    }
+
+    /**
+     * Returns the arrival time of the response.
+     *
+     * @return The arrival time in milliseconds since the epoch.
+     */
+    public long getArrivalTime() {
+        return arrivalTime;
+    }
+
+    /**
+     * Returns the raw response body.
+     *
+     * @return The body bytes. Must not be modified.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,233 @@
+package pl.creativesstudio.replay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressed recording of raw `busestrams_get` responses.
+ *
+ * ### File Format:
+ * - The whole file is a GZIP stream.
+ * - Header: the magic number `0x544D4252` ("TMBR") followed by the format version, both as big-endian `int`s.
+ * - Frames, until the end of the stream: arrival time (`long`), body length (`int`), body bytes.
+ *
+ * ### Usage:
+ * ```java
+ * try (FeedRecording.Writer writer = FeedRecording.create(file)) {
+ *     writer.append(System.currentTimeMillis(), body);
+ * }
+ * FeedRecording recording = FeedRecording.read(file);
+ * ```
+ */
+public final class FeedRecording {
+
+    /**
+     * Magic number identifying recording files.
+     */
+    private static final int MAGIC = 0x544D4252;
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Recorded frames in arrival order.
+     */
+    private final List<FeedFrame> frames;
+
+    /**
+     * Creates a recording from frames held in memory.
+     *
+     * @param frames Frames in arrival order.
+     */
+    public FeedRecording(List<FeedFrame> frames) {
+        this.frames = Collections.unmodifiableList(new ArrayList<>(frames));
+    }
+
+    /**
+     * Returns the recorded frames in arrival order.
+     *
+     * @return An unmodifiable list of frames.
+     */
+    public List<FeedFrame> getFrames() {
+        return frames;
+    }
+
+    /**
+     * Returns the number of recorded frames.
+     *
+     * @return The frame count.
+     */
+    public int size() {
+        return frames.size();
+    }
+
+    /**
+     * Returns a source replaying the frames of this recording in order.
+     *
+     * @param loop Whether to start again from the first frame once all frames were returned.
+     *             Looped frames keep their spacing and continue after the last arrival time.
+     * @return A new source positioned at the first frame.
+     */
+    public FeedSource source(boolean loop) {
+        return new FeedSource() {
+            private int index = 0;
+            private long offset = 0;
+
+            @Override
+            public synchronized FeedFrame next() {
+                if (frames.isEmpty()) return null;
+                if (index == frames.size()) {
+                    if (!loop) return null;
+                    // Shift the next pass so arrival times keep increasing
+                    long first = frames.get(0).getArrivalTime();
+                    long last = frames.get(frames.size() - 1).getArrivalTime();
+                    offset += last - first + averageSpacing();
+                    index = 0;
+                }
+                FeedFrame frame = frames.get(index++);
+                return offset == 0 ? frame : new FeedFrame(frame.getArrivalTime() + offset, frame.getBody());
+            }
+        };
+    }
+
+    /**
+     * Returns the average time between two consecutive frames.
+     *
+     * @return The average spacing in milliseconds, or `0` for fewer than two frames.
+     */
+    private long averageSpacing() {
+        if (frames.size() < 2) return 0;
+        long span = frames.get(frames.size() - 1).getArrivalTime() - frames.get(0).getArrivalTime();
+        return span / (frames.size() - 1);
+    }
+
+    /**
+     * Reads a recording file.
+     *
+     * @param file The file written by a `Writer`.
+     * @return The recording with all frames loaded into memory.
+     * @throws IOException If the file cannot be read or is not a recording.
+     *                     A truncated last frame, left by an interrupted capture, is ignored.
+     */
+    public static FeedRecording read(File file) throws IOException {
+        List<FeedFrame> frames = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a feed recording: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported recording version " + version);
+            }
+
+            while (true) {
+                long arrivalTime;
+                try {
+                    arrivalTime = in.readLong();
+                } catch (EOFException end) {
+                    break;
+                }
+                try {
+                    byte[] body = new byte[in.readInt()];
+                    in.readFully(body);
+                    frames.add(new FeedFrame(arrivalTime, body));
+                } catch (EOFException truncated) {
+                    break;
+                }
+            }
+        } catch (EOFException truncated) {
+            // Interrupted capture: keep the frames read so far
+        }
+        return new FeedRecording(frames);
+    }
+
+    /**
+     * Opens a new recording file for writing, replacing any existing file.
+     *
+     * @param file The file to write.
+     * @return A writer appending frames to the file.
+     * @throws IOException If the file cannot be created.
+     */
+    public static Writer create(File file) throws IOException {
+        return new Writer(file);
+    }
+
+    /**
+     * Appends frames to a recording file.
+     * Frames are flushed as they are appended, so a capture interrupted by the process being killed stays readable.
+     */
+    public static final class Writer implements Closeable {
+
+        /**
+         * Compressed output stream.
+         */
+        private final GZIPOutputStream gzip;
+
+        /**
+         * Data view of the compressed stream.
+         */
+        private final DataOutputStream out;
+
+        /**
+         * Number of frames written so far.
+         */
+        private int frameCount = 0;
+
+        private Writer(File file) throws IOException {
+            gzip = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file)), 8192, true);
+            out = new DataOutputStream(gzip);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        /**
+         * Appends a response body.
+         *
+         * @param arrivalTime Arrival time of the response in milliseconds since the epoch.
+         * @param body        Raw response body.
+         * @throws IOException If the frame cannot be written.
+         */
+        public synchronized void append(long arrivalTime, byte[] body) throws IOException {
+            out.writeLong(arrivalTime);
+            out.writeInt(body.length);
+            out.write(body);
+            out.flush();
+            frameCount++;
+        }
+
+        /**
+         * Returns the number of frames written so far.
+         *
+         * @return The frame count.
+         */
+        public synchronized int getFrameCount() {
+            return frameCount;
+        }
+
+        /**
+         * Finishes the GZIP stream and closes the file.
+         *
+         * @throws IOException If the stream cannot be closed.
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package pl.creativesstudio.replay;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal local HTTP server standing in for the Warsaw API.
+ *
+ * ### Behavior:
+ * - Listens on the loopback interface and answers every `GET` with the next frame of a `FeedSource`.
+ * - Requests are handled one at a time on a single thread, so the n-th request always receives the n-th frame.
+ * - Once the source is exhausted, requests receive `410 Gone`.
+ *
+ * ### Usage:
+ * ```java
+ * try (FeedServer server = FeedServer.start(recording.source(true), ReplayPacer.AS_FAST_AS_POSSIBLE, 0)) {
+ *     WarsawApiService api = ApiClient.create(server.getBaseUrl(), new OkHttpClient());
+ *     // ...
+ * }
+ * ```
+ *
+ * ### Notes:
+ * - Only the request line and headers are read; query parameters are ignored.
+ * - Intended for tests, benchmarks and emulators, not for production traffic.
+ */
+public final class FeedServer implements Closeable {
+
+    /**
+     * Listening socket.
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * Frames to serve.
+     */
+    private final FeedSource source;
+
+    /**
+     * Pacing applied between frames.
+     */
+    private final ReplayPacer pacer;
+
+    /**
+     * Thread accepting and answering connections.
+     */
+    private final Thread acceptThread;
+
+    /**
+     * Number of requests answered so far.
+     */
+    private volatile int requestCount = 0;
+
+    private FeedServer(ServerSocket serverSocket, FeedSource source, double speed) {
+        this.serverSocket = serverSocket;
+        this.source = source;
+        this.pacer = new ReplayPacer(speed);
+        this.acceptThread = new Thread(this::acceptLoop, "FeedServer");
+        this.acceptThread.setDaemon(true);
+    }
+
+    /**
+     * Starts a server on the loopback interface.
+     *
+     * @param source The frames to serve.
+     * @param speed  Replay speed, see `ReplayPacer`.
+     * @param port   The port to listen on, or `0` to pick a free one.
+     * @return The running server.
+     * @throws IOException If the socket cannot be bound.
+     */
+    public static FeedServer start(FeedSource source, double speed, int port) throws IOException {
+        ServerSocket socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        FeedServer server = new FeedServer(socket, source, speed);
+        server.acceptThread.start();
+        return server;
+    }
+
+    /**
+     * Returns the base URL to configure the API client with.
+     *
+     * @return A URL such as `http://127.0.0.1:45678/`.
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/";
+    }
+
+    /**
+     * Returns the number of requests answered so far.
+     *
+     * @return The request count.
+     */
+    public int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Stops the server.
+     *
+     * @throws IOException If the socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        acceptThread.interrupt();
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     */
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                handle(socket);
+            } catch (SocketException closed) {
+                return;
+            } catch (IOException e) {
+                // Broken client connection: keep serving
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Answers a single request with the next frame.
+     *
+     * @param socket The client connection.
+     * @throws IOException          If the connection fails.
+     * @throws InterruptedException If the server is closed while pacing.
+     */
+    private void handle(Socket socket) throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+
+        // Skip the request line and headers
+        String line = reader.readLine();
+        while (line != null && !line.isEmpty()) {
+            line = reader.readLine();
+        }
+
+        FeedFrame frame = source.next();
+        if (frame != null) {
+            pacer.awaitFrame(frame);
+        }
+        requestCount++;
+
+        byte[] body = frame != null ? frame.getBody() : new byte[0];
+        String status = frame != null ? "200 OK" : "410 Gone";
+        String headers = "HTTP/1.1 " + status + "\r\n"
+                + "Content-Type: application/json; charset=utf-8\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+
+        OutputStream out = socket.getOutputStream();
+        out.write(headers.getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+        out.flush();
+    }
+}
@@ -0,0 +1,18 @@
+package pl.creativesstudio.replay;
+
+import java.io.IOException;
+
+/**
+ * Supplies `busestrams_get` response bodies in a fixed order,
+ * for example from a recording or a synthetic fleet.
+ */
+public interface FeedSource {
+
+    /**
+     * Returns the next response body.
+     *
+     * @return The next frame, or `null` when the source is exhausted.
+     * @throws IOException If the frame cannot be produced.
+     */
+    FeedFrame next() throws IOException;
+}
@@ -0,0 +1,313 @@
+package pl.creativesstudio.replay;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import pl.creativesstudio.api.FeedDecoder;
+import pl.creativesstudio.models.Bus;
+import pl.creativesstudio.repository.PollingPolicy;
+import pl.creativesstudio.repository.PollingPolicy.Outcome;
+import pl.creativesstudio.time.VirtualScheduler;
+
+/**
+ * Replays the update cycle of a recorded feed against a `PollingPolicy` in virtual time, so policies can be
+ * compared offline: hours of polling are simulated in milliseconds.
+ *
+ * ### Model:
+ * - The feed is a sequence of versions: a recorded frame starts a new version when it carries a report
+ *   newer than all earlier frames, and the version is available from the frame's arrival time on.
+ * - A poll sent at time `t` returns the version available at `t`, after a constant latency.
+ * - Polls are timed like in `BusRepository`: when a poll is sent, the next one is scheduled from the outcome
+ *   of the latest completed poll, so a slow response never stalls the schedule.
+ * - The simulation starts with the first version on screen and ends at the arrival of the last frame.
+ *
+ * ### Measures:
+ * - Requests and downloaded bytes.
+ * - Wasted fetches, which brought nothing newer than what was already shown.
+ * - Staleness: while a newer version is available but not shown, the time since it became available;
+ *   reported as the time average and the maximum.
+ * - Missed versions, which were superseded before any poll fetched them.
+ *
+ * ### Usage:
+ * ```java
+ * PollingSimulator simulator = PollingSimulator.of(FeedRecording.read(file), new FeedDecoder());
+ * for (PollingPolicy policy : policies) {
+ *     System.out.println(simulator.run(policy, 300));
+ * }
+ * ```
+ */
+public final class PollingSimulator {
+
+    /**
+     * Outcome of simulating one policy.
+     */
+    public static final class Result {
+        private final String policy;
+        private final int requests;
+        private final int wastedFetches;
+        private final long bytes;
+        private final int missedVersions;
+        private final double meanStalenessMillis;
+        private final long maxStalenessMillis;
+
+        Result(String policy, int requests, int wastedFetches, long bytes, int missedVersions,
+               double meanStalenessMillis, long maxStalenessMillis) {
+            this.policy = policy;
+            this.requests = requests;
+            this.wastedFetches = wastedFetches;
+            this.bytes = bytes;
+            this.missedVersions = missedVersions;
+            this.meanStalenessMillis = meanStalenessMillis;
+            this.maxStalenessMillis = maxStalenessMillis;
+        }
+
+        /**
+         * @return Description of the simulated policy.
+         */
+        public String getPolicy() {
+            return policy;
+        }
+
+        /**
+         * @return Number of polls sent.
+         */
+        public int getRequests() {
+            return requests;
+        }
+
+        /**
+         * @return Number of polls that brought nothing newer than what was shown.
+         */
+        public int getWastedFetches() {
+            return wastedFetches;
+        }
+
+        /**
+         * @return Total size of the downloaded bodies in bytes.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return Number of feed versions that were never shown.
+         */
+        public int getMissedVersions() {
+            return missedVersions;
+        }
+
+        /**
+         * @return Time-averaged staleness of the shown data in milliseconds.
+         */
+        public double getMeanStalenessMillis() {
+            return meanStalenessMillis;
+        }
+
+        /**
+         * @return Longest staleness of the shown data in milliseconds.
+         */
+        public long getMaxStalenessMillis() {
+            return maxStalenessMillis;
+        }
+
+        /**
+         * Formats the result as a table row, e.g.
+         * "fixed(5.0 s): 1440 requests, 720 wasted, 2.1 MB, 0 missed, staleness mean 2.5 s max 5.0 s".
+         */
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %d requests, %d wasted, %.1f MB, %d missed, staleness mean %.1f s max %.1f s",
+                    policy, requests, wastedFetches, bytes / 1e6, missedVersions,
+                    meanStalenessMillis / 1000, maxStalenessMillis / 1000.0);
+        }
+    }
+
+    /**
+     * Time from which each version is available, ascending.
+     */
+    private final long[] availableAt;
+
+    /**
+     * Body size of each version in bytes.
+     */
+    private final int[] sizes;
+
+    /**
+     * End of the simulated period.
+     */
+    private final long end;
+
+    /**
+     * Creates a simulator of a feed given as versions.
+     *
+     * @param availableAt Time from which each version is available, ascending; at least one version.
+     * @param sizes       Body size of each version in bytes.
+     * @param end         End of the simulated period, not before the last version.
+     */
+    public PollingSimulator(long[] availableAt, int[] sizes, long end) {
+        if (availableAt.length == 0 || availableAt.length != sizes.length) {
+            throw new IllegalArgumentException("Expected at least one version with a size");
+        }
+        this.availableAt = availableAt.clone();
+        this.sizes = sizes.clone();
+        this.end = Math.max(end, availableAt[availableAt.length - 1]);
+    }
+
+    /**
+     * Creates a simulator of a recorded feed, decoding every frame to find the feed's versions.
+     *
+     * @param recording The recorded feed.
+     * @param decoder   Decoder of the frames.
+     * @return The simulator.
+     * @throws IOException If a frame cannot be decoded.
+     */
+    public static PollingSimulator of(FeedRecording recording, FeedDecoder decoder) throws IOException {
+        List<FeedFrame> frames = recording.getFrames();
+        if (frames.isEmpty()) throw new IllegalArgumentException("Empty recording");
+
+        long[] times = new long[frames.size()];
+        int[] sizes = new int[frames.size()];
+        int versions = 0;
+        long newestReport = Long.MIN_VALUE;
+        for (FeedFrame frame : frames) {
+            long latest = 0;
+            List<Bus> buses = decoder.decode(frame.getBody()).getResult();
+            if (buses != null) {
+                for (Bus bus : buses) {
+                    latest = Math.max(latest, bus.getTimeMillis());
+                }
+            }
+            // A frame repeating known reports is the same version served again
+            if (latest > newestReport) {
+                newestReport = latest;
+                times[versions] = frame.getArrivalTime();
+                sizes[versions] = frame.getBody().length;
+                versions++;
+            }
+        }
+        return new PollingSimulator(Arrays.copyOf(times, versions), Arrays.copyOf(sizes, versions),
+                frames.get(frames.size() - 1).getArrivalTime());
+    }
+
+    /**
+     * Returns the number of versions of the feed.
+     *
+     * @return The version count.
+     */
+    public int getVersionCount() {
+        return availableAt.length;
+    }
+
+    /**
+     * Simulates a policy over the whole feed.
+     *
+     * @param policy        The policy.
+     * @param latencyMillis Time from sending a poll to applying its response, in milliseconds.
+     * @return The measures of the policy.
+     */
+    public Result run(PollingPolicy policy, long latencyMillis) {
+        return new Run(policy, latencyMillis).simulate();
+    }
+
+    /**
+     * State of one simulation.
+     */
+    private final class Run {
+        final PollingPolicy policy;
+        final long latency;
+        final VirtualScheduler scheduler = new VirtualScheduler(availableAt[0]);
+
+        /**
+         * The shown version and the time up to which staleness has been accounted.
+         */
+        int shown = 0;
+        long accountedUntil = availableAt[0];
+
+        /**
+         * Outcome of the latest completed poll and its streak, as tracked by `BusRepository`.
+         */
+        Outcome lastOutcome = Outcome.NEW_DATA;
+        int streak = 0;
+
+        int requests;
+        int wasted;
+        long bytes;
+        int missed;
+        double stalenessIntegral;
+        long maxStaleness;
+
+        Run(PollingPolicy policy, long latency) {
+            this.policy = policy;
+            this.latency = latency;
+        }
+
+        Result simulate() {
+            scheduler.schedule(this::poll, policy.nextDelay(lastOutcome, streak));
+            scheduler.advanceTo(end);
+            account(end);
+            long duration = Math.max(1, end - availableAt[0]);
+            return new Result(policy.toString(), requests, wasted, bytes, missed,
+                    stalenessIntegral / duration, maxStaleness);
+        }
+
+        /**
+         * Sends a poll and schedules the next one.
+         */
+        void poll() {
+            long now = scheduler.currentTimeMillis();
+            scheduler.schedule(this::poll, policy.nextDelay(lastOutcome, streak));
+            int version = versionAt(now);
+            requests++;
+            bytes += sizes[version];
+            scheduler.schedule(() -> receive(version), latency);
+        }
+
+        /**
+         * Applies a response carrying a version.
+         */
+        void receive(int version) {
+            account(scheduler.currentTimeMillis());
+            Outcome outcome;
+            if (version > shown) {
+                missed += version - shown - 1;
+                shown = version;
+                outcome = Outcome.NEW_DATA;
+            } else {
+                wasted++;
+                outcome = Outcome.UNCHANGED;
+            }
+            streak = outcome == lastOutcome ? streak + 1 : 1;
+            lastOutcome = outcome;
+        }
+
+        /**
+         * Adds the staleness between the last accounted time and a later time, during which the shown
+         * version did not change: it grows linearly from the availability of the next version on.
+         */
+        void account(long until) {
+            if (shown + 1 < availableAt.length) {
+                long next = availableAt[shown + 1];
+                long from = Math.max(accountedUntil, next);
+                if (until > from) {
+                    double a = from - next;
+                    double b = until - next;
+                    stalenessIntegral += (b * b - a * a) / 2;
+                    maxStaleness = Math.max(maxStaleness, until - next);
+                }
+            }
+            accountedUntil = until;
+        }
+
+        /**
+         * Returns the newest version available at a time.
+         */
+        int versionAt(long time) {
+            int index = Arrays.binarySearch(availableAt, time);
+            if (index < 0) index = -index - 2;
+            // Equal times cannot occur, versions are strictly newer; clamp for polls before the first
+            return Math.max(0, index);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package pl.creativesstudio.replay;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * OkHttp interceptor answering every request with the next frame of a `FeedSource`, without touching the network.
+ *
+ * ### Usage:
+ * ```java
+ * OkHttpClient client = new OkHttpClient.Builder()
+ *         .addInterceptor(new ReplayInterceptor(recording.source(false), ReplayPacer.TEN_TIMES))
+ *         .build();
+ * WarsawApiService api = ApiClient.create(ApiClient.DEFAULT_BASE_URL, client);
+ * ```
+ *
+ * ### Behavior:
+ * - The n-th request receives the n-th frame, so replays are deterministic at every speed.
+ * - Once the source is exhausted, requests receive `410 Gone` with an empty body.
+ */
+public class ReplayInterceptor implements Interceptor {
+
+    /**
+     * Content type of the API responses.
+     */
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    /**
+     * Frames to serve.
+     */
+    private final FeedSource source;
+
+    /**
+     * Pacing applied between frames.
+     */
+    private final ReplayPacer pacer;
+
+    /**
+     * Creates an interceptor replaying the given source.
+     *
+     * @param source The frames to serve.
+     * @param speed  Replay speed, see `ReplayPacer`.
+     */
+    public ReplayInterceptor(FeedSource source, double speed) {
+        this.source = source;
+        this.pacer = new ReplayPacer(speed);
+    }
+
+    /**
+     * Answers the request with the next frame.
+     *
+     * @param chain The interceptor chain; never proceeds to the network.
+     * @return A synthesized response.
+     * @throws IOException If the source fails or the wait is interrupted.
+     */
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response.Builder builder = new Response.Builder()
+                .request(chain.request())
+                .protocol(Protocol.HTTP_1_1);
+
+        FeedFrame frame;
+        synchronized (this) {
+            frame = source.next();
+            if (frame != null) {
+                try {
+                    pacer.awaitFrame(frame);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Replay interrupted");
+                }
+            }
+        }
+
+        if (frame == null) {
+            return builder.code(410)
+                    .message("Recording exhausted")
+                    .body(ResponseBody.create(JSON, new byte[0]))
+                    .build();
+        }
+        return builder.code(200)
+                .message("OK")
+                .body(ResponseBody.create(JSON, frame.getBody()))
+                .build();
+    }
+}
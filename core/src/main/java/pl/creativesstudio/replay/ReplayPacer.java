@@ -0,0 +1,79 @@
+package pl.creativesstudio.replay;
+
+/**
+ * Spaces replayed frames according to their recorded arrival times.
+ *
+ * ### Behavior:
+ * - The first frame is released immediately and anchors the replay timeline.
+ * - Every later frame is released once `(arrival - firstArrival) / speed` has elapsed since the first one.
+ * - With `AS_FAST_AS_POSSIBLE` no frame is ever delayed.
+ *
+ * ### Notes:
+ * - Pacing only affects when a frame is released, never which frame is released, so the
+ *   sequence of bodies seen by the app is the same at every speed.
+ */
+public final class ReplayPacer {
+
+    /**
+     * Replays frames with their original spacing.
+     */
+    public static final double REAL_TIME = 1.0;
+
+    /**
+     * Replays frames ten times faster than recorded.
+     */
+    public static final double TEN_TIMES = 10.0;
+
+    /**
+     * Replays frames without any delay.
+     */
+    public static final double AS_FAST_AS_POSSIBLE = 0.0;
+
+    /**
+     * Speed multiplier, or `0` for no pacing.
+     */
+    private final double speed;
+
+    /**
+     * Arrival time of the first released frame; `Long.MIN_VALUE` until then.
+     */
+    private long firstArrival = Long.MIN_VALUE;
+
+    /**
+     * Monotonic time at which the first frame was released, in nanoseconds.
+     */
+    private long replayStartNanos;
+
+    /**
+     * Creates a pacer.
+     *
+     * @param speed Speed multiplier relative to the recording, e.g. `REAL_TIME` or `TEN_TIMES`;
+     *              `AS_FAST_AS_POSSIBLE` (or any value `<= 0`) disables pacing.
+     */
+    public ReplayPacer(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * Blocks until the given frame is due.
+     *
+     * @param frame The frame about to be released.
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public synchronized void awaitFrame(FeedFrame frame) throws InterruptedException {
+        if (speed <= 0) return;
+
+        if (firstArrival == Long.MIN_VALUE) {
+            firstArrival = frame.getArrivalTime();
+            replayStartNanos = System.nanoTime();
+            return;
+        }
+
+        long dueNanos = replayStartNanos + (long) ((frame.getArrivalTime() - firstArrival) * 1_000_000L / speed);
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            // Sleeping while holding the lock releases frames strictly in sequence
+            Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+        }
+    }
+}
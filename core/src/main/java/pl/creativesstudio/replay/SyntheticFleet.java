@@ -0,0 +1,345 @@
+package pl.creativesstudio.replay;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import pl.creativesstudio.api.FeedTime;
+
+/**
+ * Generator of realistic `busestrams_get` payloads for an arbitrarily large fleet.
+ *
+ * ### Model:
+ * - Each line gets a route: a polyline of a few kilometres that wanders through the city with gentle turns.
+ * - Vehicles are spread over the lines and drive back and forth along their route at 4-14 m/s.
+ * - Every poll advances the clock by `pollIntervalMillis` and moves every vehicle.
+ * - Each report carries a `Time` lagging the poll by up to `reportJitterMillis`;
+ *   a small share of vehicles skips reporting and keeps its previous position and time.
+ *
+ * ### Determinism:
+ * - All randomness comes from a single seeded `Random`, so the same configuration always produces the same feed.
+ *
+ * ### Usage:
+ * ```java
+ * SyntheticFleet fleet = new SyntheticFleet(10_000, 400, 42L);
+ * try (FeedServer server = FeedServer.start(fleet, ReplayPacer.AS_FAST_AS_POSSIBLE, 0)) {
+ *     WarsawApiService api = ApiClient.create(server.getBaseUrl(), new OkHttpClient());
+ * }
+ * ```
+ */
+public final class SyntheticFleet implements FeedSource {
+
+    /**
+     * Centre of the generated city (Warsaw).
+     */
+    private static final double CENTER_LAT = 52.2297;
+    private static final double CENTER_LON = 21.0122;
+
+    /**
+     * Half-extent of the area in which routes are generated, in degrees.
+     */
+    private static final double AREA_LAT = 0.12;
+    private static final double AREA_LON = 0.20;
+
+    /**
+     * Number of metres per degree of latitude.
+     */
+    private static final double METERS_PER_DEG_LAT = 111_320.0;
+
+    /**
+     * Number of metres per degree of longitude at the centre of the city.
+     */
+    private static final double METERS_PER_DEG_LON = METERS_PER_DEG_LAT * Math.cos(Math.toRadians(CENTER_LAT));
+
+    /**
+     * Number of segments in a generated route.
+     */
+    private static final int ROUTE_SEGMENTS = 24;
+
+    /**
+     * Default time between polls in milliseconds.
+     */
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 10_000;
+
+    /**
+     * Default maximum lag of a report behind its poll in milliseconds.
+     */
+    public static final long DEFAULT_REPORT_JITTER_MILLIS = 20_000;
+
+    /**
+     * Default probability that a vehicle does not report during a poll.
+     */
+    public static final double DEFAULT_SKIP_PROBABILITY = 0.02;
+
+    /**
+     * Names of the generated lines.
+     */
+    private final String[] lineNames;
+
+    /**
+     * Route waypoints per line.
+     */
+    private final double[][] routeLats;
+    private final double[][] routeLons;
+
+    /**
+     * Cumulative distance along each route, in metres, one entry per waypoint.
+     */
+    private final double[][] routeDistances;
+
+    /**
+     * Per-vehicle state, stored as parallel arrays to keep 50k-vehicle fleets cheap.
+     */
+    private final String[] vehicleNumbers;
+    private final String[] brigades;
+    private final int[] vehicleLines;
+    private final double[] progress;
+    private final double[] speeds;
+    private final double[] reportedLats;
+    private final double[] reportedLons;
+    private final long[] reportedTimes;
+
+    /**
+     * Time between polls in milliseconds.
+     */
+    private final long pollIntervalMillis;
+
+    /**
+     * Maximum lag of a report behind its poll in milliseconds.
+     */
+    private final long reportJitterMillis;
+
+    /**
+     * Probability that a vehicle does not report during a poll.
+     */
+    private final double skipProbability;
+
+    /**
+     * Source of all randomness.
+     */
+    private final Random random;
+
+    /**
+     * Time of the next poll in milliseconds since the epoch.
+     */
+    private long clock;
+
+    /**
+     * Creates a fleet with default timing.
+     *
+     * @param vehicleCount Number of vehicles.
+     * @param lineCount    Number of lines; each line gets at least one vehicle when possible.
+     * @param seed         Seed of the random generator.
+     */
+    public SyntheticFleet(int vehicleCount, int lineCount, long seed) {
+        this(vehicleCount, lineCount, seed, DEFAULT_POLL_INTERVAL_MILLIS, DEFAULT_REPORT_JITTER_MILLIS,
+                DEFAULT_SKIP_PROBABILITY, 1_704_103_200_000L);
+    }
+
+    /**
+     * Creates a fleet.
+     *
+     * @param vehicleCount       Number of vehicles.
+     * @param lineCount          Number of lines.
+     * @param seed               Seed of the random generator.
+     * @param pollIntervalMillis Time between polls in milliseconds.
+     * @param reportJitterMillis Maximum lag of a report behind its poll in milliseconds.
+     * @param skipProbability    Probability that a vehicle does not report during a poll.
+     * @param startTime          Time of the first poll in milliseconds since the epoch.
+     */
+    public SyntheticFleet(int vehicleCount, int lineCount, long seed, long pollIntervalMillis,
+                          long reportJitterMillis, double skipProbability, long startTime) {
+        if (vehicleCount < 0 || lineCount < 1) {
+            throw new IllegalArgumentException("vehicleCount must be >= 0 and lineCount >= 1");
+        }
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.reportJitterMillis = reportJitterMillis;
+        this.skipProbability = skipProbability;
+        this.random = new Random(seed);
+        this.clock = startTime;
+
+        // Generate line names and routes
+        lineNames = new String[lineCount];
+        routeLats = new double[lineCount][];
+        routeLons = new double[lineCount][];
+        routeDistances = new double[lineCount][];
+        for (int line = 0; line < lineCount; line++) {
+            lineNames[line] = lineName(line);
+            generateRoute(line);
+        }
+
+        // Spread vehicles over the lines
+        vehicleNumbers = new String[vehicleCount];
+        brigades = new String[vehicleCount];
+        vehicleLines = new int[vehicleCount];
+        progress = new double[vehicleCount];
+        speeds = new double[vehicleCount];
+        reportedLats = new double[vehicleCount];
+        reportedLons = new double[vehicleCount];
+        reportedTimes = new long[vehicleCount];
+        for (int v = 0; v < vehicleCount; v++) {
+            int line = v % lineCount;
+            double length = routeLength(line);
+            vehicleNumbers[v] = Integer.toString(1000 + v);
+            brigades[v] = Integer.toString(v / lineCount + 1);
+            vehicleLines[v] = line;
+            progress[v] = random.nextDouble() * length;
+            speeds[v] = (4 + random.nextDouble() * 10) * (random.nextBoolean() ? 1 : -1);
+            report(v, startTime - reportJitterMillis);
+        }
+    }
+
+    /**
+     * Returns the number of vehicles in the fleet.
+     *
+     * @return The vehicle count.
+     */
+    public int getVehicleCount() {
+        return vehicleNumbers.length;
+    }
+
+    /**
+     * Advances the fleet by one poll and returns the resulting payload.
+     *
+     * @return A frame with a `busestrams_get` JSON body; never `null`, the fleet runs indefinitely.
+     */
+    @Override
+    public synchronized FeedFrame next() {
+        long now = clock;
+        clock += pollIntervalMillis;
+
+        for (int v = 0; v < vehicleNumbers.length; v++) {
+            move(v, pollIntervalMillis / 1000.0);
+            if (random.nextDouble() >= skipProbability) {
+                long lag = reportJitterMillis > 0 ? (long) (random.nextDouble() * reportJitterMillis) : 0;
+                report(v, now - lag);
+            }
+        }
+        return new FeedFrame(now, toJson());
+    }
+
+    /**
+     * Moves a vehicle along its route, turning around at either end.
+     *
+     * @param v       The vehicle index.
+     * @param seconds Elapsed time in seconds.
+     */
+    private void move(int v, double seconds) {
+        double length = routeLength(vehicleLines[v]);
+        double position = progress[v] + speeds[v] * seconds;
+        if (position < 0 || position > length) {
+            speeds[v] = -speeds[v];
+            position = Math.max(0, Math.min(length, position < 0 ? -position : 2 * length - position));
+        }
+        progress[v] = position;
+    }
+
+    /**
+     * Stores the current position of a vehicle as its last report.
+     *
+     * @param v    The vehicle index.
+     * @param time The report time in milliseconds since the epoch.
+     */
+    private void report(int v, long time) {
+        int line = vehicleLines[v];
+        double[] distances = routeDistances[line];
+
+        // Find the segment containing the vehicle and interpolate within it
+        int segment = 1;
+        while (segment < distances.length - 1 && distances[segment] < progress[v]) {
+            segment++;
+        }
+        double segmentLength = distances[segment] - distances[segment - 1];
+        double t = segmentLength > 0 ? (progress[v] - distances[segment - 1]) / segmentLength : 0;
+        t = Math.max(0, Math.min(1, t));
+
+        reportedLats[v] = routeLats[line][segment - 1] + t * (routeLats[line][segment] - routeLats[line][segment - 1]);
+        reportedLons[v] = routeLons[line][segment - 1] + t * (routeLons[line][segment] - routeLons[line][segment - 1]);
+        reportedTimes[v] = time;
+    }
+
+    /**
+     * Generates a route for a line: a random walk with gentle turns that stays inside the city area.
+     *
+     * @param line The line index.
+     */
+    private void generateRoute(int line) {
+        double[] lats = new double[ROUTE_SEGMENTS + 1];
+        double[] lons = new double[ROUTE_SEGMENTS + 1];
+        double[] distances = new double[ROUTE_SEGMENTS + 1];
+
+        lats[0] = CENTER_LAT + (random.nextDouble() * 2 - 1) * AREA_LAT;
+        lons[0] = CENTER_LON + (random.nextDouble() * 2 - 1) * AREA_LON;
+        double heading = random.nextDouble() * 2 * Math.PI;
+
+        for (int i = 1; i <= ROUTE_SEGMENTS; i++) {
+            heading += Math.toRadians(random.nextDouble() * 60 - 30);
+            double length = 300 + random.nextDouble() * 500;
+            double lat = lats[i - 1] + Math.cos(heading) * length / METERS_PER_DEG_LAT;
+            double lon = lons[i - 1] + Math.sin(heading) * length / METERS_PER_DEG_LON;
+
+            // Turn back towards the centre when leaving the city area
+            if (Math.abs(lat - CENTER_LAT) > AREA_LAT || Math.abs(lon - CENTER_LON) > AREA_LON) {
+                heading += Math.PI;
+                lat = lats[i - 1] + Math.cos(heading) * length / METERS_PER_DEG_LAT;
+                lon = lons[i - 1] + Math.sin(heading) * length / METERS_PER_DEG_LON;
+            }
+
+            lats[i] = lat;
+            lons[i] = lon;
+            distances[i] = distances[i - 1] + length;
+        }
+
+        routeLats[line] = lats;
+        routeLons[line] = lons;
+        routeDistances[line] = distances;
+    }
+
+    /**
+     * Returns the total length of a route in metres.
+     *
+     * @param line The line index.
+     * @return The route length.
+     */
+    private double routeLength(int line) {
+        double[] distances = routeDistances[line];
+        return distances[distances.length - 1];
+    }
+
+    /**
+     * Creates a line name resembling Warsaw's numbering: day lines `100`-`999` first,
+     * then night lines `N01`-`N99`, then express lines `E-1` and up.
+     *
+     * @param index The line index.
+     * @return The line name.
+     */
+    private static String lineName(int index) {
+        if (index < 900) return Integer.toString(100 + index);
+        index -= 900;
+        if (index < 99) return String.format(Locale.US, "N%02d", index + 1);
+        return "E-" + (index - 98);
+    }
+
+    /**
+     * Serializes the last reports of all vehicles into the API's JSON format.
+     *
+     * @return The UTF-8 encoded payload.
+     */
+    private byte[] toJson() {
+        StringBuilder json = new StringBuilder(64 + vehicleNumbers.length * 150);
+        json.append("{\"result\":[");
+        for (int v = 0; v < vehicleNumbers.length; v++) {
+            if (v > 0) json.append(',');
+            json.append("{\"Lines\":\"").append(lineNames[vehicleLines[v]])
+                    .append("\",\"Lon\":").append(reportedLons[v])
+                    .append(",\"VehicleNumber\":\"").append(vehicleNumbers[v])
+                    .append("\",\"Time\":\"");
+            FeedTime.append(json, reportedTimes[v])
+                    .append("\",\"Lat\":").append(reportedLats[v])
+                    .append(",\"Brigade\":\"").append(brigades[v])
+                    .append("\"}");
+        }
+        json.append("]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
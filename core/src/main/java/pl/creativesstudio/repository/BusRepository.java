@@ -0,0 +1,985 @@
+package pl.creativesstudio.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import okhttp3.ResponseBody;
+import pl.creativesstudio.api.FeedDecoder;
+import pl.creativesstudio.api.WarsawApiService;
+import pl.creativesstudio.data.FetchPlan;
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.data.SnapshotIngest;
+import pl.creativesstudio.data.SnapshotDelta;
+import pl.creativesstudio.data.SnapshotHistory;
+import pl.creativesstudio.data.SnapshotStore;
+import pl.creativesstudio.index.LineCatalog;
+import pl.creativesstudio.index.LineDictionary;
+import pl.creativesstudio.index.LineSelection;
+import pl.creativesstudio.index.NearbyVehicle;
+import pl.creativesstudio.index.SearchIndex;
+import pl.creativesstudio.index.SpatialGrid;
+import pl.creativesstudio.index.ViewportIndex;
+import pl.creativesstudio.metrics.Counter;
+import pl.creativesstudio.metrics.Gauge;
+import pl.creativesstudio.metrics.LatencyHistogram;
+import pl.creativesstudio.metrics.MetricsRegistry;
+import pl.creativesstudio.models.Bus;
+import pl.creativesstudio.time.ExecutorScheduler;
+import pl.creativesstudio.time.Scheduler;
+import pl.creativesstudio.trace.Tracing;
+import pl.creativesstudio.repository.PollingPolicy.Outcome;
+import pl.creativesstudio.repository.ProcessingTimings.Pass;
+import retrofit2.Response;
+
+/**
+ * Owner of the live vehicle data, independent of any activity lifecycle.
+ *
+ * ### Responsibilities:
+ * - Runs every poll through a staged pipeline, see below.
+ * - Passes every response through `SnapshotIngest`, so only validated, de-duplicated vehicles are indexed.
+ * - Schedules periodic polls while a screen asks for them, timed by a `PollingPolicy` from the outcome
+ *   of the latest poll, on a `Scheduler` that tests replace with virtual time.
+ * - Keeps the latest `LineCatalog`, the playback history, and the viewport, nearest-vehicle and search indexes.
+ * - Builds the derived structures of every snapshot in parallel passes on a small worker pool and
+ *   publishes the catalog, the viewport index and the pass timings together, see `apply`.
+ * - Persists every applied snapshot to a `SnapshotStore`, and restores it on a cold start so the map
+ *   can show the last known positions, flagged as stale, while the first poll is still running.
+ *
+ * ### Pipeline:
+ * - `fetch` (IO pool): downloads the raw response; up to two requests are in flight, so a user request
+ *   does not wait for a slow periodic one.
+ * - `decode` (compute pool): decodes the body with `FeedDecoder`, splitting large bodies across the same pool.
+ * - `index` (fetch thread): validates the response and runs the post-processing passes, see `apply`.
+ * - `render` (fetch thread): hands the new catalog to the `Listener`.
+ * - `persist` (disk thread): writes the snapshot to the `SnapshotStore`.
+ * - Stages are joined by bounded, latest-wins handoffs (`PipelineStage`): when a stage falls behind,
+ *   outdated items are dropped instead of queued, so a slow renderer never makes fetches pile up.
+ * - Polls requested with `refresh` are urgent and are never dropped in favor of periodic polls.
+ * - Responses that complete out of order are discarded at the index stage, so the map never goes back in time.
+ * - Queue depth and latency of every stage are reported by `getStageStats`.
+ * - Every poll is an async trace section from its request to its indexing (see `Tracing`), and every stage
+ *   a trace section on the thread that runs it.
+ * - Durations of the HTTP round trip, decoding, ingest, indexing and diffing are recorded into the
+ *   histograms of `getMetrics()` while that registry is enabled.
+ *
+ * ### Lifecycle:
+ * - Created once per process by `BusViewModel` and kept across configuration changes, so a recreated
+ *   activity can render `getCatalog()` immediately and re-attach its `Listener`.
+ * - The API client can be built lazily by the first poll, so a cold start builds the HTTP client and
+ *   the converters on the IO pool while the main thread inflates the map.
+ * - `close` stops polling and all pipeline threads.
+ *
+ * ### Threading:
+ * - Listener callbacks run on the fetch thread, the single thread running the `index` and `render` stages.
+ * - The catalog, viewport index, history and search index may be read from any thread.
+ * - The nearest-vehicle index is only queried on the fetch thread, see `execute` and `nearest`; it is
+ *   updated by a worker while the fetch thread waits for the passes, so accesses never overlap.
+ */
+public class BusRepository implements Closeable {
+
+    /**
+     * Minimum interval between non-forced polls in milliseconds.
+     */
+    public static final long MIN_FETCH_INTERVAL = 5000;
+
+    /**
+     * Age in milliseconds from which the current snapshot is reported as stale.
+     */
+    public static final long STALE_AFTER = 30_000;
+
+    /**
+     * Maximum time in milliseconds `close` waits for a snapshot write to complete.
+     */
+    public static final long CLOSE_TIMEOUT = 1000;
+
+    /**
+     * Name of the async trace section spanning a poll from its request to its indexing, across threads.
+     */
+    static final String POLL_SECTION = "poll";
+
+    /**
+     * Number of worker threads running the post-processing passes, leaving a core for the main thread.
+     */
+    static final int WORKERS = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+
+    /**
+     * Reasons for a poll that produced no new data.
+     */
+    public enum Failure {
+        /**
+         * The API answered with an empty result, or no vehicle of a full response passed ingest.
+         */
+        NO_DATA,
+
+        /**
+         * The API answered with an error status or a body that could not be decoded.
+         */
+        API_ERROR,
+
+        /**
+         * The request failed, e.g. because the device is offline.
+         */
+        CONNECTION_ERROR
+    }
+
+    /**
+     * Receives the outcome of every poll. Callbacks run on the fetch thread.
+     */
+    public interface Listener {
+        /**
+         * Called after a poll has been applied and all indexes have been updated.
+         *
+         * @param catalog The catalog of the new snapshot.
+         */
+        void onSnapshot(LineCatalog catalog);
+
+        /**
+         * Called when a poll produced no new data; the previous catalog stays current.
+         *
+         * @param failure The reason.
+         */
+        void onFetchFailed(Failure failure);
+    }
+
+    /**
+     * Builds the API client on first use.
+     */
+    private final Supplier<WarsawApiService> apiFactory;
+
+    /**
+     * API client used for polls, `null` until the first poll built it.
+     */
+    private volatile WarsawApiService api;
+
+    /**
+     * Resource ID of the `busestrams_get` endpoint.
+     */
+    private final String resourceId;
+
+    /**
+     * API key sent with every request.
+     */
+    private final String apiKey;
+
+    /**
+     * Store of the last applied snapshot, `null` if snapshots are not persisted.
+     */
+    private final SnapshotStore store;
+
+    /**
+     * Decoder of the raw response bodies.
+     */
+    private final FeedDecoder decoder;
+
+    /**
+     * The fetch thread, running the index and render stages, scheduled polls and `execute` tasks one at a time.
+     */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * IO pool running network requests.
+     */
+    private final ExecutorService io = Executors.newFixedThreadPool(2);
+
+    /**
+     * IO thread writing snapshots to disk, kept apart so closing can wait for a write without waiting for the network.
+     */
+    private final ExecutorService disk = Executors.newSingleThreadExecutor();
+
+    /**
+     * Bounded compute pool running the decode stage and the post-processing passes of the fetch thread.
+     */
+    private final ForkJoinPool workers = new ForkJoinPool(WORKERS);
+
+    /**
+     * Downloads raw responses.
+     */
+    private final PipelineStage<FetchRequest> fetchStage = new PipelineStage<>("fetch", io, 2, this::fetch);
+
+    /**
+     * Decodes raw responses.
+     */
+    private final PipelineStage<Fetched> decodeStage = new PipelineStage<>("decode", workers, 1, this::decode,
+            fetched -> endPollSection(fetched.sequence));
+
+    /**
+     * Validates decoded responses and rebuilds the derived structures.
+     */
+    private final PipelineStage<Decoded> indexStage = new PipelineStage<>("index", executor, 1, this::index,
+            decoded -> endPollSection(decoded.fetched.sequence));
+
+    /**
+     * Announces new catalogs to the listener.
+     */
+    private final PipelineStage<LineCatalog> renderStage = new PipelineStage<>("render", executor, 1, this::render);
+
+    /**
+     * Writes applied snapshots to the store.
+     */
+    private final PipelineStage<Snapshot> persistStage = new PipelineStage<>("persist", disk, 1, this::persist);
+
+    /**
+     * Sequence number of the last started request.
+     */
+    private final AtomicLong requestSequence = new AtomicLong();
+
+    /**
+     * Sequence number of the last indexed response; accessed only on the fetch thread.
+     */
+    private long indexedSequence;
+
+    /**
+     * Dictionary assigning stable ids to line names, shared by all catalogs and line selections.
+     */
+    private final LineDictionary lineDictionary = new LineDictionary();
+
+    /**
+     * Ingest stage cleaning every response before it reaches the indexes.
+     */
+    private final SnapshotIngest ingest = new SnapshotIngest();
+
+    /**
+     * Rolling history of the last hour of polls.
+     */
+    private final SnapshotHistory history = new SnapshotHistory();
+
+    /**
+     * Spatial index of the latest snapshot; accessed only on the fetch thread.
+     */
+    private final SpatialGrid nearbyIndex = new SpatialGrid();
+
+    /**
+     * Prefix index over line names and vehicle numbers of the latest snapshot.
+     */
+    private final SearchIndex searchIndex = new SearchIndex();
+
+    /**
+     * Metrics of the pipeline and of the attached screen; disabled until someone looks at them.
+     */
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    /**
+     * Pipeline metrics, looked up once.
+     */
+    private final LatencyHistogram httpLatency = metrics.histogram(MetricsRegistry.HTTP_ROUND_TRIP);
+    private final LatencyHistogram decodeLatency = metrics.histogram(MetricsRegistry.DECODE);
+    private final LatencyHistogram ingestLatency = metrics.histogram(MetricsRegistry.INGEST);
+    private final LatencyHistogram indexLatency = metrics.histogram(MetricsRegistry.INDEX);
+    private final LatencyHistogram diffLatency = metrics.histogram(MetricsRegistry.DIFF);
+    private final Gauge vehicleCount = metrics.gauge(MetricsRegistry.VEHICLES);
+    private final Counter failureCount = metrics.counter(MetricsRegistry.FAILURES);
+
+    /**
+     * Structures derived from the latest snapshot; replaced as a whole on the fetch thread after all passes completed.
+     */
+    private volatile Derived derived = new Derived(LineCatalog.EMPTY, ViewportIndex.EMPTY, ProcessingTimings.NONE);
+
+    /**
+     * Time of the last successful poll in milliseconds since the epoch, `0` before the first one.
+     */
+    private volatile long lastFetchTime = 0;
+
+    /**
+     * Listener of the attached screen, `null` while none is attached.
+     */
+    private volatile Listener listener;
+
+    /**
+     * Clock and scheduler of the periodic polls and of the poll throttling; the fetch thread unless injected.
+     */
+    private final Scheduler scheduler;
+
+    /**
+     * Request issued by the periodic polls, `null` while polling is stopped. Guarded by `this`.
+     */
+    private FetchRequest pollRequest;
+
+    /**
+     * Policy timing the periodic polls. Guarded by `this`.
+     */
+    private PollingPolicy pollPolicy;
+
+    /**
+     * The next scheduled periodic poll, `null` while polling is stopped. Guarded by `this`.
+     */
+    private Scheduler.Task pollTask;
+
+    /**
+     * Outcome of the latest completed poll and the number of consecutive polls with that outcome. Guarded by `this`.
+     */
+    private Outcome lastOutcome = Outcome.NEW_DATA;
+    private int outcomeStreak = 0;
+
+    /**
+     * Line requested by the periodic polls, `null` for the whole fleet. Guarded by `this`.
+     */
+    private String pollLine;
+
+    /**
+     * A poll waiting for the `fetch` stage.
+     */
+    private static final class FetchRequest {
+        final FetchPlan plan;
+        final boolean urgent;
+
+        FetchRequest(FetchPlan plan, boolean urgent) {
+            this.plan = plan;
+            this.urgent = urgent;
+        }
+    }
+
+    /**
+     * A downloaded response waiting for the `decode` stage.
+     */
+    private static final class Fetched {
+        final FetchRequest request;
+        final long sequence;
+        final long fetchedAt;
+        final byte[] body;
+
+        Fetched(FetchRequest request, long sequence, long fetchedAt, byte[] body) {
+            this.request = request;
+            this.sequence = sequence;
+            this.fetchedAt = fetchedAt;
+            this.body = body;
+        }
+    }
+
+    /**
+     * A decoded response waiting for the `index` stage.
+     */
+    private static final class Decoded {
+        final Fetched fetched;
+        final List<Bus> result;
+
+        Decoded(Fetched fetched, List<Bus> result) {
+            this.fetched = fetched;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Immutable set of the structures derived from one snapshot, published together.
+     */
+    private static final class Derived {
+        final LineCatalog catalog;
+        final ViewportIndex viewport;
+        final ProcessingTimings timings;
+
+        Derived(LineCatalog catalog, ViewportIndex viewport, ProcessingTimings timings) {
+            this.catalog = catalog;
+            this.viewport = viewport;
+            this.timings = timings;
+        }
+    }
+
+    /**
+     * Creates a repository polling the given API, without persisting snapshots.
+     *
+     * @param api        The API client.
+     * @param resourceId Resource ID of the `busestrams_get` endpoint.
+     * @param apiKey     The API key.
+     */
+    public BusRepository(WarsawApiService api, String resourceId, String apiKey) {
+        this(api, resourceId, apiKey, null);
+    }
+
+    /**
+     * Creates a repository polling the given API and persisting its snapshots.
+     *
+     * @param api        The API client.
+     * @param resourceId Resource ID of the `busestrams_get` endpoint.
+     * @param apiKey     The API key.
+     * @param store      Store of the last applied snapshot, or `null` to keep snapshots in memory only.
+     */
+    public BusRepository(WarsawApiService api, String resourceId, String apiKey, SnapshotStore store) {
+        this(api, resourceId, apiKey, store, null);
+    }
+
+    /**
+     * Creates a repository polling the given API, persisting its snapshots and decoding responses with a given decoder.
+     *
+     * @param api        The API client.
+     * @param resourceId Resource ID of the `busestrams_get` endpoint.
+     * @param apiKey     The API key.
+     * @param store      Store of the last applied snapshot, or `null` to keep snapshots in memory only.
+     * @param decoder    Decoder of the raw response bodies, or `null` to split large bodies across `workers`.
+     */
+    public BusRepository(WarsawApiService api, String resourceId, String apiKey, SnapshotStore store,
+                         FeedDecoder decoder) {
+        this(api, resourceId, apiKey, store, decoder, null);
+    }
+
+    /**
+     * Creates a repository timing its polls on a given scheduler, e.g. a `VirtualScheduler` in tests.
+     *
+     * @param api        The API client.
+     * @param resourceId Resource ID of the `busestrams_get` endpoint.
+     * @param apiKey     The API key.
+     * @param store      Store of the last applied snapshot, or `null` to keep snapshots in memory only.
+     * @param decoder    Decoder of the raw response bodies, or `null` to split large bodies across `workers`.
+     * @param scheduler  Clock and scheduler of the periodic polls, or `null` for the fetch thread and the system clock.
+     */
+    public BusRepository(WarsawApiService api, String resourceId, String apiKey, SnapshotStore store,
+                         FeedDecoder decoder, Scheduler scheduler) {
+        this(() -> api, resourceId, apiKey, store, decoder, scheduler);
+    }
+
+    /**
+     * Creates a repository building its API client on first use, on the IO thread of the first poll.
+     * Building the HTTP client, Retrofit and its converters then stays off the thread creating the repository,
+     * e.g. the main thread during a cold start.
+     *
+     * @param apiFactory Builds the API client; called once.
+     * @param resourceId Resource ID of the `busestrams_get` endpoint.
+     * @param apiKey     The API key.
+     * @param store      Store of the last applied snapshot, or `null` to keep snapshots in memory only.
+     * @param decoder    Decoder of the raw response bodies, or `null` to split large bodies across `workers`.
+     * @param scheduler  Clock and scheduler of the periodic polls, or `null` for the fetch thread and the system clock.
+     */
+    public BusRepository(Supplier<WarsawApiService> apiFactory, String resourceId, String apiKey, SnapshotStore store,
+                         FeedDecoder decoder, Scheduler scheduler) {
+        this.apiFactory = apiFactory;
+        this.resourceId = resourceId;
+        this.apiKey = apiKey;
+        this.store = store;
+        // Decode on the bounded compute pool, never on the common pool shared with the rest of the process
+        this.decoder = decoder != null ? decoder : new FeedDecoder(workers, FeedDecoder.DEFAULT_PARALLEL_THRESHOLD);
+        this.scheduler = scheduler != null ? scheduler : new ExecutorScheduler(executor);
+    }
+
+    /**
+     * Attaches or detaches the listener receiving poll outcomes.
+     *
+     * @param listener The listener, or `null` to detach.
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Loads the persisted snapshot on the fetch thread, ahead of any poll requested afterwards.
+     * Does nothing if there is no store, nothing was stored, or a poll has already been applied.
+     * The restored snapshot is announced through `Listener.onSnapshot`; its age tells it apart from a fresh poll.
+     */
+    public void restore() {
+        if (store == null) return;
+        executor.execute(() -> {
+            if (derived.catalog.getSnapshot().size() > 0) return;
+
+            Snapshot snapshot;
+            try {
+                snapshot = store.read();
+            } catch (IOException e) {
+                // Unreadable, e.g. written by an older version; the next poll replaces it
+                store.clear();
+                return;
+            }
+            if (snapshot == null || snapshot.size() == 0) return;
+
+            apply(snapshot, System.nanoTime(), 0);
+            // Announced directly, so it precedes the outcome of any poll requested afterwards
+            render(derived.catalog);
+        });
+    }
+
+    /**
+     * Requests a single, urgent poll on behalf of the user.
+     *
+     * @param plan   What to request.
+     * @param forced `true` to poll even if the last poll is less than `MIN_FETCH_INTERVAL` old.
+     */
+    public void refresh(FetchPlan plan, boolean forced) {
+        if (!forced && scheduler.currentTimeMillis() - lastFetchTime < MIN_FETCH_INTERVAL) {
+            return;
+        }
+        fetchStage.offer(new FetchRequest(plan, true), true);
+    }
+
+    /**
+     * Starts polling at a constant interval, replacing any previous schedule.
+     *
+     * @param plan           What to request on every poll.
+     * @param intervalMillis Time between polls in milliseconds.
+     * @see #startPolling(FetchPlan, PollingPolicy)
+     */
+    public void startPolling(FetchPlan plan, long intervalMillis) {
+        startPolling(plan, PollingPolicy.fixed(intervalMillis));
+    }
+
+    /**
+     * Starts polling periodically, replacing any previous schedule.
+     * The first poll happens one delay after the last successful poll, or immediately if that is already past.
+     * If the plan requests other lines than before, e.g. because the user pinned a line, an urgent poll starts at once.
+     * Every later poll is timed by the policy from the outcome of the latest completed poll.
+     *
+     * @param plan   What to request on every poll.
+     * @param policy Policy timing the polls.
+     */
+    public synchronized void startPolling(FetchPlan plan, PollingPolicy policy) {
+        boolean planChanged = pollRequest != null && !Objects.equals(pollLine, plan.getLine());
+        stopPolling();
+        pollLine = plan.getLine();
+        if (planChanged) {
+            fetchStage.offer(new FetchRequest(plan, true), true);
+        }
+
+        long interval = policy.nextDelay(lastOutcome, outcomeStreak);
+        long delay = Math.max(0, lastFetchTime + interval - scheduler.currentTimeMillis());
+        pollRequest = new FetchRequest(plan, false);
+        pollPolicy = policy;
+        FetchRequest periodic = pollRequest;
+        pollTask = scheduler.schedule(() -> poll(periodic), planChanged ? interval : delay);
+    }
+
+    /**
+     * Stops periodic polling. Polls already running complete normally.
+     */
+    public synchronized void stopPolling() {
+        if (pollTask != null) {
+            pollTask.cancel();
+            pollTask = null;
+        }
+        pollRequest = null;
+    }
+
+    /**
+     * Runs a periodic poll and schedules the next one.
+     *
+     * @param periodic The request of the schedule that planned this poll.
+     */
+    private void poll(FetchRequest periodic) {
+        synchronized (this) {
+            // Polling was stopped or restarted after this poll was planned
+            if (pollRequest != periodic) return;
+            pollTask = scheduler.schedule(() -> poll(periodic), pollPolicy.nextDelay(lastOutcome, outcomeStreak));
+        }
+        fetchStage.offer(periodic, false);
+    }
+
+    /**
+     * Records the outcome of a completed poll for the polling policy.
+     *
+     * @param outcome The outcome.
+     */
+    private synchronized void recordOutcome(Outcome outcome) {
+        outcomeStreak = outcome == lastOutcome ? outcomeStreak + 1 : 1;
+        lastOutcome = outcome;
+    }
+
+    /**
+     * Runs a task on the fetch thread, after any poll in progress.
+     *
+     * @param task The task to run.
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Finds the vehicles of the latest snapshot closest to a point. Must be called on the fetch thread.
+     *
+     * @param lat       Latitude of the query point.
+     * @param lon       Longitude of the query point.
+     * @param k         Maximum number of vehicles to return.
+     * @param selection Only return vehicles of the selected lines; an empty selection matches all lines.
+     * @return Up to `k` vehicles ordered from nearest to farthest.
+     */
+    public List<NearbyVehicle> nearest(double lat, double lon, int k, LineSelection selection) {
+        return nearbyIndex.nearestInSelection(lat, lon, k, selection);
+    }
+
+    /**
+     * Returns the statistics of the pipeline stages, in pipeline order.
+     *
+     * @return The statistics of the `fetch`, `decode`, `index`, `render` and `persist` stages.
+     */
+    public List<StageStats> getStageStats() {
+        return Arrays.asList(fetchStage.getStats(), decodeStage.getStats(), indexStage.getStats(),
+                renderStage.getStats(), persistStage.getStats());
+    }
+
+    /**
+     * Returns the metrics registry of the pipeline, which the screen may also record into.
+     * The registry is disabled until enabled by the caller.
+     *
+     * @return The metrics registry.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the catalog of the latest snapshot.
+     *
+     * @return The current catalog; `LineCatalog.EMPTY` before the first successful poll.
+     */
+    public LineCatalog getCatalog() {
+        return derived.catalog;
+    }
+
+    /**
+     * Returns the viewport index of the latest snapshot, which always matches `getCatalog()`.
+     *
+     * @return The current viewport index; `ViewportIndex.EMPTY` before the first successful poll.
+     */
+    public ViewportIndex getViewportIndex() {
+        return derived.viewport;
+    }
+
+    /**
+     * Returns how long the post-processing passes of the latest snapshot took.
+     *
+     * @return The timings; `ProcessingTimings.NONE` before the first successful poll.
+     */
+    public ProcessingTimings getTimings() {
+        return derived.timings;
+    }
+
+    /**
+     * Returns the dictionary used by all catalogs of this repository.
+     *
+     * @return The line dictionary.
+     */
+    public LineDictionary getLineDictionary() {
+        return lineDictionary;
+    }
+
+    /**
+     * Returns the ingest stage, e.g. to read its reject counters.
+     *
+     * @return The ingest stage.
+     */
+    public SnapshotIngest getIngest() {
+        return ingest;
+    }
+
+    /**
+     * Returns the history of recent polls.
+     *
+     * @return The snapshot history.
+     */
+    public SnapshotHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Returns the search index over the latest snapshot.
+     *
+     * @return The search index.
+     */
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * Returns how old the current snapshot is.
+     *
+     * @param now The current time in milliseconds since the epoch.
+     * @return The age in milliseconds, or `0` if there is no snapshot yet.
+     */
+    public long getSnapshotAge(long now) {
+        Snapshot snapshot = derived.catalog.getSnapshot();
+        return snapshot.size() == 0 ? 0 : Math.max(0, now - snapshot.getCapturedAt());
+    }
+
+    /**
+     * Tells whether the current snapshot is at least `STALE_AFTER` old, e.g. because it was restored
+     * from the store on a cold start or the last polls failed.
+     *
+     * @param now The current time in milliseconds since the epoch.
+     * @return `true` if the displayed data should be flagged as stale.
+     */
+    public boolean isStale(long now) {
+        return getSnapshotAge(now) >= STALE_AFTER;
+    }
+
+    /**
+     * Returns the time of the last successful poll.
+     *
+     * @return The time in milliseconds since the epoch, or `0` before the first successful poll.
+     */
+    public long getLastFetchTime() {
+        return lastFetchTime;
+    }
+
+    /**
+     * Stops polling and shuts all pipeline threads down.
+     * Requests in flight are abandoned, but a snapshot write in progress is given up to `CLOSE_TIMEOUT`
+     * to complete, so the next launch restores the latest snapshot.
+     */
+    @Override
+    public void close() {
+        stopPolling();
+        listener = null;
+        executor.shutdown();
+        io.shutdownNow();
+        workers.shutdown();
+        disk.shutdown();
+        try {
+            disk.awaitTermination(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the API client, building it on first use. Called on the IO pool.
+     *
+     * @return The API client.
+     */
+    private WarsawApiService api() {
+        WarsawApiService current = api;
+        if (current == null) {
+            // Both IO threads may start a poll at once; only one builds the client
+            synchronized (apiFactory) {
+                current = api;
+                if (current == null) {
+                    Tracing.beginSection("createApiClient");
+                    try {
+                        current = apiFactory.get();
+                    } finally {
+                        Tracing.endSection();
+                    }
+                    api = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * `fetch` stage: downloads one response and hands it to the `decode` stage. Runs on the IO pool.
+     *
+     * @param request The poll to execute.
+     */
+    private void fetch(FetchRequest request) {
+        long sequence = requestSequence.incrementAndGet();
+        Tracing.beginAsyncSection(POLL_SECTION, (int) sequence);
+        long fetchedAt = scheduler.currentTimeMillis();
+        long started = httpLatency.start();
+        try {
+            Response<ResponseBody> response = api().getBusesRaw(resourceId, apiKey, 1, request.plan.getLine(), null).execute();
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                if (body != null) body.close();
+                notifyFailure(Failure.API_ERROR);
+                endPollSection(sequence);
+                return;
+            }
+            byte[] bytes;
+            try {
+                bytes = body.bytes();
+            } finally {
+                body.close();
+            }
+            httpLatency.recordSince(started);
+            decodeStage.offer(new Fetched(request, sequence, fetchedAt, bytes), request.urgent);
+        } catch (IOException | RuntimeException e) {
+            notifyFailure(Failure.CONNECTION_ERROR);
+            endPollSection(sequence);
+        }
+    }
+
+    /**
+     * `decode` stage: decodes one response and hands it to the `index` stage. Runs on the compute pool.
+     *
+     * @param fetched The downloaded response.
+     */
+    private void decode(Fetched fetched) {
+        List<Bus> result;
+        long started = decodeLatency.start();
+        try {
+            result = decoder.decode(fetched.body).getResult();
+            decodeLatency.recordSince(started);
+        } catch (IOException | RuntimeException e) {
+            notifyFailure(Failure.API_ERROR);
+            endPollSection(fetched.sequence);
+            return;
+        }
+        indexStage.offer(new Decoded(fetched, result), fetched.request.urgent);
+    }
+
+    /**
+     * `index` stage: validates one response, applies it and hands the new catalog to the `render` stage.
+     * Runs on the fetch thread.
+     *
+     * @param decoded The decoded response.
+     */
+    private void index(Decoded decoded) {
+        Fetched fetched = decoded.fetched;
+        try {
+            indexResponse(decoded);
+        } finally {
+            endPollSection(fetched.sequence);
+        }
+    }
+
+    /**
+     * Body of the `index` stage, see `index`.
+     */
+    private void indexResponse(Decoded decoded) {
+        Fetched fetched = decoded.fetched;
+        // A response that overtook this one has already been applied
+        if (fetched.sequence < indexedSequence) return;
+        indexedSequence = fetched.sequence;
+
+        List<Bus> result = decoded.result;
+        FetchPlan plan = fetched.request.plan;
+        long started = System.nanoTime();
+        SnapshotIngest.Result ingested = result == null ? null
+                : ingest.ingest(derived.catalog.getSnapshot(), plan, result, fetched.fetchedAt);
+        long validated = System.nanoTime();
+
+        // An empty partial response only means that the requested line has no vehicles
+        if (ingested == null || (ingested.getAccepted() == 0 && !plan.isPartial())) {
+            notifyFailure(Failure.NO_DATA);
+            return;
+        }
+
+        Snapshot snapshot = ingested.getSnapshot();
+        recordOutcome(snapshot.getLatestReportTime() > derived.catalog.getSnapshot().getLatestReportTime()
+                ? Outcome.NEW_DATA : Outcome.UNCHANGED);
+        history.record(snapshot);
+        apply(snapshot, started, validated - started);
+        ProcessingTimings timings = derived.timings;
+        ingestLatency.record(timings.getNanos(Pass.VALIDATE));
+        indexLatency.record(timings.getTotalNanos() - timings.getNanos(Pass.VALIDATE));
+        diffLatency.record(timings.getNanos(Pass.DELTA));
+        vehicleCount.set(snapshot.size());
+        lastFetchTime = fetched.fetchedAt;
+        if (store != null) {
+            persistStage.offer(snapshot, false);
+        }
+        renderStage.offer(derived.catalog, fetched.request.urgent);
+    }
+
+    /**
+     * `render` stage: announces a catalog to the listener. Runs on the fetch thread.
+     *
+     * @param catalog The catalog to announce.
+     */
+    private void render(LineCatalog catalog) {
+        Listener current = listener;
+        if (current != null) {
+            current.onSnapshot(catalog);
+        }
+    }
+
+    /**
+     * Ends the async trace section of a poll that was indexed, failed or got dropped.
+     *
+     * @param sequence The sequence number of the poll.
+     */
+    private static void endPollSection(long sequence) {
+        Tracing.endAsyncSection(POLL_SECTION, (int) sequence);
+    }
+
+    /**
+     * Announces a failed poll to the listener on the fetch thread.
+     *
+     * @param failure The reason.
+     */
+    private void notifyFailure(Failure failure) {
+        failureCount.increment();
+        recordOutcome(Outcome.FAILED);
+        try {
+            executor.execute(() -> {
+                Listener current = listener;
+                if (current != null) {
+                    current.onFetchFailed(failure);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The repository was closed in the meantime
+        }
+    }
+
+    /**
+     * Moves the indexes to a new snapshot and publishes its derived structures. Runs on the fetch thread.
+     * Only vehicles and lines that changed since the previous snapshot are re-indexed.
+     *
+     * ### Passes:
+     * - Catalog, delta and viewport index only read the snapshots, so they run in parallel on `workers`.
+     * - The nearest-vehicle and search index updates need the delta, and the latter also the catalog;
+     *   they touch disjoint structures, so they run in parallel once the first phase completed.
+     * - Catalog, viewport index and timings are published with a single write, so readers never see
+     *   a catalog paired with the viewport index of another snapshot.
+     *
+     * @param snapshot      The new snapshot.
+     * @param started       `System.nanoTime()` at the start of processing, before validation.
+     * @param validateNanos Duration of the validation that produced the snapshot.
+     */
+    private void apply(Snapshot snapshot, long started, long validateNanos) {
+        LineCatalog previous = derived.catalog;
+        long[] nanos = new long[Pass.values().length];
+        nanos[Pass.VALIDATE.ordinal()] = validateNanos;
+
+        ForkJoinTask<LineCatalog> catalogTask = workers.submit(
+                pass(nanos, Pass.CATALOG, () -> LineCatalog.build(snapshot, lineDictionary)));
+        ForkJoinTask<SnapshotDelta> deltaTask = workers.submit(
+                pass(nanos, Pass.DELTA, () -> SnapshotDelta.between(previous.getSnapshot(), snapshot)));
+        ForkJoinTask<ViewportIndex> viewportTask = workers.submit(
+                pass(nanos, Pass.VIEWPORT, () -> ViewportIndex.build(snapshot)));
+        LineCatalog next = catalogTask.join();
+        SnapshotDelta delta = deltaTask.join();
+
+        ForkJoinTask<Void> spatialTask = workers.submit(pass(nanos, Pass.SPATIAL, () -> {
+            nearbyIndex.apply(delta);
+            return null;
+        }));
+        ForkJoinTask<Void> searchTask = workers.submit(pass(nanos, Pass.SEARCH, () -> {
+            searchIndex.update(previous, next, delta);
+            return null;
+        }));
+        ViewportIndex viewport = viewportTask.join();
+        spatialTask.join();
+        searchTask.join();
+
+        // Joining the tasks also makes their timings visible to this thread
+        derived = new Derived(next, viewport, new ProcessingTimings(nanos, System.nanoTime() - started));
+    }
+
+    /**
+     * Wraps a pass into a task recording its duration.
+     *
+     * @param nanos Durations of the passes, indexed by `Pass.ordinal()`; each pass writes only its own slot.
+     * @param pass  The pass.
+     * @param body  The work of the pass.
+     * @return The task, not yet submitted.
+     */
+    private static <T> ForkJoinTask<T> pass(long[] nanos, Pass pass, Supplier<T> body) {
+        return ForkJoinTask.adapt(() -> {
+            long start = System.nanoTime();
+            T result = body.get();
+            nanos[pass.ordinal()] = System.nanoTime() - start;
+            return result;
+        });
+    }
+
+    /**
+     * `persist` stage: writes a polled snapshot to the store. Runs on the `disk` executor.
+     * A failed write only costs the instant start of the next launch, so it is not reported.
+     *
+     * @param snapshot The snapshot to persist.
+     */
+    private void persist(Snapshot snapshot) {
+        try {
+            store.write(snapshot);
+        } catch (IOException e) {
+            store.clear();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package pl.creativesstudio.repository;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import pl.creativesstudio.trace.Tracing;
+
+/**
+ * One stage of the poll pipeline of `BusRepository`, fed through a bounded, latest-wins handoff.
+ *
+ * ### Handoff:
+ * - At most one item waits in front of the stage. A newer item replaces the waiting one, which is dropped,
+ *   so a slow stage never makes the stages before it queue up work; it only skips outdated items.
+ * - Urgent items, i.e. requested by the user, are never replaced by non-urgent ones; a non-urgent item
+ *   arriving while an urgent one waits is dropped instead.
+ *
+ * ### Execution:
+ * - Items are handled on the stage's executor by at most `concurrency` tasks at a time; a task keeps
+ *   draining the handoff until it is empty, so a busy stage costs no extra task submissions.
+ *
+ * ### Tracing:
+ * - Handling of every item is a trace section named after the stage.
+ *
+ * ### Statistics:
+ * - Counts handled and dropped items and measures the latency of every item, from being offered
+ *   to the end of its handling, see `getStats`.
+ *
+ * @param <T> Type of the items handled by the stage.
+ */
+final class PipelineStage<T> {
+
+    /**
+     * Weight of a new sample in the moving average of the latency.
+     */
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    /**
+     * Name of the stage, e.g. "fetch".
+     */
+    private final String name;
+
+    /**
+     * Executor running the stage.
+     */
+    private final Executor executor;
+
+    /**
+     * Maximum number of items handled at the same time.
+     */
+    private final int concurrency;
+
+    /**
+     * Work of the stage. Must not throw; errors are reported by the handler itself.
+     */
+    private final Consumer<T> handler;
+
+    /**
+     * Called with every item that is dropped instead of handled, e.g. to close its trace section.
+     */
+    private final Consumer<T> dropHandler;
+
+    /**
+     * The waiting item, `null` if none. Guarded by `this`.
+     */
+    private T pending;
+
+    /**
+     * Whether the waiting item is urgent. Guarded by `this`.
+     */
+    private boolean pendingUrgent;
+
+    /**
+     * `System.nanoTime()` at which the waiting item was offered. Guarded by `this`.
+     */
+    private long pendingSince;
+
+    /**
+     * Number of running drain tasks. Guarded by `this`.
+     */
+    private int running;
+
+    /**
+     * Statistics. Guarded by `this`.
+     */
+    private long handled;
+    private long dropped;
+    private long lastWaitNanos;
+    private long lastLatencyNanos;
+    private double meanLatencyNanos;
+    private long maxLatencyNanos;
+
+    /**
+     * Creates a stage.
+     *
+     * @param name        Name of the stage, used in statistics.
+     * @param executor    Executor running the stage.
+     * @param concurrency Maximum number of items handled at the same time.
+     * @param handler     Work of the stage.
+     */
+    PipelineStage(String name, Executor executor, int concurrency, Consumer<T> handler) {
+        this(name, executor, concurrency, handler, item -> { });
+    }
+
+    /**
+     * Creates a stage that is told about dropped items.
+     *
+     * @param name        Name of the stage, used in statistics and traces.
+     * @param executor    Executor running the stage.
+     * @param concurrency Maximum number of items handled at the same time.
+     * @param handler     Work of the stage.
+     * @param dropHandler Called with every dropped item, outside of the stage's lock.
+     */
+    PipelineStage(String name, Executor executor, int concurrency, Consumer<T> handler, Consumer<T> dropHandler) {
+        this.name = name;
+        this.executor = executor;
+        this.concurrency = concurrency;
+        this.handler = handler;
+        this.dropHandler = dropHandler;
+    }
+
+    /**
+     * Offers an item to the stage, replacing the waiting item unless that one is urgent and this one is not.
+     *
+     * @param item   The item.
+     * @param urgent `true` if the item was requested by the user.
+     */
+    void offer(T item, boolean urgent) {
+        T replaced = null;
+        synchronized (this) {
+            if (pending != null) {
+                dropped++;
+                if (pendingUrgent && !urgent) {
+                    replaced = item;
+                    item = null;
+                } else {
+                    replaced = pending;
+                }
+            }
+            if (item != null) {
+                pending = item;
+                pendingUrgent = urgent;
+                pendingSince = System.nanoTime();
+                if (running < concurrency) {
+                    running++;
+                } else {
+                    item = null;
+                }
+            }
+        }
+        if (replaced != null) dropHandler.accept(replaced);
+        if (item == null) return;
+
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // The repository was closed; the item is never handled
+            T abandoned;
+            synchronized (this) {
+                running--;
+                abandoned = pending;
+                pending = null;
+            }
+            if (abandoned != null) dropHandler.accept(abandoned);
+        }
+    }
+
+    /**
+     * Handles waiting items until the handoff is empty.
+     */
+    private void drain() {
+        while (true) {
+            T item;
+            long offeredAt;
+            synchronized (this) {
+                if (pending == null) {
+                    running--;
+                    return;
+                }
+                item = pending;
+                offeredAt = pendingSince;
+                pending = null;
+            }
+
+            long started = System.nanoTime();
+            Tracing.beginSection(name);
+            try {
+                handler.accept(item);
+            } catch (RuntimeException e) {
+                // Leave the stage usable for the next offer before the executor reports the error
+                synchronized (this) {
+                    running--;
+                }
+                throw e;
+            } finally {
+                Tracing.endSection();
+                record(started - offeredAt, System.nanoTime() - offeredAt);
+            }
+        }
+    }
+
+    /**
+     * Records the timing of a handled item.
+     */
+    private synchronized void record(long waitNanos, long latencyNanos) {
+        handled++;
+        lastWaitNanos = waitNanos;
+        lastLatencyNanos = latencyNanos;
+        meanLatencyNanos = handled == 1 ? latencyNanos
+                : meanLatencyNanos + LATENCY_SMOOTHING * (latencyNanos - meanLatencyNanos);
+        maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+    }
+
+    /**
+     * Returns a consistent copy of the statistics of the stage.
+     *
+     * @return The current statistics.
+     */
+    synchronized StageStats getStats() {
+        return new StageStats(name, pending != null ? 1 : 0, running, handled, dropped,
+                lastWaitNanos, lastLatencyNanos, (long) meanLatencyNanos, maxLatencyNanos);
+    }
+}
@@ -0,0 +1,124 @@
+package pl.creativesstudio.repository;
+
+import java.util.Locale;
+
+/**
+ * Decides when the next periodic poll of `BusRepository` runs, from the outcome of the latest completed poll.
+ *
+ * ### Policies:
+ * - `fixed`: a constant interval, the behavior of the app so far.
+ * - `backoff`: a base interval, doubled for every consecutive poll without new data, up to a maximum.
+ * - `adaptive`: waits one feed update period after new data, then retries quickly until the next update
+ *   shows up, so polls lock onto the update cycle of the feed.
+ *
+ * ### Notes:
+ * - Policies are stateless; the repository passes the streak of equal outcomes, so one policy can drive
+ *   several repositories or simulations at once.
+ * - `PollingSimulator` compares policies against recorded feeds in virtual time.
+ */
+public interface PollingPolicy {
+
+    /**
+     * Outcome of a completed poll.
+     */
+    enum Outcome {
+        /**
+         * The response carried reports newer than the previous snapshot.
+         */
+        NEW_DATA,
+
+        /**
+         * The response carried nothing newer, i.e. the fetch was wasted.
+         */
+        UNCHANGED,
+
+        /**
+         * The poll failed.
+         */
+        FAILED
+    }
+
+    /**
+     * Returns the delay until the next poll.
+     *
+     * @param last   Outcome of the latest completed poll; `NEW_DATA` before the first one.
+     * @param streak Number of consecutive completed polls with that outcome, at least `1` after the first poll.
+     * @return The delay in milliseconds.
+     */
+    long nextDelay(Outcome last, int streak);
+
+    /**
+     * Creates a policy polling at a constant interval.
+     *
+     * @param intervalMillis Time between polls in milliseconds.
+     * @return The policy.
+     */
+    static PollingPolicy fixed(long intervalMillis) {
+        return new PollingPolicy() {
+            @Override
+            public long nextDelay(Outcome last, int streak) {
+                return intervalMillis;
+            }
+
+            @Override
+            public String toString() {
+                return String.format(Locale.US, "fixed(%.1f s)", intervalMillis / 1000.0);
+            }
+        };
+    }
+
+    /**
+     * Creates a policy backing off exponentially while polls bring nothing new or fail.
+     *
+     * @param intervalMillis    Time between polls while data keeps changing, in milliseconds.
+     * @param maxIntervalMillis Longest time between polls in milliseconds.
+     * @return The policy.
+     */
+    static PollingPolicy backoff(long intervalMillis, long maxIntervalMillis) {
+        return new PollingPolicy() {
+            @Override
+            public long nextDelay(Outcome last, int streak) {
+                if (last == Outcome.NEW_DATA) return intervalMillis;
+                // Double per consecutive miss, without overflowing the shift
+                int doublings = Math.min(streak, 30);
+                return Math.min(maxIntervalMillis, intervalMillis << doublings);
+            }
+
+            @Override
+            public String toString() {
+                return String.format(Locale.US, "backoff(%.1f-%.1f s)", intervalMillis / 1000.0,
+                        maxIntervalMillis / 1000.0);
+            }
+        };
+    }
+
+    /**
+     * Creates a policy following the update cycle of the feed.
+     *
+     * @param updatePeriodMillis Typical time between feed updates in milliseconds.
+     * @param retryMillis        Time between polls while an update is overdue, in milliseconds.
+     * @return The policy.
+     */
+    static PollingPolicy adaptive(long updatePeriodMillis, long retryMillis) {
+        return new PollingPolicy() {
+            @Override
+            public long nextDelay(Outcome last, int streak) {
+                switch (last) {
+                    case NEW_DATA:
+                        return updatePeriodMillis;
+                    case UNCHANGED:
+                        return retryMillis;
+                    default:
+                        // Back off from a failing server, never beyond a few update periods
+                        return Math.min(4 * updatePeriodMillis, retryMillis << Math.min(streak, 30));
+                }
+            }
+
+            @Override
+            public String toString() {
+                return String.format(Locale.US, "adaptive(%.1f s, retry %.1f s)", updatePeriodMillis / 1000.0,
+                        retryMillis / 1000.0);
+            }
+        };
+    }
+}
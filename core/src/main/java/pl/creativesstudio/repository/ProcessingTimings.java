@@ -0,0 +1,101 @@
+package pl.creativesstudio.repository;
+
+import java.util.Locale;
+
+/**
+ * Durations of the post-processing passes of one poll, see `BusRepository`.
+ *
+ * ### Notes:
+ * - Passes of the same phase run in parallel, so the total is usually shorter than the sum of the passes.
+ */
+public final class ProcessingTimings {
+
+    /**
+     * Passes run over every polled snapshot.
+     */
+    public enum Pass {
+        /**
+         * Validation, de-duplication and merging by `SnapshotIngest`; precedes all other passes.
+         */
+        VALIDATE,
+
+        /**
+         * Line catalog, including the encoding of new lines in the `LineDictionary`.
+         */
+        CATALOG,
+
+        /**
+         * Delta against the previous snapshot.
+         */
+        DELTA,
+
+        /**
+         * Viewport index of the new snapshot.
+         */
+        VIEWPORT,
+
+        /**
+         * Update of the nearest-vehicle index from the delta.
+         */
+        SPATIAL,
+
+        /**
+         * Update of the search index from the catalogs and the delta.
+         */
+        SEARCH
+    }
+
+    /**
+     * Timings of a snapshot that was not processed, e.g. one restored from disk before any poll.
+     */
+    public static final ProcessingTimings NONE = new ProcessingTimings(new long[Pass.values().length], 0);
+
+    /**
+     * Duration of each pass in nanoseconds, indexed by `Pass.ordinal()`.
+     */
+    private final long[] nanos;
+
+    /**
+     * Wall-clock duration of all passes in nanoseconds.
+     */
+    private final long totalNanos;
+
+    ProcessingTimings(long[] nanos, long totalNanos) {
+        this.nanos = nanos;
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * Returns the duration of a pass.
+     *
+     * @param pass The pass.
+     * @return The duration in nanoseconds.
+     */
+    public long getNanos(Pass pass) {
+        return nanos[pass.ordinal()];
+    }
+
+    /**
+     * Returns the wall-clock duration of all passes, from the start of validation to the publication of the results.
+     *
+     * @return The duration in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Formats the timings for logs, e.g. "total 4.1 ms (VALIDATE 0.9, CATALOG 1.2, ...)".
+     *
+     * @return The formatted timings in milliseconds.
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "total %.1f ms (", totalNanos / 1e6));
+        for (Pass pass : Pass.values()) {
+            if (pass.ordinal() > 0) text.append(", ");
+            text.append(pass).append(String.format(Locale.ROOT, " %.1f", nanos[pass.ordinal()] / 1e6));
+        }
+        return text.append(')').toString();
+    }
+}
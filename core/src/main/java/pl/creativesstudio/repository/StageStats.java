@@ -0,0 +1,125 @@
+package pl.creativesstudio.repository;
+
+import java.util.Locale;
+
+/**
+ * Statistics of one stage of the poll pipeline, see `BusRepository.getStageStats`.
+ */
+public final class StageStats {
+
+    private final String name;
+    private final int queueDepth;
+    private final int active;
+    private final long handled;
+    private final long dropped;
+    private final long lastWaitNanos;
+    private final long lastLatencyNanos;
+    private final long meanLatencyNanos;
+    private final long maxLatencyNanos;
+
+    StageStats(String name, int queueDepth, int active, long handled, long dropped,
+               long lastWaitNanos, long lastLatencyNanos, long meanLatencyNanos, long maxLatencyNanos) {
+        this.name = name;
+        this.queueDepth = queueDepth;
+        this.active = active;
+        this.handled = handled;
+        this.dropped = dropped;
+        this.lastWaitNanos = lastWaitNanos;
+        this.lastLatencyNanos = lastLatencyNanos;
+        this.meanLatencyNanos = meanLatencyNanos;
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    /**
+     * Returns the name of the stage.
+     *
+     * @return The name, e.g. "fetch".
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of items waiting in front of the stage.
+     *
+     * @return `0` or `1`, since the handoff holds only the latest item.
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Returns the number of tasks currently running the stage.
+     *
+     * @return The number of active tasks.
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * Returns the number of items handled so far.
+     *
+     * @return The handled item count.
+     */
+    public long getHandled() {
+        return handled;
+    }
+
+    /**
+     * Returns the number of items dropped because a newer one replaced them.
+     *
+     * @return The dropped item count.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Returns how long the last item waited in the handoff.
+     *
+     * @return The wait in nanoseconds.
+     */
+    public long getLastWaitNanos() {
+        return lastWaitNanos;
+    }
+
+    /**
+     * Returns the latency of the last item, from being offered to the end of its handling.
+     *
+     * @return The latency in nanoseconds.
+     */
+    public long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    /**
+     * Returns the exponential moving average of the latency.
+     *
+     * @return The average latency in nanoseconds.
+     */
+    public long getMeanLatencyNanos() {
+        return meanLatencyNanos;
+    }
+
+    /**
+     * Returns the highest latency so far.
+     *
+     * @return The maximum latency in nanoseconds.
+     */
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    /**
+     * Formats the statistics for logs, e.g. "fetch: depth 0, active 1, 12 handled, 1 dropped, latency 85.2 ms (mean 90.1, max 312.0)".
+     *
+     * @return The formatted statistics.
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s: depth %d, active %d, %d handled, %d dropped, latency %.1f ms (mean %.1f, max %.1f)",
+                name, queueDepth, active, handled, dropped,
+                lastLatencyNanos / 1e6, meanLatencyNanos / 1e6, maxLatencyNanos / 1e6);
+    }
+}
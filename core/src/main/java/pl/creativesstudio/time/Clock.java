@@ -0,0 +1,19 @@
+package pl.creativesstudio.time;
+
+/**
+ * Source of the current time, so time-dependent logic can run in virtual time.
+ */
+public interface Clock {
+
+    /**
+     * The system wall clock.
+     */
+    Clock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * Returns the current time.
+     *
+     * @return The time in milliseconds since the epoch.
+     */
+    long currentTimeMillis();
+}
@@ -0,0 +1,74 @@
+package pl.creativesstudio.time;
+
+/**
+ * Runs an action once activity has settled: every `trigger` postpones the action by the full delay,
+ * so a burst of triggers runs it once, a delay after the last one.
+ *
+ * ### Thread Safety:
+ * - Not thread-safe; trigger and cancel on the thread the scheduler runs tasks on, e.g. the main thread.
+ */
+public final class Debouncer {
+
+    /**
+     * Scheduler running the action.
+     */
+    private final Scheduler scheduler;
+
+    /**
+     * Quiet time in milliseconds before the action runs.
+     */
+    private final long delayMillis;
+
+    /**
+     * The debounced action.
+     */
+    private final Runnable action;
+
+    /**
+     * The scheduled run of the action, `null` if none is pending.
+     */
+    private Scheduler.Task pending;
+
+    /**
+     * Creates a debouncer.
+     *
+     * @param scheduler   Scheduler running the action.
+     * @param delayMillis Quiet time in milliseconds before the action runs.
+     * @param action      The debounced action.
+     */
+    public Debouncer(Scheduler scheduler, long delayMillis, Runnable action) {
+        this.scheduler = scheduler;
+        this.delayMillis = delayMillis;
+        this.action = action;
+    }
+
+    /**
+     * Schedules the action a delay from now, replacing a pending run.
+     */
+    public void trigger() {
+        cancel();
+        pending = scheduler.schedule(() -> {
+            pending = null;
+            action.run();
+        }, delayMillis);
+    }
+
+    /**
+     * Cancels a pending run of the action.
+     */
+    public void cancel() {
+        if (pending != null) {
+            pending.cancel();
+            pending = null;
+        }
+    }
+
+    /**
+     * Tells whether a run of the action is pending.
+     *
+     * @return `true` if the action will run unless cancelled or triggered again.
+     */
+    public boolean isPending() {
+        return pending != null;
+    }
+}
@@ -0,0 +1,36 @@
+package pl.creativesstudio.time;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * `Scheduler` running tasks on a `ScheduledExecutorService`, on the system clock.
+ */
+public final class ExecutorScheduler implements Scheduler {
+
+    /**
+     * Executor running the tasks.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param executor Executor running the tasks; its lifecycle stays with the caller.
+     */
+    public ExecutorScheduler(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public Task schedule(Runnable task, long delayMillis) {
+        ScheduledFuture<?> future = executor.schedule(task, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+}
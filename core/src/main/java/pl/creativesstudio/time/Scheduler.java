@@ -0,0 +1,33 @@
+package pl.creativesstudio.time;
+
+/**
+ * Runs tasks after a delay, measured on its own clock.
+ *
+ * ### Implementations:
+ * - `ExecutorScheduler` runs tasks on a `ScheduledExecutorService` in real time.
+ * - `VirtualScheduler` runs tasks in virtual time, advanced explicitly, so hours of polling and debouncing
+ *   can be simulated in milliseconds.
+ * - The app runs tasks on the main thread through a `Handler`.
+ */
+public interface Scheduler extends Clock {
+
+    /**
+     * A scheduled task.
+     */
+    interface Task {
+
+        /**
+         * Cancels the task if it has not started yet; a running task completes normally.
+         */
+        void cancel();
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task        The task.
+     * @param delayMillis Delay in milliseconds; negative values are treated as `0`.
+     * @return A handle cancelling the task.
+     */
+    Task schedule(Runnable task, long delayMillis);
+}
@@ -0,0 +1,148 @@
+package pl.creativesstudio.time;
+
+import java.util.PriorityQueue;
+
+/**
+ * `Scheduler` in virtual time: time stands still until `advanceBy` or `advanceTo` moves it,
+ * running every task that falls due on the way, on the calling thread.
+ *
+ * ### Ordering:
+ * - Tasks run in order of their due time; tasks due at the same time run in the order they were scheduled.
+ * - While a task runs, the clock shows its due time, and tasks it schedules run within the same advance
+ *   if they fall due before its end.
+ *
+ * ### Thread Safety:
+ * - Tasks may be scheduled and cancelled from any thread; only one thread should advance the time.
+ *
+ * ### Usage:
+ * ```java
+ * VirtualScheduler scheduler = new VirtualScheduler(0);
+ * Debouncer debouncer = new Debouncer(scheduler, 1000, this::update);
+ * debouncer.trigger();
+ * scheduler.advanceBy(999); // Nothing happens yet
+ * scheduler.advanceBy(1);   // `update` runs
+ * ```
+ */
+public final class VirtualScheduler implements Scheduler {
+
+    /**
+     * A task waiting for its due time.
+     */
+    private static final class Entry implements Task, Comparable<Entry> {
+        final VirtualScheduler owner;
+        final Runnable task;
+        final long dueTime;
+        final long sequence;
+
+        Entry(VirtualScheduler owner, Runnable task, long dueTime, long sequence) {
+            this.owner = owner;
+            this.task = task;
+            this.dueTime = dueTime;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void cancel() {
+            owner.remove(this);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byTime = Long.compare(dueTime, other.dueTime);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Waiting tasks, earliest first. Guarded by `this`.
+     */
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+
+    /**
+     * The current virtual time. Guarded by `this`.
+     */
+    private long now;
+
+    /**
+     * Number of tasks scheduled so far, ordering tasks due at the same time. Guarded by `this`.
+     */
+    private long sequence;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param startMillis The initial virtual time in milliseconds since the epoch.
+     */
+    public VirtualScheduler(long startMillis) {
+        this.now = startMillis;
+    }
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public synchronized Task schedule(Runnable task, long delayMillis) {
+        Entry entry = new Entry(this, task, now + Math.max(0, delayMillis), sequence++);
+        queue.add(entry);
+        return entry;
+    }
+
+    /**
+     * Moves the time forward, running every task due in between.
+     *
+     * @param millis Duration in milliseconds; must not be negative.
+     */
+    public void advanceBy(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("Time cannot go back: " + millis);
+        advanceTo(currentTimeMillis() + millis);
+    }
+
+    /**
+     * Moves the time forward to a given time, running every task due until then, that time included.
+     *
+     * @param time The target time in milliseconds since the epoch; earlier times leave the clock unchanged.
+     */
+    public void advanceTo(long time) {
+        while (true) {
+            Entry next;
+            synchronized (this) {
+                next = queue.peek();
+                if (next == null || next.dueTime > time) {
+                    now = Math.max(now, time);
+                    return;
+                }
+                queue.poll();
+                now = Math.max(now, next.dueTime);
+            }
+            next.task.run();
+        }
+    }
+
+    /**
+     * Returns the number of tasks waiting for their due time.
+     *
+     * @return The task count.
+     */
+    public synchronized int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the due time of the earliest waiting task.
+     *
+     * @return The time in milliseconds since the epoch, or `Long.MAX_VALUE` if no task waits.
+     */
+    public synchronized long getNextDueTime() {
+        Entry next = queue.peek();
+        return next != null ? next.dueTime : Long.MAX_VALUE;
+    }
+
+    /**
+     * Removes a cancelled task.
+     */
+    private synchronized void remove(Entry entry) {
+        queue.remove(entry);
+    }
+}
@@ -0,0 +1,235 @@
+package pl.creativesstudio.trace;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-process trace capture writing the Chrome trace event format, so a session can be inspected
+ * offline in `chrome://tracing` or Perfetto without attaching a profiler.
+ *
+ * ### Capture:
+ * - `start` installs the recorder into `Tracing` and `stop` removes it; only events in between are recorded.
+ * - Events are kept in a ring buffer of fixed capacity; once it is full, the oldest events are overwritten,
+ *   so a long capture keeps its most recent part.
+ * - Timestamps come from `System.nanoTime()`, relative to `start`.
+ *
+ * ### Thread Safety:
+ * - Recording is synchronized; a recorder is only installed while someone captures a trace.
+ *
+ * ### Usage:
+ * ```java
+ * TraceRecorder recorder = new TraceRecorder(TraceRecorder.DEFAULT_CAPACITY);
+ * recorder.start();
+ * ...
+ * recorder.stop();
+ * try (Writer out = new FileWriter(file)) {
+ *     recorder.writeChromeTrace(out);
+ * }
+ * ```
+ */
+public final class TraceRecorder implements Tracer {
+
+    /**
+     * Default number of retained events, about 2 MB of memory and a few minutes of a busy session.
+     */
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    /**
+     * Process id written into every event; a trace holds a single process.
+     */
+    private static final int PID = 1;
+
+    /**
+     * Category of async sections.
+     */
+    private static final String ASYNC_CATEGORY = "async";
+
+    /**
+     * Event phases of the Chrome trace format.
+     */
+    private static final char BEGIN = 'B';
+    private static final char END = 'E';
+    private static final char ASYNC_BEGIN = 'b';
+    private static final char ASYNC_END = 'e';
+
+    /**
+     * Ring buffer of events as parallel arrays. Guarded by `this`.
+     */
+    private final long[] times;
+    private final char[] phases;
+    private final String[] names;
+    private final int[] cookies;
+    private final long[] threads;
+
+    /**
+     * Names of the threads that recorded events, by thread id. Guarded by `this`.
+     */
+    private final Map<Long, String> threadNames = new HashMap<>();
+
+    /**
+     * Total number of events recorded since `start`; the next event goes to `recorded % capacity`.
+     * Guarded by `this`.
+     */
+    private long recorded;
+
+    /**
+     * `System.nanoTime()` at `start`. Guarded by `this`.
+     */
+    private long startNanos;
+
+    /**
+     * Whether the recorder is installed.
+     */
+    private volatile boolean recording;
+
+    /**
+     * Creates a recorder.
+     *
+     * @param capacity Number of retained events.
+     */
+    public TraceRecorder(int capacity) {
+        times = new long[capacity];
+        phases = new char[capacity];
+        names = new String[capacity];
+        cookies = new int[capacity];
+        threads = new long[capacity];
+    }
+
+    /**
+     * Discards previously recorded events and starts recording.
+     */
+    public void start() {
+        synchronized (this) {
+            recorded = 0;
+            threadNames.clear();
+            startNanos = System.nanoTime();
+        }
+        recording = true;
+        Tracing.install(this);
+    }
+
+    /**
+     * Stops recording; the recorded events are kept until the next `start`.
+     */
+    public void stop() {
+        Tracing.uninstall(this);
+        recording = false;
+    }
+
+    /**
+     * Tells whether the recorder is capturing events.
+     *
+     * @return `true` between `start` and `stop`.
+     */
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Returns the number of retained events.
+     *
+     * @return The event count, at most the capacity.
+     */
+    public synchronized int getEventCount() {
+        return (int) Math.min(recorded, times.length);
+    }
+
+    @Override
+    public void beginSection(String name) {
+        record(BEGIN, name, 0);
+    }
+
+    @Override
+    public void endSection() {
+        record(END, null, 0);
+    }
+
+    @Override
+    public void beginAsyncSection(String name, int cookie) {
+        record(ASYNC_BEGIN, name, cookie);
+    }
+
+    @Override
+    public void endAsyncSection(String name, int cookie) {
+        record(ASYNC_END, name, cookie);
+    }
+
+    /**
+     * Appends an event to the ring buffer.
+     */
+    private synchronized void record(char phase, String name, int cookie) {
+        Thread thread = Thread.currentThread();
+        int slot = (int) (recorded % times.length);
+        times[slot] = System.nanoTime();
+        phases[slot] = phase;
+        names[slot] = name;
+        cookies[slot] = cookie;
+        threads[slot] = thread.getId();
+        recorded++;
+        if (!threadNames.containsKey(thread.getId())) {
+            threadNames.put(thread.getId(), thread.getName());
+        }
+    }
+
+    /**
+     * Writes the retained events as a Chrome trace JSON object, oldest first.
+     *
+     * @param out The destination; not closed.
+     * @throws IOException If writing fails.
+     */
+    public synchronized void writeChromeTrace(Writer out) throws IOException {
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+
+        // Name the threads, so the viewer shows "main" instead of bare ids
+        for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+            if (!first) out.write(',');
+            first = false;
+            out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":" + PID + ",\"tid\":" + thread.getKey()
+                    + ",\"args\":{\"name\":");
+            writeString(out, thread.getValue());
+            out.write("}}");
+        }
+
+        int count = getEventCount();
+        long oldest = recorded - count;
+        for (long i = oldest; i < recorded; i++) {
+            int slot = (int) (i % times.length);
+            if (!first) out.write(',');
+            first = false;
+            out.write("{\"ph\":\"" + phases[slot] + "\",\"pid\":" + PID + ",\"tid\":" + threads[slot]
+                    + ",\"ts\":" + String.format(Locale.US, "%.3f", (times[slot] - startNanos) / 1000.0));
+            if (names[slot] != null) {
+                out.write(",\"name\":");
+                writeString(out, names[slot]);
+            }
+            if (phases[slot] == ASYNC_BEGIN || phases[slot] == ASYNC_END) {
+                out.write(",\"cat\":\"" + ASYNC_CATEGORY + "\",\"id\":" + cookies[slot]);
+            }
+            out.write('}');
+        }
+        out.write("]}");
+    }
+
+    /**
+     * Writes a JSON string literal.
+     */
+    private static void writeString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,43 @@
+package pl.creativesstudio.trace;
+
+/**
+ * Receiver of trace events, installed with `Tracing.install`.
+ *
+ * ### Events:
+ * - Sections are nested per thread: `endSection` closes the section most recently begun on the same thread.
+ * - Async sections may begin and end on different threads; they are matched by name and cookie.
+ *
+ * ### Implementations:
+ * - `TraceRecorder` keeps the events in memory and writes them as a Chrome trace.
+ * - The app forwards the events to `android.os.Trace`, so they show up in Systrace and Perfetto.
+ */
+public interface Tracer {
+
+    /**
+     * Begins a section on the calling thread.
+     *
+     * @param name Name of the section.
+     */
+    void beginSection(String name);
+
+    /**
+     * Ends the section most recently begun on the calling thread.
+     */
+    void endSection();
+
+    /**
+     * Begins an async section.
+     *
+     * @param name   Name of the section.
+     * @param cookie Identifier distinguishing concurrent sections of the same name.
+     */
+    void beginAsyncSection(String name, int cookie);
+
+    /**
+     * Ends an async section.
+     *
+     * @param name   Name of the section.
+     * @param cookie Identifier given to `beginAsyncSection`.
+     */
+    void endAsyncSection(String name, int cookie);
+}
@@ -0,0 +1,110 @@
+package pl.creativesstudio.trace;
+
+import java.util.Arrays;
+
+/**
+ * Entry point of trace instrumentation, forwarding events to the installed `Tracer`s.
+ *
+ * ### Overhead:
+ * - With no tracer installed, an event costs one volatile read, so sections can stay in hot paths.
+ *
+ * ### Notes:
+ * - A tracer installed or removed while a section is open sees only one of its ends; trace viewers
+ *   tolerate this at the edges of a capture.
+ *
+ * ### Usage:
+ * ```java
+ * Tracing.beginSection("displayBusesOnMap");
+ * try {
+ *     drawMarkers();
+ * } finally {
+ *     Tracing.endSection();
+ * }
+ * ```
+ */
+public final class Tracing {
+
+    /**
+     * Installed tracers; replaced as a whole on every change.
+     */
+    private static volatile Tracer[] tracers = new Tracer[0];
+
+    private Tracing() {
+    }
+
+    /**
+     * Installs a tracer; installing it again has no effect.
+     *
+     * @param tracer The tracer.
+     */
+    public static synchronized void install(Tracer tracer) {
+        for (Tracer installed : tracers) {
+            if (installed == tracer) return;
+        }
+        Tracer[] next = Arrays.copyOf(tracers, tracers.length + 1);
+        next[tracers.length] = tracer;
+        tracers = next;
+    }
+
+    /**
+     * Removes a tracer; removing one that is not installed has no effect.
+     *
+     * @param tracer The tracer.
+     */
+    public static synchronized void uninstall(Tracer tracer) {
+        Tracer[] current = tracers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == tracer) {
+                Tracer[] next = new Tracer[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                tracers = next;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Begins a section on the calling thread, see `Tracer.beginSection`.
+     *
+     * @param name Name of the section.
+     */
+    public static void beginSection(String name) {
+        for (Tracer tracer : tracers) {
+            tracer.beginSection(name);
+        }
+    }
+
+    /**
+     * Ends the section most recently begun on the calling thread.
+     */
+    public static void endSection() {
+        for (Tracer tracer : tracers) {
+            tracer.endSection();
+        }
+    }
+
+    /**
+     * Begins an async section, see `Tracer.beginAsyncSection`.
+     *
+     * @param name   Name of the section.
+     * @param cookie Identifier distinguishing concurrent sections of the same name.
+     */
+    public static void beginAsyncSection(String name, int cookie) {
+        for (Tracer tracer : tracers) {
+            tracer.beginAsyncSection(name, cookie);
+        }
+    }
+
+    /**
+     * Ends an async section.
+     *
+     * @param name   Name of the section.
+     * @param cookie Identifier given to `beginAsyncSection`.
+     */
+    public static void endAsyncSection(String name, int cookie) {
+        for (Tracer tracer : tracers) {
+            tracer.endAsyncSection(name, cookie);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import okhttp3.OkHttpClient;
+import pl.creativesstudio.api.ApiClient;
+import pl.creativesstudio.api.FeedDecoder;
+import pl.creativesstudio.data.FetchPlan;
+import pl.creativesstudio.data.SnapshotStore;
+import pl.creativesstudio.index.LineCatalog;
+import pl.creativesstudio.metrics.MetricsRegistry;
+import pl.creativesstudio.replay.FeedServer;
+import pl.creativesstudio.replay.ReplayPacer;
+import pl.creativesstudio.replay.SyntheticFleet;
+import pl.creativesstudio.repository.BusRepository;
+import pl.creativesstudio.repository.PollingPolicy;
+import pl.creativesstudio.repository.ProcessingTimings;
+import pl.creativesstudio.repository.StageStats;
+import pl.creativesstudio.time.VirtualScheduler;
+
+/**
+ * Unit tests for `BusRepository`.
+ * Verifies that:
+ * - Polls are applied to the catalog, the history and the search index.
+ * - A listener attached after a poll still finds the latest catalog.
+ * - Unreachable servers are reported as connection errors.
+ * - A new repository restores the last persisted snapshot as stale data before its first poll.
+ * - A slow listener makes the pipeline skip outdated responses instead of queuing them.
+ * - Periodic polls and refresh throttling follow the repository's clock, so they can run in virtual time.
+ * - The API client is built once, by the first poll and off the thread creating the repository.
+ */
+class BusRepositoryTest {
+
+    @TempDir
+    File directory;
+
+    /**
+     * Collects listener callbacks for the test thread.
+     */
+    private static class RecordingListener implements BusRepository.Listener {
+        final BlockingQueue<Object> events = new ArrayBlockingQueue<>(16);
+
+        @Override
+        public void onSnapshot(LineCatalog catalog) {
+            events.add(catalog);
+        }
+
+        @Override
+        public void onFetchFailed(BusRepository.Failure failure) {
+            events.add(failure);
+        }
+    }
+
+    /**
+     * Tests that a poll updates all data held by the repository and survives re-attaching the listener.
+     */
+    @Test
+    void testPollAppliedAndKeptAcrossListeners() throws Exception {
+        SyntheticFleet fleet = new SyntheticFleet(300, 30, 5L);
+
+        try (FeedServer server = FeedServer.start(fleet, ReplayPacer.AS_FAST_AS_POSSIBLE, 0)) {
+            BusRepository repository = new BusRepository(
+                    ApiClient.create(server.getBaseUrl(), new OkHttpClient()), "resource", "key");
+            RecordingListener first = new RecordingListener();
+            repository.setListener(first);
+            repository.getMetrics().setEnabled(true);
+
+            repository.refresh(FetchPlan.FULL, true);
+            Object event = first.events.poll(10, TimeUnit.SECONDS);
+            assertTrue(event instanceof LineCatalog, "Expected a snapshot, got " + event);
+
+            // The listener of a recreated screen sees the same data without another request
+            repository.setListener(new RecordingListener());
+            LineCatalog catalog = repository.getCatalog();
+            assertSame(event, catalog);
+            assertEquals(300, catalog.getSnapshot().size());
+            assertEquals(30, catalog.getLines().size());
+            assertFalse(repository.getHistory().isEmpty());
+            assertEquals(300, repository.getSearchIndex().getVehicleCount());
+            assertTrue(repository.getLastFetchTime() > 0);
+
+            // All derived structures describe the same snapshot, and every pass was timed
+            assertEquals(300, repository.getViewportIndex().size());
+            ProcessingTimings timings = repository.getTimings();
+            for (ProcessingTimings.Pass pass : ProcessingTimings.Pass.values()) {
+                assertTrue(timings.getNanos(pass) > 0, pass + " was not timed");
+            }
+            assertTrue(timings.getTotalNanos() >= timings.getNanos(ProcessingTimings.Pass.CATALOG));
+
+            // Every step of the poll was recorded into the enabled metrics
+            MetricsRegistry metrics = repository.getMetrics();
+            for (String name : new String[]{MetricsRegistry.HTTP_ROUND_TRIP, MetricsRegistry.DECODE,
+                    MetricsRegistry.INGEST, MetricsRegistry.INDEX, MetricsRegistry.DIFF}) {
+                assertEquals(1, metrics.histogram(name).getCount(), name + " was not recorded");
+            }
+            assertEquals(300, metrics.gauge(MetricsRegistry.VEHICLES).get());
+
+            // Non-forced refreshes within the minimum interval do not reach the server
+            repository.refresh(FetchPlan.FULL, false);
+            repository.close();
+            assertEquals(1, server.getRequestCount());
+        }
+    }
+
+    /**
+     * Tests that a failed request keeps the previous catalog and reports a connection error.
+     */
+    @Test
+    void testConnectionErrorReported() throws Exception {
+        String baseUrl;
+        try (FeedServer server = FeedServer.start(new SyntheticFleet(10, 2, 1L), ReplayPacer.AS_FAST_AS_POSSIBLE, 0)) {
+            baseUrl = server.getBaseUrl();
+        }
+
+        BusRepository repository = new BusRepository(ApiClient.create(baseUrl, new OkHttpClient()), "resource", "key");
+        RecordingListener listener = new RecordingListener();
+        repository.setListener(listener);
+        repository.refresh(FetchPlan.FULL, true);
+
+        assertEquals(BusRepository.Failure.CONNECTION_ERROR, listener.events.poll(10, TimeUnit.SECONDS));
+        assertSame(LineCatalog.EMPTY, repository.getCatalog());
+        assertEquals(0, repository.getLastFetchTime());
+        repository.close();
+    }
+
+    /**
+     * Tests that the snapshot persisted by one repository is restored by the next, as on a cold start.
+     */
+    @Test
+    void testRestoresPersistedSnapshot() throws Exception {
+        SnapshotStore store = new SnapshotStore(new File(directory, "last_snapshot.bin"));
+        LineCatalog polled;
+        try (FeedServer server = FeedServer.start(new SyntheticFleet(200, 20, 9L), ReplayPacer.AS_FAST_AS_POSSIBLE, 0)) {
+            BusRepository repository = new BusRepository(
+                    ApiClient.create(server.getBaseUrl(), new OkHttpClient()), "resource", "key", store);
+            RecordingListener listener = new RecordingListener();
+            repository.setListener(listener);
+            repository.refresh(FetchPlan.FULL, true);
+            polled = (LineCatalog) listener.events.poll(10, TimeUnit.SECONDS);
+            repository.close();
+        }
+
+        // The next launch cannot reach the API, but still has the last snapshot
+        String unreachable;
+        try (FeedServer server = FeedServer.start(new SyntheticFleet(10, 2, 1L), ReplayPacer.AS_FAST_AS_POSSIBLE, 0)) {
+            unreachable = server.getBaseUrl();
+        }
+        BusRepository repository = new BusRepository(
+                ApiClient.create(unreachable, new OkHttpClient()), "resource", "key", store);
+        RecordingListener listener = new RecordingListener();
+        repository.setListener(listener);
+        repository.restore();
+        repository.refresh(FetchPlan.FULL, true);
+
+        LineCatalog restored = (LineCatalog) listener.events.poll(10, TimeUnit.SECONDS);
+        assertEquals(polled.getSnapshot().size(), restored.getSnapshot().size());
+        assertEquals(polled.getLines(), restored.getLines());
+        assertEquals(polled.getSnapshot().getCapturedAt(), restored.getSnapshot().getCapturedAt());
+        assertEquals(200, repository.getSearchIndex().getVehicleCount());
+        assertTrue(repository.getHistory().isEmpty(), "Restored data is not part of the playback history.");
+
+        long capturedAt = restored.getSnapshot().getCapturedAt();
+        assertFalse(repository.isStale(capturedAt + BusRepository.STALE_AFTER - 1));
+        assertTrue(repository.isStale(capturedAt + BusRepository.STALE_AFTER));
+
+        // The failed poll keeps the restored snapshot
+        assertEquals(BusRepository.Failure.CONNECTION_ERROR, listener.events.poll(10, TimeUnit.SECONDS));
+        assertSame(restored, repository.getCatalog());
+        repository.close();
+    }
+
+    /**
+     * Tests that responses arriving while the listener is busy collapse into the latest one.
+     */
+    @Test
+    void testSlowListenerSkipsOutdatedResponses() throws Exception {
+        try (FeedServer server = FeedServer.start(new SyntheticFleet(200, 20, 3L), ReplayPacer.AS_FAST_AS_POSSIBLE, 0)) {
+            BusRepository repository = new BusRepository(
+                    ApiClient.create(server.getBaseUrl(), new OkHttpClient()), "resource", "key");
+            CountDownLatch release = new CountDownLatch(1);
+            BlockingQueue<Object> rendered = new ArrayBlockingQueue<>(16);
+            repository.setListener(new BusRepository.Listener() {
+                @Override
+                public void onSnapshot(LineCatalog catalog) {
+                    rendered.add(catalog);
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                @Override
+                public void onFetchFailed(BusRepository.Failure failure) {
+                    rendered.add(failure);
+                }
+            });
+
+            // The first render blocks the fetch thread until released
+            repository.refresh(FetchPlan.FULL, true);
+            assertTrue(rendered.poll(10, TimeUnit.SECONDS) instanceof LineCatalog);
+            int requests = 12;
+            for (int i = 0; i < requests; i++) {
+                repository.refresh(FetchPlan.FULL, true);
+                Thread.sleep(30);
+            }
+            while (server.getRequestCount() < requests + 1) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+
+            StageStats index = stage(repository, "index");
+            assertEquals(1, index.getQueueDepth(), "Only the latest response waits for the busy fetch thread.");
+            assertTrue(index.getDropped() >= requests - 2, "Outdated responses are dropped: " + index);
+
+            // Once released, only the latest response is applied and rendered
+            release.countDown();
+            assertTrue(rendered.poll(10, TimeUnit.SECONDS) instanceof LineCatalog);
+            assertNull(rendered.poll(300, TimeUnit.MILLISECONDS));
+            assertEquals(2, stage(repository, "index").getHandled());
+            for (StageStats stats : repository.getStageStats()) {
+                assertEquals(0, stats.getQueueDepth(), stats.toString());
+            }
+            repository.close();
+        }
+    }
+
+    /**
+     * Finds the statistics of a pipeline stage by name.
+     */
+    private static StageStats stage(BusRepository repository, String name) {
+        for (StageStats stats : repository.getStageStats()) {
+            if (stats.getName().equals(name)) return stats;
+        }
+        throw new AssertionError("No stage " + name);
+    }
+
+    /**
+     * Tests that polls are timed by the policy on a virtual clock.
+     */
+    @Test
+    void testPollingInVirtualTime() throws Exception {
+        try (FeedServer server = FeedServer.start(new SyntheticFleet(50, 5, 4L), ReplayPacer.AS_FAST_AS_POSSIBLE, 0)) {
+            // Start the clock at the first poll of the fleet, so its reports are not dated in the future
+            VirtualScheduler scheduler = new VirtualScheduler(1_704_103_200_000L);
+            BusRepository repository = new BusRepository(ApiClient.create(server.getBaseUrl(), new OkHttpClient()),
+                    "resource", "key", null, new FeedDecoder(), scheduler);
+            RecordingListener listener = new RecordingListener();
+            repository.setListener(listener);
+
+            // Nothing was fetched yet, so the first poll is due at once
+            repository.startPolling(FetchPlan.FULL, PollingPolicy.fixed(10_000));
+            scheduler.advanceBy(0);
+            assertTrue(listener.events.poll(10, TimeUnit.SECONDS) instanceof LineCatalog);
+            assertEquals(1, server.getRequestCount());
+
+            // A non-forced refresh right after a poll is throttled by the virtual clock
+            repository.refresh(FetchPlan.FULL, false);
+
+            // The next poll waits for the full interval
+            scheduler.advanceBy(9_999);
+            assertNull(listener.events.poll(200, TimeUnit.MILLISECONDS));
+            scheduler.advanceBy(1);
+            assertTrue(listener.events.poll(10, TimeUnit.SECONDS) instanceof LineCatalog);
+            assertEquals(2, server.getRequestCount());
+
+            // Stopping cancels the scheduled poll
+            repository.stopPolling();
+            assertEquals(0, scheduler.getPendingCount());
+            repository.close();
+            assertEquals(2, server.getRequestCount());
+        }
+    }
+
+    /**
+     * Tests that the API client is built lazily, once, on the IO pool of the first poll.
+     */
+    @Test
+    void testApiClientCreatedByFirstPoll() throws Exception {
+        try (FeedServer server = FeedServer.start(new SyntheticFleet(50, 5, 6L), ReplayPacer.AS_FAST_AS_POSSIBLE, 0)) {
+            AtomicInteger created = new AtomicInteger();
+            AtomicReference<Thread> creator = new AtomicReference<>();
+            BusRepository repository = new BusRepository(() -> {
+                created.incrementAndGet();
+                creator.set(Thread.currentThread());
+                return ApiClient.create(server.getBaseUrl(), new OkHttpClient());
+            }, "resource", "key", new SnapshotStore(new File(directory, "last_snapshot.bin")), new FeedDecoder(), null);
+            RecordingListener listener = new RecordingListener();
+            repository.setListener(listener);
+
+            // Restoring the (missing) snapshot does not need the client
+            repository.restore();
+            assertNull(listener.events.poll(200, TimeUnit.MILLISECONDS));
+            assertEquals(0, created.get());
+
+            // Concurrent polls share the client built by the first one
+            repository.refresh(FetchPlan.FULL, true);
+            repository.refresh(FetchPlan.forLines(Collections.singletonList("1")), true);
+            assertTrue(listener.events.poll(10, TimeUnit.SECONDS) instanceof LineCatalog);
+            repository.close();
+            assertEquals(1, created.get());
+            assertNotSame(Thread.currentThread(), creator.get());
+        }
+    }
+}
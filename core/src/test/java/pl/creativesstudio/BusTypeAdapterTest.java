@@ -0,0 +1,97 @@
+package pl.creativesstudio;
+
+import com.google.gson.Gson;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import pl.creativesstudio.api.ApiClient;
+import pl.creativesstudio.api.FeedTime;
+import pl.creativesstudio.models.ApiResponse;
+import pl.creativesstudio.models.Bus;
+import pl.creativesstudio.replay.SyntheticFleet;
+
+/**
+ * Unit tests for the streaming `BusTypeAdapter` and `ApiResponseTypeAdapter`.
+ * Verifies that:
+ * - They decode the same vehicles as Gson's reflective binding, plus the parsed `Time`.
+ * - Quirky payloads (string coordinates, missing fields, error messages) decode instead of failing.
+ * - The throughput of both paths is compared by `DecodeBenchmark`, not here.
+ */
+class BusTypeAdapterTest {
+
+    /**
+     * Decodes a payload with the given Gson instance.
+     */
+    private static List<Bus> decode(Gson gson, String json) {
+        return gson.fromJson(json, ApiResponse.class).getResult();
+    }
+
+    /**
+     * Tests that a synthetic poll decodes exactly like the reflective binding.
+     */
+    @Test
+    void testMatchesReflectiveBinding() throws Exception {
+        String json = new String(new SyntheticFleet(2_000, 200, 17L).next().getBody(), StandardCharsets.UTF_8);
+        List<Bus> reflective = decode(new Gson(), json);
+        List<Bus> streaming = decode(ApiClient.gson(), json);
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("Europe/Warsaw"));
+
+        assertEquals(reflective.size(), streaming.size());
+        for (int i = 0; i < reflective.size(); i++) {
+            Bus a = reflective.get(i);
+            Bus b = streaming.get(i);
+            assertEquals(a.getVehicleNumber(), b.getVehicleNumber());
+            assertEquals(a.getLines(), b.getLines());
+            assertEquals(a.getBrigade(), b.getBrigade());
+            assertEquals(a.getTime(), b.getTime());
+            assertEquals(a.getLat(), b.getLat());
+            assertEquals(a.getLon(), b.getLon());
+            assertEquals(format.parse(a.getTime()).getTime(), b.getTimeMillis());
+        }
+    }
+
+    /**
+     * Tests the quirks the reflective binding fails on or decodes wrongly.
+     */
+    @Test
+    void testToleratesFeedQuirks() {
+        String json = "{\"result\":["
+                + "{\"Lines\":\"105\",\"Lon\":\"21.01\",\"Lat\":\"52,25\",\"VehicleNumber\":1000,"
+                + "\"Brigade\":\"3\",\"Time\":\"2024-07-01 12:00:00\",\"Extra\":{\"a\":[1,2]}},"
+                + "null,"
+                + "{\"Lines\":\"N61\",\"VehicleNumber\":\"2000\",\"Lat\":null,\"Lon\":\"\",\"Time\":\"garbage\"}"
+                + "]}";
+        List<Bus> buses = decode(ApiClient.gson(), json);
+
+        assertEquals(2, buses.size(), "Null entries are dropped.");
+        Bus first = buses.get(0);
+        assertEquals("1000", first.getVehicleNumber());
+        assertEquals(21.01, first.getLon());
+        assertEquals(52.25, first.getLat());
+        assertEquals(1_719_828_000_000L, first.getTimeMillis(), "Summer time in Warsaw is UTC+2.");
+
+        Bus second = buses.get(1);
+        assertEquals("N61", second.getLines());
+        assertEquals(0, second.getLat());
+        assertEquals(0, second.getLon());
+        assertNull(second.getBrigade());
+        assertEquals("garbage", second.getTime());
+        assertEquals(0, second.getTimeMillis());
+
+        // Invalid calls are answered with a message instead of an array
+        ApiResponse error = ApiClient.gson().fromJson(
+                "{\"result\":\"Błędna metoda lub parametry wywołania\"}", ApiResponse.class);
+        assertNull(error.getResult());
+        assertEquals(1_704_103_200_000L, FeedTime.parse("2024-01-01 11:00:00"), "Winter time is UTC+1.");
+    }
+}
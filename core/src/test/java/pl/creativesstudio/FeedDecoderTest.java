@@ -0,0 +1,92 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import pl.creativesstudio.api.ApiClient;
+import pl.creativesstudio.api.FeedDecoder;
+import pl.creativesstudio.models.ApiResponse;
+import pl.creativesstudio.models.Bus;
+import pl.creativesstudio.replay.SyntheticFleet;
+
+/**
+ * Unit tests for `FeedDecoder`.
+ * Verifies that:
+ * - Chunked parallel decoding yields the same vehicles in the same order as a single pass.
+ * - Braces and quotes inside strings, `null` entries and error messages do not confuse the record scan.
+ */
+class FeedDecoderTest {
+
+    /**
+     * Asserts that two decoded vehicle lists are identical.
+     */
+    private static void assertSameVehicles(List<Bus> expected, List<Bus> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Bus a = expected.get(i);
+            Bus b = actual.get(i);
+            assertEquals(a.getVehicleNumber(), b.getVehicleNumber(), "Vehicle at " + i);
+            assertEquals(a.getLines(), b.getLines());
+            assertEquals(a.getBrigade(), b.getBrigade());
+            assertEquals(a.getTimeMillis(), b.getTimeMillis());
+            assertEquals(a.getLat(), b.getLat());
+            assertEquals(a.getLon(), b.getLon());
+        }
+    }
+
+    /**
+     * Tests a 50k-vehicle payload against the single-threaded adapters.
+     * The timings of both paths are compared by `DecodeBenchmark`.
+     */
+    @Test
+    void testParallelMatchesSequential() throws IOException {
+        byte[] body = new SyntheticFleet(50_000, 2_000, 23L).next().getBody();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FeedDecoder parallel = new FeedDecoder(pool, 0);
+            List<Bus> expected = ApiClient.gson().fromJson(new String(body, StandardCharsets.UTF_8), ApiResponse.class).getResult();
+            assertSameVehicles(expected, parallel.decode(body).getResult());
+            assertSameVehicles(expected, new FeedDecoder(pool, Integer.MAX_VALUE).decode(body).getResult());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests payloads that a naive brace scan would split wrongly.
+     */
+    @Test
+    void testScanHandlesStringsAndNulls() throws IOException {
+        StringBuilder json = new StringBuilder("{\"note\":\"result\",\"result\":[");
+        for (int i = 0; i < 3_000; i++) {
+            if (i > 0) json.append(',');
+            if (i % 7 == 0) json.append("null,");
+            json.append("{\"Lines\":\"").append(i % 5 == 0 ? "}{\\\"[" : String.valueOf(100 + i % 50))
+                    .append("\",\"Lon\":21.0,\"Lat\":\"52.2\",\"VehicleNumber\":\"").append(i)
+                    .append("\",\"Extra\":{\"x\":[1,{\"y\":\"]\"}]}}");
+        }
+        json.append("],\"after\":{\"result\":[]}}");
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+
+        List<Bus> expected = ApiClient.gson().fromJson(json.toString(), ApiResponse.class).getResult();
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            List<Bus> actual = new FeedDecoder(pool, 0).decode(body).getResult();
+            assertEquals(3_000, actual.size());
+            assertEquals("}{\"[", actual.get(0).getLines());
+            assertSameVehicles(expected, actual);
+
+            // An error message instead of an array falls back to the single pass
+            byte[] error = "{\"result\":\"Błędna metoda lub parametry wywołania\"}".getBytes(StandardCharsets.UTF_8);
+            assertNull(new FeedDecoder(pool, 0).decode(error).getResult());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import okhttp3.OkHttpClient;
+import pl.creativesstudio.api.ApiClient;
+import pl.creativesstudio.api.WarsawApiService;
+import pl.creativesstudio.models.ApiResponse;
+import pl.creativesstudio.replay.FeedFrame;
+import pl.creativesstudio.replay.FeedRecording;
+import pl.creativesstudio.replay.FeedServer;
+import pl.creativesstudio.replay.FeedSource;
+import pl.creativesstudio.replay.ReplayInterceptor;
+import pl.creativesstudio.replay.ReplayPacer;
+import retrofit2.Response;
+
+/**
+ * Unit tests for recording and replaying `busestrams_get` responses.
+ * Verifies that:
+ * - Frames survive a write/read round trip with their arrival times.
+ * - Replays through an injected interceptor and through the local server deliver the same sequence.
+ */
+class FeedReplayTest {
+
+    /**
+     * Temporary directory for recording files.
+     */
+    @TempDir
+    File tempDir;
+
+    /**
+     * Builds a response body containing a single bus of the given line.
+     */
+    private static byte[] body(String line) {
+        String json = "{\"result\":[{\"Lines\":\"" + line + "\",\"Lon\":21.0,\"Lat\":52.2,"
+                + "\"VehicleNumber\":\"1000\",\"Brigade\":\"1\",\"Time\":\"2024-01-01 10:00:00\"}]}";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a recording of three polls ten seconds apart.
+     */
+    private File writeRecording() throws Exception {
+        File file = new File(tempDir, "feed.rec.gz");
+        try (FeedRecording.Writer writer = FeedRecording.create(file)) {
+            writer.append(10_000, body("105"));
+            writer.append(20_000, body("180"));
+            writer.append(30_000, body("N61"));
+            assertEquals(3, writer.getFrameCount());
+        }
+        return file;
+    }
+
+    /**
+     * Fetches every frame through the API service and collects the line of the first bus.
+     */
+    private static List<String> drain(WarsawApiService api) throws Exception {
+        List<String> lines = new ArrayList<>();
+        while (true) {
+            Response<ApiResponse> response = api.getBuses("resource", "key", 1, null, null).execute();
+            if (!response.isSuccessful()) break;
+            lines.add(response.body().getResult().get(0).getLines());
+        }
+        return lines;
+    }
+
+    /**
+     * Tests that a recording is read back with the original bodies and arrival times.
+     */
+    @Test
+    void testRecordingRoundTrip() throws Exception {
+        FeedRecording recording = FeedRecording.read(writeRecording());
+
+        assertEquals(3, recording.size());
+        FeedFrame second = recording.getFrames().get(1);
+        assertEquals(20_000, second.getArrivalTime());
+        assertArrayEquals(body("180"), second.getBody());
+    }
+
+    /**
+     * Tests that the injected interceptor and the local server replay the same sequence.
+     */
+    @Test
+    void testReplayIsDeterministic() throws Exception {
+        FeedRecording recording = FeedRecording.read(writeRecording());
+
+        OkHttpClient replayClient = new OkHttpClient.Builder()
+                .addInterceptor(new ReplayInterceptor(recording.source(false), ReplayPacer.AS_FAST_AS_POSSIBLE))
+                .build();
+        List<String> viaInterceptor = drain(ApiClient.create(ApiClient.DEFAULT_BASE_URL, replayClient));
+
+        List<String> viaServer;
+        try (FeedServer server = FeedServer.start(recording.source(false), ReplayPacer.AS_FAST_AS_POSSIBLE, 0)) {
+            viaServer = drain(ApiClient.create(server.getBaseUrl(), new OkHttpClient()));
+            assertEquals(4, server.getRequestCount(), "Three frames and the final 410 response.");
+        }
+
+        assertEquals(Arrays.asList("105", "180", "N61"), viaInterceptor);
+        assertEquals(viaInterceptor, viaServer);
+    }
+
+    /**
+     * Tests that looping keeps arrival times increasing across passes.
+     */
+    @Test
+    void testLoopedSourceKeepsTimeIncreasing() throws Exception {
+        FeedRecording recording = FeedRecording.read(writeRecording());
+        FeedSource source = recording.source(true);
+
+        long previous = Long.MIN_VALUE;
+        for (int i = 0; i < 7; i++) {
+            FeedFrame frame = source.next();
+            assertTrue(frame.getArrivalTime() > previous);
+            previous = frame.getArrivalTime();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import pl.creativesstudio.api.FeedTime;
+import pl.creativesstudio.data.ReportAgePolicy;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Unit tests for `FeedTime` and `ReportAgePolicy`.
+ * Verifies that:
+ * - Parsing and formatting agree with `SimpleDateFormat` in Warsaw time, across daylight saving changes.
+ * - Malformed values parse to `0`.
+ * - Parsing a poll's worth of values allocates nothing.
+ * - Vehicles fade out and are dropped according to their report age.
+ */
+class FeedTimeTest {
+
+    /**
+     * Tests every 17 minutes and 13 seconds over two years against `SimpleDateFormat`.
+     */
+    @Test
+    void testAgreesWithSimpleDateFormat() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        TimeZone zone = TimeZone.getTimeZone("Europe/Warsaw");
+        format.setTimeZone(zone);
+
+        long start = format.parse("2023-01-01 00:00:00").getTime();
+        long end = format.parse("2025-01-01 00:00:00").getTime();
+        for (long time = start; time < end; time += 1_033_000L) {
+            String expected = format.format(new Date(time));
+            assertEquals(expected, FeedTime.format(time));
+            // Skip the hours around daylight saving changes, where a local time can occur twice
+            if (zone.getOffset(time - 3_600_000L) == zone.getOffset(time + 3_600_000L)) {
+                assertEquals(time, FeedTime.parse(expected), expected);
+            }
+        }
+        assertEquals("1999-12-31 23:59:59", FeedTime.format(format.parse("1999-12-31 23:59:59").getTime()));
+        assertEquals("2024-02-29 12:00:00", FeedTime.format(FeedTime.parse("2024-02-29 12:00:00")));
+    }
+
+    /**
+     * Tests values that do not follow the format.
+     */
+    @Test
+    void testMalformedValues() {
+        for (String value : new String[]{null, "", "garbage", "2024-01-01", "2024-01-01T10:00:00",
+                "2024-13-01 10:00:00", "2023-02-29 10:00:00", "2024-01-01 24:00:00", "2024-01-01 10:60:00",
+                "2024-01-01 10:00:60", "2024-01-01 10:00:0x", "2024-01-01 10:00:00Z"}) {
+            assertEquals(0, FeedTime.parse(value), String.valueOf(value));
+        }
+    }
+
+    /**
+     * Tests that parsing allocates nothing once the UTC offset of the hour is cached.
+     */
+    @Test
+    void testParseAllocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+
+        String[] values = new String[1_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = String.format(Locale.ROOT, "2024-05-14 08:%02d:%02d", i / 60 % 60, i % 60);
+        }
+        long sum = 0;
+        for (int round = 0; round < 200; round++) {
+            for (String value : values) sum += FeedTime.parse(value);
+        }
+
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (String value : values) sum += FeedTime.parse(value);
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+        assertTrue(sum != 0);
+        // Allow for the measurement itself
+        assertTrue(allocated < 1_024, "Parsing 1 000 values allocated " + allocated + " bytes.");
+    }
+
+    /**
+     * Tests fading and dropping by report age.
+     */
+    @Test
+    void testReportAgePolicy() {
+        ReportAgePolicy policy = new ReportAgePolicy(60_000, 300_000);
+        long now = FeedTime.parse("2024-05-14 08:10:00");
+
+        Bus fresh = new Bus();
+        fresh.setTimeMillis(now - 30_000);
+        Bus fading = new Bus();
+        fading.setTimeMillis(now - 180_000);
+        Bus ghost = new Bus();
+        ghost.setTimeMillis(now - 301_000);
+        Bus unknown = new Bus();
+
+        assertEquals(1f, policy.alphaOf(fresh, now));
+        assertEquals(1f - (1f - ReportAgePolicy.MIN_ALPHA) / 2, policy.alphaOf(fading, now), 1e-6);
+        assertEquals(0f, policy.alphaOf(ghost, now));
+        assertEquals(1f, policy.alphaOf(unknown, now));
+        assertThrows(IllegalArgumentException.class, () -> new ReportAgePolicy(300_000, 60_000));
+    }
+}
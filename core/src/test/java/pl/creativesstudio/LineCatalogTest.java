@@ -0,0 +1,100 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pl.creativesstudio.TestBuses.bus;
+
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.index.GeoBounds;
+import pl.creativesstudio.index.LineCatalog;
+import pl.creativesstudio.index.LineSortKey;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Unit tests for `LineCatalog` and `LineSortKey`.
+ * Verifies that:
+ * - Lines are distinct and naturally ordered.
+ * - Posting lists and bounds cover exactly the vehicles of each line.
+ * - Precomputed sort keys order lines like the original regex-based comparator.
+ */
+class LineCatalogTest {
+
+    /**
+     * The comparator previously used by `MainActivity.sortBusLines`.
+     */
+    private static int regexCompare(String line1, String line2) {
+        String numberPart1 = line1.replaceAll("[^0-9]", "");
+        String numberPart2 = line2.replaceAll("[^0-9]", "");
+        int letterComparison = line1.replaceAll("[0-9]", "").compareTo(line2.replaceAll("[0-9]", ""));
+        if (letterComparison != 0) return letterComparison;
+        if (!numberPart1.isEmpty() && !numberPart2.isEmpty()) {
+            return Integer.compare(Integer.parseInt(numberPart1), Integer.parseInt(numberPart2));
+        }
+        return line1.compareTo(line2);
+    }
+
+    /**
+     * Tests the catalog of a small snapshot.
+     */
+    @Test
+    void testCatalogListsPostingsAndBounds() {
+        Snapshot snapshot = new Snapshot(Arrays.asList(
+                bus("1", "N61", 52.1, 21.1),
+                bus("2", "200", 52.2, 21.0),
+                bus("3", "20", 52.3, 21.2),
+                bus("4", "200", 52.4, 20.9),
+                bus("5", "34", 52.0, 21.0)), 0);
+
+        LineCatalog catalog = LineCatalog.build(snapshot);
+
+        assertEquals(Arrays.asList("20", "34", "200", "N61"), catalog.getLines());
+        assertEquals(2, catalog.getVehicleCount("200"));
+        assertEquals(0, catalog.getVehicleCount("999"));
+        assertTrue(catalog.getVehicles("999").isEmpty());
+
+        List<Bus> line200 = catalog.getVehicles("200");
+        assertEquals("2", line200.get(0).getVehicleNumber());
+        assertEquals("4", line200.get(1).getVehicleNumber());
+
+        GeoBounds bounds = catalog.getBounds("200");
+        assertEquals(52.2, bounds.getSouth());
+        assertEquals(20.9, bounds.getWest());
+        assertEquals(52.4, bounds.getNorth());
+        assertEquals(21.0, bounds.getEast());
+        assertNull(catalog.getBounds("999"));
+    }
+
+    /**
+     * Tests that precomputed keys sort random line names like the regex comparator.
+     */
+    @Test
+    void testSortKeysMatchRegexComparator() {
+        Random random = new Random(11);
+        String[] prefixes = {"", "", "", "N", "E-", "L", "Z"};
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            lines.add(prefixes[random.nextInt(prefixes.length)] + random.nextInt(1000));
+        }
+        lines.add("ZKM");
+        lines.add("T");
+
+        List<String> expected = new ArrayList<>(lines);
+        expected.sort(LineCatalogTest::regexCompare);
+
+        List<LineSortKey> keys = new ArrayList<>();
+        for (String line : lines) {
+            keys.add(new LineSortKey(line));
+        }
+        Collections.sort(keys);
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(0, regexCompare(expected.get(i), keys.get(i).getLine()), "Mismatch at " + i);
+        }
+    }
+}
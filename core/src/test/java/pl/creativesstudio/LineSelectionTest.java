@@ -0,0 +1,118 @@
+package pl.creativesstudio;
+
+import com.google.gson.Gson;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pl.creativesstudio.TestBuses.bus;
+
+import pl.creativesstudio.data.FetchPlan;
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.data.SnapshotIngest;
+import pl.creativesstudio.index.GeoBounds;
+import pl.creativesstudio.index.LineCatalog;
+import pl.creativesstudio.index.LineDictionary;
+import pl.creativesstudio.index.LineSelection;
+import pl.creativesstudio.models.ApiResponse;
+import pl.creativesstudio.models.Bus;
+import pl.creativesstudio.replay.SyntheticFleet;
+
+/**
+ * Unit tests for `LineSelection` and `FetchPlan`.
+ * Verifies that:
+ * - Bitset filtering returns the same vehicles as comparing line names.
+ * - Selections keep their meaning across snapshots built with the same dictionary.
+ * - Partial responses replace only the requested line.
+ */
+class LineSelectionTest {
+
+    /**
+     * Tests that bitset filtering matches a filter comparing line names.
+     */
+    @Test
+    void testFilterMatchesNameComparison() {
+        byte[] body = new SyntheticFleet(1500, 250, 7L).next().getBody();
+        ApiResponse response = new Gson().fromJson(new String(body, StandardCharsets.UTF_8), ApiResponse.class);
+        Snapshot snapshot = new Snapshot(response.getResult(), 0);
+        LineDictionary dictionary = new LineDictionary();
+        LineCatalog catalog = LineCatalog.build(snapshot, dictionary);
+        List<String> pinned = Arrays.asList(catalog.getLines().get(3), catalog.getLines().get(40), "999X");
+
+        LineSelection selection = LineSelection.of(dictionary, pinned);
+        List<Bus> expected = new ArrayList<>();
+        for (Bus bus : snapshot.getBuses()) {
+            if (pinned.contains(bus.getLines())) {
+                expected.add(bus);
+            }
+        }
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, selection.filter(catalog));
+        assertEquals(3, selection.size(), "Lines without vehicles stay selected.");
+    }
+
+    /**
+     * Tests toggling, bounds and reuse of a selection with the catalog of a later snapshot.
+     */
+    @Test
+    void testSelectionSpansSnapshots() {
+        LineDictionary dictionary = new LineDictionary();
+        LineSelection selection = LineSelection.empty(dictionary).toggle("105").toggle("N61").toggle("180");
+        selection = selection.toggle("180");
+        assertEquals(Arrays.asList("105", "N61"), selection.getLines());
+
+        // The second snapshot introduces lines in a different order
+        LineCatalog.build(new Snapshot(Arrays.asList(bus("1", "180", 52.0, 21.0)), 0), dictionary);
+        LineCatalog catalog = LineCatalog.build(new Snapshot(Arrays.asList(
+                bus("1", "N61", 52.1, 21.1),
+                bus("2", "180", 52.2, 21.2),
+                bus("3", "105", 52.3, 20.9),
+                bus("4", null, 52.4, 21.4)), 1000), dictionary);
+
+        List<Bus> filtered = selection.filter(catalog);
+        assertEquals(2, filtered.size());
+        assertEquals("1", filtered.get(0).getVehicleNumber());
+        assertEquals("3", filtered.get(1).getVehicleNumber());
+
+        GeoBounds bounds = selection.bounds(catalog);
+        assertEquals(52.1, bounds.getSouth());
+        assertEquals(20.9, bounds.getWest());
+        assertEquals(52.3, bounds.getNorth());
+        assertEquals(21.1, bounds.getEast());
+
+        assertTrue(LineSelection.empty(dictionary).filter(catalog).isEmpty());
+        assertNull(LineSelection.empty(dictionary).bounds(catalog));
+    }
+
+    /**
+     * Tests that a single pinned line is requested alone and merged into the previous snapshot.
+     */
+    @Test
+    void testPartialFetchMergesIntoPreviousSnapshot() {
+        assertSame(FetchPlan.FULL, FetchPlan.forLines(Collections.<String>emptyList()));
+        assertSame(FetchPlan.FULL, FetchPlan.forLines(Arrays.asList("105", "180")));
+
+        FetchPlan plan = FetchPlan.forLines(Collections.singletonList("105"));
+        assertTrue(plan.isPartial());
+        assertEquals("105", plan.getLine());
+
+        Snapshot previous = new Snapshot(Arrays.asList(
+                bus("1", "105", 52.1, 21.0),
+                bus("2", "105", 52.2, 21.0),
+                bus("3", "180", 52.3, 21.0)), 1000);
+        Snapshot merged = new SnapshotIngest()
+                .ingest(previous, plan, Arrays.asList(bus("2", "105", 52.25, 21.0)), 2000).getSnapshot();
+
+        assertEquals(2, merged.size(), "Vehicle 1 no longer reports on line 105.");
+        assertEquals(52.25, merged.get(merged.indexOf("2")).getLat());
+        assertEquals(52.3, merged.get(merged.indexOf("3")).getLat());
+        assertEquals(2000, merged.getCapturedAt());
+    }
+}
@@ -0,0 +1,133 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pl.creativesstudio.TestBuses.bus;
+
+import pl.creativesstudio.api.FeedDecoder;
+import pl.creativesstudio.data.ReportAgePolicy;
+import pl.creativesstudio.models.Bus;
+import pl.creativesstudio.render.MarkerLayer;
+import pl.creativesstudio.render.RecordingMapRenderer;
+import pl.creativesstudio.render.RecordingMapRenderer.Type;
+import pl.creativesstudio.replay.SyntheticFleet;
+
+/**
+ * Unit tests for `MarkerLayer` drawing on `RecordingMapRenderer`.
+ * Verifies that:
+ * - Both strategies leave the map with exactly the displayed vehicles, faded or dropped by report age.
+ * - `DIFF` touches only vehicles that appeared, vanished, moved, faded or changed lines.
+ * - The selected vehicle's info window is shown again after each update.
+ * - On consecutive polls of a fleet, `DIFF` causes far less marker churn than `REBUILD`.
+ */
+class MarkerLayerTest {
+
+    private static final ReportAgePolicy AGE_POLICY = new ReportAgePolicy(60_000, 300_000);
+
+    /**
+     * Tests that `DIFF` sends only the changes to the renderer.
+     */
+    @Test
+    void testDiffSendsOnlyChanges() {
+        RecordingMapRenderer renderer = new RecordingMapRenderer(true);
+        MarkerLayer layer = new MarkerLayer(renderer, MarkerLayer.Strategy.DIFF, AGE_POLICY);
+
+        layer.show(Arrays.asList(
+                bus("1", "105", 52.20, 21.00, 1_000_000),
+                bus("2", "150", 52.21, 21.01, 1_000_000),
+                bus("3", "520", 52.22, 21.02, 1_000_000)), 1_000_000, 1f, "2");
+        assertEquals(3, renderer.getMarkerCount());
+        assertEquals(3, renderer.getCount(Type.ADD));
+        assertEquals("2", renderer.getInfoWindow());
+
+        // 1 moves, 2 is unchanged, 3 changes lines, 4 appears and 5 is too old to draw
+        renderer.reset();
+        layer.show(Arrays.asList(
+                bus("1", "105", 52.201, 21.00, 1_010_000),
+                bus("2", "150", 52.21, 21.01, 1_000_000),
+                bus("3", "523", 52.22, 21.02, 1_010_000),
+                bus("4", "105", 52.23, 21.03, 1_010_000),
+                bus("5", "105", 52.24, 21.04, 600_000)), 1_010_000, 1f, "2");
+        assertEquals(4, renderer.getMarkerCount());
+        assertNull(renderer.getMarker("5"));
+        assertEquals("523", renderer.getMarker("3").getLine());
+        assertEquals(52.201, renderer.getMarker("1").getLat());
+        assertEquals(1, renderer.getCount(Type.UPDATE));
+        assertEquals(2, renderer.getCount(Type.ADD));
+        assertEquals(1, renderer.getCount(Type.REMOVE));
+        assertEquals(0, renderer.getCount(Type.CLEAR));
+        assertEquals(4, renderer.getChurn());
+
+        // Stale data fades every marker, vanished vehicles are removed
+        renderer.reset();
+        layer.show(Arrays.asList(
+                bus("1", "105", 52.201, 21.00, 1_010_000),
+                bus("2", "150", 52.21, 21.01, 1_000_000)), 1_010_000, 0.5f, null);
+        assertEquals(2, layer.size());
+        assertEquals(0.5f, renderer.getMarker("1").getAlpha());
+        assertEquals(2, renderer.getCount(Type.UPDATE));
+        assertEquals(2, renderer.getCount(Type.REMOVE));
+
+        layer.clear();
+        assertEquals(0, renderer.getMarkerCount());
+        assertFalse(layer.showInfoWindow("1"));
+    }
+
+    /**
+     * Tests that `REBUILD` clears the map and adds every marker on every update.
+     */
+    @Test
+    void testRebuildRedrawsEverything() {
+        RecordingMapRenderer renderer = new RecordingMapRenderer(true);
+        MarkerLayer layer = new MarkerLayer(renderer, MarkerLayer.Strategy.REBUILD, AGE_POLICY);
+        List<Bus> buses = Arrays.asList(bus("1", "105", 52.20, 21.00, 0), bus("2", "150", 52.21, 21.01, 0));
+
+        layer.show(buses, 0, 1f, "1");
+        renderer.reset();
+        layer.show(buses, 0, 1f, "1");
+
+        assertEquals(Type.CLEAR, renderer.getOperations().get(0).getType());
+        assertEquals(2, renderer.getCount(Type.ADD));
+        assertEquals(4, renderer.getChurn());
+        assertEquals("1", renderer.getInfoWindow());
+        assertEquals(2, renderer.getMarkerCount());
+    }
+
+    /**
+     * Compares the marker churn of the strategies on consecutive polls of a synthetic fleet.
+     */
+    @Test
+    void testChurnPerPoll() throws Exception {
+        SyntheticFleet fleet = new SyntheticFleet(1_500, 300, 8L);
+        FeedDecoder decoder = new FeedDecoder();
+        List<List<Bus>> polls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            polls.add(decoder.decode(fleet.next().getBody()).getResult());
+        }
+
+        // A reference time before every report draws all vehicles at full opacity
+        int[] churn = new int[2];
+        for (MarkerLayer.Strategy strategy : MarkerLayer.Strategy.values()) {
+            RecordingMapRenderer renderer = new RecordingMapRenderer(false);
+            MarkerLayer layer = new MarkerLayer(renderer, strategy, AGE_POLICY);
+            layer.show(polls.get(0), 0, 1f, null);
+            for (List<Bus> poll : polls.subList(1, polls.size())) {
+                renderer.reset();
+                layer.show(poll, 0, 1f, null);
+                churn[strategy.ordinal()] += renderer.getChurn();
+                assertEquals(poll.size(), renderer.getMarkerCount());
+            }
+            assertTrue(renderer.getOperations().isEmpty());
+        }
+
+        // Rebuilding removes and adds every marker; the diff only moves the vehicles that reported
+        assertEquals(4 * 2 * 1_500, churn[MarkerLayer.Strategy.REBUILD.ordinal()]);
+        assertTrue(churn[MarkerLayer.Strategy.DIFF.ordinal()] <= 4 * 1_500);
+        assertTrue(churn[MarkerLayer.Strategy.REBUILD.ordinal()] > churn[MarkerLayer.Strategy.DIFF.ordinal()]);
+    }
+}
@@ -0,0 +1,148 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pl.creativesstudio.TestBuses.bus;
+
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.data.SnapshotHistory;
+import pl.creativesstudio.memory.BoundedCache;
+import pl.creativesstudio.memory.MemoryBudget;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Unit tests for `MemoryBudget`, `BoundedCache` and the budget of `SnapshotHistory`.
+ * Verifies that:
+ * - The budget follows the memory class and splits into per-cache limits by share.
+ * - Caches stay within their limits and report their current and peak footprint.
+ * - Shedding empties caches of lower priority before trimming higher ones.
+ * - The history evicts its oldest segments to stay within its limit.
+ */
+class MemoryBudgetTest {
+
+    private static final long MB = 1024 * 1024;
+
+    /**
+     * Creates a snapshot of `count` vehicles.
+     */
+    private static Snapshot snapshot(int count, long capturedAt) {
+        List<Bus> buses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            buses.add(bus(Integer.toString(i), "1", 52 + capturedAt / 1e9, 21));
+        }
+        return new Snapshot(buses, capturedAt);
+    }
+
+    /**
+     * Tests sizing and registration.
+     */
+    @Test
+    void testSizing() {
+        MemoryBudget budget = MemoryBudget.forMemoryClass(128);
+        assertEquals(32 * MB, budget.getTotalBytes());
+
+        MemoryBudget.Account icons = budget.register("icons", MemoryBudget.Priority.NORMAL, 0.25, new BoundedCache<>());
+        assertEquals(8 * MB, icons.getLimitBytes());
+        assertThrows(IllegalArgumentException.class,
+                () -> budget.register("too.large", MemoryBudget.Priority.LOW, 0.8, new BoundedCache<>()));
+
+        // Unregistering returns the share
+        budget.unregister(icons);
+        budget.register("large", MemoryBudget.Priority.LOW, 0.8, new BoundedCache<>());
+        assertEquals(1, budget.getAccounts().size());
+    }
+
+    /**
+     * Tests that the cache evicts the least recently used values and reports its footprint.
+     */
+    @Test
+    void testBoundedCache() {
+        MemoryBudget budget = new MemoryBudget(1_000);
+        BoundedCache<String, String> cache = new BoundedCache<>();
+        MemoryBudget.Account account = budget.register("cache", MemoryBudget.Priority.NORMAL, 0.5, cache);
+
+        cache.put("a", "A", 200);
+        cache.put("b", "B", 200);
+        assertEquals("A", cache.get("a"));
+        cache.put("c", "C", 200);
+
+        // "b" is the least recently used value
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals(400, cache.getSizeBytes());
+        assertEquals(400, account.getSizeBytes());
+
+        // Values are evicted before the footprint is reported, so the peak stays within the limit
+        assertEquals(400, account.getPeakBytes());
+
+        // Values larger than the limit are not stored
+        cache.put("huge", "H", 501);
+        assertNull(cache.get("huge"));
+        assertEquals(2, cache.size());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+    }
+
+    /**
+     * Tests that shedding trims caches in priority order.
+     */
+    @Test
+    void testShedInPriorityOrder() {
+        MemoryBudget budget = new MemoryBudget(1_000);
+        BoundedCache<Integer, String> low = new BoundedCache<>();
+        BoundedCache<Integer, String> high = new BoundedCache<>();
+        budget.register("high", MemoryBudget.Priority.HIGH, 0.5, high);
+        budget.register("low", MemoryBudget.Priority.LOW, 0.5, low);
+        for (int i = 0; i < 4; i++) {
+            low.put(i, "low", 100);
+            high.put(i, "high", 100);
+        }
+        assertEquals(800, budget.getUsedBytes());
+
+        // Keeping half of the budget drops the low-priority cache only
+        assertEquals(300, budget.shed(0.5));
+        assertEquals(100, low.getSizeBytes());
+        assertEquals(400, high.getSizeBytes());
+
+        // Keeping a quarter empties the low-priority cache, then trims the other one by whole entries
+        assertEquals(300, budget.shed(0.25));
+        assertEquals(0, low.getSizeBytes());
+        assertEquals(200, high.getSizeBytes());
+
+        assertEquals(200, budget.shed(0));
+        assertEquals(0, budget.getUsedBytes());
+        assertEquals(400, budget.getAccounts().get(0).getPeakBytes());
+        assertTrue(budget.toString().startsWith("memory 0.0 / 0.0 MB\nhigh HIGH"));
+    }
+
+    /**
+     * Tests that the history evicts its oldest segments to stay within its limit.
+     */
+    @Test
+    void testHistoryWithinLimit() {
+        long segmentBytes = 100 * 4 * SnapshotHistory.ESTIMATED_BYTES_PER_VEHICLE;
+        MemoryBudget budget = new MemoryBudget(3 * segmentBytes);
+        SnapshotHistory history = new SnapshotHistory(SnapshotHistory.DEFAULT_RETENTION_MILLIS, 4);
+        MemoryBudget.Account account = budget.register("history", MemoryBudget.Priority.LOW, 1, history);
+
+        // Every poll moves all 100 vehicles, so a segment of 4 polls stores 400 vehicles
+        for (int poll = 0; poll < 20; poll++) {
+            history.record(snapshot(100, 1_000_000 + poll * 10_000L));
+            assertTrue(history.getSizeBytes() <= account.getLimitBytes());
+        }
+        assertEquals(3 * segmentBytes, account.getSizeBytes());
+        assertEquals(1_000_000 + 8 * 10_000L, history.getStartTime());
+        assertEquals(1_000_000 + 19 * 10_000L, history.getEndTime());
+
+        // Shedding keeps the newest segment while it fits
+        budget.shed(0.5);
+        assertEquals(segmentBytes, history.getSizeBytes());
+        assertEquals(1_000_000 + 16 * 10_000L, history.getStartTime());
+        budget.shed(0);
+        assertTrue(history.isEmpty());
+        assertEquals(0, account.getSizeBytes());
+    }
+}
@@ -0,0 +1,102 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import pl.creativesstudio.metrics.Counter;
+import pl.creativesstudio.metrics.Gauge;
+import pl.creativesstudio.metrics.LatencyHistogram;
+import pl.creativesstudio.metrics.MetricsRegistry;
+
+/**
+ * Unit tests for `MetricsRegistry` and its metrics.
+ * Verifies that:
+ * - Nothing is recorded while the registry is disabled.
+ * - Percentiles of a histogram are within the bucket resolution of the exact ones.
+ * - Counters do not lose increments from concurrent threads.
+ */
+class MetricsRegistryTest {
+
+    /**
+     * Tests that a disabled registry records nothing and does not read the clock.
+     */
+    @Test
+    void testDisabledRegistryRecordsNothing() {
+        MetricsRegistry registry = new MetricsRegistry();
+        LatencyHistogram histogram = registry.histogram(MetricsRegistry.DECODE);
+
+        assertEquals(0, histogram.start());
+        histogram.record(1_000_000);
+        registry.counter(MetricsRegistry.FAILURES).increment();
+        registry.gauge(MetricsRegistry.VEHICLES).set(1500);
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0, registry.counter(MetricsRegistry.FAILURES).get());
+        assertEquals(0, registry.gauge(MetricsRegistry.VEHICLES).get());
+        assertSame(histogram, registry.histogram(MetricsRegistry.DECODE));
+    }
+
+    /**
+     * Tests percentiles of uniformly distributed durations between 1 and 100 ms.
+     */
+    @Test
+    void testPercentilesWithinBucketResolution() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.setEnabled(true);
+        LatencyHistogram histogram = registry.histogram(MetricsRegistry.HTTP_ROUND_TRIP);
+
+        Random random = new Random(3);
+        long[] durations = new long[10_000];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = 1_000_000 + (long) (random.nextDouble() * 99_000_000);
+            histogram.record(durations[i]);
+        }
+        Arrays.sort(durations);
+
+        assertEquals(durations.length, histogram.getCount());
+        assertEquals(durations[durations.length - 1], histogram.getMax());
+        for (double percentile : new double[]{50, 95, 99}) {
+            long exact = durations[(int) Math.ceil(durations.length * percentile / 100) - 1];
+            long estimate = histogram.getPercentile(percentile);
+            assertTrue(estimate >= exact && estimate <= exact * 1.125 + 1,
+                    "p" + percentile + ": " + estimate + " vs " + exact);
+        }
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    /**
+     * Tests that counters and gauges keep concurrent updates.
+     */
+    @Test
+    void testConcurrentCounting() throws InterruptedException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.setEnabled(true);
+        Counter counter = registry.counter(MetricsRegistry.FAILURES);
+        Gauge gauge = registry.gauge(MetricsRegistry.MARKERS);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counter.increment();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        gauge.set(42);
+
+        assertEquals(40_000, counter.get());
+        assertEquals(42, gauge.get());
+    }
+}
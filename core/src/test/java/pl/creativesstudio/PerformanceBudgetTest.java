@@ -0,0 +1,209 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import pl.creativesstudio.api.FeedDecoder;
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.data.SnapshotDelta;
+import pl.creativesstudio.data.SnapshotHistory;
+import pl.creativesstudio.models.Bus;
+import pl.creativesstudio.replay.SyntheticFleet;
+
+/**
+ * Hard allocation, memory and latency budgets of the `Bus` pipeline, so a performance regression
+ * fails the build instead of being found in the field. The JMH suite in `:benchmarks` explains a
+ * failure in detail; these tests only guard the limits.
+ *
+ * ### Budgets:
+ * - Diffing a snapshot against one with the same vehicle states allocates nothing per vehicle,
+ *   and a moved vehicle costs at most `DIFF_BYTES_PER_CHANGE`.
+ * - Decoding allocates at most `DECODE_BYTES_PER_VEHICLE` and a snapshot retains at most
+ *   `SnapshotHistory.ESTIMATED_BYTES_PER_VEHICLE`, so the history does not under-report its size.
+ * - The median decode of the 1.5k-vehicle fixture in a warmed loop takes at most `DECODE_MILLIS`.
+ *
+ * ### Measurement:
+ * - Allocations are read from the allocated-bytes counter of the current thread (`ThreadMXBean`);
+ *   decoding runs sequentially, so no allocation escapes to other threads.
+ * - Budgets leave 20-25% headroom over a typical run and the latency budget several times more,
+ *   so they hold on slow CI machines; tests are skipped on JVMs without the counters.
+ */
+class PerformanceBudgetTest {
+
+    /**
+     * Number of vehicles of the fixture, about the size of the Warsaw fleet.
+     */
+    private static final int FLEET_SIZE = 1_500;
+
+    /**
+     * Bytes allocated by decoding, per vehicle: the `Bus`, its strings and the parser's temporaries.
+     */
+    private static final long DECODE_BYTES_PER_VEHICLE = 1_600;
+
+    /**
+     * Bytes allocated by a diff, per vehicle that changed.
+     */
+    private static final long DIFF_BYTES_PER_CHANGE = 24;
+
+    /**
+     * Allowance for the constant allocations of a measurement, e.g. empty result arrays.
+     */
+    private static final long FIXED_BYTES = 512;
+
+    /**
+     * Median time to decode the fixture, in milliseconds.
+     */
+    private static final double DECODE_MILLIS = 40;
+
+    /**
+     * Warm-up and measured iterations of the latency budget.
+     */
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int MEASURED_ITERATIONS = 21;
+
+    /**
+     * Allocation counters of the JVM, `null` if not supported.
+     */
+    private static com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Two consecutive polls of the fixture.
+     */
+    private static byte[] firstPoll;
+    private static byte[] secondPoll;
+
+    /**
+     * Decoder running on the test thread only, so its allocations are all counted.
+     */
+    private static final FeedDecoder DECODER = new FeedDecoder(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+
+    /**
+     * Generates the fixture and enables the allocation counters.
+     */
+    @BeforeAll
+    static void setUp() {
+        SyntheticFleet fleet = new SyntheticFleet(FLEET_SIZE, FLEET_SIZE / 5, 42L);
+        firstPoll = fleet.next().getBody();
+        secondPoll = fleet.next().getBody();
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    /**
+     * Tests that a steady-state diff allocates nothing per unchanged vehicle and little per moved one.
+     */
+    @Test
+    void testDiffAllocationBudget() throws IOException {
+        assumeTrue(threads != null, "Allocation counters not supported");
+        Snapshot previous = snapshot(firstPoll, 0L);
+        Snapshot unchanged = snapshot(firstPoll, 10_000L);
+        Snapshot moved = snapshot(secondPoll, 10_000L);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            SnapshotDelta.between(previous, unchanged);
+            SnapshotDelta.between(previous, moved);
+        }
+
+        long before = allocatedBytes();
+        SnapshotDelta same = SnapshotDelta.between(previous, unchanged);
+        long sameBytes = allocatedBytes() - before;
+        assertTrue(same.isEmpty());
+        assertTrue(sameBytes <= FIXED_BYTES,
+                "Diffing " + FLEET_SIZE + " unchanged vehicles allocated " + sameBytes + " bytes");
+
+        before = allocatedBytes();
+        SnapshotDelta delta = SnapshotDelta.between(previous, moved);
+        long movedBytes = allocatedBytes() - before;
+        assertTrue(delta.size() > FLEET_SIZE / 2, "Expected most vehicles to move, got " + delta.size());
+        assertTrue(movedBytes <= FIXED_BYTES + DIFF_BYTES_PER_CHANGE * delta.size(),
+                "Diffing " + delta.size() + " changes allocated " + movedBytes + " bytes");
+    }
+
+    /**
+     * Tests the bytes allocated by decoding and retained by the resulting snapshot.
+     */
+    @Test
+    void testDecodeAndRetainedMemoryBudget() throws IOException {
+        assumeTrue(threads != null, "Allocation counters not supported");
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            DECODER.decode(firstPoll);
+        }
+
+        long before = allocatedBytes();
+        List<Bus> buses = DECODER.decode(firstPoll).getResult();
+        long decodeBytes = allocatedBytes() - before;
+        assertEquals(FLEET_SIZE, buses.size());
+        assertTrue(decodeBytes <= DECODE_BYTES_PER_VEHICLE * FLEET_SIZE,
+                "Decoding allocated " + decodeBytes / FLEET_SIZE + " bytes per vehicle");
+
+        // Hold several snapshots, so the difference in live heap dwarfs unrelated noise
+        Snapshot[] snapshots = new Snapshot[8];
+        long empty = liveHeapBytes();
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = snapshot(firstPoll, i);
+        }
+        long retained = (liveHeapBytes() - empty) / snapshots.length;
+        assumeTrue(retained > 0, "Live heap not measurable, e.g. explicit GC disabled");
+        assertEquals(FLEET_SIZE, snapshots[snapshots.length - 1].size());
+        assertTrue(retained <= SnapshotHistory.ESTIMATED_BYTES_PER_VEHICLE * FLEET_SIZE,
+                "A snapshot retains " + retained / FLEET_SIZE + " bytes per vehicle");
+    }
+
+    /**
+     * Tests the median latency of decoding the fixture in a warmed loop.
+     */
+    @Test
+    void testDecodeLatencyBudget() throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            DECODER.decode(firstPoll);
+        }
+
+        long[] nanos = new long[MEASURED_ITERATIONS];
+        for (int i = 0; i < nanos.length; i++) {
+            long started = System.nanoTime();
+            DECODER.decode(firstPoll);
+            nanos[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(nanos);
+        double median = nanos[nanos.length / 2] / 1e6;
+        assertTrue(median <= DECODE_MILLIS, "Median decode of " + FLEET_SIZE + " vehicles took " + median + " ms");
+    }
+
+    /**
+     * Decodes a poll into a snapshot.
+     */
+    private static Snapshot snapshot(byte[] body, long capturedAt) throws IOException {
+        return new Snapshot(DECODER.decode(body).getResult(), capturedAt);
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far.
+     */
+    private static long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns the heap used by live objects, after collecting garbage.
+     */
+    private static long liveHeapBytes() {
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
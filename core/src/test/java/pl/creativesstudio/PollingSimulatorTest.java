@@ -0,0 +1,131 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import pl.creativesstudio.api.FeedDecoder;
+import pl.creativesstudio.replay.FeedFrame;
+import pl.creativesstudio.replay.FeedRecording;
+import pl.creativesstudio.replay.PollingSimulator;
+import pl.creativesstudio.replay.SyntheticFleet;
+import pl.creativesstudio.repository.PollingPolicy;
+
+/**
+ * Unit tests for `PollingSimulator` and the policies of `PollingPolicy`.
+ * Verifies that:
+ * - Versions are detected from the reports of a recorded feed, not from its frames.
+ * - Staleness, wasted fetches and missed versions follow from the timing of the polls.
+ * - The adaptive policy is as fresh as fast fixed polling with about half the requests.
+ */
+class PollingSimulatorTest {
+
+    /**
+     * Time between feed updates in the simulated recording.
+     */
+    private static final long UPDATE_PERIOD = 10_000;
+
+    /**
+     * Longest delay of a feed update behind its nominal time, in milliseconds.
+     */
+    private static final long UPDATE_JITTER = 3_000;
+
+    /**
+     * Simulated response latency in milliseconds.
+     */
+    private static final long LATENCY = 300;
+
+    private static PollingSimulator simulator;
+
+    /**
+     * Records two hours of a small synthetic fleet, with updates arriving irregularly like on the live feed.
+     */
+    @BeforeAll
+    static void recordFeed() throws Exception {
+        SyntheticFleet fleet = new SyntheticFleet(50, 5, 11L, UPDATE_PERIOD, 0, 0.0, 1_700_000_000_000L);
+        Random random = new Random(5L);
+        List<FeedFrame> frames = new ArrayList<>();
+        for (int i = 0; i < 720; i++) {
+            FeedFrame frame = fleet.next();
+            long jitter = i == 0 ? 0 : (long) (random.nextDouble() * UPDATE_JITTER);
+            frames.add(new FeedFrame(frame.getArrivalTime() + jitter, frame.getBody()));
+        }
+        simulator = PollingSimulator.of(new FeedRecording(frames), new FeedDecoder());
+    }
+
+    /**
+     * Tests that every frame with newer reports starts a version and repeated frames do not.
+     */
+    @Test
+    void testVersionsFromRecording() throws Exception {
+        assertEquals(720, simulator.getVersionCount());
+
+        SyntheticFleet fleet = new SyntheticFleet(5, 1, 1L, UPDATE_PERIOD, 0, 0.0, 0);
+        FeedFrame first = fleet.next();
+        FeedFrame second = fleet.next();
+        List<FeedFrame> frames = new ArrayList<>();
+        frames.add(first);
+        frames.add(new FeedFrame(first.getArrivalTime() + 5_000, first.getBody()));
+        frames.add(second);
+        assertEquals(2, PollingSimulator.of(new FeedRecording(frames), new FeedDecoder()).getVersionCount());
+    }
+
+    /**
+     * Tests the measures on a hand-made feed with known timing.
+     */
+    @Test
+    void testMeasures() {
+        // Versions at 0, 10 s and 20 s; the simulation ends at 30 s
+        PollingSimulator feed = new PollingSimulator(new long[]{0, 10_000, 20_000}, new int[]{100, 100, 100}, 30_000);
+
+        // Polls at 25 s only: version 1 is missed, version 2 waits 5 s
+        PollingSimulator.Result late = feed.run(PollingPolicy.fixed(25_000), 0);
+        assertEquals(1, late.getRequests());
+        assertEquals(1, late.getMissedVersions());
+        assertEquals(0, late.getWastedFetches());
+        assertEquals(100, late.getBytes());
+        assertEquals(15_000, late.getMaxStalenessMillis());
+
+        // Polls every 4 s: versions show up within 4 s, polls in between are wasted
+        PollingSimulator.Result fast = feed.run(PollingPolicy.fixed(4_000), 0);
+        assertEquals(7, fast.getRequests());
+        assertEquals(0, fast.getMissedVersions());
+        assertEquals(5, fast.getWastedFetches());
+        assertEquals(2_000, fast.getMaxStalenessMillis());
+        assertTrue(fast.getMeanStalenessMillis() < late.getMeanStalenessMillis());
+    }
+
+    /**
+     * Compares the policies on the recorded feed.
+     */
+    @Test
+    void testPolicyComparison() {
+        PollingSimulator.Result fast = simulator.run(PollingPolicy.fixed(5_000), LATENCY);
+        PollingSimulator.Result matched = simulator.run(PollingPolicy.fixed(UPDATE_PERIOD), LATENCY);
+        PollingSimulator.Result backoff = simulator.run(PollingPolicy.backoff(5_000, 60_000), LATENCY);
+        PollingSimulator.Result adaptive = simulator.run(PollingPolicy.adaptive(UPDATE_PERIOD, 1_000), LATENCY);
+
+        // Polling twice per update wastes every other fetch
+        assertEquals(0, fast.getMissedVersions());
+        assertTrue(fast.getWastedFetches() >= fast.getRequests() / 2 - 1);
+
+        // Backing off never polls more often than the fixed minimum interval, nor downloads more
+        assertTrue(backoff.getRequests() <= fast.getRequests(), backoff + " vs " + fast);
+        assertTrue(backoff.getBytes() <= fast.getBytes(), backoff + " vs " + fast);
+
+        // The adaptive policy locks onto the updates: fresher than fast polling, with far fewer requests
+        assertTrue(adaptive.getRequests() < fast.getRequests() * 3 / 4,
+                "Adaptive polling sent " + adaptive.getRequests() + " requests");
+        assertTrue(adaptive.getMeanStalenessMillis() <= fast.getMeanStalenessMillis(),
+                "Adaptive polling is staler: " + adaptive + " vs " + fast);
+        assertTrue(adaptive.getMissedVersions() < simulator.getVersionCount() / 50);
+
+        // Polling at the update period costs about the same but drifts against the irregular updates
+        assertTrue(matched.getMeanStalenessMillis() > 2 * adaptive.getMeanStalenessMillis());
+    }
+}
@@ -0,0 +1,100 @@
+package pl.creativesstudio;
+
+import com.google.gson.Gson;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.data.SnapshotDelta;
+import pl.creativesstudio.index.LineCatalog;
+import pl.creativesstudio.index.PrefixTrie;
+import pl.creativesstudio.index.SearchIndex;
+import pl.creativesstudio.models.ApiResponse;
+import pl.creativesstudio.models.Bus;
+import pl.creativesstudio.replay.FeedFrame;
+import pl.creativesstudio.replay.SyntheticFleet;
+
+/**
+ * Unit tests for `PrefixTrie` and `SearchIndex`.
+ * Verifies that:
+ * - Prefix queries return every match, shortest first.
+ * - Removing keys prunes them from later queries.
+ * - An index updated poll by poll answers like a brute-force scan of the latest snapshot.
+ */
+class SearchIndexTest {
+
+    /**
+     * Parses a synthetic poll into a snapshot.
+     */
+    private static Snapshot snapshot(FeedFrame frame) {
+        ApiResponse response = new Gson().fromJson(new String(frame.getBody(), StandardCharsets.UTF_8), ApiResponse.class);
+        return new Snapshot(response.getResult(), frame.getArrivalTime());
+    }
+
+    /**
+     * Tests ordering, counting and removal in the trie.
+     */
+    @Test
+    void testTrieSearchAndRemove() {
+        PrefixTrie trie = new PrefixTrie();
+        for (String key : Arrays.asList("105", "10", "1", "N61", "180", "100", "N6")) {
+            assertTrue(trie.add(key));
+        }
+        assertFalse(trie.add("10"), "Keys are added once.");
+
+        assertEquals(Arrays.asList("1", "10", "100", "105", "180"), trie.search("1", 10));
+        assertEquals(Arrays.asList("10", "100", "105"), trie.search("10", 10));
+        assertEquals(Arrays.asList("1", "10"), trie.search("1", 2));
+        assertEquals(2, trie.count("N"));
+
+        assertTrue(trie.remove("10"));
+        assertFalse(trie.remove("10"));
+        assertTrue(trie.remove("N61"));
+        assertEquals(Arrays.asList("100", "105"), trie.search("10", 10));
+        assertEquals(Arrays.asList("N6"), trie.search("N", 10));
+        assertTrue(trie.search("N61", 10).isEmpty());
+        assertEquals(5, trie.size());
+    }
+
+    /**
+     * Tests that incremental updates track lines and vehicles that come and go.
+     */
+    @Test
+    void testIncrementalUpdateMatchesBruteForce() {
+        // Few vehicles per line and frequent gaps, so lines appear and disappear between polls
+        SyntheticFleet fleet = new SyntheticFleet(600, 300, 11L, 10_000, 20_000, 0.4, 1_704_103_200_000L);
+        SearchIndex index = new SearchIndex();
+        LineCatalog previous = LineCatalog.EMPTY;
+
+        for (int poll = 0; poll < 8; poll++) {
+            LineCatalog catalog = LineCatalog.build(snapshot(fleet.next()));
+            index.update(previous, catalog, SnapshotDelta.between(previous.getSnapshot(), catalog.getSnapshot()));
+            previous = catalog;
+
+            assertEquals(catalog.getSnapshot().size(), index.getVehicleCount());
+            for (String query : Arrays.asList("1", "2", "55", "n", "N0", "10", "100")) {
+                List<String> expectedLines = new ArrayList<>();
+                for (String line : catalog.getLines()) {
+                    if (line.startsWith(query.toUpperCase())) expectedLines.add(line);
+                }
+                List<String> actualLines = new ArrayList<>(index.searchLines(query, Integer.MAX_VALUE));
+                expectedLines.sort(null);
+                actualLines.sort(null);
+                assertEquals(expectedLines, actualLines, "Lines matching " + query);
+
+                int expectedVehicles = 0;
+                for (Bus bus : catalog.getSnapshot().getBuses()) {
+                    if (bus.getVehicleNumber().startsWith(query)) expectedVehicles++;
+                }
+                assertEquals(expectedVehicles, index.searchVehicles(query, Integer.MAX_VALUE).size(), "Vehicles matching " + query);
+            }
+        }
+    }
+}
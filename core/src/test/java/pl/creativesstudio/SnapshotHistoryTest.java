@@ -0,0 +1,99 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pl.creativesstudio.TestBuses.bus;
+
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.data.SnapshotDelta;
+import pl.creativesstudio.data.SnapshotHistory;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Unit tests for `Snapshot`, `SnapshotDelta` and `SnapshotHistory`.
+ * Verifies that:
+ * - Deltas rebuild the target snapshot exactly.
+ * - The history returns the state of the last poll at or before the requested time.
+ * - Old segments are evicted once they fall out of the retention window.
+ */
+class SnapshotHistoryTest {
+
+    /**
+     * Tests that snapshots are sorted by vehicle number and keep the last report of duplicates.
+     */
+    @Test
+    void testSnapshotSortsAndDeduplicates() {
+        Snapshot snapshot = new Snapshot(Arrays.asList(bus("3", "13", 1, 1), bus("1", "11", 1, 1), bus("3", "13", 2, 2)), 0);
+
+        assertEquals(2, snapshot.size());
+        assertEquals("1", snapshot.get(0).getVehicleNumber());
+        assertEquals(2.0, snapshot.get(1).getLat());
+        assertEquals(1, snapshot.indexOf("3"));
+        assertTrue(snapshot.indexOf("2") < 0);
+    }
+
+    /**
+     * Tests that applying a delta to its source snapshot yields the target snapshot.
+     */
+    @Test
+    void testDeltaRoundTrip() {
+        Snapshot from = new Snapshot(Arrays.asList(bus("1", "11", 1, 1), bus("2", "12", 2, 2), bus("3", "13", 3, 3)), 1000);
+        Snapshot to = new Snapshot(Arrays.asList(bus("2", "12", 2, 2), bus("3", "13", 3.5, 3), bus("4", "14", 4, 4)), 2000);
+
+        SnapshotDelta delta = SnapshotDelta.between(from, to);
+        assertEquals(2, delta.getUpserts().length, "Vehicle 3 moved and vehicle 4 appeared.");
+        assertArrayEquals(new String[]{"1"}, delta.getRemovals());
+
+        Snapshot rebuilt = delta.applyTo(from);
+        assertEquals(to.size(), rebuilt.size());
+        for (int i = 0; i < to.size(); i++) {
+            assertEquals(to.get(i).getVehicleNumber(), rebuilt.get(i).getVehicleNumber());
+            assertEquals(to.get(i).getLat(), rebuilt.get(i).getLat());
+        }
+        assertEquals(2000, rebuilt.getCapturedAt());
+    }
+
+    /**
+     * Tests seeking to times between, before and after recorded polls.
+     */
+    @Test
+    void testStateAtReturnsLastPollBeforeTime() {
+        SnapshotHistory history = new SnapshotHistory(60_000, 3);
+        for (int poll = 0; poll < 10; poll++) {
+            List<Bus> buses = new ArrayList<>();
+            buses.add(bus("1", "11", poll, 0));
+            if (poll % 2 == 0) {
+                buses.add(bus("2", "12", 0, poll));
+            }
+            history.record(new Snapshot(buses, poll * 1000L));
+        }
+
+        Snapshot state = history.stateAt(7500);
+        assertEquals(7000, state.getCapturedAt());
+        assertEquals(7.0, state.get(0).getLat());
+        assertEquals(1, state.size(), "Vehicle 2 only reports on even polls.");
+
+        assertEquals(0, history.stateAt(-1).getCapturedAt());
+        assertEquals(9000, history.stateAt(Long.MAX_VALUE).getCapturedAt());
+    }
+
+    /**
+     * Tests that segments older than the retention window are dropped.
+     */
+    @Test
+    void testOldSegmentsAreEvicted() {
+        SnapshotHistory history = new SnapshotHistory(5_000, 2);
+        for (int poll = 0; poll <= 20; poll++) {
+            history.record(new Snapshot(Arrays.asList(bus("1", "11", poll, 0)), poll * 1000L));
+        }
+
+        assertTrue(history.getStartTime() <= 15_000, "The retention window must stay reachable.");
+        assertTrue(history.getStartTime() >= 14_000, "Older segments must be evicted.");
+        assertEquals(20_000, history.getEndTime());
+    }
+}
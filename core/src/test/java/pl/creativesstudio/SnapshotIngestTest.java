@@ -0,0 +1,137 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pl.creativesstudio.TestBuses.bus;
+
+import pl.creativesstudio.data.FetchPlan;
+import pl.creativesstudio.data.ReportAgePolicy;
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.data.SnapshotIngest;
+import pl.creativesstudio.data.SnapshotIngest.Reject;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Unit tests for `SnapshotIngest`.
+ * Verifies that:
+ * - Invalid, out-of-area and future-dated reports are rejected and counted per reason.
+ * - Duplicated vehicles keep their newest report.
+ * - Partial responses are merged per vehicle without going back in time.
+ */
+class SnapshotIngestTest {
+
+    /**
+     * Tests that only valid, unique vehicles reach the snapshot and that rejects are counted.
+     */
+    @Test
+    void testRejectsInvalidReports() {
+        SnapshotIngest ingest = new SnapshotIngest();
+        SnapshotIngest.Result result = ingest.ingest(Snapshot.EMPTY, FetchPlan.FULL, Arrays.asList(
+                bus("1", "105", 52.23, 21.01, 1000),
+                bus(null, "105", 52.23, 21.01, 1000),
+                bus("2", "105", 0, 0, 1000),
+                bus("3", "105", Double.NaN, 21.01, 1000),
+                bus("4", "105", 50.06, 19.94, 1000),
+                bus("7", null, 52.23, 21.01, 1000),
+                bus("8", "", 52.23, 21.01, 1000),
+                null,
+                bus("5", "N61", 52.4, 20.9, 1000)), 5000);
+
+        Snapshot snapshot = result.getSnapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals("1", snapshot.get(0).getVehicleNumber());
+        assertEquals("5", snapshot.get(1).getVehicleNumber());
+        assertEquals(5000, snapshot.getCapturedAt());
+        assertEquals(2, result.getAccepted());
+        assertEquals(1, result.getRejected(Reject.MISSING_VEHICLE_NUMBER));
+        assertEquals(2, result.getRejected(Reject.MISSING_LINE));
+        assertEquals(2, result.getRejected(Reject.INVALID_COORDINATES));
+        assertEquals(1, result.getRejected(Reject.OUTSIDE_SERVICE_AREA));
+
+        // Totals accumulate over calls
+        ingest.ingest(snapshot, FetchPlan.FULL, Collections.singletonList(bus("6", "105", 0, 0, 0)), 6000);
+        assertEquals(3, ingest.getRejectCount(Reject.INVALID_COORDINATES));
+        assertEquals(0, ingest.getRejectCount(Reject.DUPLICATE));
+    }
+
+    /**
+     * Tests that a vehicle reported several times keeps its newest report, whatever the order.
+     */
+    @Test
+    void testDeduplicatesByNewestTime() {
+        SnapshotIngest ingest = new SnapshotIngest();
+        SnapshotIngest.Result result = ingest.ingest(Snapshot.EMPTY, FetchPlan.FULL, Arrays.asList(
+                bus("7", "105", 52.20, 21.0, 3000),
+                bus("7", "105", 52.21, 21.0, 1000),
+                bus("8", "180", 52.30, 21.0, 1000),
+                bus("8", "180", 52.31, 21.0, 1000)), 5000);
+
+        Snapshot snapshot = result.getSnapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals(52.20, snapshot.get(snapshot.indexOf("7")).getLat(), "The newest report wins.");
+        assertEquals(52.31, snapshot.get(snapshot.indexOf("8")).getLat(), "On a tie the last report wins.");
+        assertEquals(2, result.getRejected(Reject.DUPLICATE));
+        assertEquals(3000, snapshot.getLatestReportTime());
+    }
+
+    /**
+     * Tests that a vehicle reporting a time far in the future cannot make the rest of the fleet look outdated.
+     */
+    @Test
+    void testFutureReportRejected() {
+        long now = 1_720_000_000_000L;
+        List<Bus> response = Arrays.asList(
+                bus("1", "105", 52.23, 21.01, now - 10_000),
+                bus("2", "105", 52.24, 21.02, now - 20_000),
+                bus("3", "180", 52.25, 21.03, now + 3_600_000));
+        ReportAgePolicy policy = new ReportAgePolicy(60_000, 300_000);
+
+        SnapshotIngest.Result result = new SnapshotIngest().ingest(Snapshot.EMPTY, FetchPlan.FULL, response, now);
+        assertEquals(2, result.getSnapshot().size());
+        assertEquals(1, result.getRejected(Reject.FUTURE_TIME));
+        assertEquals(now - 10_000, result.getSnapshot().getLatestReportTime());
+
+        // A snapshot built around the ingest stage caps its reference, so the others are still drawn
+        Snapshot unchecked = new Snapshot(response, now);
+        assertEquals(now + Snapshot.MAX_CLOCK_SKEW, unchecked.getLatestReportTime());
+        for (Bus bus : response) {
+            assertTrue(policy.alphaOf(bus, unchecked.getLatestReportTime()) > 0, bus.getVehicleNumber() + " is drawn");
+        }
+    }
+
+    /**
+     * Tests that a partial response replaces reported vehicles, drops vehicles that left the line
+     * and keeps newer previous reports.
+     */
+    @Test
+    void testMergesPartialResponsePerVehicle() {
+        Snapshot previous = new Snapshot(Arrays.asList(
+                bus("1", "105", 52.1, 21.0, 2000),
+                bus("2", "105", 52.2, 21.0, 2000),
+                bus("3", "180", 52.3, 21.0, 2000),
+                bus("4", "180", 52.4, 21.0, 2000)), 2000);
+
+        FetchPlan plan = FetchPlan.forLines(Collections.singletonList("105"));
+        SnapshotIngest.Result result = new SnapshotIngest().ingest(previous, plan, Arrays.asList(
+                bus("2", "105", 52.25, 21.0, 3000),
+                bus("4", "105", 52.45, 21.0, 1000),
+                bus("5", "105", 52.5, 21.0, 3000),
+                bus("6", "105", 0, 0, 3000)), 4000);
+
+        Snapshot merged = result.getSnapshot();
+        assertEquals(4, merged.size(), "Vehicle 1 no longer reports on line 105.");
+        assertTrue(merged.indexOf("1") < 0);
+        assertEquals(52.25, merged.get(merged.indexOf("2")).getLat());
+        assertEquals(52.3, merged.get(merged.indexOf("3")).getLat());
+        assertEquals(52.4, merged.get(merged.indexOf("4")).getLat(), "The older report is discarded.");
+        assertEquals(52.5, merged.get(merged.indexOf("5")).getLat());
+        assertEquals(2, result.getAccepted());
+        assertEquals(1, result.getRejected(Reject.OUTDATED));
+        assertEquals(1, result.getRejected(Reject.INVALID_COORDINATES));
+    }
+}
@@ -0,0 +1,113 @@
+package pl.creativesstudio;
+
+import com.google.gson.Gson;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import pl.creativesstudio.api.ApiClient;
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.data.SnapshotStore;
+import pl.creativesstudio.models.ApiResponse;
+import pl.creativesstudio.models.Bus;
+import pl.creativesstudio.replay.FeedFrame;
+import pl.creativesstudio.replay.SyntheticFleet;
+
+/**
+ * Unit tests for `SnapshotStore`.
+ * Verifies that:
+ * - A stored snapshot reads back with the same vehicles, positions and capture time.
+ * - The binary file is much smaller than the JSON it was parsed from.
+ * - Missing, truncated and foreign files are detected.
+ */
+class SnapshotStoreTest {
+
+    @TempDir
+    File directory;
+
+    /**
+     * Tests a round trip of a 1 500-vehicle synthetic poll.
+     */
+    @Test
+    void testRoundTrip() throws IOException {
+        FeedFrame frame = new SyntheticFleet(1_500, 250, 3L).next();
+        String json = new String(frame.getBody(), StandardCharsets.UTF_8);
+        Snapshot snapshot = new Snapshot(ApiClient.gson().fromJson(json, ApiResponse.class).getResult(), frame.getArrivalTime());
+
+        File file = new File(directory, "last_snapshot.bin");
+        SnapshotStore store = new SnapshotStore(file);
+        assertNull(store.read(), "Nothing stored yet.");
+        store.write(snapshot);
+        Snapshot restored = store.read();
+
+        assertEquals(snapshot.getCapturedAt(), restored.getCapturedAt());
+        assertEquals(snapshot.size(), restored.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            Bus expected = snapshot.get(i);
+            Bus actual = restored.get(i);
+            assertEquals(expected.getVehicleNumber(), actual.getVehicleNumber());
+            assertEquals(expected.getLines(), actual.getLines());
+            assertEquals(expected.getBrigade(), actual.getBrigade());
+            assertEquals(expected.getTime(), actual.getTime());
+            assertEquals(expected.getTimeMillis(), actual.getTimeMillis());
+            assertEquals(expected.getLat(), actual.getLat());
+            assertEquals(expected.getLon(), actual.getLon());
+        }
+        assertEquals(0, restored.indexOf(snapshot.get(0).getVehicleNumber()));
+        assertTrue(file.length() * 2 < json.length(), "Binary snapshot should be less than half the JSON size.");
+    }
+
+    /**
+     * Tests that missing values are kept as `null`.
+     */
+    @Test
+    void testMissingValues() throws IOException {
+        Bus bus = new Bus();
+        bus.setVehicleNumber("1000");
+        bus.setLat(52.2);
+        bus.setLon(21.0);
+
+        SnapshotStore store = new SnapshotStore(new File(directory, "snapshot.bin"));
+        store.write(new Snapshot(Arrays.asList(bus), 42L));
+        Bus restored = store.read().get(0);
+
+        assertEquals("1000", restored.getVehicleNumber());
+        assertNull(restored.getLines());
+        assertNull(restored.getBrigade());
+        assertNull(restored.getTime());
+    }
+
+    /**
+     * Tests that damaged files are rejected instead of producing wrong vehicles.
+     */
+    @Test
+    void testCorruptFilesRejected() throws IOException {
+        File file = new File(directory, "snapshot.bin");
+        SnapshotStore store = new SnapshotStore(file);
+        store.write(new Snapshot(new Gson().fromJson(
+                new String(new SyntheticFleet(100, 10, 1L).next().getBody(), StandardCharsets.UTF_8),
+                ApiResponse.class).getResult(), 1L));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        assertThrows(IOException.class, store::read);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(0);
+            raf.writeInt(0x7B226122); // Start of a JSON document
+        }
+        assertThrows(IOException.class, store::read);
+
+        store.clear();
+        assertNull(store.read());
+    }
+}
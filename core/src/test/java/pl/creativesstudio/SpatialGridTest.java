@@ -0,0 +1,139 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pl.creativesstudio.TestBuses.bus;
+
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.data.SnapshotDelta;
+import pl.creativesstudio.index.GeoBounds;
+import pl.creativesstudio.index.NearbyVehicle;
+import pl.creativesstudio.index.SpatialGrid;
+import pl.creativesstudio.index.ViewportIndex;
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Unit tests for the `SpatialGrid` nearest-vehicle index and the `ViewportIndex`.
+ * Verifies that incremental updates, ring search and viewport queries give the same answer as a full scan.
+ */
+class SpatialGridTest {
+
+    /**
+     * Generates a random fleet around the center of Warsaw.
+     */
+    private static List<Bus> randomFleet(Random random, int count, int lines) {
+        List<Bus> buses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            buses.add(bus(Integer.toString(1000 + i), Integer.toString(100 + random.nextInt(lines)),
+                    52.23 + (random.nextDouble() - 0.5) * 0.2, 21.01 + (random.nextDouble() - 0.5) * 0.3));
+        }
+        return buses;
+    }
+
+    /**
+     * Finds the distance to the k-th nearest vehicle with a full scan.
+     */
+    private static double bruteForceKthDistance(List<Bus> buses, double lat, double lon, int k, String line) {
+        double metersPerDegLon = 111_320.0 * Math.cos(Math.toRadians(lat));
+        List<Double> distances = new ArrayList<>();
+        for (Bus bus : buses) {
+            if (line != null && !line.equals(bus.getLines())) continue;
+            double dy = (bus.getLat() - lat) * 111_320.0;
+            double dx = (bus.getLon() - lon) * metersPerDegLon;
+            distances.add(Math.sqrt(dx * dx + dy * dy));
+        }
+        distances.sort(Comparator.naturalOrder());
+        return distances.get(Math.min(k, distances.size()) - 1);
+    }
+
+    /**
+     * Tests kNN results against a full scan after several incremental updates.
+     */
+    @Test
+    void testNearestMatchesFullScanAfterIncrementalUpdates() {
+        Random random = new Random(3);
+        SpatialGrid grid = new SpatialGrid();
+        Snapshot indexed = Snapshot.EMPTY;
+        List<Bus> fleet = null;
+
+        for (int poll = 0; poll < 5; poll++) {
+            fleet = randomFleet(random, 1500 - poll * 100, 30);
+            Snapshot next = new Snapshot(fleet, poll);
+            grid.apply(SnapshotDelta.between(indexed, next));
+            indexed = next;
+        }
+        assertEquals(fleet.size(), grid.size());
+
+        for (int query = 0; query < 50; query++) {
+            double lat = 52.23 + (random.nextDouble() - 0.5) * 0.25;
+            double lon = 21.01 + (random.nextDouble() - 0.5) * 0.35;
+            String line = query % 2 == 0 ? null : Integer.toString(100 + random.nextInt(30));
+
+            List<NearbyVehicle> nearest = grid.nearest(lat, lon, 10, line);
+            assertFalse(nearest.isEmpty());
+            for (int i = 1; i < nearest.size(); i++) {
+                assertTrue(nearest.get(i - 1).getDistanceMeters() <= nearest.get(i).getDistanceMeters());
+            }
+            for (NearbyVehicle vehicle : nearest) {
+                if (line != null) assertEquals(line, vehicle.getBus().getLines());
+            }
+            double expected = bruteForceKthDistance(fleet, lat, lon, 10, line);
+            assertEquals(expected, nearest.get(nearest.size() - 1).getDistanceMeters(), 1e-6);
+        }
+    }
+
+    /**
+     * Tests distance and bearing for a vehicle due east of the query point.
+     */
+    @Test
+    void testDistanceAndBearing() {
+        Bus bus = bus("1", "105", 52.23, 21.02);
+
+        SpatialGrid grid = new SpatialGrid();
+        grid.put(bus);
+        NearbyVehicle result = grid.nearest(52.23, 21.01, 5, null).get(0);
+
+        assertEquals(682, result.getDistanceMeters(), 5);
+        assertEquals(90, result.getBearingDegrees(), 0.1);
+        assertEquals("E", result.getCompassDirection());
+
+        grid.remove("1");
+        assertTrue(grid.nearest(52.23, 21.01, 5, null).isEmpty());
+    }
+
+    /**
+     * Tests that the viewport index returns exactly the vehicles a full scan finds inside random viewports.
+     */
+    @Test
+    void testViewportIndexMatchesFullScan() {
+        Random random = new Random(11);
+        List<Bus> buses = randomFleet(random, 3_000, 40);
+        ViewportIndex index = ViewportIndex.build(new Snapshot(buses, 1000));
+        assertEquals(3_000, index.size());
+
+        for (int i = 0; i < 200; i++) {
+            double south = 52.1 + random.nextDouble() * 0.2;
+            double west = 20.85 + random.nextDouble() * 0.3;
+            GeoBounds bounds = new GeoBounds(south, west, south + random.nextDouble() * 0.05, west + random.nextDouble() * 0.08);
+
+            Set<String> expected = new HashSet<>();
+            for (Bus bus : buses) {
+                if (bounds.contains(bus.getLat(), bus.getLon())) expected.add(bus.getVehicleNumber());
+            }
+            Set<String> actual = new HashSet<>();
+            for (Bus bus : index.within(bounds)) {
+                actual.add(bus.getVehicleNumber());
+            }
+            assertEquals(expected, actual);
+        }
+        assertTrue(ViewportIndex.EMPTY.within(new GeoBounds(52.0, 20.0, 53.0, 22.0)).isEmpty());
+    }
+}
@@ -0,0 +1,58 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import pl.creativesstudio.metrics.StartupTimeline;
+import pl.creativesstudio.metrics.StartupTimeline.Milestone;
+
+/**
+ * Unit tests for `StartupTimeline`.
+ * Verifies that:
+ * - Only the first mark of a milestone is recorded.
+ * - Times are measured from an origin in the past, e.g. the start of the process.
+ * - The report lists reached milestones in time order.
+ */
+class StartupTimelineTest {
+
+    /**
+     * Tests that a milestone keeps the time of its first mark.
+     */
+    @Test
+    void testFirstMarkWins() throws Exception {
+        StartupTimeline timeline = new StartupTimeline(System.nanoTime() - 500_000_000L);
+
+        assertEquals(-1, timeline.getMillis(Milestone.MAP_READY));
+        assertTrue(timeline.mark(Milestone.MAP_READY));
+        long first = timeline.getMillis(Milestone.MAP_READY);
+        assertTrue(first >= 500, "Measured from the origin: " + first);
+
+        // A recreated activity marks it again later
+        Thread.sleep(20);
+        assertFalse(timeline.mark(Milestone.MAP_READY));
+        assertEquals(first, timeline.getMillis(Milestone.MAP_READY));
+        assertFalse(timeline.isComplete());
+
+        assertTrue(timeline.mark(Milestone.FIRST_VEHICLE));
+        assertTrue(timeline.isComplete());
+    }
+
+    /**
+     * Tests that the report follows the order milestones were reached in, not their declaration order.
+     */
+    @Test
+    void testReportInTimeOrder() throws Exception {
+        StartupTimeline timeline = new StartupTimeline(System.nanoTime());
+        timeline.mark(Milestone.MAP_READY);
+        Thread.sleep(5);
+        timeline.mark(Milestone.FIRST_SNAPSHOT);
+        Thread.sleep(5);
+        timeline.mark(Milestone.FIRST_VEHICLE);
+
+        String report = timeline.toString();
+        assertTrue(report.startsWith("startup MAP_READY "), report);
+        assertTrue(report.indexOf("FIRST_SNAPSHOT") < report.indexOf("FIRST_VEHICLE"), report);
+        assertFalse(report.contains("API_CLIENT_READY"), report);
+    }
+}
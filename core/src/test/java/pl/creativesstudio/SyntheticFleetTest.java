@@ -0,0 +1,75 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import okhttp3.OkHttpClient;
+import pl.creativesstudio.api.ApiClient;
+import pl.creativesstudio.models.ApiResponse;
+import pl.creativesstudio.models.Bus;
+import pl.creativesstudio.replay.FeedServer;
+import pl.creativesstudio.replay.ReplayPacer;
+import pl.creativesstudio.replay.SyntheticFleet;
+import retrofit2.Response;
+
+/**
+ * Unit tests for the `SyntheticFleet` generator.
+ * Verifies that:
+ * - Payloads parse into the configured number of vehicles and lines.
+ * - Generated positions stay in the Warsaw area and vehicles move between polls.
+ * - The same seed produces the same feed.
+ */
+class SyntheticFleetTest {
+
+    /**
+     * Tests a 10k-vehicle fleet served through the local stand-in API.
+     */
+    @Test
+    void testFleetServedThroughApi() throws Exception {
+        SyntheticFleet fleet = new SyntheticFleet(10_000, 400, 7L);
+
+        try (FeedServer server = FeedServer.start(fleet, ReplayPacer.AS_FAST_AS_POSSIBLE, 0)) {
+            OkHttpClient client = new OkHttpClient();
+            Response<ApiResponse> first = ApiClient.create(server.getBaseUrl(), client)
+                    .getBuses("resource", "key", 1, null, null).execute();
+            Response<ApiResponse> second = ApiClient.create(server.getBaseUrl(), client)
+                    .getBuses("resource", "key", 1, null, null).execute();
+
+            assertTrue(first.isSuccessful());
+            assertEquals(10_000, first.body().getResult().size());
+
+            Set<String> lines = new HashSet<>();
+            int moved = 0;
+            for (int i = 0; i < 10_000; i++) {
+                Bus a = first.body().getResult().get(i);
+                Bus b = second.body().getResult().get(i);
+                lines.add(a.getLines());
+                assertEquals(a.getVehicleNumber(), b.getVehicleNumber());
+                assertTrue(a.getLat() > 52.0 && a.getLat() < 52.5, "Latitude outside Warsaw: " + a.getLat());
+                assertTrue(a.getLon() > 20.7 && a.getLon() < 21.4, "Longitude outside Warsaw: " + a.getLon());
+                assertTrue(a.getTime().matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}"));
+                if (a.getLat() != b.getLat() || a.getLon() != b.getLon()) {
+                    moved++;
+                }
+            }
+            assertEquals(400, lines.size());
+            assertTrue(moved > 9_000, "Most vehicles should move between polls.");
+        }
+    }
+
+    /**
+     * Tests that two fleets with the same seed generate identical payloads.
+     */
+    @Test
+    void testSameSeedSameFeed() {
+        SyntheticFleet a = new SyntheticFleet(500, 50, 42L);
+        SyntheticFleet b = new SyntheticFleet(500, 50, 42L);
+        for (int poll = 0; poll < 3; poll++) {
+            assertArrayEquals(a.next().getBody(), b.next().getBody());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package pl.creativesstudio;
+
+import pl.creativesstudio.models.Bus;
+
+/**
+ * Builds the vehicles used as fixtures by the unit tests.
+ */
+final class TestBuses {
+
+    private TestBuses() {
+    }
+
+    /**
+     * Creates a bus with the given vehicle number, line and position, without a report time.
+     *
+     * @param vehicle The vehicle number.
+     * @param line    The line, or `null` for a report without one.
+     * @param lat     The latitude.
+     * @param lon     The longitude.
+     * @return The new bus.
+     */
+    static Bus bus(String vehicle, String line, double lat, double lon) {
+        Bus bus = new Bus();
+        bus.setVehicleNumber(vehicle);
+        bus.setLines(line);
+        bus.setLat(lat);
+        bus.setLon(lon);
+        return bus;
+    }
+
+    /**
+     * Creates a bus with the given vehicle number, line, position and report time.
+     *
+     * @param vehicle The vehicle number.
+     * @param line    The line, or `null` for a report without one.
+     * @param lat     The latitude.
+     * @param lon     The longitude.
+     * @param time    The report time in milliseconds since the epoch.
+     * @return The new bus.
+     */
+    static Bus bus(String vehicle, String line, double lat, double lon, long time) {
+        Bus bus = bus(vehicle, line, lat, lon);
+        bus.setTimeMillis(time);
+        return bus;
+    }
+}
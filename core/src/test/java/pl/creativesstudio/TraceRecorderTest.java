@@ -0,0 +1,111 @@
+package pl.creativesstudio;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import pl.creativesstudio.trace.TraceRecorder;
+import pl.creativesstudio.trace.Tracing;
+
+/**
+ * Unit tests for `TraceRecorder` and `Tracing`.
+ * Verifies that:
+ * - Only events between `start` and `stop` are recorded.
+ * - Sections, async sections spanning threads and thread names are written in the Chrome trace format.
+ * - A full ring buffer keeps the most recent events.
+ */
+class TraceRecorderTest {
+
+    /**
+     * Tests a capture with nested sections and an async section ending on another thread.
+     */
+    @Test
+    void testWritesChromeTrace() throws Exception {
+        TraceRecorder recorder = new TraceRecorder(TraceRecorder.DEFAULT_CAPACITY);
+        Tracing.beginSection("before");
+        Tracing.endSection();
+
+        recorder.start();
+        Tracing.beginAsyncSection("poll", 7);
+        Tracing.beginSection("outer");
+        Tracing.beginSection("inner \"quoted\"");
+        Tracing.endSection();
+        Tracing.endSection();
+        Thread worker = new Thread(() -> Tracing.endAsyncSection("poll", 7), "worker");
+        worker.start();
+        worker.join();
+        recorder.stop();
+        Tracing.beginSection("after");
+        Tracing.endSection();
+
+        assertFalse(recorder.isRecording());
+        assertEquals(6, recorder.getEventCount());
+        List<JsonObject> events = events(recorder);
+
+        // Two thread names come first, then the events in order
+        assertEquals(8, events.size());
+        List<String> threadNames = new ArrayList<>();
+        for (JsonObject event : events.subList(0, 2)) {
+            assertEquals("M", event.get("ph").getAsString());
+            threadNames.add(event.getAsJsonObject("args").get("name").getAsString());
+        }
+        assertTrue(threadNames.contains("worker"));
+        assertTrue(threadNames.contains(Thread.currentThread().getName()));
+
+        List<JsonObject> trace = events.subList(2, 8);
+        String[] phases = {"b", "B", "B", "E", "E", "e"};
+        for (int i = 0; i < phases.length; i++) {
+            assertEquals(phases[i], trace.get(i).get("ph").getAsString());
+        }
+        assertEquals("inner \"quoted\"", trace.get(2).get("name").getAsString());
+        assertEquals(7, trace.get(5).get("id").getAsInt());
+        assertNotEquals(trace.get(0).get("tid").getAsLong(), trace.get(5).get("tid").getAsLong());
+        for (int i = 1; i < trace.size(); i++) {
+            assertTrue(trace.get(i).get("ts").getAsDouble() >= trace.get(i - 1).get("ts").getAsDouble());
+        }
+    }
+
+    /**
+     * Tests that a full ring buffer drops the oldest events.
+     */
+    @Test
+    void testKeepsMostRecentEvents() throws IOException {
+        TraceRecorder recorder = new TraceRecorder(4);
+        recorder.start();
+        for (int i = 0; i < 10; i++) {
+            recorder.beginAsyncSection("step", i);
+        }
+        recorder.stop();
+
+        assertEquals(4, recorder.getEventCount());
+        List<JsonObject> events = events(recorder);
+        assertEquals(5, events.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(6 + i, events.get(1 + i).get("id").getAsInt());
+        }
+    }
+
+    /**
+     * Writes a capture and parses its events.
+     */
+    private static List<JsonObject> events(TraceRecorder recorder) throws IOException {
+        StringWriter out = new StringWriter();
+        recorder.writeChromeTrace(out);
+        JsonArray array = new JsonParser().parse(out.toString()).getAsJsonObject().getAsJsonArray("traceEvents");
+        List<JsonObject> events = new ArrayList<>();
+        for (JsonElement element : array) {
+            events.add(element.getAsJsonObject());
+        }
+        return events;
+    }
+}
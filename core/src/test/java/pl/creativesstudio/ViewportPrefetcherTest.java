@@ -0,0 +1,128 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import pl.creativesstudio.api.FeedDecoder;
+import pl.creativesstudio.data.ReportAgePolicy;
+import pl.creativesstudio.data.Snapshot;
+import pl.creativesstudio.index.GeoBounds;
+import pl.creativesstudio.index.ViewportIndex;
+import pl.creativesstudio.models.Bus;
+import pl.creativesstudio.render.MarkerLayer;
+import pl.creativesstudio.render.RecordingMapRenderer;
+import pl.creativesstudio.render.ViewportPrefetcher;
+import pl.creativesstudio.replay.SyntheticFleet;
+
+/**
+ * Unit tests for `ViewportPrefetcher`.
+ * Verifies that:
+ * - Pans within the padding keep the region, leaving it or zooming in far re-centers it.
+ * - A fast camera movement adds the predicted end of the fling to the region before the camera settles.
+ * - Drawing the padded region keeps every visible vehicle on the map during a slow pan, with few marker updates.
+ */
+class ViewportPrefetcherTest {
+
+    /**
+     * Visible area of about a city district.
+     */
+    private static final GeoBounds VIEW = new GeoBounds(52.20, 20.95, 52.24, 21.01);
+
+    /**
+     * Tests the hysteresis of the padded region.
+     */
+    @Test
+    void testSmallPansKeepRegion() {
+        ViewportPrefetcher prefetcher = new ViewportPrefetcher(ViewportPrefetcher.DEFAULT_PADDING);
+        assertNull(prefetcher.getRegion());
+        assertTrue(prefetcher.onCameraIdle(VIEW));
+        GeoBounds region = prefetcher.getRegion();
+        assertTrue(region.contains(VIEW.expand(0.49)), region.toString());
+
+        // A pan of a third of the view stays inside the padding
+        assertFalse(prefetcher.onCameraIdle(VIEW.offset(0.013, -0.02)));
+        assertSame(region, prefetcher.getRegion());
+
+        // A pan of a full view does not
+        assertTrue(prefetcher.onCameraIdle(VIEW.offset(0.04, 0)));
+        assertTrue(prefetcher.getRegion().contains(VIEW.offset(0.04, 0)));
+
+        // Zooming out needs a larger region, zooming in a little keeps it, zooming in far re-centers it
+        assertTrue(prefetcher.onCameraIdle(VIEW.expand(0.5)));
+        GeoBounds zoomedOut = prefetcher.getRegion();
+        assertFalse(prefetcher.onCameraIdle(VIEW.expand(0.2)));
+        assertTrue(prefetcher.onCameraIdle(VIEW.expand(-0.4)));
+        assertTrue(zoomedOut.contains(prefetcher.getRegion()));
+        assertEquals(4, prefetcher.getRegionChanges());
+    }
+
+    /**
+     * Tests that a fling adds its predicted end to the region while the camera still moves.
+     */
+    @Test
+    void testFlingPredictsLanding() {
+        ViewportPrefetcher prefetcher = new ViewportPrefetcher(ViewportPrefetcher.DEFAULT_PADDING);
+        prefetcher.onCameraIdle(VIEW);
+
+        // A slow drag, a tenth of the view height per second, predicts nothing
+        long time = 10_000;
+        GeoBounds view = VIEW;
+        for (int i = 0; i < 10; i++) {
+            view = view.offset(0.004 / 60, 0);
+            prefetcher.onCameraMove(view, time += 16);
+        }
+        assertNull(prefetcher.getPredictedLanding());
+
+        // A fling north at three view heights per second lands about a view height further
+        for (int i = 0; i < 5; i++) {
+            view = view.offset(0.12 / 60, 0);
+            prefetcher.onCameraMove(view, time += 16);
+        }
+        GeoBounds landing = prefetcher.getPredictedLanding();
+        assertNotNull(landing);
+        assertTrue(landing.getSouth() > view.getSouth() + 0.02, landing + " after " + view);
+        assertEquals(view.getWest(), landing.getWest(), 1e-9);
+        assertTrue(prefetcher.getRegion().contains(landing), "Landing is staged in " + prefetcher.getRegion());
+
+        // Settling drops the prediction
+        prefetcher.onCameraIdle(view.offset(0.02, 0));
+        assertNull(prefetcher.getPredictedLanding());
+    }
+
+    /**
+     * Tests that markers drawn for the padded region cover every step of a slow pan across the city.
+     */
+    @Test
+    void testPaddedRegionCoversPan() throws Exception {
+        Snapshot snapshot = new Snapshot(
+                new FeedDecoder().decode(new SyntheticFleet(2_000, 100, 7L).next().getBody()).getResult(), 1000);
+        ViewportIndex index = ViewportIndex.build(snapshot);
+        long latestReport = snapshot.getLatestReportTime();
+        RecordingMapRenderer renderer = new RecordingMapRenderer(false);
+        MarkerLayer layer = new MarkerLayer(renderer, MarkerLayer.Strategy.DIFF, new ReportAgePolicy(60_000, 300_000));
+        ViewportPrefetcher prefetcher = new ViewportPrefetcher(ViewportPrefetcher.DEFAULT_PADDING);
+
+        GeoBounds view = new GeoBounds(52.21, 20.85, 52.24, 20.90);
+        long time = 0;
+        int steps = 0;
+        for (; view.getEast() < 21.15; steps++) {
+            view = view.offset(0, 0.0005);
+            if (prefetcher.onCameraMove(view, time += 16)) {
+                layer.show(index.within(prefetcher.getRegion()), latestReport, 1f, null);
+            }
+
+            // Every vehicle on screen already has its marker
+            List<Bus> visible = index.within(view);
+            for (Bus bus : visible) {
+                assertNotNull(renderer.getMarker(bus.getVehicleNumber()), "Missing " + bus + " at step " + steps);
+            }
+        }
+
+        // The markers were drawn a few times, not on every camera movement
+        assertTrue(prefetcher.getRegionChanges() * 20 < steps,
+                prefetcher.getRegionChanges() + " region changes in " + steps + " steps");
+    }
+}
@@ -0,0 +1,103 @@
+package pl.creativesstudio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import pl.creativesstudio.time.Debouncer;
+import pl.creativesstudio.time.Scheduler;
+import pl.creativesstudio.time.VirtualScheduler;
+
+/**
+ * Unit tests for `VirtualScheduler` and `Debouncer`.
+ * Verifies that:
+ * - Tasks run in order of due time, and in scheduling order at equal times, with the clock at their due time.
+ * - Time only moves when advanced, and cancelled tasks never run.
+ * - A debounced action runs once, a full delay after the last trigger.
+ */
+class VirtualSchedulerTest {
+
+    /**
+     * Tests the order and timing of tasks, including tasks scheduled by running tasks.
+     */
+    @Test
+    void testTasksRunInDueOrder() {
+        VirtualScheduler scheduler = new VirtualScheduler(1_000);
+        List<String> log = new ArrayList<>();
+
+        scheduler.schedule(() -> log.add("c@" + scheduler.currentTimeMillis()), 300);
+        scheduler.schedule(() -> log.add("a@" + scheduler.currentTimeMillis()), 100);
+        scheduler.schedule(() -> log.add("b@" + scheduler.currentTimeMillis()), 100);
+        scheduler.schedule(() -> {
+            log.add("d@" + scheduler.currentTimeMillis());
+            scheduler.schedule(() -> log.add("e@" + scheduler.currentTimeMillis()), 50);
+        }, 200);
+        assertEquals(4, scheduler.getPendingCount());
+        assertEquals(1_100, scheduler.getNextDueTime());
+
+        scheduler.advanceBy(99);
+        assertTrue(log.isEmpty());
+        assertEquals(1_099, scheduler.currentTimeMillis());
+
+        scheduler.advanceTo(1_300);
+        assertEquals(Arrays.asList("a@1100", "b@1100", "d@1200", "e@1250", "c@1300"), log);
+        assertEquals(1_300, scheduler.currentTimeMillis());
+        assertEquals(0, scheduler.getPendingCount());
+        assertEquals(Long.MAX_VALUE, scheduler.getNextDueTime());
+    }
+
+    /**
+     * Tests that cancelled tasks are dropped.
+     */
+    @Test
+    void testCancel() {
+        VirtualScheduler scheduler = new VirtualScheduler(0);
+        List<String> log = new ArrayList<>();
+
+        Scheduler.Task cancelled = scheduler.schedule(() -> log.add("cancelled"), 10);
+        scheduler.schedule(() -> log.add("kept"), 10);
+        cancelled.cancel();
+        assertEquals(1, scheduler.getPendingCount());
+
+        scheduler.advanceBy(10);
+        assertEquals(Collections.singletonList("kept"), log);
+
+        // Cancelling a task that already ran has no effect
+        cancelled.cancel();
+        assertEquals(0, scheduler.getPendingCount());
+    }
+
+    /**
+     * Tests that a burst of triggers runs the action once, after the last trigger.
+     */
+    @Test
+    void testDebouncer() {
+        VirtualScheduler scheduler = new VirtualScheduler(0);
+        List<Long> runs = new ArrayList<>();
+        Debouncer debouncer = new Debouncer(scheduler, 1_000, () -> runs.add(scheduler.currentTimeMillis()));
+
+        // Camera movements every 400 ms keep postponing the update
+        for (int i = 0; i < 5; i++) {
+            debouncer.trigger();
+            scheduler.advanceBy(400);
+        }
+        assertTrue(runs.isEmpty());
+        assertTrue(debouncer.isPending());
+
+        scheduler.advanceBy(600);
+        assertEquals(Collections.singletonList(2_600L), runs);
+        assertFalse(debouncer.isPending());
+
+        // A cancelled trigger never runs
+        debouncer.trigger();
+        debouncer.cancel();
+        scheduler.advanceBy(10_000);
+        assertEquals(1, runs.size());
+        assertEquals(0, scheduler.getPendingCount());
+    }
+}
@@ -21,3 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "TrackMyBusWAW"
 include(":app")
+include(":core")
+include(":benchmarks")